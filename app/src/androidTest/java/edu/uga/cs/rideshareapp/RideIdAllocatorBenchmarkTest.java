@@ -0,0 +1,114 @@
+package edu.uga.cs.rideshareapp;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uga.cs.rideshareapp.firebase.FirebaseRideStore;
+import edu.uga.cs.rideshareapp.firebase.RideIdAllocator;
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * Contention benchmark for ride creation against the live database, timed end to end through
+ * RideService.createNewRide (ID, ride node, userRides entries). "Before" is an ID block size of
+ * 1, which is exactly the old one-transaction-per-ride counter; "after" is the leased block size
+ * used by RideService. Each writer has its own service and allocator, standing in for a separate
+ * client, and makes several blocks' worth of creates so the leased run pays for more than one
+ * lease. All writers share this device's single connection, so cross-device contention (and
+ * therefore the gap) is, if anything, understated. Everything is written under a scratch root
+ * that is removed afterwards. Results are written to logcat under the RideIdAllocatorBench tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideIdAllocatorBenchmarkTest {
+
+    private static final String TAG = "RideIdAllocatorBench";
+    private static final int ASYNC_TIMEOUT_SECONDS = 600;
+    private static final int CREATES_PER_WRITER = 3 * RideIdAllocator.DEFAULT_BLOCK_SIZE;
+    private static final int[] WRITER_COUNTS = { 1, 10, 100 };
+    private static final String TEST_USER_EMAIL = "asr05918@uga.edu";
+    private static final String TEST_USER_PASSWORD = "spaugh11AA@@";
+    // Scratch root so the benchmark never burns real ride IDs or writes real rides
+    private static final String SCRATCH_ROOT = "benchmarks/rideCreates";
+    private static final String COUNTER_PATH = "counters/lastRideId";
+
+    @Before
+    public void setUp() throws Exception {
+        FirebaseAuth auth = FirebaseAuth.getInstance();
+        if (auth.getCurrentUser() == null) {
+            Tasks.await(auth.signInWithEmailAndPassword(TEST_USER_EMAIL, TEST_USER_PASSWORD), 25, TimeUnit.SECONDS);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Tasks.await(FirebaseDatabase.getInstance().getReference(SCRATCH_ROOT).removeValue(), 60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void benchmarkCreatesPerSecond() throws InterruptedException {
+        for (int writers : WRITER_COUNTS) {
+            double before = measure(writers, 1);
+            double after = measure(writers, RideIdAllocator.DEFAULT_BLOCK_SIZE);
+            Log.i(TAG, String.format(Locale.US,
+                    "%3d writers x %d creates: per-ride transaction %.1f creates/s, leased blocks %.1f creates/s (%.1fx)",
+                    writers, CREATES_PER_WRITER, before, after, after / before));
+        }
+    }
+
+    /** Runs {@code writers} clients creating rides concurrently and returns completed creates per second. */
+    private double measure(int writers, int blockSize) throws InterruptedException {
+        final int total = writers * CREATES_PER_WRITER;
+        final CountDownLatch latch = new CountDownLatch(total);
+        final AtomicInteger failures = new AtomicInteger();
+        final RideStore store = new FirebaseRideStore(FirebaseDatabase.getInstance(), SCRATCH_ROOT);
+        final String departure = DepartureTime.format(System.currentTimeMillis() + 24 * 3_600_000L);
+
+        long start = System.nanoTime();
+        for (int w = 0; w < writers; w++) {
+            final RideService service = new RideService(store, () -> TEST_USER_EMAIL,
+                    new RideIdAllocator(store, COUNTER_PATH, blockSize));
+            new Thread(() -> {
+                for (int i = 0; i < CREATES_PER_WRITER; i++) {
+                    Ride offer = new Ride(departure, TEST_USER_EMAIL, null, "Atlanta", "Athens", false, 0);
+                    service.createNewRide(offer, new RideService.CompletionListener() {
+                        @Override
+                        public void onSuccess() {
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            Log.e(TAG, "Create failed", e);
+                            failures.incrementAndGet();
+                            latch.countDown();
+                        }
+                    });
+                }
+            }).start();
+        }
+
+        assertTrue("Creates did not finish in time", latch.await(ASYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals("Some creates failed", 0, failures.get());
+        return total / seconds;
+    }
+}
@@ -0,0 +1,200 @@
+package edu.uga.cs.rideshareapp;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import edu.uga.cs.rideshareapp.adapter.RideBrowseAdapter;
+import edu.uga.cs.rideshareapp.model.Ride;
+
+/**
+ * Frame times for a 5k-row ride list receiving live updates, before and after moving the
+ * adapters to background diffing. "Before" is a copy of the old adapter (clear, addAll,
+ * notifyDataSetChanged); "after" is RideBrowseAdapter with submitList. Each round edits a
+ * few rides, drops one, adds one and scrolls, like a busy browse list. Frame durations come
+ * from FrameMetrics and are written to logcat under the RideListFrameBench tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideListFrameBenchmarkTest {
+
+    private static final String TAG = "RideListFrameBench";
+    private static final int ROWS = 5000;
+    private static final int UPDATE_ROUNDS = 60;
+    private static final int EDITS_PER_ROUND = 20;
+    private static final long ROUND_INTERVAL_MS = 50;
+    private static final double JANK_THRESHOLD_MS = 16.7;
+
+    /** Common face of the two adapters under test. */
+    private interface RideListSink {
+        RecyclerView.Adapter<?> adapter();
+        void show(List<Ride> rides);
+    }
+
+    @Test
+    public void frameTimesUnderLiveUpdates() throws InterruptedException {
+        FrameStats before = measure(new NotifyAllSink());
+        FrameStats after = measure(new DiffingSink());
+        Log.i(TAG, "notifyDataSetChanged: " + before);
+        Log.i(TAG, "submitList (diffed):  " + after);
+        assertTrue("No frames recorded", before.frames > 0 && after.frames > 0);
+    }
+
+    private FrameStats measure(RideListSink sink) throws InterruptedException {
+        final List<Long> frameNanos = Collections.synchronizedList(new ArrayList<>());
+        HandlerThread metricsThread = new HandlerThread("frame-metrics");
+        metricsThread.start();
+        Window.OnFrameMetricsAvailableListener metricsListener =
+                (window, metrics, dropped) -> frameNanos.add(metrics.getMetric(FrameMetrics.TOTAL_DURATION));
+
+        Random random = new Random(7);
+        final List<Ride> rides = new ArrayList<>();
+        for (int id = 1; id <= ROWS; id++) rides.add(newRide(id, random));
+        int nextId = ROWS + 1;
+
+        try (ActivityScenario<RideListHostActivity> scenario = ActivityScenario.launch(RideListHostActivity.class)) {
+            final List<Ride> initial = new ArrayList<>(rides);
+            scenario.onActivity(activity -> {
+                activity.recyclerView.setAdapter(sink.adapter());
+                sink.show(initial);
+            });
+            Thread.sleep(1000); // Let the first layout and any initial diff settle
+
+            scenario.onActivity(activity -> activity.getWindow()
+                    .addOnFrameMetricsAvailableListener(metricsListener, new Handler(metricsThread.getLooper())));
+            for (int round = 0; round < UPDATE_ROUNDS; round++) {
+                for (int i = 0; i < EDITS_PER_ROUND; i++) {
+                    int index = random.nextInt(rides.size());
+                    Ride edited = copyOf(rides.get(index));
+                    edited.setDateTime(randomDateTime(random));
+                    rides.set(index, edited);
+                }
+                rides.remove(random.nextInt(rides.size()));
+                rides.add(random.nextInt(rides.size()), newRide(nextId++, random));
+
+                final List<Ride> snapshot = new ArrayList<>(rides);
+                final int scrollBy = round % 2 == 0 ? 600 : -300;
+                scenario.onActivity(activity -> {
+                    sink.show(snapshot);
+                    activity.recyclerView.smoothScrollBy(0, scrollBy);
+                });
+                Thread.sleep(ROUND_INTERVAL_MS);
+            }
+            Thread.sleep(500);
+            scenario.onActivity(activity -> activity.getWindow().removeOnFrameMetricsAvailableListener(metricsListener));
+        } finally {
+            metricsThread.quitSafely();
+        }
+        return new FrameStats(new ArrayList<>(frameNanos));
+    }
+
+    private static Ride newRide(int id, Random random) {
+        String[] cities = { "Athens", "Atlanta", "Savannah", "Augusta", "Macon" };
+        Ride ride = new Ride(randomDateTime(random), "driver" + random.nextInt(500) + "@example.com", null,
+                cities[random.nextInt(cities.length)], cities[random.nextInt(cities.length)], false, id);
+        ride.setStatus(ride.deriveStatus());
+        return ride;
+    }
+
+    private static Ride copyOf(Ride ride) {
+        Ride copy = new Ride(ride.getDateTime(), ride.getDriver(), ride.getRider(), ride.getTo(), ride.getFrom(), ride.isComplete(), ride.getRideId());
+        copy.setStatus(ride.getStatus());
+        return copy;
+    }
+
+    private static String randomDateTime(Random random) {
+        return String.format(Locale.US, "2025-%02d-%02d %02d:00", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24));
+    }
+
+    // --- Adapters under test ---
+
+    private static final class DiffingSink implements RideListSink {
+        private final RideBrowseAdapter adapter = new RideBrowseAdapter(ride -> { });
+        @Override public RecyclerView.Adapter<?> adapter() { return adapter; }
+        @Override public void show(List<Ride> rides) { adapter.submitList(rides); }
+    }
+
+    /** The adapter as it was before background diffing: one mutable list, every row rebound per update. */
+    private static final class NotifyAllSink implements RideListSink {
+        private final List<Ride> rides = new ArrayList<>();
+        private final RecyclerView.Adapter<RecyclerView.ViewHolder> adapter = new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+                View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_ride, parent, false);
+                return new RecyclerView.ViewHolder(view) { };
+            }
+
+            @Override
+            public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+                Ride ride = rides.get(position);
+                ((TextView) holder.itemView.findViewById(R.id.dateText)).setText(ride.getDateTime());
+                ((TextView) holder.itemView.findViewById(R.id.fromText)).setText("From: " + ride.getFrom());
+                ((TextView) holder.itemView.findViewById(R.id.toText)).setText("To: " + ride.getTo());
+            }
+
+            @Override
+            public int getItemCount() {
+                return rides.size();
+            }
+        };
+
+        @Override public RecyclerView.Adapter<?> adapter() { return adapter; }
+
+        @Override
+        public void show(List<Ride> updated) {
+            rides.clear();
+            rides.addAll(updated);
+            adapter.notifyDataSetChanged();
+        }
+    }
+
+    private static final class FrameStats {
+        final int frames;
+        final double p50Ms, p90Ms, p99Ms;
+        final int janky;
+
+        FrameStats(List<Long> nanos) {
+            Collections.sort(nanos);
+            frames = nanos.size();
+            p50Ms = percentile(nanos, 0.50);
+            p90Ms = percentile(nanos, 0.90);
+            p99Ms = percentile(nanos, 0.99);
+            int slow = 0;
+            for (long n : nanos) if (n / 1e6 > JANK_THRESHOLD_MS) slow++;
+            janky = slow;
+        }
+
+        private static double percentile(List<Long> sorted, double p) {
+            if (sorted.isEmpty()) return 0;
+            return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1)) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d frames, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, %d janky (>%.1f ms)",
+                    frames, p50Ms, p90Ms, p99Ms, janky, JANK_THRESHOLD_MS);
+        }
+    }
+}
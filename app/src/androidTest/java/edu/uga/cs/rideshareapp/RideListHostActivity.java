@@ -0,0 +1,24 @@
+package edu.uga.cs.rideshareapp;
+
+import android.os.Bundle;
+
+import androidx.activity.ComponentActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Full-screen RecyclerView with nothing else on screen, so frame timings reflect the list alone.
+ * Tests may replace the content view with their own list layout.
+ */
+public class RideListHostActivity extends ComponentActivity {
+
+    RecyclerView recyclerView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        recyclerView = new RecyclerView(this);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        setContentView(recyclerView);
+    }
+}
@@ -0,0 +1,132 @@
+package edu.uga.cs.rideshareapp;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.core.widget.NestedScrollView;
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import edu.uga.cs.rideshareapp.adapter.RideBrowseAdapter;
+import edu.uga.cs.rideshareapp.adapter.SectionHeaderAdapter;
+import edu.uga.cs.rideshareapp.model.Ride;
+
+/**
+ * Row inflations, first-layout time and heap growth for a ride list shown the old way (a
+ * wrap_content RecyclerView inside a NestedScrollView, which measures every row) and the new way
+ * (one full-height RecyclerView with a section header in a ConcatAdapter). Results are written
+ * to logcat under the RideListInflationBench tag, one line per list size and layout.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideListInflationBenchmarkTest {
+
+    private static final String TAG = "RideListInflationBench";
+    private static final int[] LIST_SIZES = { 100, 1000, 3000 };
+
+    /** Counts view holders created, i.e. rows inflated. */
+    private static final class CountingAdapter extends RideBrowseAdapter {
+        int inflations;
+
+        CountingAdapter() {
+            super(ride -> { });
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            inflations++;
+            return super.onCreateViewHolder(parent, viewType);
+        }
+    }
+
+    @Test
+    public void inflationAndMemoryAgainstListSize() {
+        for (int size : LIST_SIZES) {
+            Result nested = measure(size, true);
+            Result recycled = measure(size, false);
+            Log.i(TAG, String.format(Locale.US, "%5d rides  nested: %s", size, nested));
+            Log.i(TAG, String.format(Locale.US, "%5d rides  single: %s", size, recycled));
+            assertTrue("A recycled list should inflate fewer rows than it holds", size < 100 || recycled.inflations < size);
+        }
+    }
+
+    private Result measure(int size, boolean nestedInScrollView) {
+        List<Ride> rides = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            Ride ride = new Ride("2025-05-01 10:00", "driver" + id + "@example.com", null, "Atlanta", "Athens", false, id);
+            ride.setStatus(ride.deriveStatus());
+            rides.add(ride);
+        }
+
+        Result result = new Result();
+        try (ActivityScenario<RideListHostActivity> scenario = ActivityScenario.launch(RideListHostActivity.class)) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            long heapBefore = usedHeapBytes();
+            long nativeBefore = Debug.getNativeHeapAllocatedSize();
+            CountingAdapter adapter = new CountingAdapter();
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            scenario.onActivity(activity -> {
+                RecyclerView list = new RecyclerView(activity);
+                list.setLayoutManager(new LinearLayoutManager(activity));
+                list.setAdapter(new ConcatAdapter(new SectionHeaderAdapter("Ride Offers"), adapter));
+                if (nestedInScrollView) {
+                    // The previous screen layout: the list measures at full height inside the scroll view
+                    list.setNestedScrollingEnabled(false);
+                    LinearLayout column = new LinearLayout(activity);
+                    column.setOrientation(LinearLayout.VERTICAL);
+                    column.addView(list, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+                    NestedScrollView scrollView = new NestedScrollView(activity);
+                    scrollView.addView(column);
+                    activity.setContentView(scrollView);
+                } else {
+                    activity.setContentView(list);
+                }
+                adapter.submitList(rides);
+            });
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync(); // First layout done
+            result.layoutMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            result.inflations = adapter.inflations;
+            result.heapKb = (usedHeapBytes() - heapBefore) / 1024;
+            result.nativeKb = (Debug.getNativeHeapAllocatedSize() - nativeBefore) / 1024;
+        }
+        return result;
+    }
+
+    private static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class Result {
+        int inflations;
+        double layoutMs;
+        long heapKb;
+        long nativeKb;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%5d rows inflated, first layout %.1f ms, java heap %+d KB, native heap %+d KB",
+                    inflations, layoutMs, heapKb, nativeKb);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.uga.cs.rideshareapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import edu.uga.cs.rideshareapp.firebase.ParseTimings;
+import edu.uga.cs.rideshareapp.firebase.RideIdAllocator;
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+
+/**
+ * Main-thread time per list query with parsing on the main thread (the old behaviour) and with
+ * parsing handed to worker threads. The rides live in a MemoryRideStore that, like Firebase,
+ * delivers callbacks on the main thread, so the only difference between the runs is where
+ * decoding and filtering happen. Results go to logcat under the RideParseMainThreadBench tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideParseMainThreadBenchmarkTest {
+
+    private static final String TAG = "RideParseMainThreadBench";
+    private static final int RIDES = 20000;
+    private static final int QUERIES = 10;
+    private static final String VIEWER = "viewer@example.com";
+
+    @Test
+    public void mainThreadTimePerQuery() throws InterruptedException {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        MemoryRideStore store = new MemoryRideStore(mainHandler::post);
+        seed(store);
+        RideIdAllocator allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+
+        ParseTimings.Stats onMain = runQueries(new RideService(store, () -> VIEWER, allocator, Runnable::run, Runnable::run));
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            ParseTimings.Stats offloaded = runQueries(new RideService(store, () -> VIEWER, allocator, workers, mainHandler::post));
+            Log.i(TAG, RIDES + " rides, parsing on main: " + onMain);
+            Log.i(TAG, RIDES + " rides, parsing on workers: " + offloaded);
+            assertEquals(QUERIES, onMain.count);
+            assertEquals(QUERIES, offloaded.count);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private ParseTimings.Stats runQueries(RideService service) throws InterruptedException {
+        RideService.getParseTimings().reset();
+        for (int i = 0; i < QUERIES; i++) {
+            service.clearListCache(); // Time the parse, not the list cache
+            final CountDownLatch done = new CountDownLatch(1);
+            service.getAllRideOffers(true, new RideService.RideListListener() {
+                @Override public void onRidesFetched(List<Ride> rides) { done.countDown(); }
+                @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+            });
+            assertTrue("Query timed out", done.await(30, TimeUnit.SECONDS));
+        }
+        return RideService.getParseTimings().snapshot().get("getAllRideOffers");
+    }
+
+    /** Open offers from a pool of drivers, written with the status field the browse query filters on. */
+    private static void seed(MemoryRideStore store) throws InterruptedException {
+        Random random = new Random(3);
+        Map<String, Object> rides = new LinkedHashMap<>();
+        for (int id = 1; id <= RIDES; id++) {
+            Ride ride = new Ride("2025-05-01 10:00", "driver" + random.nextInt(1000) + "@example.com", null, "Atlanta", "Athens", false, id);
+            ride.setStatus(ride.deriveStatus());
+            rides.put(String.valueOf(id), ride.toMap());
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        Map<String, Object> updates = new LinkedHashMap<>();
+        updates.put("rides", rides);
+        store.updateChildren(updates, error -> {
+            assertNull(error);
+            written.countDown();
+        });
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+    }
+}
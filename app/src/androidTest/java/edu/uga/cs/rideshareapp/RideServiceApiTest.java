@@ -23,12 +23,17 @@ import com.google.android.gms.tasks.Tasks; // Import Tasks for await
 import com.google.firebase.auth.AuthResult; // Import AuthResult
 import com.google.firebase.auth.FirebaseAuth; // Import FirebaseAuth
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects; // Import Objects
+import java.util.Random;
 import java.util.UUID; // Import UUID for random locations
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException; // Import ExecutionException
@@ -38,6 +43,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import edu.uga.cs.rideshareapp.firebase.RideAlreadyTakenException;
 import edu.uga.cs.rideshareapp.firebase.RideService;
 import edu.uga.cs.rideshareapp.model.Ride;
 
@@ -444,6 +450,61 @@ public class RideServiceApiTest {
         // Add verification step: Fetch ride `rideIdToAccept` and assert driver/rider is now TEST_USER_EMAIL
     }
 
+    @Test
+    public void test10b_AcceptRide_ConcurrentAcceptorsSingleWinner() throws InterruptedException {
+        Log.i(TAG,"\n>>> Testing: Accept Ride (Concurrent Acceptors) <<<");
+        final int acceptors = 8;
+        // Write an open offer owned by someone else straight to the database, on a scratch ID
+        final int rideId = 900000 + new Random().nextInt(99999);
+        Ride offer = new Ride("01/01/2030 09:00 AM", "contention-driver@example.com", null, "Contention To", "Contention From", false, rideId);
+        offer.setStatus(offer.deriveStatus());
+        DatabaseReference rideRef = FirebaseDatabase.getInstance().getReference("rides").child(String.valueOf(rideId));
+        try {
+            Tasks.await(rideRef.setValue(offer.toMap()), ASYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            fail("Could not write contention test ride: " + e.getMessage());
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(acceptors);
+        final AtomicInteger winners = new AtomicInteger();
+        final AtomicInteger alreadyTaken = new AtomicInteger();
+        final AtomicInteger otherFailures = new AtomicInteger();
+        for (int i = 0; i < acceptors; i++) {
+            final RideService acceptor = new RideService(); // One service per "client"
+            new Thread(() -> {
+                try { start.await(); } catch (InterruptedException ignored) { }
+                acceptor.acceptRide(rideId, new RideService.CompletionListener() {
+                    @Override
+                    public void onSuccess() {
+                        winners.incrementAndGet();
+                        done.countDown();
+                    }
+                    @Override
+                    public void onFailure(Exception e) {
+                        if (e instanceof RideAlreadyTakenException) alreadyTaken.incrementAndGet();
+                        else { Log.e(TAG, "Concurrent accept failed unexpectedly", e); otherFailures.incrementAndGet(); }
+                        done.countDown();
+                    }
+                });
+            }).start();
+        }
+        start.countDown();
+
+        assertTrue("Concurrent accepts did not complete in time.", waitForLatch(done, "Concurrent Accepts"));
+        Log.d(TAG, "Concurrent accept: winners=" + winners.get() + ", alreadyTaken=" + alreadyTaken.get() + ", other=" + otherFailures.get());
+        assertEquals("Exactly one acceptor should win", 1, winners.get());
+        assertEquals("Every other acceptor should see 'already taken'", acceptors - 1, alreadyTaken.get());
+        assertEquals("No acceptor should fail for another reason", 0, otherFailures.get());
+
+        // Clean up the scratch ride and the index entries the winner wrote
+        Map<String, Object> cleanup = new HashMap<>();
+        cleanup.put("rides/" + rideId, null);
+        cleanup.put("userRides/contention-driver@example,com/" + rideId, null);
+        cleanup.put("userRides/" + TEST_USER_EMAIL.replace('.', ',') + "/" + rideId, null);
+        FirebaseDatabase.getInstance().getReference().updateChildren(cleanup);
+    }
+
     @Test
     public void test11_CompleteRide() throws InterruptedException {
         Log.i(TAG,"\n>>> Testing: Complete Ride <<<");
@@ -0,0 +1,111 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * RideMirror on the device's SQLite, synced from RideService over a MemoryRideStore. Both run
+ * their work inline, so each write has reached the mirror by the time it returns.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideMirrorTest {
+
+    private static final String DRIVER = "driver@example.com";
+    private static final String RIDER = "rider@example.com";
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long HORIZON = 24 * HOUR; // Mirrored window; every dated ride here leaves within it
+
+    private MemoryRideStore store;
+    private RideIdAllocator allocator;
+    private RideMirror mirror;
+    private long now;
+
+    @Before
+    public void setUp() {
+        store = new MemoryRideStore().withAppRules();
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        mirror = new RideMirror(InstrumentationRegistry.getInstrumentation().getTargetContext(), null, Runnable::run, Runnable::run);
+        now = System.currentTimeMillis() / 60_000 * 60_000;
+    }
+
+    private RideService serviceFor(String email) {
+        return new RideService(store, () -> email, allocator);
+    }
+
+    private void create(String email, boolean isDriver, long departureAt, String from, String to) {
+        serviceFor(email).createNewRideWithStrings(departureAt > 0 ? DepartureTime.format(departureAt) : "some time",
+                isDriver, from, to, null);
+    }
+
+    private List<Integer> search(RideSearch search) {
+        AtomicReference<List<Integer>> ids = new AtomicReference<>();
+        mirror.search(search, new RideMirror.SearchListener() {
+            @Override public void onResults(List<Ride> rides) {
+                List<Integer> found = new ArrayList<>();
+                for (Ride ride : rides) found.add(ride.getRideId());
+                ids.set(found);
+            }
+            @Override public void onError(Exception e) { fail(e.getMessage()); }
+        });
+        return ids.get();
+    }
+
+    @Test
+    public void combinedFiltersAndSorts_runOnTheSyncedPool() {
+        create(DRIVER, true, now + 3 * HOUR, "Athens", "Atlanta Airport");
+        create(DRIVER, true, now + HOUR, "Athens", "Savannah");
+        create(DRIVER, false, now + 2 * HOUR, "Macon", "Athens");
+        create(DRIVER, true, now - HOUR, "Athens", "Atlanta"); // Already left
+        create(DRIVER, true, 0, "Augusta", "Atlanta");         // Undated, so outside the horizon
+        create(RIDER, true, now + HOUR, "Athens", "Atlanta");  // The rider's own
+        RideStore.Registration sync = mirror.sync(serviceFor(RIDER), HORIZON);
+
+        assertEquals(Arrays.asList(2, 3, 1), search(RideSearch.openRides()));
+        assertEquals(Arrays.asList(2, 1), search(RideSearch.offers().from("athens")));
+        assertEquals(Arrays.asList(1), search(RideSearch.offers().matching("atl")));
+        assertEquals(Arrays.asList(1), search(RideSearch.offers().matching("ath airp")));
+        assertEquals(Arrays.asList(3, 2), search(RideSearch.openRides().departingBetween(now + HOUR / 2, now + 2 * HOUR)
+                .sortedBy(RideSearch.Sort.DESTINATION)));
+        assertEquals(Arrays.asList(1, 2), search(RideSearch.offers().sortedBy(RideSearch.Sort.DESTINATION).limit(2)));
+
+        // Changes arrive incrementally, text index included
+        serviceFor(RIDER).acceptRide(1, null);
+        create(DRIVER, true, now + 4 * HOUR, "Atlanta", "Athens");
+        assertEquals(Arrays.asList(7), search(RideSearch.offers().matching("atlanta")));
+
+        sync.remove();
+        create(DRIVER, true, now + 5 * HOUR, "Atlanta", "Athens");
+        assertEquals(Arrays.asList(7), search(RideSearch.offers().matching("atlanta")));
+    }
+
+    @Test
+    public void freshSync_dropsRidesThatLeftWhileStopped() {
+        create(DRIVER, true, now + HOUR, "Athens", "Atlanta");
+        create(DRIVER, true, now + 2 * HOUR, "Athens", "Atlanta");
+        mirror.sync(serviceFor(RIDER), HORIZON).remove();
+        serviceFor(RIDER).acceptRide(1, null);
+
+        mirror.sync(serviceFor(RIDER), HORIZON);
+        assertEquals(Arrays.asList(2), search(RideSearch.offers()));
+
+        mirror.clear();
+        assertTrue(search(RideSearch.offers()).isEmpty());
+    }
+}
@@ -1,6 +1,9 @@
 package edu.uga.cs.rideshareapp;
 
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.util.Log;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
@@ -10,10 +13,26 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
+import java.io.File;
+import java.io.IOException;
+
 import edu.uga.cs.rideshareapp.databinding.ActivityHomeBinding;
+import edu.uga.cs.rideshareapp.firebase.RideService;
 
 public class HomeActivity extends AppCompatActivity {
 
+    /** Boolean extra: open on the Rides tab instead of Home (used by the startup benchmark). */
+    public static final String EXTRA_OPEN_RIDES = "openRides";
+
+    private static final String TAG = "HomeActivity";
+    private static final String PREFS_NAME = "rideshare_prefs";
+    private static final String KEY_INDEXES_MIGRATED = "rideIndexesMigrated";
+    private static final String KEY_DEPARTURES_MIGRATED = "rideDeparturesMigrated";
+    private static final String KEY_TOMBSTONES_PURGED_AT = "tombstonesPurgedAt";
+    private static final long TOMBSTONE_PURGE_CHECK_MS = 24 * 60 * 60_000L;
+    private static final String METRICS_FILE = "ride_metrics.json";
+    private static final String TRACES_FILE = "ride_traces.json";
+
     private ActivityHomeBinding binding;
 
     @Override
@@ -32,6 +51,100 @@ public class HomeActivity extends AppCompatActivity {
         NavController navController = Navigation.findNavController(this, R.id.nav_host_fragment_activity_home);
 
         NavigationUI.setupWithNavController(binding.navView, navController);
+        if (savedInstanceState == null && getIntent().getBooleanExtra(EXTRA_OPEN_RIDES, false)) {
+            navView.setSelectedItemId(R.id.navigation_rides);
+        }
+
+        migrateRideIndexesOnce();
+        purgeTombstonesDaily();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        dumpMetricsIfDebuggable();
+    }
+
+    /**
+     * Debug builds write RideService latency and overfetch numbers to files/ride_metrics.json, and
+     * the recent command traces to files/ride_traces.json, whenever the app leaves the foreground.
+     * Pull with: adb shell run-as edu.uga.cs.rideshareapp cat files/ride_metrics.json
+     */
+    private void dumpMetricsIfDebuggable() {
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) return;
+        try {
+            RideService.getMetrics().writeJson(new File(getFilesDir(), METRICS_FILE));
+            RideService.getTracer().writeJson(new File(getFilesDir(), TRACES_FILE));
+            Log.d(TAG, "Ride metrics and traces written to " + getFilesDir() + "; list cache: "
+                    + RideService.getInstance().getListCacheStats() + "; ride cache: " + RideService.getInstance().getRideCacheStats());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write ride metrics", e);
+        }
+    }
+
+    /**
+     * Runs the ride status and userRides index backfill, then the departure time backfill, which
+     * reads the statuses the first one fixes. RideService runs each one once per database and
+     * reports success when another device already has; the local flags, set only on success,
+     * just spare later launches the marker read.
+     */
+    private void migrateRideIndexesOnce() {
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_INDEXES_MIGRATED, false)) {
+            migrateDepartureTimesOnce(prefs);
+            return;
+        }
+
+        RideService.getInstance().migrateRideIndexes(new RideService.CompletionListener() {
+            @Override
+            public void onSuccess() {
+                prefs.edit().putBoolean(KEY_INDEXES_MIGRATED, true).apply();
+                migrateDepartureTimesOnce(prefs);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Ride index migration failed, will retry on next launch", e);
+            }
+        });
+    }
+
+    private void migrateDepartureTimesOnce(SharedPreferences prefs) {
+        if (prefs.getBoolean(KEY_DEPARTURES_MIGRATED, false)) return;
+
+        RideService.getInstance().migrateDepartureTimes(new RideService.CompletionListener() {
+            @Override
+            public void onSuccess() {
+                prefs.edit().putBoolean(KEY_DEPARTURES_MIGRATED, true).apply();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Departure time migration failed, will retry on next launch", e);
+            }
+        });
+    }
+
+    /**
+     * Removes old deleted-ride tombstones. RideService already runs the purge at most once a day
+     * per database; the local timestamp spares this device the claim on every launch.
+     */
+    private void purgeTombstonesDaily() {
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        final long now = System.currentTimeMillis();
+        if (now - prefs.getLong(KEY_TOMBSTONES_PURGED_AT, 0) < TOMBSTONE_PURGE_CHECK_MS) return;
+
+        RideService.getInstance().purgeTombstones(new RideService.CompletionListener() {
+            @Override
+            public void onSuccess() {
+                prefs.edit().putLong(KEY_TOMBSTONES_PURGED_AT, now).apply();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Tombstone purge failed, will retry on next launch", e);
+            }
+        });
     }
 
 }
\ No newline at end of file
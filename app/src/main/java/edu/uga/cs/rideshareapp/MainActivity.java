@@ -60,6 +60,7 @@ public class MainActivity extends AppCompatActivity {
         if (FirebaseAuth.getInstance().getCurrentUser() != null) {
             // User is already logged in, go to HomeActivity
             Intent intent = new Intent(this, HomeActivity.class);
+            intent.putExtra(HomeActivity.EXTRA_OPEN_RIDES, getIntent().getBooleanExtra(HomeActivity.EXTRA_OPEN_RIDES, false));
             startActivity(intent);
             finish(); // close MainActivity so they can't go back
         }
@@ -23,6 +23,7 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
 import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.DepartureTime;
 import edu.uga.cs.rideshareapp.model.Ride;
 // Removed unused Ride import: import edu.uga.cs.rideshareapp.model.Ride;
 
@@ -46,7 +47,7 @@ public class PostRideActivity extends AppCompatActivity {
         });
 
         // Initialize RideService
-        rideService = new RideService();
+        rideService = RideService.getInstance();
 
         int rideId = getIntent().getIntExtra("id", -1);
         String from = getIntent().getStringExtra("from");
@@ -83,7 +84,7 @@ public class PostRideActivity extends AppCompatActivity {
                                 (timeView, hourOfDay, minute) -> {
                                     calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
                                     calendar.set(Calendar.MINUTE, minute);
-                                    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a", Locale.getDefault());
+                                    SimpleDateFormat sdf = new SimpleDateFormat(DepartureTime.PATTERN, Locale.getDefault());
                                     dateTimeField.setText(sdf.format(calendar.getTime()));
                                 },
                                 calendar.get(Calendar.HOUR_OF_DAY),
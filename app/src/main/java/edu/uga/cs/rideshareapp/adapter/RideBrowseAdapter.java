@@ -10,27 +10,41 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 import edu.uga.cs.rideshareapp.R;
 import edu.uga.cs.rideshareapp.model.Ride;
 
-public class RideBrowseAdapter extends RecyclerView.Adapter<RideBrowseAdapter.ViewHolder> {
+/**
+ * Browse list rows. Call submitList with each new ride list; the diff against the current list
+ * runs off the main thread and only rides whose contents changed are rebound.
+ */
+public class RideBrowseAdapter extends ListAdapter<Ride, RideBrowseAdapter.ViewHolder> {
 
     public interface OnRideClickListener {
         void onRideClick(Ride ride);
     }
 
-    private final List<Ride> rides;
     private final OnRideClickListener clickListener;
+    @Nullable private Runnable nearEndListener;
+    private int nearEndDistance;
 
-    public RideBrowseAdapter(List<Ride> rides, OnRideClickListener clickListener) {
-        this.rides = rides;
+    public RideBrowseAdapter(OnRideClickListener clickListener) {
+        super(RideDiffCallback.INSTANCE);
         this.clickListener = clickListener;
     }
 
+    /**
+     * Runs {@code listener} whenever a row within {@code distance} rows of the end is bound, which
+     * is how a paged list asks for its next page. Posted, so it never runs inside a layout pass.
+     */
+    public void setOnNearEndListener(int distance, @Nullable Runnable listener) {
+        this.nearEndDistance = distance;
+        this.nearEndListener = listener;
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -41,16 +55,14 @@ public class RideBrowseAdapter extends RecyclerView.Adapter<RideBrowseAdapter.Vi
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Ride ride = rides.get(position);
+        Ride ride = getItem(position);
         holder.bind(ride);
+        if (nearEndListener != null && position >= getItemCount() - nearEndDistance) {
+            holder.itemView.post(nearEndListener);
+        }
     }
 
-    @Override
-    public int getItemCount() {
-        return rides.size();
-    }
-
-    class ViewHolder extends RecyclerView.ViewHolder {
+    public class ViewHolder extends RecyclerView.ViewHolder {
         TextView date, from, to;
 
         ViewHolder(View view) {
@@ -60,8 +72,9 @@ public class RideBrowseAdapter extends RecyclerView.Adapter<RideBrowseAdapter.Vi
             to = view.findViewById(R.id.toText);
 
             view.setOnClickListener(v -> {
-                if (clickListener != null)
-                    clickListener.onRideClick(rides.get(getAdapterPosition()));
+                int position = getBindingAdapterPosition();
+                if (clickListener != null && position != RecyclerView.NO_POSITION)
+                    clickListener.onRideClick(getItem(position));
             });
         }
 
@@ -0,0 +1,25 @@
+package edu.uga.cs.rideshareapp.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+
+/**
+ * Ride identity is the rideId; contents are compared with Ride.equals.
+ * Shared by both ride adapters, whose diffs run on the ListAdapter background executor.
+ */
+public class RideDiffCallback extends DiffUtil.ItemCallback<Ride> {
+
+    public static final RideDiffCallback INSTANCE = new RideDiffCallback();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Ride oldItem, @NonNull Ride newItem) {
+        return oldItem.getRideId() == newItem.getRideId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Ride oldItem, @NonNull Ride newItem) {
+        return oldItem.equals(newItem);
+    }
+}
@@ -11,14 +11,17 @@ import android.widget.TextView;
 import android.widget.Button;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 import edu.uga.cs.rideshareapp.R;
 import edu.uga.cs.rideshareapp.model.Ride;
 
-public class RideManageAdapter extends RecyclerView.Adapter<RideManageAdapter.ViewHolder> {
+/**
+ * My Rides rows with edit/delete/confirm actions. Fed through submitList, so list updates are
+ * diffed in the background and unchanged rows keep their views.
+ */
+public class RideManageAdapter extends ListAdapter<Ride, RideManageAdapter.ViewHolder> {
 
     public interface OnRideActionListener {
         void onEdit(Ride ride);
@@ -26,12 +29,11 @@ public class RideManageAdapter extends RecyclerView.Adapter<RideManageAdapter.Vi
         void onConfirm(Ride ride);
     }
 
-    private final List<Ride> rideList;
     private final OnRideActionListener actionListener;
     private final boolean showConfirm;
 
-    public RideManageAdapter(List<Ride> rideList, OnRideActionListener actionListener, boolean showConfirm) {
-        this.rideList = rideList;
+    public RideManageAdapter(OnRideActionListener actionListener, boolean showConfirm) {
+        super(RideDiffCallback.INSTANCE);
         this.actionListener = actionListener;
         this.showConfirm = showConfirm;
     }
@@ -46,15 +48,10 @@ public class RideManageAdapter extends RecyclerView.Adapter<RideManageAdapter.Vi
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Ride ride = rideList.get(position);
+        Ride ride = getItem(position);
         holder.bind(ride);
     }
 
-    @Override
-    public int getItemCount() {
-        return rideList != null ? rideList.size() : 0;
-    }
-
     public class ViewHolder extends RecyclerView.ViewHolder {
         TextView dateText, fromText, toText;
         ImageButton optionsButton;
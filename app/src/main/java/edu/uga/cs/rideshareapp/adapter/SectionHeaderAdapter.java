@@ -0,0 +1,51 @@
+package edu.uga.cs.rideshareapp.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import edu.uga.cs.rideshareapp.R;
+
+/**
+ * A single section title row. Put one in front of each ride adapter in a ConcatAdapter so a
+ * screen's sections share one scrolling, recycling list.
+ */
+public class SectionHeaderAdapter extends RecyclerView.Adapter<SectionHeaderAdapter.ViewHolder> {
+
+    private final String title;
+
+    public SectionHeaderAdapter(String title) {
+        this.title = title;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_section_header, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.title.setText(title);
+    }
+
+    @Override
+    public int getItemCount() {
+        return 1;
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+
+        ViewHolder(View view) {
+            super(view);
+            title = view.findViewById(R.id.sectionTitle);
+        }
+    }
+}
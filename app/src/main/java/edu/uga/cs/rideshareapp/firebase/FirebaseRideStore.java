@@ -0,0 +1,221 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/**
+ * RideStore backed by the Firebase Realtime Database. A thin adapter: queries map one-to-one
+ * onto Query operators, and snapshots/mutable data are wrapped rather than copied.
+ */
+public class FirebaseRideStore implements RideStore {
+
+    private static FirebaseRideStore sharedInstance;
+
+    private final DatabaseReference root; // Store paths resolve under this node
+    private volatile long serverTimeOffsetMillis; // From .info/serverTimeOffset, kept current by the client
+
+    public FirebaseRideStore(@NonNull FirebaseDatabase database) {
+        this.root = database.getReference();
+        trackServerTimeOffset(database);
+    }
+
+    /**
+     * Store whose paths all resolve under {@code rootPath}, e.g. "benchmarks/allocator", so
+     * instrumented benchmarks can drive RideService without touching live rides.
+     */
+    public FirebaseRideStore(@NonNull FirebaseDatabase database, @NonNull String rootPath) {
+        this.root = database.getReference(rootPath);
+        trackServerTimeOffset(database);
+    }
+
+    private void trackServerTimeOffset(@NonNull FirebaseDatabase database) {
+        database.getReference(".info/serverTimeOffset").addValueEventListener(new ValueEventListener() {
+            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Double offset = snapshot.getValue(Double.class);
+                if (offset != null) serverTimeOffsetMillis = offset.longValue();
+            }
+            @Override public void onCancelled(@NonNull DatabaseError error) { } // Keep the last known offset
+        });
+    }
+
+    /** Store over the default FirebaseDatabase instance. */
+    public static synchronized FirebaseRideStore getInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new FirebaseRideStore(FirebaseDatabase.getInstance());
+        }
+        return sharedInstance;
+    }
+
+    // --- Reads ---
+
+    @Override
+    public void get(@NonNull StoreQuery query, @NonNull ValueListener listener) {
+        toQuery(query).addListenerForSingleValueEvent(adapt(listener));
+    }
+
+    @NonNull
+    @Override
+    public Registration addValueListener(@NonNull StoreQuery query, @NonNull ValueListener listener) {
+        final Query firebaseQuery = toQuery(query);
+        final ValueEventListener adapter = adapt(listener);
+        firebaseQuery.addValueEventListener(adapter);
+        return () -> firebaseQuery.removeEventListener(adapter);
+    }
+
+    @NonNull
+    @Override
+    public Registration addChildListener(@NonNull StoreQuery query, @NonNull ChildListener listener) {
+        final Query firebaseQuery = toQuery(query);
+        final ChildEventListener adapter = new ChildEventListener() {
+            @Override public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) { listener.onChildAdded(new FirebaseSnapshot(snapshot), previousChildName); }
+            @Override public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) { listener.onChildChanged(new FirebaseSnapshot(snapshot), previousChildName); }
+            @Override public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) { listener.onChildMoved(new FirebaseSnapshot(snapshot), previousChildName); }
+            @Override public void onChildRemoved(@NonNull DataSnapshot snapshot) { listener.onChildRemoved(new FirebaseSnapshot(snapshot)); }
+            @Override public void onCancelled(@NonNull DatabaseError error) { listener.onCancelled(toException(error)); }
+        };
+        firebaseQuery.addChildEventListener(adapter);
+        return () -> firebaseQuery.removeEventListener(adapter);
+    }
+
+    // --- Writes ---
+
+    @Override
+    public void runTransaction(@NonNull String path, @NonNull TransactionHandler handler) {
+        root.child(path).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
+                return handler.doTransaction(new FirebaseMutableNode(mutableData))
+                        ? Transaction.success(mutableData) : Transaction.abort();
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed, @Nullable DataSnapshot currentData) {
+                handler.onComplete(toException(error), committed, currentData != null ? new FirebaseSnapshot(currentData) : null);
+            }
+        });
+    }
+
+    @Override
+    public void updateChildren(@NonNull Map<String, Object> updates, @NonNull WriteListener listener) {
+        root.updateChildren(updates, (error, ref) -> listener.onComplete(toException(error)));
+    }
+
+    @NonNull
+    @Override
+    public Object increment(long delta) {
+        return ServerValue.increment(delta);
+    }
+
+    @NonNull
+    @Override
+    public Object serverTimestamp() {
+        return ServerValue.TIMESTAMP;
+    }
+
+    @Override
+    public long serverTimeMillis() {
+        return System.currentTimeMillis() + serverTimeOffsetMillis;
+    }
+
+    // --- Adapters ---
+
+    private Query toQuery(StoreQuery storeQuery) {
+        Query query = root.child(storeQuery.getPath());
+        switch (storeQuery.getOrderBy()) {
+            case CHILD: query = query.orderByChild(storeQuery.getOrderByChild()); break;
+            case VALUE: query = query.orderByValue(); break;
+            case KEY:   if (!storeQuery.isPlainRead()) query = query.orderByKey(); break;
+        }
+        if (storeQuery.hasStart()) query = startAt(query, storeQuery.getStartValue(), storeQuery.getStartKey());
+        if (storeQuery.hasEnd()) query = endAt(query, storeQuery.getEndValue(), storeQuery.getEndKey());
+        if (storeQuery.getLimitToFirst() > 0) query = query.limitToFirst(storeQuery.getLimitToFirst());
+        if (storeQuery.getLimitToLast() > 0) query = query.limitToLast(storeQuery.getLimitToLast());
+        return query;
+    }
+
+    private static Query startAt(Query query, @Nullable Object value, @Nullable String key) {
+        if (value instanceof Number) return query.startAt(((Number) value).doubleValue(), key);
+        if (value instanceof Boolean) return query.startAt((Boolean) value, key);
+        return query.startAt((String) value, key); // String or null
+    }
+
+    private static Query endAt(Query query, @Nullable Object value, @Nullable String key) {
+        if (value instanceof Number) return query.endAt(((Number) value).doubleValue(), key);
+        if (value instanceof Boolean) return query.endAt((Boolean) value, key);
+        return query.endAt((String) value, key); // String or null
+    }
+
+    private static ValueEventListener adapt(ValueListener listener) {
+        return new ValueEventListener() {
+            @Override public void onDataChange(@NonNull DataSnapshot snapshot) { listener.onDataChange(new FirebaseSnapshot(snapshot)); }
+            @Override public void onCancelled(@NonNull DatabaseError error) { listener.onCancelled(toException(error)); }
+        };
+    }
+
+    @Nullable
+    static RideStoreException toException(@Nullable DatabaseError error) {
+        if (error == null) return null;
+        int code;
+        switch (error.getCode()) {
+            case DatabaseError.PERMISSION_DENIED: code = RideStoreException.PERMISSION_DENIED; break;
+            case DatabaseError.MAX_RETRIES: code = RideStoreException.MAX_RETRIES; break;
+            case DatabaseError.OPERATION_FAILED: code = RideStoreException.CANCELLED; break;
+            default: code = RideStoreException.UNKNOWN;
+        }
+        return new RideStoreException(code, error.getMessage(), error.toException());
+    }
+
+    private static final class FirebaseSnapshot implements Snapshot {
+        private final DataSnapshot snapshot;
+
+        FirebaseSnapshot(DataSnapshot snapshot) { this.snapshot = snapshot; }
+
+        @Nullable @Override public String getKey() { return snapshot.getKey(); }
+        @Override public boolean exists() { return snapshot.exists(); }
+        @Nullable @Override public Object getValue() { return snapshot.getValue(); }
+        @Nullable @Override public <T> T getValue(@NonNull Class<T> type) { return snapshot.getValue(type); }
+        @NonNull @Override public Snapshot child(@NonNull String path) { return new FirebaseSnapshot(snapshot.child(path)); }
+        @Override public long getChildrenCount() { return snapshot.getChildrenCount(); }
+
+        @NonNull
+        @Override
+        public Iterable<Snapshot> getChildren() {
+            final Iterable<DataSnapshot> children = snapshot.getChildren();
+            return () -> new Iterator<Snapshot>() {
+                private final Iterator<DataSnapshot> it = children.iterator();
+                @Override public boolean hasNext() { return it.hasNext(); }
+                @Override public Snapshot next() { return new FirebaseSnapshot(it.next()); }
+            };
+        }
+    }
+
+    private static final class FirebaseMutableNode implements MutableNode {
+        private final MutableData data;
+
+        FirebaseMutableNode(MutableData data) { this.data = data; }
+
+        @Nullable @Override public Object getValue() { return data.getValue(); }
+        @Nullable @Override public <T> T getValue(@NonNull Class<T> type) { return data.getValue(type); }
+        @Override public void setValue(@Nullable Object value) { data.setValue(value); }
+        @NonNull @Override public MutableNode child(@NonNull String path) { return new FirebaseMutableNode(data.child(path)); }
+    }
+}
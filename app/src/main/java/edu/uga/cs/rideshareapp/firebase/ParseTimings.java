@@ -0,0 +1,80 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-query split of list parsing time between the store's callback thread (the main thread
+ * with Firebase) and the parse workers. Each RideService list read records here, keyed by its
+ * operation tag, so the cost of parsing on the callback thread can be compared with handing it
+ * off. Thread-safe.
+ */
+public final class ParseTimings {
+
+    /** Totals for one operation tag. */
+    public static final class Stats {
+        public final long count;
+        public final long callbackThreadNanos;
+        public final long maxCallbackThreadNanos;
+        public final long workerNanos;
+
+        Stats(long count, long callbackThreadNanos, long maxCallbackThreadNanos, long workerNanos) {
+            this.count = count;
+            this.callbackThreadNanos = callbackThreadNanos;
+            this.maxCallbackThreadNanos = maxCallbackThreadNanos;
+            this.workerNanos = workerNanos;
+        }
+
+        public double meanCallbackThreadMs() {
+            return count == 0 ? 0 : callbackThreadNanos / 1e6 / count;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d calls, callback thread %.2f ms mean / %.2f ms max, workers %.2f ms total",
+                    count, meanCallbackThreadMs(), maxCallbackThreadNanos / 1e6, workerNanos / 1e6);
+        }
+    }
+
+    private final Map<String, long[]> totals = new LinkedHashMap<>(); // opTag -> {count, callback, maxCallback, worker}; guarded by this
+
+    /** Records one hand-off and the time it kept the callback thread busy. */
+    synchronized void recordCallbackThread(@NonNull String opTag, long nanos) {
+        long[] entry = entryFor(opTag);
+        entry[0]++;
+        entry[1] += nanos;
+        entry[2] = Math.max(entry[2], nanos);
+    }
+
+    /** Records parsing that ran on a worker; may arrive before or after the matching hand-off. */
+    synchronized void recordWorker(@NonNull String opTag, long nanos) {
+        entryFor(opTag)[3] += nanos;
+    }
+
+    private long[] entryFor(String opTag) {
+        long[] entry = totals.get(opTag);
+        if (entry == null) {
+            entry = new long[4];
+            totals.put(opTag, entry);
+        }
+        return entry;
+    }
+
+    @NonNull
+    public synchronized Map<String, Stats> snapshot() {
+        Map<String, Stats> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] t = entry.getValue();
+            result.put(entry.getKey(), new Stats(t[0], t[1], t[2], t[3]));
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        totals.clear();
+    }
+}
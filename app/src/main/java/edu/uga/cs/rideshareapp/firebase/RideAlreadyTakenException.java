@@ -0,0 +1,19 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+/**
+ * Reported by RideService.acceptRide when another user filled the open driver/rider slot first.
+ * Lets the UI tell a lost race apart from a genuine failure.
+ */
+public class RideAlreadyTakenException extends IllegalStateException {
+
+    private final int rideId;
+
+    public RideAlreadyTakenException(int rideId) {
+        super("Ride " + rideId + " was already accepted by someone else");
+        this.rideId = rideId;
+    }
+
+    public int getRideId() {
+        return rideId;
+    }
+}
@@ -0,0 +1,213 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+
+/**
+ * The last lists a screen showed, kept on disk so a fresh process can paint them before the
+ * first query returns. One small file per list, written whole to a temporary file and renamed
+ * over the old one, so a crash mid-write leaves the previous copy. Reads and writes run on one
+ * background thread, in the order they were asked for; read results are delivered on the result
+ * executor (the main thread in the app). A file that is missing, from another format version or
+ * unreadable reads as null. Entries are only a first paint: the live lists replace them.
+ */
+public final class RideDiskCache {
+
+    /** Receives a stored list, or null if there is none. */
+    public interface ReadListener {
+        void onRead(@Nullable List<Ride> rides);
+    }
+
+    private static final String TAG = "RideDiskCache";
+    private static final String DIR_NAME = "ride_lists";
+    private static final int FORMAT_VERSION = 2; // Bump when the record layout changes; old files then read as null
+    @VisibleForTesting
+    static final int MAX_RIDES = 100; // Per list; more than a first screen needs
+
+    private static RideDiskCache sharedInstance;
+
+    private final File dir;
+    private final Executor io;
+    private final Executor results;
+
+    RideDiskCache(@NonNull File dir, @NonNull Executor io, @NonNull Executor results) {
+        this.dir = dir;
+        this.io = io;
+        this.results = results;
+    }
+
+    /** The app's cache, under the app cache directory; results arrive on the main thread. */
+    @NonNull
+    public static synchronized RideDiskCache getInstance(@NonNull Context context) {
+        if (sharedInstance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sharedInstance = new RideDiskCache(new File(context.getApplicationContext().getCacheDir(), DIR_NAME),
+                    Executors.newSingleThreadExecutor(task -> {
+                        Thread thread = new Thread(task, "ride-disk");
+                        thread.setDaemon(true);
+                        return thread;
+                    }),
+                    mainHandler::post);
+        }
+        return sharedInstance;
+    }
+
+    /** Key for one of a user's lists, e.g. key("browseOffers", email). Safe to use as a file name. */
+    @NonNull
+    public static String key(@NonNull String list, @NonNull String userEmail) {
+        return (list + "-" + userEmail).replaceAll("[^A-Za-z0-9@._-]", "_");
+    }
+
+    public void read(@NonNull final String key, @NonNull final ReadListener listener) {
+        io.execute(() -> {
+            final List<Ride> rides = readFile(new File(dir, key));
+            results.execute(() -> listener.onRead(rides));
+        });
+    }
+
+    /** Replaces the stored list; only the first MAX_RIDES rides are kept. */
+    public void write(@NonNull final String key, @NonNull List<Ride> rides) {
+        final List<Ride> snapshot = new ArrayList<>(rides.subList(0, Math.min(rides.size(), MAX_RIDES)));
+        io.execute(() -> writeFile(new File(dir, key), snapshot));
+    }
+
+    /** Deletes every stored list, e.g. when the user signs out. */
+    public void clear() {
+        io.execute(() -> {
+            File[] files = dir.listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                if (!file.delete()) Log.w(TAG, "Could not delete " + file);
+            }
+        });
+    }
+
+    @Nullable
+    private static List<Ride> readFile(File file) {
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return decode(in);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring unreadable " + file.getName(), e);
+            return null;
+        }
+    }
+
+    private void writeFile(File file, List<Ride> rides) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+            return;
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            encode(rides, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file.getName());
+            temp.delete();
+        }
+    }
+
+    // --- Record format: version, count, then each ride's fields in a fixed order ---
+
+    @VisibleForTesting
+    static void encode(@NonNull List<Ride> rides, @NonNull DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(rides.size());
+        for (Ride ride : rides) {
+            out.writeInt(ride.getRideId());
+            writeNullable(out, ride.getDateTime());
+            out.writeLong(ride.getDepartureAt());
+            writeNullable(out, ride.getDriver());
+            writeNullable(out, ride.getRider());
+            writeNullable(out, ride.getTo());
+            writeNullable(out, ride.getFrom());
+            out.writeBoolean(ride.isComplete());
+            writeNullable(out, ride.getStatus() != null ? ride.getStatus().name() : null);
+            out.writeInt(ride.getVersion());
+            writeNullable(out, ride.getFromLat());
+            writeNullable(out, ride.getFromLng());
+            writeNullable(out, ride.getToLat());
+            writeNullable(out, ride.getToLng());
+        }
+    }
+
+    /** Reads what encode wrote; null if it was written in another format version. */
+    @VisibleForTesting
+    @Nullable
+    static List<Ride> decode(@NonNull DataInput in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) return null;
+        int count = in.readInt();
+        if (count < 0 || count > MAX_RIDES) throw new IOException("Bad ride count " + count);
+        List<Ride> rides = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Ride ride = new Ride();
+            ride.setRideId(in.readInt());
+            ride.setDateTime(readNullable(in));
+            ride.setDepartureAt(in.readLong());
+            ride.setDriver(readNullable(in));
+            ride.setRider(readNullable(in));
+            ride.setTo(readNullable(in));
+            ride.setFrom(readNullable(in));
+            ride.setComplete(in.readBoolean());
+            String status = readNullable(in);
+            ride.setStatus(status != null ? RideStatus.valueOf(status) : null);
+            ride.setVersion(in.readInt());
+            ride.setFromLat(readNullableDouble(in));
+            ride.setFromLng(readNullableDouble(in));
+            ride.setToLat(readNullableDouble(in));
+            ride.setToLng(readNullableDouble(in));
+            rides.add(ride);
+        }
+        return Collections.unmodifiableList(rides);
+    }
+
+    private static void writeNullable(DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    @Nullable
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutput out, @Nullable Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeDouble(value);
+    }
+
+    @Nullable
+    private static Double readNullableDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
@@ -0,0 +1,126 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+
+/**
+ * Rides by ID as last seen by a list read, a live list or one of this service's writes, so
+ * commands can skip reading a ride the user is already looking at. Bounded, least recently used
+ * out first; an entry is only handed out for a fixed time after it was stored. Commands write
+ * with the ride's version, so a stale entry makes the write fail rather than overwrite newer
+ * data (see RideService.withRide). Entries are the same objects the list listeners received;
+ * treat them as read-only. Thread-safe.
+ */
+public final class RideEntityCache {
+
+    /** Counters since the cache was created. */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;      // Not cached, or cached too long ago
+        public final long conflicts;   // Entries a versioned write found stale
+        public final long evictions;
+        public final int size;
+
+        Stats(long hits, long misses, long conflicts, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.conflicts = conflicts;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d hits, %d misses, %d stale writes, %d evicted, %d cached",
+                    hits, misses, conflicts, evictions, size);
+        }
+    }
+
+    private static final class Entry {
+        final Ride ride;
+        final long storedAtNanos;
+
+        Entry(Ride ride, long storedAtNanos) {
+            this.ride = ride;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long freshNanos;
+    private final LongSupplier clock;
+
+    // All guarded by this
+    private final LinkedHashMap<Integer, Entry> entries;
+    private long hits, misses, conflicts, evictions;
+
+    RideEntityCache(int maxEntries, long freshMillis) {
+        this(maxEntries, freshMillis, System::nanoTime);
+    }
+
+    RideEntityCache(int maxEntries, long freshMillis, @NonNull LongSupplier clock) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.freshNanos = freshMillis * 1_000_000L;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) { // Access order, eldest first
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= RideEntityCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** Stores {@code ride} under its ID, unless a newer version is already cached. */
+    synchronized void put(@Nullable Ride ride) {
+        if (ride == null || ride.getRideId() <= 0) return;
+        Entry existing = entries.get(ride.getRideId());
+        if (existing != null && existing.ride.getVersion() > ride.getVersion()) return; // An older read arriving late
+        entries.put(ride.getRideId(), new Entry(ride, clock.getAsLong()));
+    }
+
+    synchronized void putAll(@NonNull Iterable<Ride> rides) {
+        for (Ride ride : rides) put(ride);
+    }
+
+    /** The cached ride if it was stored recently enough, else null. */
+    @Nullable
+    synchronized Ride getFresh(int rideId) {
+        Entry entry = entries.get(rideId);
+        if (entry == null || clock.getAsLong() - entry.storedAtNanos > freshNanos) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.ride;
+    }
+
+    synchronized void remove(int rideId) {
+        entries.remove(rideId);
+    }
+
+    /** Drops an entry a versioned write was rejected for. */
+    synchronized void evictStale(int rideId) {
+        conflicts++;
+        entries.remove(rideId);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    @NonNull
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, conflicts, evictions, entries.size());
+    }
+}
@@ -0,0 +1,127 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+
+/**
+ * Hands out integer ride IDs from blocks leased off a shared counter node (counters/lastRideId).
+ * Instead of one counter transaction per ride, a client bumps the counter by a whole block
+ * and then allocates locally, so the shared node sees one write per {@code blockSize} rides.
+ * IDs stay unique and integer-valued; they are increasing per client and roughly ordered across
+ * clients (by lease time). Unused IDs in a block are simply skipped when the process dies.
+ */
+public class RideIdAllocator {
+
+    private static final String TAG = "RideIdAllocator";
+    public static final int DEFAULT_BLOCK_SIZE = 20;
+
+    public interface IdListener {
+        void onIdAllocated(int id);
+        void onError(Exception e);
+    }
+
+    private static RideIdAllocator sharedInstance;
+
+    private final RideStore store;
+    private final String counterPath;
+    private final int blockSize;
+
+    // Guarded by this
+    private int nextId = 1;
+    private int leaseEnd = 0; // Inclusive; nextId > leaseEnd means no IDs left
+    private boolean leaseInFlight = false;
+    private final Queue<IdListener> waiting = new ArrayDeque<>();
+
+    public RideIdAllocator(@NonNull RideStore store, @NonNull String counterPath, int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be at least 1");
+        this.store = store;
+        this.counterPath = counterPath;
+        this.blockSize = blockSize;
+    }
+
+    /** Process-wide allocator, so every RideService instance draws from the same lease. */
+    public static synchronized RideIdAllocator getShared() {
+        if (sharedInstance == null) {
+            sharedInstance = new RideIdAllocator(FirebaseRideStore.getInstance(), "counters/lastRideId", DEFAULT_BLOCK_SIZE);
+        }
+        return sharedInstance;
+    }
+
+    /** Allocates the next ID, answering immediately when the current lease still has IDs. */
+    public void nextId(@NonNull IdListener listener) {
+        int id;
+        synchronized (this) {
+            if (nextId > leaseEnd) {
+                waiting.add(listener);
+                if (!leaseInFlight) {
+                    leaseInFlight = true;
+                    leaseBlock();
+                }
+                return;
+            }
+            id = nextId++;
+        }
+        listener.onIdAllocated(id);
+    }
+
+    /** Runs the counter transaction to reserve the next block of IDs. */
+    private void leaseBlock() {
+        store.runTransaction(counterPath, new RideStore.TransactionHandler() {
+            @Override
+            public boolean doTransaction(@NonNull RideStore.MutableNode current) {
+                Integer currentValue = current.getValue(Integer.class);
+                current.setValue((currentValue == null ? 0 : currentValue) + blockSize);
+                return true;
+            }
+
+            @Override
+            public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                Integer newEnd = committed && currentData != null ? currentData.getValue(Integer.class) : null;
+                if (error != null || newEnd == null) {
+                    Exception e = error != null ? error : new Exception("Counter transaction not committed");
+                    Log.e(TAG, "Failed to lease ride ID block.", e);
+                    failWaiting(e);
+                    return;
+                }
+                Log.d(TAG, "Leased ride IDs " + (newEnd - blockSize + 1) + ".." + newEnd);
+                onBlockLeased(newEnd);
+            }
+        });
+    }
+
+    private void onBlockLeased(int newEnd) {
+        List<IdListener> ready = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        synchronized (this) {
+            nextId = newEnd - blockSize + 1;
+            leaseEnd = newEnd;
+            while (!waiting.isEmpty() && nextId <= leaseEnd) {
+                ready.add(waiting.poll());
+                ids.add(nextId++);
+            }
+            leaseInFlight = !waiting.isEmpty();
+            if (leaseInFlight) leaseBlock(); // More callers than one block covers
+        }
+        for (int i = 0; i < ready.size(); i++) ready.get(i).onIdAllocated(ids.get(i));
+    }
+
+    private void failWaiting(Exception e) {
+        List<IdListener> failed;
+        synchronized (this) {
+            failed = new ArrayList<>(waiting);
+            waiting.clear();
+            leaseInFlight = false;
+        }
+        for (IdListener listener : failed) listener.onError(e);
+    }
+}
@@ -0,0 +1,261 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+
+/**
+ * Recent one-shot list results, keyed by status list, user and filter mode, plus the reads still
+ * in flight. A read for a key that is already being fetched joins that fetch instead of starting
+ * another. Results expire after a fixed TTL, the least recently used entry is dropped once the
+ * cache is full, and writes drop the lists for the statuses they touch. Thread-safe.
+ *
+ * A list stored with a watermark (the server time it was read at) is not thrown away
+ * when it expires or is invalidated: it is kept as the base for the next fetch of its key, which
+ * then only reads the rides changed since the watermark and patches them in. A base older than
+ * MAX_BASE_AGE_MS is dropped instead, well before RideService purges the tombstones a delta from
+ * it would need to see.
+ */
+public final class RideListCache {
+
+    /** Counters since the cache was created. */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;      // Reads that started a fetch
+        public final long deltas;      // Of those, fetches of only the rides changed since a stored list
+        public final long coalesced;   // Reads that joined a fetch already in flight
+        public final long expirations;
+        public final long evictions;
+        public final long invalidations;
+        public final int size;
+
+        Stats(long hits, long misses, long deltas, long coalesced, long expirations, long evictions, long invalidations, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.deltas = deltas;
+            this.coalesced = coalesced;
+            this.expirations = expirations;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d hits, %d misses (%d delta), %d coalesced, %d expired, %d evicted, %d invalidated, %d cached",
+                    hits, misses, deltas, coalesced, expirations, evictions, invalidations, size);
+        }
+    }
+
+    /** Watermark of a list read without one; such a list is dropped when it expires. */
+    static final long NO_WATERMARK = 0;
+
+    /** Oldest list still patched with a delta; must stay below RideService.TOMBSTONE_TTL_MS. */
+    static final long MAX_BASE_AGE_MS = 24 * 60 * 60_000L;
+
+    /**
+     * Outcome of lookup(): a cached list, a fetch to start, or neither (joined a running fetch).
+     * A fetch to start may come with a base: the key's last list and its watermark.
+     */
+    static final class Lookup {
+        @Nullable final List<Ride> cached;
+        @Nullable final AtomicBoolean startFetch; // The new fetch's cancel flag, set once every waiter has left
+        @Nullable final List<Ride> base;
+        final long baseWatermark;
+
+        Lookup(@Nullable List<Ride> cached, @Nullable AtomicBoolean startFetch, @Nullable List<Ride> base, long baseWatermark) {
+            this.cached = cached;
+            this.startFetch = startFetch;
+            this.base = base;
+            this.baseWatermark = baseWatermark;
+        }
+    }
+
+    private static final class Entry {
+        final List<Ride> rides;
+        final long storedAtNanos;
+        final long watermark;
+
+        Entry(List<Ride> rides, long storedAtNanos, long watermark) {
+            this.rides = rides;
+            this.storedAtNanos = storedAtNanos;
+            this.watermark = watermark;
+        }
+    }
+
+    private static final class InFlight {
+        final List<RideService.RideListListener> waiters = new ArrayList<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final long generation; // Result is only cached if no write invalidated the cache meanwhile
+
+        InFlight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // All guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order, eldest first
+    private final LinkedHashMap<String, Entry> bases = new LinkedHashMap<>(16, 0.75f, true);   // Expired or invalidated, same bound
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    private long generation;
+    private long hits, misses, deltas, coalesced, expirations, evictions, invalidations;
+
+    RideListCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::nanoTime);
+    }
+
+    RideListCache(int maxEntries, long ttlMillis, @NonNull LongSupplier clock) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    /** Cache key for one list: the status it shows, whose view it is, and whether the user's own rides are excluded. */
+    @NonNull
+    static String key(@NonNull RideStatus status, @NonNull String userEmail, boolean excludeCurrentUser) {
+        return key(status, userEmail, excludeCurrentUser ? "others" : "mine");
+    }
+
+    /** Cache key for one list: the status it shows, whose view it is, and the rest of its conditions. */
+    @NonNull
+    static String key(@NonNull RideStatus status, @NonNull String userEmail, @NonNull String variant) {
+        return status.name() + "|" + userEmail + "|" + variant;
+    }
+
+    /**
+     * Returns the fresh cached list for {@code key} if there is one. Otherwise {@code waiter} is
+     * queued for the key's result, and if no fetch is running yet the caller must start one,
+     * patching the lookup's base if it has one.
+     */
+    @NonNull
+    synchronized Lookup lookup(@NonNull String key, @NonNull RideService.RideListListener waiter) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (clock.getAsLong() - entry.storedAtNanos <= ttlNanos) {
+                hits++;
+                return new Lookup(entry.rides, null, null, NO_WATERMARK);
+            }
+            entries.remove(key);
+            keepAsBase(key, entry);
+            expirations++;
+        }
+        InFlight running = inFlight.get(key);
+        if (running != null) {
+            coalesced++;
+            running.waiters.add(waiter);
+            return new Lookup(null, null, null, NO_WATERMARK);
+        }
+        misses++;
+        running = new InFlight(generation);
+        running.waiters.add(waiter);
+        inFlight.put(key, running);
+        Entry base = bases.get(key);
+        if (base != null && clock.getAsLong() - base.storedAtNanos > MAX_BASE_AGE_MS * 1_000_000L) {
+            bases.remove(key);
+            base = null;
+        }
+        if (base == null) return new Lookup(null, running.cancelled, null, NO_WATERMARK);
+        deltas++;
+        return new Lookup(null, running.cancelled, base.rides, base.watermark);
+    }
+
+    /** Removes a waiter that no longer wants the result; the fetch is cancelled when none are left. */
+    synchronized void leave(@NonNull String key, @NonNull RideService.RideListListener waiter) {
+        InFlight running = inFlight.get(key);
+        if (running == null || !running.waiters.remove(waiter) || !running.waiters.isEmpty()) return;
+        inFlight.remove(key);
+        running.cancelled.set(true);
+    }
+
+    /**
+     * Stores a fetched list read as of {@code watermark} and returns the waiters to hand it to.
+     * If a write invalidated the list meanwhile it is only kept as a base, since a delta from
+     * its watermark still picks that write up.
+     */
+    @NonNull
+    synchronized List<RideService.RideListListener> complete(@NonNull String key, @NonNull List<Ride> rides, long watermark) {
+        InFlight running = inFlight.remove(key);
+        if (running == null) return Collections.emptyList();
+        Entry entry = new Entry(Collections.unmodifiableList(new ArrayList<>(rides)), clock.getAsLong(), watermark);
+        if (running.generation == generation) {
+            bases.remove(key);
+            entries.put(key, entry);
+            if (trimEldest(entries)) evictions++;
+        } else {
+            keepAsBase(key, entry);
+        }
+        return running.waiters;
+    }
+
+    /** Ends a failed fetch and returns the waiters to report the error to; nothing is cached. */
+    @NonNull
+    synchronized List<RideService.RideListListener> fail(@NonNull String key) {
+        InFlight running = inFlight.remove(key);
+        return running != null ? running.waiters : Collections.emptyList();
+    }
+
+    /**
+     * Drops every list for the given statuses (keeping them as bases); fetches already in flight
+     * will not be cached.
+     */
+    synchronized void invalidate(@NonNull RideStatus... statuses) {
+        generation++;
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> entry = it.next();
+            for (RideStatus status : statuses) {
+                if (status != null && entry.getKey().startsWith(status.name() + "|")) {
+                    it.remove();
+                    keepAsBase(entry.getKey(), entry.getValue());
+                    invalidations++;
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Drops every list and every base, so the next reads fetch whole lists again. */
+    synchronized void invalidateAll() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        bases.clear();
+    }
+
+    private void keepAsBase(String key, Entry entry) {
+        if (entry.watermark == NO_WATERMARK) return;
+        bases.put(key, entry);
+        trimEldest(bases);
+    }
+
+    private boolean trimEldest(LinkedHashMap<String, Entry> map) {
+        if (map.size() <= maxEntries) return false;
+        Iterator<String> eldest = map.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+        return true;
+    }
+
+    @NonNull
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, deltas, coalesced, expirations, evictions, invalidations, entries.size());
+    }
+}
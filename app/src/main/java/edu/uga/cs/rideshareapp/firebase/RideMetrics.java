@@ -0,0 +1,218 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency histograms and overfetch counts for RideService operations, keyed by operation tag.
+ *
+ * Latency runs from the public call to the listener call (for live lists, the first one),
+ * failures included; they are also counted separately. Traced commands (see RideTracer) record
+ * each hop under "command.hop" as well.
+ * Overfetch compares the ride nodes a list read downloaded with the rides that passed its
+ * RideFilter; for live lists it compares the rows held with the rows shown at every update.
+ * toJson() / writeJson() export everything for offline comparison. Thread-safe.
+ */
+public final class RideMetrics {
+
+    /** Histogram bucket upper bounds in ms; a final bucket holds everything slower. */
+    private static final long[] BUCKET_BOUNDS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    /** Latency totals for one operation tag. */
+    public static final class Latency {
+        public final long count;
+        public final long errors;
+        public final long totalNanos;
+        public final long maxNanos;
+        private final long[] buckets;
+
+        Latency(long count, long errors, long totalNanos, long maxNanos, long[] buckets) {
+            this.count = count;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        public double meanMs() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        /** Upper bound of the bucket holding the given quantile (0..1); the max for the open-ended bucket. */
+        public double percentileMs(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(BUCKET_BOUNDS_MS[i], maxNanos / 1e6);
+            }
+            return maxNanos / 1e6;
+        }
+
+        /** Calls per bucket; index i counts calls up to BUCKET_BOUNDS_MS[i], the last index the rest. */
+        @NonNull
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d calls (%d failed), mean %.1f ms, p50 %.0f ms, p95 %.0f ms, max %.1f ms",
+                    count, errors, meanMs(), percentileMs(0.5), percentileMs(0.95), maxNanos / 1e6);
+        }
+    }
+
+    /** Download vs display totals for one list operation tag. */
+    public static final class Overfetch {
+        public final long reads;
+        public final long downloaded;
+        public final long shown;
+
+        Overfetch(long reads, long downloaded, long shown) {
+            this.reads = reads;
+            this.downloaded = downloaded;
+            this.shown = shown;
+        }
+
+        /** Rides downloaded per ride shown; a read that showed nothing counts as showing one. */
+        public double ratio() {
+            return (double) downloaded / Math.max(shown, 1);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d reads, %d downloaded, %d shown, %.1fx overfetch", reads, downloaded, shown, ratio());
+        }
+    }
+
+    // opTag -> {count, errors, totalNanos, maxNanos, bucket 0.., overflow bucket}; guarded by this
+    private final Map<String, long[]> latencies = new LinkedHashMap<>();
+    // opTag -> {reads, downloaded, shown}; guarded by this
+    private final Map<String, long[]> overfetch = new LinkedHashMap<>();
+
+    /** Records one call of {@code opTag} that took {@code nanos}. */
+    synchronized void recordLatency(@NonNull String opTag, long nanos, boolean failed) {
+        long[] entry = latencies.get(opTag);
+        if (entry == null) {
+            entry = new long[4 + BUCKET_BOUNDS_MS.length + 1];
+            latencies.put(opTag, entry);
+        }
+        entry[0]++;
+        if (failed) entry[1]++;
+        entry[2] += nanos;
+        entry[3] = Math.max(entry[3], nanos);
+        entry[4 + bucketFor(nanos)]++;
+    }
+
+    /** Records one list result: {@code downloaded} ride nodes read, {@code shown} of them passed the filter. */
+    synchronized void recordOverfetch(@NonNull String opTag, long downloaded, long shown) {
+        long[] entry = overfetch.get(opTag);
+        if (entry == null) {
+            entry = new long[3];
+            overfetch.put(opTag, entry);
+        }
+        entry[0]++;
+        entry[1] += downloaded;
+        entry[2] += shown;
+    }
+
+    private static int bucketFor(long nanos) {
+        double ms = nanos / 1e6;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (ms <= BUCKET_BOUNDS_MS[i]) return i;
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    @NonNull
+    public synchronized Map<String, Latency> latencies() {
+        Map<String, Latency> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : latencies.entrySet()) {
+            long[] t = entry.getValue();
+            result.put(entry.getKey(), new Latency(t[0], t[1], t[2], t[3], Arrays.copyOfRange(t, 4, t.length)));
+        }
+        return result;
+    }
+
+    /** Overfetch per list operation, worst ratio first. */
+    @NonNull
+    public synchronized Map<String, Overfetch> overfetch() {
+        List<Map.Entry<String, Overfetch>> entries = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : overfetch.entrySet()) {
+            long[] t = entry.getValue();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), new Overfetch(t[0], t[1], t[2])));
+        }
+        Collections.sort(entries, (a, b) -> Double.compare(b.getValue().ratio(), a.getValue().ratio()));
+        Map<String, Overfetch> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Overfetch> entry : entries) result.put(entry.getKey(), entry.getValue());
+        return result;
+    }
+
+    public synchronized void reset() {
+        latencies.clear();
+        overfetch.clear();
+    }
+
+    /** Everything recorded so far as a JSON object with "operations" and "queries" members. */
+    @NonNull
+    public String toJson() {
+        Map<String, Latency> latencySnapshot;
+        Map<String, Overfetch> overfetchSnapshot;
+        synchronized (this) {
+            latencySnapshot = latencies();
+            overfetchSnapshot = overfetch();
+        }
+        StringBuilder json = new StringBuilder("{\n  \"bucketBoundsMs\": ").append(Arrays.toString(BUCKET_BOUNDS_MS).replace(" ", ""));
+        json.append(",\n  \"operations\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Latency> entry : latencySnapshot.entrySet()) {
+            Latency l = entry.getValue();
+            json.append(separator).append("    ").append(quote(entry.getKey())).append(": ")
+                    .append(String.format(Locale.US,
+                            "{\"count\": %d, \"errors\": %d, \"meanMs\": %.3f, \"p50Ms\": %.3f, \"p95Ms\": %.3f, \"p99Ms\": %.3f, \"maxMs\": %.3f, \"buckets\": %s}",
+                            l.count, l.errors, l.meanMs(), l.percentileMs(0.5), l.percentileMs(0.95), l.percentileMs(0.99),
+                            l.maxNanos / 1e6, Arrays.toString(l.buckets).replace(" ", "")));
+            separator = ",\n";
+        }
+        json.append(latencySnapshot.isEmpty() ? "}" : "\n  }");
+        json.append(",\n  \"queries\": {");
+        separator = "\n";
+        for (Map.Entry<String, Overfetch> entry : overfetchSnapshot.entrySet()) {
+            Overfetch o = entry.getValue();
+            json.append(separator).append("    ").append(quote(entry.getKey())).append(": ")
+                    .append(String.format(Locale.US, "{\"reads\": %d, \"downloaded\": %d, \"shown\": %d, \"overfetchRatio\": %.3f}",
+                            o.reads, o.downloaded, o.shown, o.ratio()));
+            separator = ",\n";
+        }
+        json.append(overfetchSnapshot.isEmpty() ? "}" : "\n  }");
+        return json.append("\n}\n").toString();
+    }
+
+    /** Writes toJson() to {@code file}, replacing it. */
+    public void writeJson(@NonNull File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
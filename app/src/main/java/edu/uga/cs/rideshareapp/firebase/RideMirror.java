@@ -0,0 +1,253 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * A local copy of the open rides leaving soon (RideService.subscribeOpenRidePool) in SQLite, for
+ * searches that combine filters and sorts the database cannot (see RideSearch) without another query.
+ * The table is indexed on status and departure time, origin and destination, and an FTS4 table
+ * over origin and destination serves the text search; triggers keep it in step with the rides.
+ *
+ * Sync applies each change batch in one transaction: changed rides are upserted and removed
+ * ones deleted, and the first, complete batch for a status replaces everything stored for it.
+ * Writes and searches run on one database thread in the order they were asked for; search
+ * results arrive on the result executor (the main thread in the app). The copy is only as fresh
+ * as the last batch, so commands still go through RideService.
+ */
+public final class RideMirror {
+
+    public interface SearchListener {
+        void onResults(@NonNull List<Ride> rides);
+        void onError(@NonNull Exception e);
+    }
+
+    private static final String TAG = "RideMirror";
+    private static final String DB_NAME = "ride_mirror.db";
+    private static final int DB_VERSION = 1; // A new version drops the copy; the next sync refills it
+
+    static final String TABLE = "rides";
+    static final String FTS_TABLE = "rides_fts";
+    static final String COL_ID = "ride_id"; // Also the rowid
+    static final String COL_STATUS = "status";
+    static final String COL_DEPARTURE = "departure_at";
+    static final String COL_DATE_TIME = "date_time";
+    static final String COL_ORIGIN = "origin";
+    static final String COL_DESTINATION = "destination";
+    static final String COL_DRIVER = "driver";
+    static final String COL_RIDER = "rider";
+    static final String COL_COMPLETE = "complete";
+    static final String COL_VERSION = "version";
+
+    private static RideMirror sharedInstance;
+
+    private final SQLiteOpenHelper helper;
+    private final Executor db;
+    private final Executor results;
+
+    /** Mirror in database {@code name}, or in memory when it is null. */
+    RideMirror(@NonNull Context context, @Nullable String name, @NonNull Executor db, @NonNull Executor results) {
+        this.helper = new Helper(context, name);
+        this.db = db;
+        this.results = results;
+    }
+
+    /** The app's mirror; search results arrive on the main thread. */
+    @NonNull
+    public static synchronized RideMirror getInstance(@NonNull Context context) {
+        if (sharedInstance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sharedInstance = new RideMirror(context.getApplicationContext(), DB_NAME,
+                    Executors.newSingleThreadExecutor(task -> {
+                        Thread thread = new Thread(task, "ride-mirror");
+                        thread.setDaemon(true);
+                        return thread;
+                    }),
+                    mainHandler::post);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Keeps the mirror in step with {@code service}'s open rides leaving in the next
+     * {@code horizonMillis} until the returned registration is removed. Returns null if the user
+     * is not logged in.
+     */
+    @Nullable
+    public RideStore.Registration sync(@NonNull RideService service, long horizonMillis) {
+        return service.subscribeOpenRidePool(horizonMillis, new RideService.RidePoolListener() {
+            @Override
+            public void onPoolChanged(@NonNull RideStatus status, boolean complete, @NonNull List<Ride> changed, @NonNull Set<Integer> removed) {
+                db.execute(() -> apply(status, complete, changed, removed));
+            }
+
+            @Override
+            public void onError(DatabaseError databaseError) {
+                Log.w(TAG, "Sync stopped: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    /** Runs {@code search} against the rides as of the last applied batch. */
+    public void search(@NonNull final RideSearch search, @NonNull final SearchListener listener) {
+        final long now = System.currentTimeMillis();
+        db.execute(() -> {
+            final List<Ride> rides;
+            try {
+                rides = query(search.toStatement(now));
+            } catch (SQLException e) {
+                Log.e(TAG, "Search failed: " + search, e);
+                results.execute(() -> listener.onError(e));
+                return;
+            }
+            results.execute(() -> listener.onResults(rides));
+        });
+    }
+
+    /** Deletes every stored ride, e.g. when the user signs out. */
+    public void clear() {
+        db.execute(() -> helper.getWritableDatabase().delete(TABLE, null, null));
+    }
+
+    private void apply(RideStatus status, boolean complete, List<Ride> changed, Set<Integer> removed) {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            if (complete) {
+                // Everything in the pool is in this batch; rows left over from an earlier sync go
+                database.delete(TABLE, COL_STATUS + " = ?", new String[] { status.name() });
+            }
+            for (Integer rideId : removed) {
+                database.delete(TABLE, COL_ID + " = ?", new String[] { rideId.toString() });
+            }
+            for (Ride ride : changed) {
+                ContentValues values = toValues(ride);
+                // Update, then insert if absent: REPLACE would delete without firing the full-text trigger
+                if (database.update(TABLE, values, COL_ID + " = ?", new String[] { Integer.toString(ride.getRideId()) }) == 0) {
+                    database.insertOrThrow(TABLE, null, values);
+                }
+            }
+            database.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, "Could not apply " + status + " changes", e);
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private List<Ride> query(RideSearch.Statement statement) {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(statement.sql, statement.args)) {
+            List<Ride> rides = new ArrayList<>(cursor.getCount());
+            int id = cursor.getColumnIndexOrThrow(COL_ID);
+            int status = cursor.getColumnIndexOrThrow(COL_STATUS);
+            int departure = cursor.getColumnIndexOrThrow(COL_DEPARTURE);
+            int dateTime = cursor.getColumnIndexOrThrow(COL_DATE_TIME);
+            int origin = cursor.getColumnIndexOrThrow(COL_ORIGIN);
+            int destination = cursor.getColumnIndexOrThrow(COL_DESTINATION);
+            int driver = cursor.getColumnIndexOrThrow(COL_DRIVER);
+            int rider = cursor.getColumnIndexOrThrow(COL_RIDER);
+            int isComplete = cursor.getColumnIndexOrThrow(COL_COMPLETE);
+            int version = cursor.getColumnIndexOrThrow(COL_VERSION);
+            while (cursor.moveToNext()) {
+                Ride ride = new Ride();
+                ride.setRideId(cursor.getInt(id));
+                ride.setStatus(RideStatus.valueOf(cursor.getString(status)));
+                ride.setDepartureAt(cursor.getLong(departure));
+                ride.setDateTime(cursor.getString(dateTime));
+                ride.setFrom(cursor.getString(origin));
+                ride.setTo(cursor.getString(destination));
+                ride.setDriver(cursor.getString(driver));
+                ride.setRider(cursor.getString(rider));
+                ride.setComplete(cursor.getInt(isComplete) != 0);
+                ride.setVersion(cursor.getInt(version));
+                rides.add(ride);
+            }
+            return Collections.unmodifiableList(rides);
+        }
+    }
+
+    private static ContentValues toValues(Ride ride) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, ride.getRideId());
+        values.put(COL_STATUS, ride.getStatus() != null ? ride.getStatus().name() : ride.deriveStatus().name());
+        values.put(COL_DEPARTURE, ride.getDepartureAt());
+        values.put(COL_DATE_TIME, ride.getDateTime());
+        values.put(COL_ORIGIN, ride.getFrom());
+        values.put(COL_DESTINATION, ride.getTo());
+        values.put(COL_DRIVER, ride.getDriver());
+        values.put(COL_RIDER, ride.getRider());
+        values.put(COL_COMPLETE, ride.isComplete() ? 1 : 0);
+        values.put(COL_VERSION, ride.getVersion());
+        return values;
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        Helper(Context context, @Nullable String name) {
+            super(context, name, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE + " ("
+                    + COL_ID + " INTEGER PRIMARY KEY, "
+                    + COL_STATUS + " TEXT NOT NULL, "
+                    + COL_DEPARTURE + " INTEGER NOT NULL, "
+                    + COL_DATE_TIME + " TEXT, "
+                    + COL_ORIGIN + " TEXT, "
+                    + COL_DESTINATION + " TEXT, "
+                    + COL_DRIVER + " TEXT, "
+                    + COL_RIDER + " TEXT, "
+                    + COL_COMPLETE + " INTEGER NOT NULL, "
+                    + COL_VERSION + " INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX rides_status_departure ON " + TABLE + " (" + COL_STATUS + ", " + COL_DEPARTURE + ")");
+            db.execSQL("CREATE INDEX rides_origin ON " + TABLE + " (" + COL_ORIGIN + " COLLATE NOCASE)");
+            db.execSQL("CREATE INDEX rides_destination ON " + TABLE + " (" + COL_DESTINATION + " COLLATE NOCASE)");
+
+            // External-content full-text index: it stores only the terms and reads text from the rides table
+            db.execSQL("CREATE VIRTUAL TABLE " + FTS_TABLE + " USING fts4(content=\"" + TABLE + "\", "
+                    + COL_ORIGIN + ", " + COL_DESTINATION + ", tokenize=unicode61)");
+            String removeTerms = " BEGIN DELETE FROM " + FTS_TABLE + " WHERE docid = old.rowid; END";
+            String addTerms = " BEGIN INSERT INTO " + FTS_TABLE + " (docid, " + COL_ORIGIN + ", " + COL_DESTINATION
+                    + ") VALUES (new.rowid, new." + COL_ORIGIN + ", new." + COL_DESTINATION + "); END";
+            db.execSQL("CREATE TRIGGER rides_bu BEFORE UPDATE ON " + TABLE + removeTerms);
+            db.execSQL("CREATE TRIGGER rides_bd BEFORE DELETE ON " + TABLE + removeTerms);
+            db.execSQL("CREATE TRIGGER rides_au AFTER UPDATE ON " + TABLE + addTerms);
+            db.execSQL("CREATE TRIGGER rides_ai AFTER INSERT ON " + TABLE + addTerms);
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            db.execSQL("DROP TABLE IF EXISTS " + FTS_TABLE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE); // Drops its indexes and triggers too
+            onCreate(db);
+        }
+
+        @Override
+        public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            onUpgrade(db, oldVersion, newVersion);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.GeoHash;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/**
+ * A list read for RideService.getRides: one status, whose rides, the user's role in them, a
+ * departure window, exact origin and destination, distance of either from a point, and a limit.
+ * Immutable like StoreQuery; each method returns a changed copy, e.g.
+ * {@code RideQuery.offers().ownedBy(Owner.OTHERS).leavingWithin(lat, lng, 2000)}.
+ *
+ * The database can only narrow a read by one index, so plan() picks the one expected to read the
+ * fewest rides (the user's userRides entries, then the geohash cells around a point, then a
+ * statusDeparture window, then status) and leaves every other condition to the client filter.
+ * The filter re-checks the index's conditions too, as the hand-written list filters did, and
+ * does the exact distance check the cells cannot. Plan.toString() is the explain output.
+ *
+ * Rides come back in ride ID order, or soonest first when there is a departure window.
+ */
+public final class RideQuery {
+
+    /** Whose rides: the current user's, everyone else's, or anyone's. */
+    public enum Owner { ANYONE, CURRENT_USER, OTHERS }
+
+    /** The seat the owner condition looks at. */
+    public enum Role { DRIVER, RIDER }
+
+    /** The index a plan reads through. */
+    public enum Index {
+        USER_RIDES("userRides"),
+        FROM_CELL("statusFromCell"),
+        TO_CELL("statusToCell"),
+        STATUS_DEPARTURE("statusDeparture"),
+        STATUS("status");
+
+        private final String displayName;
+
+        Index(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    // Rough share of the rides with a status that each condition keeps, for choosing an index
+    // and estimating overfetch; there are no statistics to go on, so these are fixed guesses
+    private static final double OWN_RIDES_SELECTIVITY = 0.05; // One user's rides among everyone's
+    private static final double WINDOW_SELECTIVITY = 1 / 3.0;
+    private static final double NEAR_SELECTIVITY = 0.1;       // Rides within walking or short driving distance
+    private static final double PLACE_SELECTIVITY = 0.1;      // Per exact origin or destination
+    private static final double ROLE_SELECTIVITY = 0.5;       // Only accepted and complete rides have both seats filled
+
+    private final RideStatus status;
+    private final Owner owner;
+    @Nullable private final Role role;
+    private final long departingFrom; // DepartureTime.UNKNOWN when there is no window
+    private final long departingTo;
+    @Nullable private final String origin;
+    @Nullable private final String destination;
+    @Nullable private final Circle originArea;
+    @Nullable private final Circle destinationArea;
+    private final int limit; // 0 for all matches
+
+    /** Everything within radiusMeters of a point. */
+    private static final class Circle {
+        final double lat;
+        final double lng;
+        final double radiusMeters;
+
+        Circle(double lat, double lng, double radiusMeters) {
+            if (!GeoHash.isValid(lat, lng)) throw new IllegalArgumentException("Invalid coordinates " + lat + ", " + lng);
+            if (!(radiusMeters > 0)) throw new IllegalArgumentException("radius must be positive");
+            this.lat = lat;
+            this.lng = lng;
+            this.radiusMeters = radiusMeters;
+        }
+
+        boolean contains(@Nullable Double pointLat, @Nullable Double pointLng) {
+            return pointLat != null && pointLng != null && GeoHash.distanceMeters(lat, lng, pointLat, pointLng) <= radiusMeters;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "within %.0f m of %.5f,%.5f", radiusMeters, lat, lng);
+        }
+    }
+
+    private RideQuery(RideStatus status, Owner owner, @Nullable Role role, long departingFrom, long departingTo,
+                      @Nullable String origin, @Nullable String destination, @Nullable Circle originArea,
+                      @Nullable Circle destinationArea, int limit) {
+        this.status = status;
+        this.owner = owner;
+        this.role = role;
+        this.departingFrom = departingFrom;
+        this.departingTo = departingTo;
+        this.origin = origin;
+        this.destination = destination;
+        this.originArea = originArea;
+        this.destinationArea = destinationArea;
+        this.limit = limit;
+    }
+
+    /** Every ride with {@code status}; narrow it with the methods below. */
+    @NonNull
+    public static RideQuery withStatus(@NonNull RideStatus status) {
+        return new RideQuery(status, Owner.ANYONE, null, DepartureTime.UNKNOWN, DepartureTime.UNKNOWN, null, null, null, null, 0);
+    }
+
+    @NonNull
+    public static RideQuery offers() {
+        return withStatus(RideStatus.OPEN_OFFER);
+    }
+
+    @NonNull
+    public static RideQuery requests() {
+        return withStatus(RideStatus.OPEN_REQUEST);
+    }
+
+    @NonNull
+    public static RideQuery accepted() {
+        return withStatus(RideStatus.ACCEPTED);
+    }
+
+    @NonNull
+    public RideQuery ownedBy(@NonNull Owner owner) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, destination, originArea, destinationArea, limit);
+    }
+
+    /**
+     * Applies the owner condition to one seat only, e.g. accepted rides the current user drives;
+     * null for either seat. Has no effect for Owner.ANYONE.
+     */
+    @NonNull
+    public RideQuery withRole(@Nullable Role role) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, destination, originArea, destinationArea, limit);
+    }
+
+    /** Rides departing between the two epoch millis, both inclusive; undated rides are left out. */
+    @NonNull
+    public RideQuery departingBetween(long fromMillis, long toMillis) {
+        if (fromMillis <= DepartureTime.UNKNOWN || toMillis < fromMillis) throw new IllegalArgumentException("Invalid departure window");
+        return new RideQuery(status, owner, role, fromMillis, toMillis, origin, destination, originArea, destinationArea, limit);
+    }
+
+    /** Rides leaving from exactly this place, ignoring case; null clears it. */
+    @NonNull
+    public RideQuery from(@Nullable String origin) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, trimToNull(origin), destination, originArea, destinationArea, limit);
+    }
+
+    /** Rides going to exactly this place, ignoring case; null clears it. */
+    @NonNull
+    public RideQuery to(@Nullable String destination) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, trimToNull(destination), originArea, destinationArea, limit);
+    }
+
+    /** Rides leaving from within {@code radiusMeters} of the point (degrees); rides without a from location are left out. */
+    @NonNull
+    public RideQuery leavingWithin(double lat, double lng, double radiusMeters) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, destination,
+                new Circle(lat, lng, radiusMeters), destinationArea, limit);
+    }
+
+    /** Rides going to within {@code radiusMeters} of the point (degrees); rides without a to location are left out. */
+    @NonNull
+    public RideQuery goingWithin(double lat, double lng, double radiusMeters) {
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, destination,
+                originArea, new Circle(lat, lng, radiusMeters), limit);
+    }
+
+    /** At most {@code limit} rides, the first in result order; 0 for all. */
+    @NonNull
+    public RideQuery limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+        return new RideQuery(status, owner, role, departingFrom, departingTo, origin, destination, originArea, destinationArea, limit);
+    }
+
+    @NonNull
+    public RideStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether results may be kept in the list cache: windows and areas are not, since every
+     * caller asks for a different "now" or "here", and neither are limited lists, which delta
+     * reads cannot patch.
+     */
+    boolean isCacheable() {
+        return departingFrom == DepartureTime.UNKNOWN && originArea == null && destinationArea == null && limit == 0;
+    }
+
+    /** The list cache key for this query as seen by {@code currentUserEmail}. */
+    @NonNull
+    String cacheKey(@NonNull String currentUserEmail) {
+        StringBuilder variant = new StringBuilder(owner == Owner.OTHERS ? "others" : owner == Owner.CURRENT_USER ? "mine" : "anyone");
+        if (role != null && owner != Owner.ANYONE) variant.append(",role=").append(role);
+        if (origin != null) variant.append(",from=").append(origin.toLowerCase(Locale.ROOT));
+        if (destination != null) variant.append(",to=").append(destination.toLowerCase(Locale.ROOT));
+        return RideListCache.key(status, currentUserEmail, variant.toString());
+    }
+
+    /** How a query is read: the index and its ranges, and what is left to the client. */
+    public static final class Plan {
+        @NonNull public final Index index;
+        @NonNull public final List<StoreQuery> storeQueries; // One per geohash cell, otherwise just one
+        @NonNull public final List<String> serverConditions;
+        @NonNull public final List<String> clientConditions; // Besides the re-checks of the server conditions
+        /** Estimated rides downloaded per ride delivered, before the limit. */
+        public final double expectedOverfetch;
+
+        final RideService.RideFilter filter; // Every condition, the index's included
+        final boolean sortByDeparture;       // The index does not return departure order
+        final int clientLimit;               // 0 when there is none or the database applies it
+
+        Plan(@NonNull Index index, @NonNull List<StoreQuery> storeQueries, @NonNull List<String> serverConditions,
+             @NonNull List<String> clientConditions, double expectedOverfetch, RideService.RideFilter filter,
+             boolean sortByDeparture, int clientLimit) {
+            this.index = index;
+            this.storeQueries = Collections.unmodifiableList(storeQueries);
+            this.serverConditions = Collections.unmodifiableList(serverConditions);
+            this.clientConditions = Collections.unmodifiableList(clientConditions);
+            this.expectedOverfetch = expectedOverfetch;
+            this.filter = filter;
+            this.sortByDeparture = sortByDeparture;
+            this.clientLimit = clientLimit;
+        }
+
+        /** Puts filtered rides in result order and applies the limit the database could not. */
+        @NonNull
+        List<Ride> finish(@NonNull List<Ride> rides) {
+            if (sortByDeparture) {
+                Collections.sort(rides, (a, b) -> a.getDepartureAt() != b.getDepartureAt()
+                        ? Long.compare(a.getDepartureAt(), b.getDepartureAt())
+                        : Integer.compare(a.getRideId(), b.getRideId()));
+            }
+            return clientLimit > 0 && rides.size() > clientLimit ? new ArrayList<>(rides.subList(0, clientLimit)) : rides;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s index %s where %s; client filter: %s%s; expected overfetch %.1fx",
+                    index.displayName, storeQueries.size() == 1 ? storeQueries.get(0) : storeQueries, String.join(" and ", serverConditions),
+                    clientConditions.isEmpty() ? "none" : String.join(" and ", clientConditions),
+                    clientLimit > 0 ? "; limit " + clientLimit + " on the client" : "", expectedOverfetch);
+        }
+    }
+
+    /** Chooses the index for this query as seen by {@code currentUserEmail}. */
+    @NonNull
+    Plan plan(@NonNull String currentUserEmail) {
+        boolean hasWindow = departingFrom != DepartureTime.UNKNOWN;
+        boolean roleApplies = role != null && owner != Owner.ANYONE;
+        boolean bothSeats = status == RideStatus.ACCEPTED || status == RideStatus.COMPLETE;
+
+        // Share of the status's rides each usable index reads; the smallest wins
+        Index index = Index.STATUS;
+        double indexSelectivity = 1;
+        if (hasWindow && WINDOW_SELECTIVITY < indexSelectivity) {
+            index = Index.STATUS_DEPARTURE;
+            indexSelectivity = WINDOW_SELECTIVITY;
+        }
+        if ((originArea != null || destinationArea != null) && NEAR_SELECTIVITY < indexSelectivity) {
+            index = originArea != null ? Index.FROM_CELL : Index.TO_CELL;
+            indexSelectivity = NEAR_SELECTIVITY;
+        }
+        if (owner == Owner.CURRENT_USER && OWN_RIDES_SELECTIVITY < indexSelectivity) {
+            index = Index.USER_RIDES; // Reads the user's entries, then each of their rides
+        }
+
+        List<String> server = new ArrayList<>();
+        List<String> client = new ArrayList<>();
+        double kept = 1; // Share of the downloaded rides the client filter keeps
+        server.add("status = " + status);
+        if (index == Index.USER_RIDES) {
+            server.add("driver or rider is the current user");
+            if (roleApplies) client.add(describeOwner());
+        } else if (owner != Owner.ANYONE) {
+            client.add(describeOwner());
+            // Other users' rides are nearly all of them, so only the current user's narrow much
+            if (owner == Owner.CURRENT_USER) kept *= OWN_RIDES_SELECTIVITY;
+        }
+        if (roleApplies && owner == Owner.CURRENT_USER && bothSeats) kept *= ROLE_SELECTIVITY;
+        if (hasWindow) {
+            String window = "departure in [" + departingFrom + ", " + departingTo + "]";
+            if (index == Index.STATUS_DEPARTURE) {
+                server.add(window);
+            } else {
+                client.add(window);
+                kept *= WINDOW_SELECTIVITY;
+            }
+        }
+        if (origin != null) {
+            client.add("origin = " + origin);
+            kept *= PLACE_SELECTIVITY;
+        }
+        if (destination != null) {
+            client.add("destination = " + destination);
+            kept *= PLACE_SELECTIVITY;
+        }
+
+        List<StoreQuery> storeQueries = new ArrayList<>();
+        switch (index) {
+            case USER_RIDES:
+                storeQueries.add(RideService.userRidesQuery(currentUserEmail, status));
+                break;
+            case FROM_CELL:
+            case TO_CELL:
+                Circle area = index == Index.FROM_CELL ? originArea : destinationArea;
+                List<String> cells = GeoHash.cellsWithin(area.lat, area.lng, area.radiusMeters);
+                double cellsArea = 0;
+                for (String cell : cells) {
+                    storeQueries.add(RideService.cellQuery(index.displayName, status, cell));
+                    cellsArea += GeoHash.cellAreaSquareMeters(cell);
+                }
+                server.add((index == Index.FROM_CELL ? "origin" : "destination") + " in cells " + String.join(", ", cells));
+                // The cells are known, so this one is worked out rather than guessed
+                kept *= Math.min(1, Math.PI * area.radiusMeters * area.radiusMeters / cellsArea);
+                break;
+            case STATUS_DEPARTURE:
+                storeQueries.add(RideService.departureRangeQuery(status, departingFrom, departingTo));
+                break;
+            default:
+                storeQueries.add(RideService.statusQuery(status));
+                break;
+        }
+        if (originArea != null) {
+            client.add("origin " + originArea);
+            if (index != Index.FROM_CELL) kept *= NEAR_SELECTIVITY;
+        }
+        if (destinationArea != null) {
+            client.add("destination " + destinationArea);
+            if (index != Index.TO_CELL) kept *= NEAR_SELECTIVITY;
+        }
+
+        // The database can only apply the limit when one query returns exactly the result rows
+        int clientLimit = limit;
+        if (limit > 0 && client.isEmpty() && storeQueries.size() == 1) {
+            storeQueries.set(0, storeQueries.get(0).limitToFirst(limit));
+            clientLimit = 0;
+        }
+        return new Plan(index, storeQueries, server, client, 1 / kept, filter(currentUserEmail),
+                hasWindow && index != Index.STATUS_DEPARTURE, clientLimit);
+    }
+
+    private String describeOwner() {
+        String seat = role == Role.DRIVER ? "driver" : role == Role.RIDER ? "rider" : "driver or rider";
+        return owner == Owner.CURRENT_USER ? seat + " is the current user" : seat + " is not the current user";
+    }
+
+    /** Every condition of this query, as a list filter. */
+    private RideService.RideFilter filter(@NonNull final String currentUserEmail) {
+        final boolean hasWindow = departingFrom != DepartureTime.UNKNOWN;
+        return ride -> {
+            if (ride.deriveStatus() != status) return false;
+            if (owner != Owner.ANYONE) {
+                boolean driverMatches = role != Role.RIDER && Objects.equals(ride.getDriver(), currentUserEmail);
+                boolean riderMatches = role != Role.DRIVER && Objects.equals(ride.getRider(), currentUserEmail);
+                boolean userMatches = driverMatches || riderMatches;
+                if (owner == Owner.CURRENT_USER ? !userMatches : userMatches) return false;
+            }
+            if (hasWindow && (ride.getDepartureAt() < departingFrom || ride.getDepartureAt() > departingTo)) return false;
+            if (origin != null && !origin.equalsIgnoreCase(trimToNull(ride.getFrom()))) return false;
+            if (destination != null && !destination.equalsIgnoreCase(trimToNull(ride.getTo()))) return false;
+            if (originArea != null && !originArea.contains(ride.getFromLat(), ride.getFromLng())) return false;
+            return destinationArea == null || destinationArea.contains(ride.getToLat(), ride.getToLng());
+        };
+    }
+
+    @Nullable
+    private static String trimToNull(@Nullable String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "RideQuery{status=" + status + ", owner=" + owner + ", role=" + role + ", departingFrom=" + departingFrom
+                + ", departingTo=" + departingTo + ", origin='" + origin + "', destination='" + destination
+                + "', originArea=" + originArea + ", destinationArea=" + destinationArea + ", limit=" + limit + '}';
+    }
+}
@@ -0,0 +1,204 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+
+/**
+ * A search over the rides in a RideMirror: which open rides, optional text and place filters, a
+ * departure window, an order and a limit. Immutable like StoreQuery; each method returns a
+ * changed copy, e.g. {@code RideSearch.offers().matching("athens").sortedBy(Sort.DEPARTURE).limit(20)}.
+ *
+ * Without a window, rides that have already departed are left out and undated ones kept, as on
+ * the browse lists. Undated rides sort after dated ones.
+ */
+public final class RideSearch {
+
+    public enum Sort { DEPARTURE, ORIGIN, DESTINATION }
+
+    private final List<RideStatus> statuses;
+    @Nullable private final String text;
+    @Nullable private final String origin;
+    @Nullable private final String destination;
+    private final long departingFrom; // DepartureTime.UNKNOWN when there is no window
+    private final long departingTo;
+    private final Sort sort;
+    private final int limit; // 0 for all matches
+
+    private RideSearch(List<RideStatus> statuses, @Nullable String text, @Nullable String origin, @Nullable String destination,
+                       long departingFrom, long departingTo, Sort sort, int limit) {
+        this.statuses = statuses;
+        this.text = text;
+        this.origin = origin;
+        this.destination = destination;
+        this.departingFrom = departingFrom;
+        this.departingTo = departingTo;
+        this.sort = sort;
+        this.limit = limit;
+    }
+
+    @NonNull
+    public static RideSearch offers() {
+        return of(RideStatus.OPEN_OFFER);
+    }
+
+    @NonNull
+    public static RideSearch requests() {
+        return of(RideStatus.OPEN_REQUEST);
+    }
+
+    /** Offers and requests together. */
+    @NonNull
+    public static RideSearch openRides() {
+        return of(RideStatus.OPEN_OFFER, RideStatus.OPEN_REQUEST);
+    }
+
+    private static RideSearch of(RideStatus... statuses) {
+        return new RideSearch(Collections.unmodifiableList(Arrays.asList(statuses)), null, null, null,
+                DepartureTime.UNKNOWN, DepartureTime.UNKNOWN, Sort.DEPARTURE, 0);
+    }
+
+    /**
+     * Rides whose origin or destination has a word starting with each word of {@code text},
+     * e.g. "ath atl" finds Athens to Atlanta. Case and accents are ignored; null or blank clears it.
+     */
+    @NonNull
+    public RideSearch matching(@Nullable String text) {
+        return new RideSearch(statuses, text, origin, destination, departingFrom, departingTo, sort, limit);
+    }
+
+    /** Rides leaving from exactly this place, ignoring case; null clears it. */
+    @NonNull
+    public RideSearch from(@Nullable String origin) {
+        return new RideSearch(statuses, text, origin, destination, departingFrom, departingTo, sort, limit);
+    }
+
+    /** Rides going to exactly this place, ignoring case; null clears it. */
+    @NonNull
+    public RideSearch to(@Nullable String destination) {
+        return new RideSearch(statuses, text, origin, destination, departingFrom, departingTo, sort, limit);
+    }
+
+    /** Rides departing between the two epoch millis, both inclusive; undated rides are left out. */
+    @NonNull
+    public RideSearch departingBetween(long fromMillis, long toMillis) {
+        if (fromMillis <= DepartureTime.UNKNOWN || toMillis < fromMillis) throw new IllegalArgumentException("Invalid departure window");
+        return new RideSearch(statuses, text, origin, destination, fromMillis, toMillis, sort, limit);
+    }
+
+    @NonNull
+    public RideSearch sortedBy(@NonNull Sort sort) {
+        return new RideSearch(statuses, text, origin, destination, departingFrom, departingTo, sort, limit);
+    }
+
+    /** At most {@code limit} rides; 0 for all. */
+    @NonNull
+    public RideSearch limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+        return new RideSearch(statuses, text, origin, destination, departingFrom, departingTo, sort, limit);
+    }
+
+    /** A SELECT over the mirror's tables and the values for its parameters. */
+    static final class Statement {
+        final String sql;
+        final String[] args;
+
+        Statement(String sql, String[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+
+    /** The query for this search; without a window, "departed" means before {@code nowMillis}. */
+    @NonNull
+    Statement toStatement(long nowMillis) {
+        List<String> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(RideMirror.TABLE).append(" WHERE ")
+                .append(RideMirror.COL_STATUS).append(" IN (");
+        for (int i = 0; i < statuses.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            args.add(statuses.get(i).name());
+        }
+        sql.append(')');
+
+        if (departingFrom != DepartureTime.UNKNOWN) {
+            sql.append(" AND ").append(RideMirror.COL_DEPARTURE).append(" BETWEEN ? AND ?");
+            args.add(Long.toString(departingFrom));
+            args.add(Long.toString(departingTo));
+        } else {
+            sql.append(" AND (").append(RideMirror.COL_DEPARTURE).append(" >= ? OR ")
+                    .append(RideMirror.COL_DEPARTURE).append(" = ").append(DepartureTime.UNKNOWN).append(')');
+            args.add(Long.toString(nowMillis));
+        }
+        if (!isBlank(origin)) {
+            sql.append(" AND ").append(RideMirror.COL_ORIGIN).append(" = ? COLLATE NOCASE");
+            args.add(origin.trim());
+        }
+        if (!isBlank(destination)) {
+            sql.append(" AND ").append(RideMirror.COL_DESTINATION).append(" = ? COLLATE NOCASE");
+            args.add(destination.trim());
+        }
+        String match = matchExpression(text);
+        if (match != null) {
+            // Ride IDs are the rowids, and the full-text table's docids mirror them
+            sql.append(" AND ").append(RideMirror.COL_ID).append(" IN (SELECT docid FROM ").append(RideMirror.FTS_TABLE)
+                    .append(" WHERE ").append(RideMirror.FTS_TABLE).append(" MATCH ?)");
+            args.add(match);
+        }
+
+        String undatedLast = RideMirror.COL_DEPARTURE + " = " + DepartureTime.UNKNOWN;
+        String byDeparture = undatedLast + ", " + RideMirror.COL_DEPARTURE;
+        sql.append(" ORDER BY ");
+        switch (sort) {
+            case ORIGIN:
+                sql.append(RideMirror.COL_ORIGIN).append(" COLLATE NOCASE, ").append(byDeparture);
+                break;
+            case DESTINATION:
+                sql.append(RideMirror.COL_DESTINATION).append(" COLLATE NOCASE, ").append(byDeparture);
+                break;
+            default:
+                sql.append(byDeparture);
+                break;
+        }
+        sql.append(", ").append(RideMirror.COL_ID);
+        if (limit > 0) sql.append(" LIMIT ").append(limit);
+        return new Statement(sql.toString(), args.toArray(new String[0]));
+    }
+
+    /**
+     * Full-text query for {@code text}: each word as a prefix term, all required, or null when
+     * there are no words. Only letters and digits are kept, so user input cannot form operators.
+     */
+    @VisibleForTesting
+    @Nullable
+    static String matchExpression(@Nullable String text) {
+        if (text == null) return null;
+        StringBuilder match = new StringBuilder();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private static boolean isBlank(@Nullable String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "RideSearch{statuses=" + statuses + ", text='" + text + "', origin='" + origin + "', destination='" + destination
+                + "', departingFrom=" + departingFrom + ", departingTo=" + departingTo + ", sort=" + sort + ", limit=" + limit + '}';
+    }
+}
@@ -2,44 +2,70 @@ package edu.uga.cs.rideshareapp.firebase;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 // Firebase Imports
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.MutableData;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.Transaction;
-import com.google.firebase.database.ValueEventListener;
 
 // Java Util Imports
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 // Removed unused concurrency imports related to blocking await
 
 
 // Local Model Imports
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.GeoHash;
 import edu.uga.cs.rideshareapp.model.Points;
 import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideCodec;
+import edu.uga.cs.rideshareapp.model.RideListModel;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
 
 // Android Util Imports
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
 public class RideService {
 
-    private final DatabaseReference dbRootRef;
-    private final DatabaseReference ridesRef;
-    private final DatabaseReference userPointsRef; // Reference for user points
-    private final DatabaseReference counterRef;
-    private final FirebaseAuth firebaseAuth;
+    private static final String RIDES_PATH = "rides";
+    private static final String USER_POINTS_PATH = "userPoints";
+    private static final String USER_RIDES_PATH = "userRides"; // Per-user index: userRides/{user}/{rideId} -> status
+    private static final String MIGRATIONS_PATH = "migrations"; // migrations/{name} -> true once done, or a claim time
+    private static final String TOMBSTONE_PURGE_PATH = "maintenance/tombstonePurge"; // When a device last claimed the purge
+
+    private final RideStore store; // Firebase in the app, MemoryRideStore in JVM tests
+    private final SessionProvider session;
+    private final RideIdAllocator idAllocator; // Leases ID blocks instead of a counter transaction per ride
+    private final Executor parseExecutor;  // Decodes and filters list results
+    private final Executor resultExecutor; // Calls list listeners; the main thread in the app
+    private final RideListCache listCache = new RideListCache(LIST_CACHE_SIZE, LIST_CACHE_TTL_MS); // Recent getAll* results
+    private final RideEntityCache rideCache = new RideEntityCache(RIDE_CACHE_SIZE, RIDE_CACHE_FRESH_MS); // Rides the lists delivered
     private static final String TAG = "RideService";
 
     // Point constants
@@ -47,11 +73,54 @@ public class RideService {
     private static final int POINTS_FOR_REQUEST = -50;     // Cost for requesting
     private static final int STARTING_POINTS = 100;
 
+    // List parsing pool: small, and its queue is unbounded so no parse ever runs on the caller (the
+    // main thread under Firebase). Live subscriptions reach it through SerialExecutor lanes, which
+    // queue one task each at a time, so a burst of child events waits in its lane, not here.
+    private static final int PARSE_THREADS = 2;
+    private static Executor sharedParseExecutor;
+    private static final ParseTimings parseTimings = new ParseTimings();
+    private static final RideMetrics metrics = new RideMetrics();
+    private static final int TRACE_BUFFER_SIZE = 100; // Most recent finished command traces kept
+    private static final RideTracer tracer = new RideTracer(TRACE_BUFFER_SIZE);
+    private static final int LIST_CACHE_SIZE = 32;          // Lists kept per service
+    private static final long LIST_CACHE_TTL_MS = 30_000;   // Bounds staleness from other users' writes
+    private static final int RIDE_CACHE_SIZE = 256;
+    private static final long RIDE_CACHE_FRESH_MS = 60_000; // A stale ride only costs a retry (versioned writes)
+    private static final int MIGRATION_CHUNK_SIZE = 200;    // Ride nodes read and rewritten per migration step
+    private static final long MIGRATION_LEASE_MS = 10 * 60_000; // A claimed migration not finished by then is taken over
+    private static final String RIDE_INDEXES_MIGRATION = "rideIndexes";
+    private static final String DEPARTURE_TIMES_MIGRATION = "departureTimes";
+    // Tombstones are removed once this old; list bases are never patched from anything near it
+    // (RideListCache.MAX_BASE_AGE_MS), so every delta still sees the deletions it needs
+    private static final long TOMBSTONE_TTL_MS = 7 * 24 * 60 * 60_000L;
+    private static final long TOMBSTONE_PURGE_INTERVAL_MS = 24 * 60 * 60_000L; // Per database, whichever device gets there first
+    // Delta reads start this far before a list's watermark: watermarks, and the updatedAt stamps
+    // transactions write, are the client's estimate of server time, which can be off a little
+    private static final long WATERMARK_OVERLAP_MS = 60_000;
+    private static RideService sharedInstance;
+
+    // Points nodes known to exist, per store, so request creation can debit with a server-side increment
+    private static final Map<RideStore, Set<String>> initializedPointsKeys = Collections.synchronizedMap(new WeakHashMap<>());
+
     // --- Callback Interfaces (with method definitions) ---
     public interface RideListListener {
         void onRidesFetched(List<Ride> rides);
         void onError(DatabaseError databaseError);
     }
+    /** One page of a paged list; nextCursor is null on the last page. Called again whenever the page changes. */
+    public interface RidePageListener {
+        void onPageFetched(List<Ride> rides, @Nullable String nextCursor);
+        void onError(DatabaseError databaseError);
+    }
+    /**
+     * Changes to a live pool of rides with one status: rides that were added or changed since the
+     * last call, and IDs of rides that left the pool. The first call is complete, i.e. lists every
+     * ride in the pool, so a local copy can drop anything else it holds for that status.
+     */
+    public interface RidePoolListener {
+        void onPoolChanged(@NonNull RideStatus status, boolean complete, @NonNull List<Ride> changed, @NonNull Set<Integer> removed);
+        void onError(DatabaseError databaseError);
+    }
     public interface RideSingleListener {
         void onRideFetched(@Nullable Ride ride);
         void onError(DatabaseError databaseError);
@@ -65,21 +134,126 @@ public class RideService {
         void onError(Exception e); // Method definition added
     }
 
+    /** Supplies the signed-in user's email: null when signed out, empty when the account has no email. */
+    public interface SessionProvider {
+        @Nullable String getCurrentUserEmail();
+    }
+
 
-    // --- Constructor ---
+    // --- Constructors ---
     public RideService() {
-        FirebaseDatabase database = FirebaseDatabase.getInstance();
-        this.firebaseAuth = FirebaseAuth.getInstance();
-        this.dbRootRef = database.getReference();
-        this.ridesRef = database.getReference("rides");
-        this.userPointsRef = database.getReference("userPoints"); // Initialize points ref
-        this.counterRef = database.getReference("counters/lastRideId");
+        this(FirebaseRideStore.getInstance(), firebaseSession(FirebaseAuth.getInstance()), RideIdAllocator.getShared(),
+                getSharedParseExecutor(), mainThreadExecutor());
+    }
+
+    /** Service over any store, with its own ride ID allocator on counters/lastRideId. */
+    public RideService(@NonNull RideStore store, @NonNull SessionProvider session) {
+        this(store, session, new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE));
+    }
+
+    /** Parses list results and calls listeners on the store's callback thread. */
+    public RideService(@NonNull RideStore store, @NonNull SessionProvider session, @NonNull RideIdAllocator idAllocator) {
+        this(store, session, idAllocator, Runnable::run, Runnable::run);
+    }
+
+    /** {@code parseExecutor} decodes and filters list results; {@code resultExecutor} calls the list listeners. */
+    public RideService(@NonNull RideStore store, @NonNull SessionProvider session, @NonNull RideIdAllocator idAllocator,
+                       @NonNull Executor parseExecutor, @NonNull Executor resultExecutor) {
+        this.store = store;
+        this.session = session;
+        this.idAllocator = idAllocator;
+        this.parseExecutor = parseExecutor;
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * The process-wide service the screens share, so they share its list cache and in-flight
+     * reads too. Created on first use over Firebase.
+     */
+    @NonNull
+    public static synchronized RideService getInstance() {
+        if (sharedInstance == null) sharedInstance = new RideService();
+        return sharedInstance;
+    }
+
+    private static synchronized Executor getSharedParseExecutor() {
+        if (sharedParseExecutor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(PARSE_THREADS, PARSE_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    task -> {
+                        Thread thread = new Thread(() -> {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            task.run();
+                        }, "ride-parse");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            sharedParseExecutor = pool;
+        }
+        return sharedParseExecutor;
+    }
+
+    private static Executor mainThreadExecutor() {
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        return mainHandler::post;
+    }
+
+    /** Callback-thread vs worker parse time for every list read, keyed by operation tag. */
+    @NonNull
+    public static ParseTimings getParseTimings() {
+        return parseTimings;
+    }
+
+    /** Latency and overfetch for every RideService operation, keyed by operation tag. */
+    @NonNull
+    public static RideMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Recent command traces, one span per store round trip. */
+    @NonNull
+    public static RideTracer getTracer() {
+        return tracer;
+    }
+
+    /** Hit, miss and coalescing counts for this service's getAll* reads. */
+    @NonNull
+    public RideListCache.Stats getListCacheStats() {
+        return listCache.stats();
+    }
+
+    /** Hits, misses and stale-write retries for the rides commands took from the entity cache. */
+    @NonNull
+    public RideEntityCache.Stats getRideCacheStats() {
+        return rideCache.stats();
+    }
+
+    /** The signed-in user's email, or null when signed out or the account has no email. */
+    @Nullable
+    public String getCurrentUserEmail() {
+        String email = session.getCurrentUserEmail();
+        return email == null || email.trim().isEmpty() ? null : email;
+    }
+
+    /** Drops every cached list, e.g. before timing uncached reads. */
+    public void clearListCache() {
+        listCache.invalidateAll();
+    }
+
+    private static SessionProvider firebaseSession(final FirebaseAuth firebaseAuth) {
+        return () -> {
+            FirebaseUser currentUser = firebaseAuth.getCurrentUser();
+            if (currentUser == null) return null;
+            return currentUser.getEmail() != null ? currentUser.getEmail() : "";
+        };
     }
 
     // --- Helper Methods ---
 
     /** Sets the rideId field on a Ride object based on its Firebase key. */
-    private void setRideIdFromKey(Ride ride, String rideKey) {
+    @VisibleForTesting
+    static void setRideIdFromKey(Ride ride, String rideKey) {
         if (ride == null || rideKey == null) return;
         try {
             int id = Integer.parseInt(rideKey);
@@ -89,40 +263,177 @@ public class RideService {
         }
     }
 
-    /** Creates a standard OnCompleteListener for write operations. */
-    private OnCompleteListener<Void> createWriteCompleteListener(@Nullable final CompletionListener listener, final String operationTag) {
-        return task -> {
+    /** Sets departureAt from the ride's dateTime text unless the caller already gave it. */
+    private static void fillDepartureAt(@NonNull Ride ride) {
+        if (ride.getDepartureAt() > DepartureTime.UNKNOWN) return;
+        ride.setDepartureAt(DepartureTime.parse(ride.getDateTime()));
+        if (ride.getDepartureAt() == DepartureTime.UNKNOWN && ride.getDateTime() != null) {
+            Log.w(TAG, "Unrecognised dateTime, ride will sort as undated: " + ride.getDateTime());
+        }
+    }
+
+    /** Creates a standard WriteListener for write operations. */
+    private RideStore.WriteListener createWriteCompleteListener(@Nullable final CompletionListener listener, final String operationTag) {
+        return error -> {
             if (listener != null) {
-                if (task.isSuccessful()) {
+                if (error == null) {
                     Log.d(TAG, operationTag + " successful.");
                     listener.onSuccess(); // Call the defined interface method
                 } else {
-                    Exception e = task.getException() != null ? task.getException() : new Exception(operationTag + " failed with unknown error");
-                    Log.e(TAG, operationTag + " failed.", e);
-                    listener.onFailure(e); // Call the defined interface method
+                    Log.e(TAG, operationTag + " failed.", error);
+                    listener.onFailure(error); // Call the defined interface method
                 }
             } else { // Log even without listener
-                if (!task.isSuccessful()) {
-                    Log.e(TAG, operationTag + " failed (no listener).", task.getException());
+                if (error != null) {
+                    Log.e(TAG, operationTag + " failed (no listener).", error);
                 }
             }
         };
     }
 
-    /** Gets current user's email or calls listener.onFailure if not logged in (for write operations). */
+    // Ride commands are built as chains of CompletableFutures, one stage per store round trip;
+    // the CompletionListener methods report the same futures through notifyWhenDone. Stages run
+    // on the thread that completed the previous one (the store's callback thread), and
+    // CompletableFuture.failedFuture and friends are avoided because they need API 31.
+
+    /**
+     * Runs a command's chain under {@code trace}: the returned future finishes the trace, logs it
+     * and records the command's latency when the chain completes. A chain that throws before
+     * returning its future fails the same way.
+     */
+    private static <T> CompletableFuture<T> traced(final RideTracer.Trace trace, @NonNull Supplier<CompletableFuture<T>> chain) {
+        CompletableFuture<T> future;
+        try {
+            future = chain.get();
+        } catch (RuntimeException e) {
+            future = failed(e);
+        }
+        return future.whenComplete((result, error) -> finishTrace(trace, error != null));
+    }
+
+    private static void finishTrace(RideTracer.Trace trace, boolean failed) {
+        metrics.recordLatency(trace.getCommand(), trace.finish(failed), failed);
+        Log.d(TAG, trace.toString());
+    }
+
+    /** Ends one hop of a command and records its latency as "command.hop". */
+    private static void endSpan(RideTracer.Trace trace, RideTracer.Span span, boolean failed) {
+        metrics.recordLatency(trace.getCommand() + "." + span.getName(), span.end(failed), failed);
+    }
+
+    private static <T> CompletableFuture<T> failed(@NonNull Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /** The exception a future failed with, without the CompletionException a later stage wraps it in. */
+    @NonNull
+    private static Exception unwrap(@NonNull Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception ? (Exception) cause : new Exception(cause);
+    }
+
+    /** Reports a command future's outcome to a callback listener. */
+    private static void notifyWhenDone(@NonNull CompletableFuture<?> future, @Nullable final CompletionListener listener) {
+        if (listener == null) return;
+        future.whenComplete((result, error) -> {
+            try {
+                if (error == null) listener.onSuccess(); // Call defined method
+                else listener.onFailure(unwrap(error)); // Call defined method
+            } catch (RuntimeException e) {
+                Log.e(TAG, "CompletionListener threw.", e); // The future would swallow it otherwise
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Multi-path update as the {@code hop} of {@code trace}, logged like createWriteCompleteListener.
+     * On success the cached lists for {@code changedLists} are dropped before the future completes.
+     */
+    private CompletableFuture<Void> writeUpdates(@NonNull Map<String, Object> updates, final RideTracer.Trace trace, String hop,
+                                                 final String operationTag, final RideStatus... changedLists) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final RideTracer.Span span = trace.startSpan(hop);
+        store.updateChildren(updates, error -> {
+            endSpan(trace, span, error != null);
+            if (error == null) {
+                Log.d(TAG, operationTag + " successful.");
+                listCache.invalidate(changedLists);
+                future.complete(null);
+            } else {
+                Log.e(TAG, operationTag + " failed.", error);
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    /** Records the time until the first list (or error) reaches {@code listener}; later updates pass straight through. */
+    private static RideListListener timed(@NonNull final RideListListener listener, final String opTag) {
+        final long start = System.nanoTime();
+        final AtomicBoolean recorded = new AtomicBoolean();
+        return new RideListListener() {
+            @Override public void onRidesFetched(List<Ride> rides) {
+                if (recorded.compareAndSet(false, true)) metrics.recordLatency(opTag, System.nanoTime() - start, false);
+                listener.onRidesFetched(rides);
+            }
+            @Override public void onError(DatabaseError databaseError) {
+                if (recorded.compareAndSet(false, true)) metrics.recordLatency(opTag, System.nanoTime() - start, true);
+                listener.onError(databaseError);
+            }
+        };
+    }
+
+    /** Records the time until the first page (or error) reaches {@code listener}; later updates pass straight through. */
+    private static RidePageListener timed(@NonNull final RidePageListener listener, final String opTag) {
+        final long start = System.nanoTime();
+        final AtomicBoolean recorded = new AtomicBoolean();
+        return new RidePageListener() {
+            @Override public void onPageFetched(List<Ride> rides, @Nullable String nextCursor) {
+                if (recorded.compareAndSet(false, true)) metrics.recordLatency(opTag, System.nanoTime() - start, false);
+                listener.onPageFetched(rides, nextCursor);
+            }
+            @Override public void onError(DatabaseError databaseError) {
+                if (recorded.compareAndSet(false, true)) metrics.recordLatency(opTag, System.nanoTime() - start, true);
+                listener.onError(databaseError);
+            }
+        };
+    }
+
+    private static String ridePath(Object rideKey) {
+        return RIDES_PATH + "/" + rideKey;
+    }
+
+    /** The ride's node for a whole-node write, stamped with the server time in updatedAt. */
+    private Map<String, Object> rideNode(@NonNull Ride ride) {
+        Map<String, Object> node = ride.toMap();
+        node.put("updatedAt", store.serverTimestamp());
+        return node;
+    }
+
+    /** The ride ID a rides key holds, or null if it is not a number. */
     @Nullable
-    private String getCurrentUserEmail(@Nullable CompletionListener listener) {
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
-        if (currentUser == null) {
-            Log.e(TAG, "Operation failed: User not logged in.");
-            if (listener != null) listener.onFailure(new SecurityException("User not logged in"));
+    private static Integer rideIdOfKey(@Nullable String rideKey) {
+        try {
+            return Integer.valueOf(rideKey);
+        } catch (NumberFormatException nfe) {
             return null;
         }
-        String email = currentUser.getEmail();
-        if (email == null || email.trim().isEmpty()) {
+    }
+
+    /** Gets current user's email or throws if not logged in (for write operations; the command's future fails). */
+    @NonNull
+    private String requireCurrentUserEmail() {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
+            Log.e(TAG, "Operation failed: User not logged in.");
+            throw new SecurityException("User not logged in");
+        }
+        if (email.trim().isEmpty()) {
             Log.e(TAG, "Operation failed: User email is missing.");
-            if (listener != null) listener.onFailure(new IllegalStateException("User email is missing"));
-            return null;
+            throw new IllegalStateException("User email is missing");
         }
         return email;
     }
@@ -130,14 +441,47 @@ public class RideService {
     /** Gets current user's email or calls listener.onError if not logged in (for read list operations). */
     @Nullable
     private String getCurrentUserEmailForRead(@NonNull RideListListener listener) {
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
-        if (currentUser == null) {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
+            Log.e(TAG, "Operation failed: User not logged in.");
+            listener.onError(DatabaseError.fromException(new SecurityException("User not logged in")));
+            return null;
+        }
+        if (email.trim().isEmpty()) {
+            Log.e(TAG, "Operation failed: User email is missing.");
+            listener.onError(DatabaseError.fromException(new IllegalStateException("User email is missing")));
+            return null;
+        }
+        return email;
+    }
+
+    /** Gets current user's email or calls listener.onError if not logged in (for paged read operations). */
+    @Nullable
+    private String getCurrentUserEmailForRead(@NonNull RidePageListener listener) {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
+            Log.e(TAG, "Operation failed: User not logged in.");
+            listener.onError(DatabaseError.fromException(new SecurityException("User not logged in")));
+            return null;
+        }
+        if (email.trim().isEmpty()) {
+            Log.e(TAG, "Operation failed: User email is missing.");
+            listener.onError(DatabaseError.fromException(new IllegalStateException("User email is missing")));
+            return null;
+        }
+        return email;
+    }
+
+    /** Gets current user's email or calls listener.onError if not logged in (for pool subscriptions). */
+    @Nullable
+    private String getCurrentUserEmailForRead(@NonNull RidePoolListener listener) {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
             Log.e(TAG, "Operation failed: User not logged in.");
             listener.onError(DatabaseError.fromException(new SecurityException("User not logged in")));
             return null;
         }
-        String email = currentUser.getEmail();
-        if (email == null || email.trim().isEmpty()) {
+        if (email.trim().isEmpty()) {
             Log.e(TAG, "Operation failed: User email is missing.");
             listener.onError(DatabaseError.fromException(new IllegalStateException("User email is missing")));
             return null;
@@ -148,14 +492,13 @@ public class RideService {
     /** Gets current user's email or calls listener.onError if not logged in (for read single operations). */
     @Nullable
     private String getCurrentUserEmailForRead(@NonNull RideSingleListener listener) {
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
-        if (currentUser == null) {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
             Log.e(TAG, "Operation failed: User not logged in.");
             listener.onError(DatabaseError.fromException(new SecurityException("User not logged in")));
             return null;
         }
-        String email = currentUser.getEmail();
-        if (email == null || email.trim().isEmpty()) {
+        if (email.trim().isEmpty()) {
             Log.e(TAG, "Operation failed: User email is missing.");
             listener.onError(DatabaseError.fromException(new IllegalStateException("User email is missing")));
             return null;
@@ -166,14 +509,13 @@ public class RideService {
     /** Gets current user's email or calls listener.onError if not logged in (for points fetch operations). */
     @Nullable
     private String getCurrentUserEmailForRead(@NonNull PointsFetchListener listener) {
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
-        if (currentUser == null) {
+        String email = session.getCurrentUserEmail();
+        if (email == null) {
             Log.e(TAG, "Operation failed: User not logged in.");
             listener.onError(new SecurityException("User not logged in"));
             return null;
         }
-        String email = currentUser.getEmail();
-        if (email == null || email.trim().isEmpty()) {
+        if (email.trim().isEmpty()) {
             Log.e(TAG, "Operation failed: User email is missing.");
             listener.onError(new IllegalStateException("User email is missing"));
             return null;
@@ -182,12 +524,32 @@ public class RideService {
     }
 
     /** Sanitizes email to be used as a Firebase key (replace '.' with ','). Use UID if possible! */
-    private String sanitizeEmailForKey(String email) {
+    private static String sanitizeEmailForKey(String email) {
         if (email == null) return null;
         // Using UID (user.getUid()) is strongly preferred as it's guaranteed safe for keys.
         return email.replace('.', ',');
     }
 
+    /** Adds the ride's status-derived index values (see Ride.statusIndexValues) for {@code status} to a multi-path update. */
+    private static void putStatusIndexUpdates(Map<String, Object> updates, Ride ride, Object rideKey, RideStatus status) {
+        for (Map.Entry<String, Object> index : ride.statusIndexValues(status).entrySet()) {
+            updates.put(ridePath(rideKey) + "/" + index.getKey(), index.getValue());
+        }
+    }
+
+    /**
+     * Adds userRides/{user}/{rideId} entries for the ride's driver and rider to a root-level
+     * multi-path update, so the index is committed atomically with the ride itself.
+     * Pass a null status to remove the entries.
+     */
+    private void putUserRideIndexUpdates(Map<String, Object> updates, Ride ride, Object rideKey, @Nullable RideStatus status) {
+        Object value = status != null ? status.name() : null;
+        for (String participant : new String[] { ride.getDriver(), ride.getRider() }) {
+            if (participant == null || participant.trim().isEmpty()) continue;
+            updates.put(USER_RIDES_PATH + "/" + sanitizeEmailForKey(participant) + "/" + rideKey, value);
+        }
+    }
+
 
     // --- Points Handling ---
 
@@ -202,402 +564,1431 @@ public class RideService {
             return;
         }
 
-        userPointsRef.child(sanitizedEmail).addListenerForSingleValueEvent(new ValueEventListener() {
+        store.get(StoreQuery.at(USER_POINTS_PATH + "/" + sanitizedEmail), new RideStore.ValueListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
+            public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
                 if (snapshot.exists()) {
-                    Points pointsData = snapshot.getValue(Points.class);
+                    Points pointsData = RideCodec.decodePoints(snapshot.getValue());
                     listener.onPointsFetched(pointsData != null ? pointsData.getPoints() : STARTING_POINTS);
                 } else {
                     listener.onPointsFetched(STARTING_POINTS); // Default if no entry
                 }
             }
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Failed to fetch user points for " + currentUserEmail, error.toException());
-                listener.onError(error.toException());
+            public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, "Failed to fetch user points for " + currentUserEmail, error);
+                listener.onError(error);
             }
         });
     }
 
 
-    /** Handles adding or subtracting points for a user using a Transaction. */
-    private void handlePoints(String userEmail, final int pointChange, @Nullable final CompletionListener listener) {
+    /** Future form of getUserPoints. */
+    @NonNull
+    public CompletableFuture<Integer> getUserPointsAsync() {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        getUserPoints(new PointsFetchListener() {
+            @Override public void onPointsFetched(int points) { future.complete(points); }
+            @Override public void onError(Exception e) { future.completeExceptionally(e); }
+        });
+        return future;
+    }
+
+
+    /** Handles adding or subtracting points for a user using a Transaction, as the "points" hop of {@code trace}. */
+    private CompletableFuture<Void> handlePoints(final String userEmail, final int pointChange, final RideTracer.Trace trace) {
         if (userEmail == null || userEmail.trim().isEmpty()) {
             Log.w(TAG, "handlePoints: Cannot modify points for null or empty user email.");
-            // Decide if this is a failure or just a no-op
-            if (listener != null) listener.onFailure(new IllegalArgumentException("User email required for points handling"));
-            return;
+            return failed(new IllegalArgumentException("User email required for points handling"));
         }
         final String sanitizedEmail = sanitizeEmailForKey(userEmail);
         if (sanitizedEmail == null) {
             Log.e(TAG, "handlePoints: Invalid user email for key: " + userEmail);
-            if (listener != null) listener.onFailure(new IllegalArgumentException("Invalid user email for key"));
-            return;
+            return failed(new IllegalArgumentException("Invalid user email for key"));
         }
 
-        DatabaseReference userPointsNode = userPointsRef.child(sanitizedEmail);
-
-        userPointsNode.runTransaction(new Transaction.Handler() {
-            @NonNull
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final RideTracer.Span span = trace.startSpan("points");
+        store.runTransaction(USER_POINTS_PATH + "/" + sanitizedEmail, new RideStore.TransactionHandler() {
             @Override
-            public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
-                Points currentPointsData = mutableData.getValue(Points.class);
-                if (currentPointsData == null) {
-                    currentPointsData = new Points(STARTING_POINTS); // Initialize
-                }
-                int currentPoints = currentPointsData.getPoints();
-                int newPoints = currentPoints + pointChange;
-
-                // Check for sufficient points BEFORE deducting
-                if (pointChange < 0 && currentPoints < Math.abs(pointChange)) {
-                    Log.w(TAG, "Transaction Aborted: User " + userEmail + " has insufficient points (" + currentPoints + ") to apply change " + pointChange);
-                    return Transaction.abort(); // Abort if not enough points
-                }
-                currentPointsData.setPoints(newPoints);
-                mutableData.setValue(currentPointsData);
-                return Transaction.success(mutableData);
+            public boolean doTransaction(@NonNull RideStore.MutableNode mutableData) {
+                span.attempt();
+                return applyPointsChange(mutableData, pointChange, userEmail);
             }
 
             @Override
-            public void onComplete(@Nullable DatabaseError error, boolean committed, @Nullable DataSnapshot currentData) {
+            public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                endSpan(trace, span, error != null || !committed);
                 String opTag = "handlePoints (" + (pointChange >= 0 ? "+" : "") + pointChange + " for " + userEmail + ")";
                 if (error != null) {
-                    Log.e(TAG, opTag + " transaction failed.", error.toException());
-                    if (listener != null) listener.onFailure(error.toException());
+                    Log.e(TAG, opTag + " transaction failed.", error);
+                    future.completeExceptionally(error);
                 } else if (committed) {
                     Log.d(TAG, opTag + " successful. New points: " + (currentData != null && currentData.child("points").exists() ? currentData.child("points").getValue() : "N/A"));
-                    if (listener != null) listener.onSuccess(); // Call defined method
+                    future.complete(null);
                 } else {
                     // Transaction aborted (likely insufficient points)
                     Log.w(TAG, opTag + " transaction aborted (likely insufficient points).");
                     // Use a more specific error message
-                    if (listener != null) listener.onFailure(new Exception(pointChange < 0 ? "Insufficient points" : "Points transaction aborted")); // Call defined method
+                    future.completeExceptionally(new Exception(pointChange < 0 ? "Insufficient points" : "Points transaction aborted"));
                 }
             }
         });
+        return future;
     }
 
 
-    // --- Create Operations ---
-
-    /** Internal method to save ride data and then handle points (only for requests). */
-    private void saveRideData(final Ride ride, final int newId, final boolean isOffer, @Nullable final CompletionListener listener) {
-        String currentUserEmail = getCurrentUserEmail(null); // Get email again for safety
-        if (currentUserEmail == null) {
-            if (listener != null) listener.onFailure(new SecurityException("User not logged in for point handling"));
-            return;
+    /** Transaction body for handlePoints: applies the change, or returns false to abort on insufficient points. */
+    @VisibleForTesting
+    static boolean applyPointsChange(@NonNull RideStore.MutableNode mutableData, int pointChange, String userEmail) {
+        Points currentPointsData = RideCodec.decodePoints(mutableData.getValue());
+        if (currentPointsData == null) {
+            currentPointsData = new Points(STARTING_POINTS); // Initialize
         }
+        int currentPoints = currentPointsData.getPoints();
+        int newPoints = currentPoints + pointChange;
 
-        ride.setRideId(newId);
-        ridesRef.child(String.valueOf(newId)).setValue(ride.toMap())
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        Log.d(TAG, "Ride save successful for ID: " + newId);
-                        // *** Only handle points if it was a REQUEST ***
-                        if (!isOffer) {
-                            Log.d(TAG, ". Handling points deduction for request...");
-                            handlePoints(currentUserEmail, POINTS_FOR_REQUEST, listener); // Pass original listener
-                        } else {
-                            // It was an offer, points awarded on completion, just call onSuccess
-                            Log.d(TAG, ". Offer created, points awarded on completion.");
-                            if (listener != null) listener.onSuccess(); // Call defined method
-                        }
-                    } else {
-                        Log.e(TAG, "Ride save failed for ID: " + newId, task.getException());
-                        if (listener != null) listener.onFailure(task.getException() != null ? task.getException() : new Exception("Failed to save ride data")); // Call defined method
-                    }
-                });
+        // Check for sufficient points BEFORE deducting
+        if (pointChange < 0 && currentPoints < Math.abs(pointChange)) {
+            Log.w(TAG, "Transaction Aborted: User " + userEmail + " has insufficient points (" + currentPoints + ") to apply change " + pointChange);
+            return false; // Abort if not enough points
+        }
+        currentPointsData.setPoints(newPoints);
+        mutableData.setValue(currentPointsData);
+        return true;
     }
 
-    /** Creates a new ride entry, performing preliminary points check for requests asynchronously. */
-    public void createNewRide(final Ride ride, @Nullable final CompletionListener listener) {
-        if (ride == null) { if (listener != null) listener.onFailure(new IllegalArgumentException("Ride cannot be null")); return; }
-        final String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return; // Not logged in
-
-        final boolean isOffer = ride.getDriver() != null && !ride.getDriver().isEmpty();
 
-        // Authorization checks...
-        if (isOffer && !ride.getDriver().equals(currentUserEmail)) {
-            if (listener != null) listener.onFailure(new SecurityException("Cannot create ride offer for another user")); return;
+    /**
+     * Makes sure userPoints/{user} exists with the starting balance, so a later ServerValue.increment
+     * starts from STARTING_POINTS rather than from zero. Only hits the store once per user per process.
+     */
+    private CompletableFuture<Void> ensurePointsInitialized(final String userEmail, final RideTracer.Trace trace) {
+        final String sanitizedEmail = sanitizeEmailForKey(userEmail);
+        final Set<String> knownKeys;
+        synchronized (initializedPointsKeys) {
+            Set<String> keys = initializedPointsKeys.get(store);
+            if (keys == null) {
+                keys = Collections.synchronizedSet(new HashSet<>());
+                initializedPointsKeys.put(store, keys);
+            }
+            knownKeys = keys;
         }
-        if (!isOffer && (ride.getRider() == null || !ride.getRider().equals(currentUserEmail))) {
-            if (listener != null) listener.onFailure(new SecurityException("Cannot create ride request for another user")); return;
+        final RideTracer.Span span = trace.startSpan("ensurePoints");
+        if (knownKeys.contains(sanitizedEmail)) {
+            endSpan(trace, span, false); // No round trip; shows as a zero-attempt span
+            return CompletableFuture.completedFuture(null);
         }
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        store.runTransaction(USER_POINTS_PATH + "/" + sanitizedEmail, new RideStore.TransactionHandler() {
+            @Override
+            public boolean doTransaction(@NonNull RideStore.MutableNode mutableData) {
+                span.attempt();
+                if (mutableData.getValue() != null) return false; // Already initialized, nothing to write
+                mutableData.setValue(new Points(STARTING_POINTS));
+                return true;
+            }
 
-        // --- Asynchronous Points Check (for requests only) ---
-        if (!isOffer) {
-            Log.d(TAG, "Performing preliminary points check for request...");
-            getUserPoints(new PointsFetchListener() {
-                @Override
-                public void onPointsFetched(int points) {
-                    if (points >= Math.abs(POINTS_FOR_REQUEST)) {
-                        Log.d(TAG, "Preliminary points check passed (" + points + " points). Proceeding with ride creation.");
-                        // Points are sufficient, proceed to get ride ID and save
-                        proceedWithRideCreation(ride, isOffer, listener);
-                    } else {
-                        Log.w(TAG, "Preliminary check failed: User " + currentUserEmail + " has insufficient points (" + points + ").");
-                        if (listener != null) listener.onFailure(new Exception("Insufficient points to create request")); // Call defined method
-                    }
-                }
-                @Override
-                public void onError(Exception e) {
-                    Log.e(TAG, "Error during preliminary points check.", e);
-                    if (listener != null) listener.onFailure(e); // Call defined method
+            @Override
+            public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                endSpan(trace, span, error != null);
+                if (error != null) {
+                    Log.e(TAG, "ensurePointsInitialized failed for " + userEmail, error);
+                    future.completeExceptionally(error);
+                    return;
                 }
-            });
-        } else {
-            // It's an offer, no points check needed, proceed directly
-            Log.d(TAG, "Skipping points check for offer. Proceeding with ride creation.");
-            proceedWithRideCreation(ride, isOffer, listener);
-        }
+                knownKeys.add(sanitizedEmail);
+                future.complete(null);
+            }
+        });
+        return future;
     }
 
-    /** Helper method to run the counter transaction and save data after points check (if applicable). */
-    private void proceedWithRideCreation(final Ride ride, final boolean isOffer, @Nullable final CompletionListener listener) {
-        counterRef.runTransaction(new Transaction.Handler() {
-            @NonNull @Override
-            public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
-                Integer currentValue = mutableData.getValue(Integer.class);
-                mutableData.setValue((currentValue == null ? 0 : currentValue) + 1);
-                return Transaction.success(mutableData);
+
+    // --- Create Operations ---
+
+    /**
+     * Internal method to save ride data. The ride, the userRides index entries and, for requests,
+     * the points debit all go out in a single multi-path update, so either everything is committed
+     * or nothing is. The balance check is enforced by the userPoints validation rule (points >= 0),
+     * which rejects the whole update when the debit would overdraw.
+     */
+    private CompletableFuture<Void> saveRideData(final Ride ride, final int newId, final boolean isOffer, final String currentUserEmail,
+                                                 final RideTracer.Trace trace) {
+        ride.setRideId(newId);
+        ride.setStatus(ride.deriveStatus());
+        ride.setVersion(1); // Rides written before versioning read as 0
+        fillDepartureAt(ride);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(ridePath(newId), rideNode(ride));
+        putUserRideIndexUpdates(updates, ride, newId, ride.getStatus());
+        // *** Only debit points if it is a REQUEST; offers are awarded points on completion ***
+        if (!isOffer) {
+            updates.put(USER_POINTS_PATH + "/" + sanitizeEmailForKey(currentUserEmail) + "/points", store.increment(POINTS_FOR_REQUEST));
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final RideTracer.Span span = trace.startSpan("write");
+        store.updateChildren(updates, error -> {
+            endSpan(trace, span, error != null);
+            if (error == null) {
+                Log.d(TAG, "Ride save successful for ID: " + newId + (isOffer ? " (offer)" : " (request, points debited)"));
+                listCache.invalidate(ride.getStatus());
+                rideCache.put(ride);
+                future.complete(null);
+            } else if (!isOffer && error.isPermissionDenied()) {
+                // Some rule rejected the whole update; only blame the balance if it really can't cover the request
+                failWithPointsCheck(future, error, newId, currentUserEmail);
+            } else {
+                Log.e(TAG, "Ride save failed for ID: " + newId, error);
+                future.completeExceptionally(error);
             }
+        });
+        return future;
+    }
 
-            @Override
-            public void onComplete(@Nullable DatabaseError error, boolean committed, @Nullable DataSnapshot currentData) {
-                if (error != null) {
-                    Log.e(TAG, "Counter transaction failed.", error.toException());
-                    if (listener != null) listener.onFailure(error.toException()); // Call defined method
-                } else if (committed && currentData != null) {
-                    Integer newId = currentData.getValue(Integer.class);
-                    if (newId != null) {
-                        Log.d(TAG, "Successfully obtained new ride ID: " + newId);
-                        // Call saveRideData which handles saving the ride AND points update (if request)
-                        saveRideData(ride, newId, isOffer, listener);
-                    } else {
-                        Log.e(TAG, "Failed to retrieve new ID after transaction commit.");
-                        if (listener != null) listener.onFailure(new Exception("Failed to retrieve new ID")); // Call defined method
-                    }
+    /**
+     * Fails a rejected request create. The update may have been denied by the points rule or by
+     * any other (the version rule, expired auth), so the balance is read again: only if it is too
+     * low for POINTS_FOR_REQUEST is the failure reported as insufficient points; otherwise, or if
+     * the read fails, the original error is passed on.
+     */
+    private void failWithPointsCheck(final CompletableFuture<Void> future, final RideStoreException denial, final int newId,
+                                     final String currentUserEmail) {
+        store.get(StoreQuery.at(USER_POINTS_PATH + "/" + sanitizeEmailForKey(currentUserEmail) + "/points"), new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
+                Object points = snapshot.getValue();
+                if (points instanceof Number && ((Number) points).longValue() + POINTS_FOR_REQUEST < 0) {
+                    Log.w(TAG, "Ride save rejected for ID: " + newId + ", user " + currentUserEmail + " has insufficient points.");
+                    future.completeExceptionally(new Exception("Insufficient points to create request"));
                 } else {
-                    Log.w(TAG, "Counter transaction not committed.");
-                    if (listener != null) listener.onFailure(new Exception("Counter transaction not committed")); // Call defined method
+                    Log.e(TAG, "Ride save denied for ID: " + newId + " with points to spare.", denial);
+                    future.completeExceptionally(denial);
                 }
             }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, "Ride save denied for ID: " + newId + "; points re-read failed.", error);
+                future.completeExceptionally(denial);
+            }
+        });
+    }
+
+    /**
+     * Creates a new ride entry. Requests are charged atomically with the write (see saveRideData),
+     * so there is no separate points read before creating.
+     */
+    public void createNewRide(final Ride ride, @Nullable final CompletionListener listener) {
+        notifyWhenDone(createNewRideAsync(ride), listener);
+    }
+
+    /** Future form of createNewRide; completes once the ride is written. */
+    @NonNull
+    public CompletableFuture<Void> createNewRideAsync(final Ride ride) {
+        final RideTracer.Trace trace = tracer.start("createNewRide");
+        return traced(trace, () -> {
+            if (ride == null) throw new IllegalArgumentException("Ride cannot be null");
+            final String currentUserEmail = requireCurrentUserEmail();
+            final boolean isOffer = ride.getDriver() != null && !ride.getDriver().isEmpty();
+
+            // Authorization checks...
+            if (isOffer && !ride.getDriver().equals(currentUserEmail)) {
+                throw new SecurityException("Cannot create ride offer for another user");
+            }
+            if (!isOffer && (ride.getRider() == null || !ride.getRider().equals(currentUserEmail))) {
+                throw new SecurityException("Cannot create ride request for another user");
+            }
+
+            // Requests need a points node to debit; a no-op after the first request this session
+            CompletableFuture<Void> pointsReady = isOffer ? CompletableFuture.completedFuture(null) : ensurePointsInitialized(currentUserEmail, trace);
+            return pointsReady
+                    .thenCompose(ignored -> allocateRideId(trace))
+                    .thenCompose(newId -> saveRideData(ride, newId, isOffer, currentUserEmail, trace));
+        });
+    }
+
+    /** Leases the next ride ID, as the "allocateId" hop of {@code trace}. */
+    private CompletableFuture<Integer> allocateRideId(final RideTracer.Trace trace) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        final RideTracer.Span span = trace.startSpan("allocateId");
+        idAllocator.nextId(new RideIdAllocator.IdListener() {
+            @Override
+            public void onIdAllocated(int newId) {
+                endSpan(trace, span, false);
+                Log.d(TAG, "Successfully obtained new ride ID: " + newId);
+                future.complete(newId);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                endSpan(trace, span, true);
+                Log.e(TAG, "Ride ID allocation failed.", e);
+                future.completeExceptionally(e);
+            }
         });
+        return future;
     }
 
 
     /** Creates a new Ride from strings, automatically using the current user. */
     public void createNewRideWithStrings(String dateTime, boolean isDriver, String from, String to, @Nullable CompletionListener listener) {
-        String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return;
+        notifyWhenDone(createNewRideWithStringsAsync(dateTime, isDriver, from, to), listener);
+    }
+
+    /** Future form of createNewRideWithStrings. */
+    @NonNull
+    public CompletableFuture<Void> createNewRideWithStringsAsync(String dateTime, boolean isDriver, String from, String to) {
+        final String currentUserEmail;
+        try {
+            currentUserEmail = requireCurrentUserEmail();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
         if (dateTime == null || from == null || to == null || dateTime.isEmpty() || from.isEmpty() || to.isEmpty()) {
-            if (listener != null) listener.onFailure(new IllegalArgumentException("Invalid input")); return;
+            return failed(new IllegalArgumentException("Invalid input"));
         }
         Ride ride;
-        try {
-            if (isDriver) { ride = new Ride(dateTime, currentUserEmail, null, to, from, false, 0); }
-            else { ride = new Ride(dateTime, null, currentUserEmail, to, from, false, 0); }
-            createNewRide(ride, listener); // createNewRide now handles the points check internally
-        } catch (Exception e) { if (listener != null) listener.onFailure(e); }
+        if (isDriver) { ride = new Ride(dateTime, currentUserEmail, null, to, from, false, 0); }
+        else { ride = new Ride(dateTime, null, currentUserEmail, to, from, false, 0); }
+        return createNewRideAsync(ride); // Handles the points check internally
     }
 
     // --- Read Operations ---
 
     public void getRideById(int rideId, @NonNull final RideSingleListener listener) {
-        ridesRef.child(String.valueOf(rideId)).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+        store.get(StoreQuery.at(ridePath(rideId)), new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
                 if (snapshot.exists()) {
-                    Ride ride = snapshot.getValue(Ride.class);
+                    Ride ride = RideCodec.decodeRide(snapshot.getValue());
                     if (ride != null) setRideIdFromKey(ride, snapshot.getKey());
+                    rideCache.put(ride);
                     listener.onRideFetched(ride); // Call defined method
-                } else { listener.onRideFetched(null); } // Call defined method
+                } else {
+                    rideCache.remove(rideId);
+                    listener.onRideFetched(null); // Call defined method
+                }
             }
-            @Override public void onCancelled(@NonNull DatabaseError error) { listener.onError(error); } // Call defined method
+            @Override public void onCancelled(@NonNull RideStoreException error) { listener.onError(DatabaseError.fromException(error)); } // Call defined method
         });
     }
 
-    /** Fetches ride offers, optionally filtering based on the current user. */
-    public void getAllRideOffers(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
+    // The getAll* reads return a handle whose remove() drops the result if it has not been
+    // delivered yet, e.g. when the screen that asked for it goes away. They return null if the
+    // user is not logged in (listener gets onError). Results are cached for LIST_CACHE_TTL_MS and
+    // identical reads in flight share one fetch (see readList); this service's writes drop the
+    // lists they change, other users' writes show up once the entry expires. Every ride write
+    // stamps updatedAt, so a list read again after that only fetches the rides changed since.
+    // They are all fixed RideQuery reads; getRides takes any query and explain shows how it is read.
+
+    /**
+     * Fetches the rides {@code query} describes, read through the index that narrows them most
+     * (see RideQuery) and filtered on the client for the rest. Queries without a departure window
+     * or limit go through the list cache. Returns null if the user is not logged in (listener gets onError).
+     */
+    @Nullable
+    public RideStore.Registration getRides(@NonNull RideQuery query, @NonNull final RideListListener listener) {
         final String currentUserEmail = getCurrentUserEmailForRead(listener);
-        if (currentUserEmail == null) return; // Needed for either filter mode
+        if (currentUserEmail == null) return null;
+        return readQuery(query, currentUserEmail, timed(listener, "getRides"), "getRides");
+    }
 
-        Query query = ridesRef.orderByChild("rider").equalTo(null);
-        query.addListenerForSingleValueEvent(createListValueEventListener(listener, ride -> {
-            boolean hasDriver = ride.getDriver() != null && !ride.getDriver().trim().isEmpty();
-            boolean noRider = ride.getRider() == null || ride.getRider().trim().isEmpty();
-            boolean notComplete = !ride.isComplete();
-            boolean userMatches = Objects.equals(ride.getDriver(), currentUserEmail);
-            boolean shouldInclude = excludeCurrentUser ? !userMatches : userMatches;
-            return hasDriver && noRider && notComplete && shouldInclude;
-        }, "getAllRideOffers"));
+    /** How getRides would read {@code query}: the index, what is left to the client, the expected overfetch. Null if not logged in. */
+    @Nullable
+    public RideQuery.Plan explain(@NonNull RideQuery query) {
+        String currentUserEmail = getCurrentUserEmail();
+        return currentUserEmail != null ? query.plan(currentUserEmail) : null;
     }
 
-    /** Fetches ride requests, optionally filtering based on the current user. */
-    public void getAllRideRequests(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
-        final String currentUserEmail = getCurrentUserEmailForRead(listener);
-        if (currentUserEmail == null) return; // Needed for either filter mode
+    /**
+     * Fetches ride offers, optionally filtering based on the current user.
+     * The current user's own offers are read through the userRides index instead of the global pool.
+     */
+    @Nullable
+    public RideStore.Registration getAllRideOffers(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
+        return readOwned(RideQuery.offers(), excludeCurrentUser, listener, "getAllRideOffers");
+    }
 
-        Query query = ridesRef.orderByChild("driver").equalTo(null);
-        query.addListenerForSingleValueEvent(createListValueEventListener(listener, ride -> {
-            boolean hasRider = ride.getRider() != null && !ride.getRider().trim().isEmpty();
-            boolean noDriver = ride.getDriver() == null || ride.getDriver().trim().isEmpty();
-            boolean notComplete = !ride.isComplete();
-            boolean userMatches = Objects.equals(ride.getRider(), currentUserEmail);
-            boolean shouldInclude = excludeCurrentUser ? !userMatches : userMatches;
-            return hasRider && noDriver && notComplete && shouldInclude;
-        }, "getAllRideRequests"));
+    /**
+     * Fetches ride requests, optionally filtering based on the current user.
+     * The current user's own requests are read through the userRides index instead of the global pool.
+     */
+    @Nullable
+    public RideStore.Registration getAllRideRequests(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
+        return readOwned(RideQuery.requests(), excludeCurrentUser, listener, "getAllRideRequests");
     }
 
-    /** Fetches accepted rides involving the current user. */
-    public void getAllAcceptedRides(@NonNull final RideListListener listener) {
-        final String currentUserEmail = getCurrentUserEmailForRead(listener);
-        if (currentUserEmail == null) return;
+    /** Fetches accepted rides involving the current user, via the userRides index. */
+    @Nullable
+    public RideStore.Registration getAllAcceptedRides(@NonNull final RideListListener listener) {
+        return readOwned(RideQuery.accepted(), false, listener, "getAllAcceptedRides");
+    }
 
-        Query query = ridesRef.orderByChild("complete").equalTo(false);
-        query.addListenerForSingleValueEvent(createListValueEventListener(listener, ride -> {
-            boolean hasDriver = ride.getDriver() != null && !ride.getDriver().trim().isEmpty();
-            boolean hasRider = ride.getRider() != null && !ride.getRider().trim().isEmpty();
-            boolean notComplete = !ride.isComplete();
-            boolean userIsParticipant = Objects.equals(currentUserEmail, ride.getDriver()) || Objects.equals(currentUserEmail, ride.getRider());
-            return hasDriver && hasRider && notComplete && userIsParticipant;
-        }, "getAllAcceptedRides"));
+    /**
+     * Fetches open offers from other users that depart between {@code fromMillis} and
+     * {@code toMillis} (epoch millis, both inclusive), soonest first, e.g. now to now + 48h.
+     * The database selects the window on the statusDeparture index; undated rides are left out.
+     */
+    @Nullable
+    public RideStore.Registration getRideOffersDepartingBetween(long fromMillis, long toMillis, @NonNull final RideListListener listener) {
+        return readOwned(RideQuery.offers().departingBetween(fromMillis, toMillis), true, listener, "getRideOffersDepartingBetween");
     }
 
-    // Helper for creating ValueEventListeners for lists
-    private interface RideFilter { boolean shouldInclude(Ride ride); }
+    /** Open requests from other users departing in a time window; see getRideOffersDepartingBetween. */
+    @Nullable
+    public RideStore.Registration getRideRequestsDepartingBetween(long fromMillis, long toMillis, @NonNull final RideListListener listener) {
+        return readOwned(RideQuery.requests().departingBetween(fromMillis, toMillis), true, listener, "getRideRequestsDepartingBetween");
+    }
 
-    private ValueEventListener createListValueEventListener(@NonNull final RideListListener listener, @NonNull final RideFilter filter, final String opTag) {
-        return new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                List<Ride> rides = new ArrayList<>();
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    try {
-                        Ride ride = snapshot.getValue(Ride.class);
-                        if (ride != null) {
-                            setRideIdFromKey(ride, snapshot.getKey());
-                            if (filter.shouldInclude(ride)) rides.add(ride);
-                        }
-                    } catch (Exception e) { Log.e(TAG, opTag + ": Error processing snapshot: " + snapshot.getKey(), e); }
-                }
-                Log.d(TAG, opTag + ": Found " + rides.size() + " matching rides after filtering.");
-                listener.onRidesFetched(rides); // Call defined method
-            }
-            @Override public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, opTag + ": Firebase query cancelled or failed.", error.toException());
-                listener.onError(error); // Call defined method
-            }
-        };
+    /**
+     * Fetches open offers from other users leaving within {@code radiusMeters} of the point
+     * (degrees), e.g. 2000 around the device's location. Only the geohash cells around the point
+     * are read; offers posted without a from location never show up.
+     */
+    @Nullable
+    public RideStore.Registration getRideOffersNear(double lat, double lng, double radiusMeters, @NonNull final RideListListener listener) {
+        return readOwned(RideQuery.offers().leavingWithin(lat, lng, radiusMeters), true, listener, "getRideOffersNear");
     }
 
-    // --- Update Operations ---
+    /** Reads {@code query} limited to other users' rides (exclude) or the current user's, under its own tag. */
+    private RideStore.Registration readOwned(RideQuery query, boolean excludeCurrentUser, @NonNull RideListListener listener, String opTag) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null; // Needed for either filter mode
+        query = query.ownedBy(excludeCurrentUser ? RideQuery.Owner.OTHERS : RideQuery.Owner.CURRENT_USER);
+        return readQuery(query, currentUserEmail, timed(listener, opTag), opTag);
+    }
 
-    /** Updates an entire existing ride. */
-    public void updateRide(int rideId, @NonNull Ride updatedRideData, @Nullable CompletionListener listener) {
-        String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return;
-        getRideById(rideId, new RideSingleListener() {
-            @Override public void onRideFetched(@Nullable Ride existingRide) {
-                if (existingRide == null) { if (listener != null) listener.onFailure(new Exception("Ride not found")); return; }
-                if (!Objects.equals(currentUserEmail, existingRide.getDriver()) && !Objects.equals(currentUserEmail, existingRide.getRider())) {
-                    if (listener != null) listener.onFailure(new SecurityException("Not authorized")); return;
-                }
-                updatedRideData.setRideId(rideId);
-                ridesRef.child(String.valueOf(rideId)).setValue(updatedRideData.toMap())
-                        .addOnCompleteListener(createWriteCompleteListener(listener, "updateRide"));
-            }
-            @Override public void onError(DatabaseError databaseError) { if (listener != null) listener.onFailure(databaseError.toException()); }
-        });
+    /** Query for every ride with {@code status}. */
+    static StoreQuery statusQuery(RideStatus status) {
+        return StoreQuery.at(RIDES_PATH).orderByChild("status").equalTo(status.name());
     }
 
-    /** Accepts a ride offer/request. */
-    public void acceptRide(final int rideId, @Nullable final CompletionListener listener) {
-        // Points are not changed on accept, only on create/delete/complete
-        final String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return;
-        DatabaseReference rideNodeRef = ridesRef.child(String.valueOf(rideId));
-        rideNodeRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (!snapshot.exists()) { if (listener != null) listener.onFailure(new Exception("Ride not found")); return; }
-                Ride ride = snapshot.getValue(Ride.class);
-                if (ride == null) { if (listener != null) listener.onFailure(new Exception("Could not read ride data")); return; }
-                Map<String, Object> updates = new HashMap<>();
-                boolean isAcceptingOffer = false, isAcceptingRequest = false;
-                if (ride.getDriver() != null && !ride.getDriver().trim().isEmpty() && (ride.getRider() == null || ride.getRider().trim().isEmpty())) {
-                    if (Objects.equals(currentUserEmail, ride.getDriver())) { if (listener != null) listener.onFailure(new IllegalStateException("Cannot accept own offer")); return; }
-                    updates.put("rider", currentUserEmail); isAcceptingOffer = true;
-                } else if (ride.getRider() != null && !ride.getRider().trim().isEmpty() && (ride.getDriver() == null || ride.getDriver().trim().isEmpty())) {
-                    if (Objects.equals(currentUserEmail, ride.getRider())) { if (listener != null) listener.onFailure(new IllegalStateException("Cannot accept own request")); return; }
-                    updates.put("driver", currentUserEmail); isAcceptingRequest = true;
-                } else { if (listener != null) listener.onFailure(new IllegalStateException("Ride cannot be accepted")); return; }
-                Log.d(TAG, "User " + currentUserEmail + " accepting ride " + rideId + (isAcceptingOffer ? " as RIDER" : "") + (isAcceptingRequest ? " as DRIVER" : ""));
-                // Directly call listener on success, as no points are handled here
-                rideNodeRef.updateChildren(updates).addOnCompleteListener(createWriteCompleteListener(listener, "acceptRide"));
-            }
-            @Override public void onCancelled(@NonNull DatabaseError error) { if (listener != null) listener.onFailure(error.toException()); }
-        });
+    /** Query for the userRides entries of {@code userEmail} with {@code status}. */
+    static StoreQuery userRidesQuery(String userEmail, RideStatus status) {
+        return StoreQuery.at(USER_RIDES_PATH + "/" + sanitizeEmailForKey(userEmail)).orderByValue().equalTo(status.name());
     }
 
-    /** Marks a ride as complete and awards points to the driver if it was an offer. */
-    public void completeRide(int rideId, @Nullable CompletionListener listener) {
-        String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return;
+    /** Query for rides with {@code status} whose {@code indexChild} (statusFromCell or statusToCell) lies in geohash {@code cell}. */
+    static StoreQuery cellQuery(String indexChild, RideStatus status, String cell) {
+        return StoreQuery.at(RIDES_PATH).orderByChild(indexChild)
+                .startAt(GeoHash.cellStart(status, cell))
+                .endAt(GeoHash.cellEnd(status, cell));
+    }
 
-        getRideById(rideId, new RideSingleListener() {
-            @Override public void onRideFetched(@Nullable Ride ride) {
-                if (ride == null) { if (listener != null) listener.onFailure(new Exception("Ride not found")); return; }
+    /** Query for rides with {@code status} departing in [fromMillis, toMillis]. */
+    @VisibleForTesting
+    static StoreQuery departureRangeQuery(RideStatus status, long fromMillis, long toMillis) {
+        if (fromMillis <= DepartureTime.UNKNOWN || toMillis < fromMillis) throw new IllegalArgumentException("Invalid departure window");
+        return StoreQuery.at(RIDES_PATH).orderByChild("statusDeparture")
+                .startAt(DepartureTime.indexKey(status, fromMillis))
+                .endAt(DepartureTime.indexKey(status, toMillis));
+    }
 
-                // Store driver email before checking authorization/completion
-                final String driverEmail = ride.getDriver();
-                final boolean wasOriginallyOffer = driverEmail != null && !driverEmail.isEmpty(); // Check if driver existed initially
+    private RideStore.Registration readQuery(RideQuery query, String currentUserEmail, @NonNull final RideListListener listener, String opTag) {
+        final RideQuery.Plan plan = query.plan(currentUserEmail);
+        Log.d(TAG, opTag + ": " + plan);
+        if (query.isCacheable()) {
+            return readList(query.getStatus(), query.cacheKey(currentUserEmail), plan, listener, opTag);
+        }
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        fetchPlanned(plan, new RideListListener() {
+            @Override public void onRidesFetched(List<Ride> rides) { listener.onRidesFetched(plan.finish(rides)); }
+            @Override public void onError(DatabaseError databaseError) { listener.onError(databaseError); }
+        }, cancelled, opTag);
+        return () -> cancelled.set(true);
+    }
 
-                // Authorization check
-                if (!Objects.equals(currentUserEmail, ride.getDriver()) && !Objects.equals(currentUserEmail, ride.getRider())) {
-                    if (listener != null) listener.onFailure(new SecurityException("Not authorized")); return;
-                }
-                // Check if already complete
-                if (ride.isComplete()) {
-                    Log.w(TAG, "Ride " + rideId + " is already complete.");
-                    if (listener != null) listener.onSuccess(); // Already done
+    /** Reads the rides {@code plan} selects, through its index, and filters them; no sort or limit. */
+    private void fetchPlanned(@NonNull RideQuery.Plan plan, @NonNull RideListListener listener, AtomicBoolean cancelled, String opTag) {
+        if (plan.index == RideQuery.Index.USER_RIDES) {
+            fetchUserIndexedRides(plan.storeQueries.get(0), plan.filter, listener, cancelled, opTag);
+        } else if (plan.storeQueries.size() == 1) {
+            store.get(plan.storeQueries.get(0), createListValueEventListener(listener, plan.filter, cancelled, opTag));
+        } else {
+            fetchRideRanges(plan.storeQueries, plan.filter, listener, cancelled, opTag);
+        }
+    }
+
+    /**
+     * Reads several disjoint ranges of the rides node (e.g. the geohash cells around a point)
+     * at once, then filters them together into one list in ride ID order.
+     */
+    private void fetchRideRanges(final List<StoreQuery> queries, @NonNull final RideFilter filter,
+                                 @NonNull final RideListListener listener, final AtomicBoolean cancelled, final String opTag) {
+        // Store callbacks arrive on one thread, as in fetchUserIndexedRides
+        final RideStore.Snapshot[] snapshots = new RideStore.Snapshot[queries.size()];
+        final int[] remaining = { queries.size() };
+        final boolean[] failed = { false };
+        for (int i = 0; i < queries.size(); i++) {
+            final int index = i;
+            store.get(queries.get(i), new RideStore.ValueListener() {
+                @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
+                    if (failed[0]) return;
+                    snapshots[index] = snapshot;
+                    if (--remaining[0] > 0) return;
+                    parseOffCallbackThread(parseExecutor, opTag, cancelled, () -> {
+                        Map<Integer, Ride> merged = new TreeMap<>();
+                        long downloaded = 0;
+                        for (RideStore.Snapshot range : snapshots) {
+                            downloaded += range.getChildrenCount();
+                            for (Ride ride : parseRides(range, filter, opTag)) merged.put(ride.getRideId(), ride);
+                        }
+                        final List<Ride> rides = new ArrayList<>(merged.values());
+                        Log.d(TAG, opTag + ": Found " + rides.size() + " matching rides in " + snapshots.length + " ranges.");
+                        metrics.recordOverfetch(opTag, downloaded, rides.size());
+                        rideCache.putAll(rides);
+                        return () -> listener.onRidesFetched(rides);
+                    });
+                }
+                @Override public void onCancelled(@NonNull RideStoreException error) {
+                    if (failed[0]) return;
+                    failed[0] = true;
+                    Log.e(TAG, opTag + ": Range query cancelled or failed.", error);
+                    if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+                }
+            });
+        }
+    }
+
+    /**
+     * One getAll* read through the list cache: a fresh cached list is delivered on the result
+     * executor without touching the store, and a read for a list that is already being fetched
+     * waits for that fetch. Otherwise, if the cache still has the key's last list, only the rides
+     * changed since its watermark are read and patched in (fetchChangedSince). Failing that the
+     * whole list is fetched through the plan's index. Each caller gets its own copy of the list; the fetch
+     * itself is cancelled once every caller has removed its handle.
+     */
+    private RideStore.Registration readList(RideStatus status, final String key, @NonNull RideQuery.Plan plan,
+                                            @NonNull final RideListListener listener, String opTag) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final RideListListener caller = new RideListListener() {
+            @Override public void onRidesFetched(List<Ride> rides) {
+                if (!cancelled.get()) listener.onRidesFetched(new ArrayList<>(rides));
+            }
+            @Override public void onError(DatabaseError databaseError) {
+                if (!cancelled.get()) listener.onError(databaseError);
+            }
+        };
+
+        RideListCache.Lookup lookup = listCache.lookup(key, caller);
+        if (lookup.cached != null) {
+            final List<Ride> cached = lookup.cached;
+            resultExecutor.execute(() -> caller.onRidesFetched(cached));
+        } else if (lookup.startFetch != null) {
+            ListFetchListener waiters = new ListFetchListener() {
+                @Override public void onFetched(List<Ride> rides, long watermark) {
+                    for (RideListListener waiter : listCache.complete(key, rides, watermark)) waiter.onRidesFetched(rides);
+                }
+                @Override public void onError(DatabaseError databaseError) {
+                    for (RideListListener waiter : listCache.fail(key)) waiter.onError(databaseError);
+                }
+            };
+            if (lookup.base != null) {
+                fetchChangedSince(lookup.base, lookup.baseWatermark, status, plan.filter, waiters, lookup.startFetch, opTag);
+            } else {
+                fetchWholeList(plan, waiters, lookup.startFetch, opTag);
+            }
+        } // Else joined a fetch already in flight
+        return () -> {
+            cancelled.set(true);
+            listCache.leave(key, caller);
+        };
+    }
+
+    /** Receives a list fetched for the cache, with the watermark it was read as of. */
+    private interface ListFetchListener {
+        void onFetched(List<Ride> rides, long watermark);
+        void onError(DatabaseError databaseError);
+    }
+
+    /**
+     * Fetches a whole getAll* list through the plan's index. Its watermark is the store's estimate
+     * of server time when the read was sent, so a later delta only covers writes made since this
+     * read, whatever the age of the rows in the list; WATERMARK_OVERLAP_MS absorbs the skew.
+     * Lists read through userRides get no watermark: a delta covers every ride written anywhere
+     * since the watermark, which for one user's list costs more than reading it again through the
+     * index. Without a watermark the next fetch reads the list whole.
+     */
+    private void fetchWholeList(@NonNull RideQuery.Plan plan, @NonNull final ListFetchListener listener,
+                                final AtomicBoolean cancelled, final String opTag) {
+        final long readAsOf = plan.index == RideQuery.Index.USER_RIDES ? RideListCache.NO_WATERMARK : store.serverTimeMillis();
+        fetchPlanned(plan, new RideListListener() {
+            @Override public void onRidesFetched(List<Ride> rides) { listener.onFetched(rides, readAsOf); }
+            @Override public void onError(DatabaseError databaseError) { listener.onError(databaseError); }
+        }, cancelled, opTag);
+    }
+
+    /** Query for every ride written since {@code watermark}, with WATERMARK_OVERLAP_MS to spare. */
+    @VisibleForTesting
+    static StoreQuery changedSinceQuery(long watermark) {
+        return StoreQuery.at(RIDES_PATH).orderByChild("updatedAt").startAt(watermark - WATERMARK_OVERLAP_MS);
+    }
+
+    /**
+     * Patches {@code base}, a list read as of {@code watermark}, with the rides written since:
+     * changed rides that still belong to the list replace or join it, and the rest (including
+     * tombstones) leave it. Bytes read are proportional to the writes since the watermark, not to
+     * the list. Rides stay in ride ID order, as the whole-list queries return them. If more rides
+     * were written than the list holds, the result gets no watermark, so the next fetch reads the
+     * list whole rather than paying for everyone else's writes again.
+     */
+    private void fetchChangedSince(@NonNull final List<Ride> base, final long watermark, final RideStatus status, @NonNull final RideFilter filter,
+                                   @NonNull final ListFetchListener listener, final AtomicBoolean cancelled, final String opTag) {
+        final RideFilter inList = candidate -> candidate.getStatus() == status && filter.shouldInclude(candidate);
+        final long readAsOf = store.serverTimeMillis();
+        store.get(changedSinceQuery(watermark), new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull final RideStore.Snapshot changes) {
+                parseOffCallbackThread(parseExecutor, opTag, cancelled, () -> {
+                    Map<Integer, Ride> merged = new TreeMap<>();
+                    for (Ride ride : base) merged.put(ride.getRideId(), ride);
+                    List<Ride> changed = new ArrayList<>();
+                    for (RideStore.Snapshot snapshot : changes.getChildren()) {
+                        Integer rideId = rideIdOfKey(snapshot.getKey());
+                        if (rideId == null) continue;
+                        Ride ride = parseIncludedRide(snapshot, inList, opTag);
+                        if (ride != null) {
+                            merged.put(rideId, ride);
+                            changed.add(ride);
+                        } else {
+                            merged.remove(rideId);
+                        }
+                    }
+                    final List<Ride> rides = new ArrayList<>(merged.values());
+                    final long newWatermark = changes.getChildrenCount() > base.size() ? RideListCache.NO_WATERMARK : readAsOf;
+                    Log.d(TAG, opTag + ": Patched " + changed.size() + " rides from " + changes.getChildrenCount() + " changed since " + watermark + ".");
+                    metrics.recordOverfetch(opTag, changes.getChildrenCount(), changed.size());
+                    rideCache.putAll(changed);
+                    return () -> listener.onFetched(rides, newWatermark);
+                });
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": Delta query cancelled or failed.", error);
+                if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+            }
+        });
+    }
+
+    // Future forms of the reads above, for screens that fan out several reads and render once
+    // (e.g. CompletableFuture.allOf). List futures complete on the result executor, the main
+    // thread in the app. Cancelling one drops its result like Registration.remove(). Errors
+    // arrive as the DatabaseError's exception.
+
+    /** Future form of getRideById; completes with null if the ride does not exist. */
+    @NonNull
+    public CompletableFuture<Ride> getRideByIdAsync(int rideId) {
+        final CompletableFuture<Ride> future = new CompletableFuture<>();
+        getRideById(rideId, new RideSingleListener() {
+            @Override public void onRideFetched(@Nullable Ride ride) { future.complete(ride); }
+            @Override public void onError(DatabaseError databaseError) { future.completeExceptionally(databaseError.toException()); }
+        });
+        return future;
+    }
+
+    @NonNull
+    public CompletableFuture<List<Ride>> getAllRideOffersAsync(final boolean excludeCurrentUser) {
+        return listFuture(listener -> getAllRideOffers(excludeCurrentUser, listener));
+    }
+
+    @NonNull
+    public CompletableFuture<List<Ride>> getAllRideRequestsAsync(final boolean excludeCurrentUser) {
+        return listFuture(listener -> getAllRideRequests(excludeCurrentUser, listener));
+    }
+
+    @NonNull
+    public CompletableFuture<List<Ride>> getAllAcceptedRidesAsync() {
+        return listFuture(this::getAllAcceptedRides);
+    }
+
+    /** Completes with the list {@code read} delivers; cancelling the future removes the read. */
+    private static CompletableFuture<List<Ride>> listFuture(@NonNull Function<RideListListener, RideStore.Registration> read) {
+        final CompletableFuture<List<Ride>> future = new CompletableFuture<>();
+        final RideStore.Registration registration = read.apply(new RideListListener() {
+            @Override public void onRidesFetched(List<Ride> rides) { future.complete(rides); }
+            @Override public void onError(DatabaseError databaseError) { future.completeExceptionally(databaseError.toException()); }
+        });
+        if (registration != null) {
+            future.whenComplete((rides, error) -> {
+                if (future.isCancelled()) registration.remove();
+            });
+        }
+        return future;
+    }
+
+    /** Open offers posted by someone else (exclude) or by the current user (!exclude). */
+    @VisibleForTesting
+    static RideFilter offerFilter(final String currentUserEmail, final boolean excludeCurrentUser) {
+        return ride -> {
+            boolean hasDriver = ride.getDriver() != null && !ride.getDriver().trim().isEmpty();
+            boolean noRider = ride.getRider() == null || ride.getRider().trim().isEmpty();
+            boolean notComplete = !ride.isComplete();
+            boolean userMatches = Objects.equals(ride.getDriver(), currentUserEmail);
+            boolean shouldInclude = excludeCurrentUser ? !userMatches : userMatches;
+            return hasDriver && noRider && notComplete && shouldInclude;
+        };
+    }
+
+    /** Open requests posted by someone else (exclude) or by the current user (!exclude). */
+    @VisibleForTesting
+    static RideFilter requestFilter(final String currentUserEmail, final boolean excludeCurrentUser) {
+        return ride -> {
+            boolean hasRider = ride.getRider() != null && !ride.getRider().trim().isEmpty();
+            boolean noDriver = ride.getDriver() == null || ride.getDriver().trim().isEmpty();
+            boolean notComplete = !ride.isComplete();
+            boolean userMatches = Objects.equals(ride.getRider(), currentUserEmail);
+            boolean shouldInclude = excludeCurrentUser ? !userMatches : userMatches;
+            return hasRider && noDriver && notComplete && shouldInclude;
+        };
+    }
+
+    /** Accepted, not yet complete rides the current user takes part in. */
+    @VisibleForTesting
+    static RideFilter acceptedFilter(final String currentUserEmail) {
+        return ride -> {
+            boolean hasDriver = ride.getDriver() != null && !ride.getDriver().trim().isEmpty();
+            boolean hasRider = ride.getRider() != null && !ride.getRider().trim().isEmpty();
+            boolean notComplete = !ride.isComplete();
+            boolean userIsParticipant = Objects.equals(currentUserEmail, ride.getDriver()) || Objects.equals(currentUserEmail, ride.getRider());
+            return hasDriver && hasRider && notComplete && userIsParticipant;
+        };
+    }
+
+    /**
+     * Reads userRides/{user} for a single status (indexQuery, see userRidesQuery), then fetches
+     * only those ride nodes. The filter still runs on each ride so a stale index entry can never
+     * surface a wrong ride.
+     */
+    private void fetchUserIndexedRides(StoreQuery indexQuery, @NonNull final RideFilter filter,
+                                       @NonNull final RideListListener listener, final AtomicBoolean cancelled, final String opTag) {
+        store.get(indexQuery, new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot indexSnapshot) {
+                List<String> rideKeys = new ArrayList<>();
+                for (RideStore.Snapshot entry : indexSnapshot.getChildren()) rideKeys.add(entry.getKey());
+                if (rideKeys.isEmpty()) {
+                    Log.d(TAG, opTag + ": No indexed rides for user.");
+                    metrics.recordOverfetch(opTag, 0, 0);
+                    resultExecutor.execute(() -> { if (!cancelled.get()) listener.onRidesFetched(new ArrayList<>()); });
                     return;
                 }
 
-                // Proceed with completion
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("complete", true);
-                ridesRef.child(String.valueOf(rideId)).updateChildren(updates)
-                        .addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                Log.d(TAG, "completeRide successful for ID " + rideId + ". Handling points award...");
-                                // Award points to driver only if it was originally an offer
-                                if (wasOriginallyOffer && driverEmail != null && !driverEmail.isEmpty()) {
-                                    handlePoints(driverEmail, POINTS_FOR_COMPLETED_OFFER, listener); // Pass original listener
-                                } else {
-                                    // Ride was a request, or driver info missing, no points awarded on completion
-                                    Log.d(TAG, "Ride was a request or driver info missing, no points awarded.");
-                                    if (listener != null) listener.onSuccess(); // Call defined method
+                // Store callbacks arrive on one thread (Firebase's main thread, MemoryRideStore's executor), so plain arrays are enough to join the reads
+                final RideStore.Snapshot[] snapshots = new RideStore.Snapshot[rideKeys.size()];
+                final int[] remaining = { rideKeys.size() };
+                final boolean[] failed = { false };
+                for (int i = 0; i < rideKeys.size(); i++) {
+                    final int index = i;
+                    final String rideKey = rideKeys.get(i);
+                    store.get(StoreQuery.at(ridePath(rideKey)), new RideStore.ValueListener() {
+                        @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
+                            if (failed[0]) return;
+                            snapshots[index] = snapshot;
+                            if (--remaining[0] > 0) return;
+                            // All rides are in: decode and filter them off the callback thread
+                            parseOffCallbackThread(parseExecutor, opTag, cancelled, () -> {
+                                final List<Ride> rides = new ArrayList<>();
+                                for (RideStore.Snapshot rideSnapshot : snapshots) {
+                                    Ride ride = parseIncludedRide(rideSnapshot, filter, opTag);
+                                    if (ride != null) rides.add(ride);
                                 }
-                            } else {
-                                Log.e(TAG, "completeRide failed for ID " + rideId, task.getException());
-                                if (listener != null) listener.onFailure(task.getException() != null ? task.getException() : new Exception("Failed to complete ride")); // Call defined method
-                            }
+                                Log.d(TAG, opTag + ": Found " + rides.size() + " matching rides from " + snapshots.length + " index entries.");
+                                metrics.recordOverfetch(opTag, snapshots.length, rides.size());
+                                rideCache.putAll(rides);
+                                return () -> listener.onRidesFetched(rides);
+                            });
+                        }
+                        @Override public void onCancelled(@NonNull RideStoreException error) {
+                            if (failed[0]) return;
+                            failed[0] = true;
+                            Log.e(TAG, opTag + ": Failed to fetch indexed ride " + rideKey, error);
+                            if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+                        }
+                    });
+                }
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": userRides index query cancelled or failed.", error);
+                if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+            }
+        });
+    }
+
+    // Helper for creating ValueListeners for lists
+    interface RideFilter { boolean shouldInclude(Ride ride); }
+
+    private RideStore.ValueListener createListValueEventListener(@NonNull final RideListListener listener, @NonNull final RideFilter filter,
+                                                                 final AtomicBoolean cancelled, final String opTag) {
+        return new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull final RideStore.Snapshot dataSnapshot) {
+                parseOffCallbackThread(parseExecutor, opTag, cancelled, () -> {
+                    final List<Ride> rides = parseRides(dataSnapshot, filter, opTag);
+                    Log.d(TAG, opTag + ": Found " + rides.size() + " matching rides after filtering.");
+                    metrics.recordOverfetch(opTag, dataSnapshot.getChildrenCount(), rides.size());
+                    rideCache.putAll(rides);
+                    return () -> listener.onRidesFetched(rides); // Call defined method
+                });
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": Store query cancelled or failed.", error);
+                if (!cancelled.get()) listener.onError(DatabaseError.fromException(error)); // Call defined method
+            }
+        };
+    }
+
+    /** Parse work: runs on a parse executor and returns the listener call to make with its result, or null. */
+    private interface ParseTask {
+        @Nullable Runnable run();
+    }
+
+    /**
+     * Runs {@code task} on {@code executor}, then its listener call on the result executor; both
+     * are skipped once {@code cancelled} is set. Records how long the calling thread (the store's
+     * callback thread) was held: just the hand-off, unless the task ended up running inline.
+     */
+    private void parseOffCallbackThread(Executor executor, final String opTag, final AtomicBoolean cancelled, final ParseTask task) {
+        final Thread callbackThread = Thread.currentThread();
+        final long[] inlineNanos = { -1 }; // Only written when the task runs on the callback thread
+        long start = System.nanoTime();
+        executor.execute(() -> {
+            if (cancelled.get()) return;
+            long parseStart = System.nanoTime();
+            final Runnable delivery = task.run();
+            long parseNanos = System.nanoTime() - parseStart;
+            if (Thread.currentThread() == callbackThread) inlineNanos[0] = parseNanos;
+            else parseTimings.recordWorker(opTag, parseNanos);
+            if (delivery != null) {
+                resultExecutor.execute(() -> {
+                    if (!cancelled.get()) delivery.run();
+                });
+            }
+        });
+        long callbackNanos = inlineNanos[0] >= 0 ? inlineNanos[0] : System.nanoTime() - start;
+        parseTimings.recordCallbackThread(opTag, callbackNanos);
+    }
+
+    /** Maps every child of a rides query result to a Ride, keeping the ones the filter accepts. */
+    @VisibleForTesting
+    static List<Ride> parseRides(@NonNull RideStore.Snapshot dataSnapshot, @NonNull RideFilter filter, String opTag) {
+        List<Ride> rides = new ArrayList<>();
+        for (RideStore.Snapshot snapshot : dataSnapshot.getChildren()) {
+            try {
+                Ride ride = RideCodec.decodeRide(snapshot.getValue());
+                if (ride != null) {
+                    setRideIdFromKey(ride, snapshot.getKey());
+                    if (filter.shouldInclude(ride)) rides.add(ride);
+                }
+            } catch (Exception e) { Log.e(TAG, opTag + ": Error processing snapshot: " + snapshot.getKey(), e); }
+        }
+        return rides;
+    }
+
+    /** Passes {@code ride} through, keeping it in the entity cache if it is one. */
+    @Nullable
+    private Ride cached(@Nullable Ride ride) {
+        rideCache.put(ride);
+        return ride;
+    }
+
+    /** Maps one ride node, returning null when it is missing, malformed or rejected by the filter. */
+    @Nullable
+    private static Ride parseIncludedRide(@NonNull RideStore.Snapshot snapshot, @NonNull RideFilter filter, String opTag) {
+        try {
+            Ride ride = RideCodec.decodeRide(snapshot.getValue());
+            if (ride == null) return null;
+            setRideIdFromKey(ride, snapshot.getKey());
+            return filter.shouldInclude(ride) ? ride : null;
+        } catch (Exception e) {
+            Log.e(TAG, opTag + ": Error processing snapshot: " + snapshot.getKey(), e);
+            return null;
+        }
+    }
+
+    // --- Live Subscriptions ---
+    // Same lists as the getAll* reads, but kept up to date: after the initial load only the rides
+    // that were added, changed or removed are transferred. The listener's onRidesFetched is called
+    // with the full, current list after every change. Call remove() on the returned registration
+    // when the list is no longer shown.
+
+    /** Live version of getAllRideOffers. Returns null if the user is not logged in (listener gets onError). */
+    @Nullable
+    public RideStore.Registration subscribeRideOffers(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        RideFilter filter = offerFilter(currentUserEmail, excludeCurrentUser);
+        if (!excludeCurrentUser) {
+            return subscribeUserIndexedRides(currentUserEmail, RideStatus.OPEN_OFFER, filter, timed(listener, "subscribeRideOffers"), "subscribeRideOffers");
+        }
+        return subscribeRideQuery(statusQuery(RideStatus.OPEN_OFFER), filter, timed(listener, "subscribeRideOffers"), "subscribeRideOffers");
+    }
+
+    /** Live version of getAllRideRequests. Returns null if the user is not logged in (listener gets onError). */
+    @Nullable
+    public RideStore.Registration subscribeRideRequests(boolean excludeCurrentUser, @NonNull final RideListListener listener) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        RideFilter filter = requestFilter(currentUserEmail, excludeCurrentUser);
+        if (!excludeCurrentUser) {
+            return subscribeUserIndexedRides(currentUserEmail, RideStatus.OPEN_REQUEST, filter, timed(listener, "subscribeRideRequests"), "subscribeRideRequests");
+        }
+        return subscribeRideQuery(statusQuery(RideStatus.OPEN_REQUEST), filter, timed(listener, "subscribeRideRequests"), "subscribeRideRequests");
+    }
+
+    /** Live version of getAllAcceptedRides. Returns null if the user is not logged in (listener gets onError). */
+    @Nullable
+    public RideStore.Registration subscribeAcceptedRides(@NonNull final RideListListener listener) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        return subscribeUserIndexedRides(currentUserEmail, RideStatus.ACCEPTED, acceptedFilter(currentUserEmail),
+                timed(listener, "subscribeAcceptedRides"), "subscribeAcceptedRides");
+    }
+
+    // --- Paged Browse Lists ---
+    // The browse feed is read in fixed-size pages of open rides posted by other users, ordered by
+    // statusDeparture (status, then departure time) and then by ride key (Firebase's tie-break for
+    // equal child values), so the order is stable across pages. The first page starts at the
+    // current time, so rides that have already left are never read; undated rides come last.
+    // Each page fetches one extra row: its index value and key are the cursor that the next page
+    // starts at, so no row is read twice. Pages stay live like the subscribe* lists; when a ride
+    // joins or leaves a page the window slides and its next cursor moves with it. Callers joining
+    // pages should subscribe the following page again from the new cursor, and drop repeated ride
+    // IDs while it reloads (RidePager does both).
+
+    /**
+     * Live page of open offers from other users, starting at {@code cursor} (null for the first page).
+     * Returns null if the user is not logged in (listener gets onError).
+     */
+    @Nullable
+    public RideStore.Registration subscribeRideOffersPage(@Nullable String cursor, int pageSize, @NonNull final RidePageListener listener) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        return subscribeRidePage(RideStatus.OPEN_OFFER, cursor, pageSize, offerFilter(currentUserEmail, true),
+                timed(listener, "subscribeRideOffersPage"), "subscribeRideOffersPage");
+    }
+
+    /**
+     * Live page of open requests from other users, starting at {@code cursor} (null for the first page).
+     * Returns null if the user is not logged in (listener gets onError).
+     */
+    @Nullable
+    public RideStore.Registration subscribeRideRequestsPage(@Nullable String cursor, int pageSize, @NonNull final RidePageListener listener) {
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        return subscribeRidePage(RideStatus.OPEN_REQUEST, cursor, pageSize, requestFilter(currentUserEmail, true),
+                timed(listener, "subscribeRideRequestsPage"), "subscribeRideRequestsPage");
+    }
+
+    /**
+     * Query for one page: rides with {@code status} from {@code cursor} on (or departing from
+     * {@code nowMillis} on, for the first page), plus the next page's first row.
+     */
+    @VisibleForTesting
+    static StoreQuery ridePageQuery(RideStatus status, @Nullable String cursor, int pageSize, long nowMillis) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+        StoreQuery query = StoreQuery.at(RIDES_PATH).orderByChild("statusDeparture");
+        if (cursor == null) {
+            query = query.startAt(DepartureTime.indexKey(status, nowMillis));
+        } else {
+            int split = cursor.lastIndexOf('|');
+            if (split < 0) throw new IllegalArgumentException("Not a page cursor: " + cursor);
+            query = query.startAt(cursor.substring(0, split), cursor.substring(split + 1));
+        }
+        return query.endAt(DepartureTime.lastIndexKey(status)).limitToFirst(pageSize + 1);
+    }
+
+    /** Cursor for the page starting at row {@code key} of {@code batch}: its index value, '|', its key. */
+    private static String pageCursor(@NonNull RideStore.Snapshot batch, @NonNull String key) {
+        return batch.child(key).child("statusDeparture").getValue() + "|" + key;
+    }
+
+    private RideStore.Registration subscribeRidePage(RideStatus status, @Nullable String cursor, final int pageSize, @NonNull final RideFilter filter,
+                                                     @NonNull final RidePageListener listener, final String opTag) {
+        return streamRideQuery(ridePageQuery(status, cursor, pageSize, System.currentTimeMillis()), filter, new BatchListener() {
+            @Override public Runnable onBatch(@NonNull RideListModel model, @NonNull RideStore.Snapshot batch) {
+                // Filtered-out rows still count towards the page so the cursor is a real row
+                final String nextCursor = model.size() > pageSize ? pageCursor(batch, model.getKey(pageSize)) : null;
+                final List<Ride> rides = model.getRides(pageSize);
+                Log.d(TAG, opTag + ": " + rides.size() + " rides on page, next cursor " + nextCursor);
+                metrics.recordOverfetch(opTag, model.size(), rides.size());
+                return () -> listener.onPageFetched(rides, nextCursor);
+            }
+            @Override public void onError(DatabaseError databaseError) { listener.onError(databaseError); }
+        }, opTag);
+    }
+
+    // --- Open Ride Pool ---
+    // The open offers and requests from other users leaving within a horizon, as a stream of
+    // changes for keeping a local copy (RideMirror). Same queries as the first browse pages,
+    // bounded by the horizon instead of a page size; undated rides fall outside every horizon.
+
+    /**
+     * Streams the open offers and requests from other users departing in the next
+     * {@code horizonMillis} to {@code listener}, one onPoolChanged per status and store update, on
+     * the result executor. The horizon is fixed when subscribing. Returns null if the user is not
+     * logged in (listener gets onError).
+     */
+    @Nullable
+    public RideStore.Registration subscribeOpenRidePool(long horizonMillis, @NonNull final RidePoolListener listener) {
+        if (horizonMillis <= 0) throw new IllegalArgumentException("horizonMillis must be positive");
+        final String currentUserEmail = getCurrentUserEmailForRead(listener);
+        if (currentUserEmail == null) return null;
+        long now = System.currentTimeMillis();
+        final RideStore.Registration offers = subscribePool(RideStatus.OPEN_OFFER, now, now + horizonMillis,
+                offerFilter(currentUserEmail, true), listener);
+        final RideStore.Registration requests = subscribePool(RideStatus.OPEN_REQUEST, now, now + horizonMillis,
+                requestFilter(currentUserEmail, true), listener);
+        return () -> {
+            offers.remove();
+            requests.remove();
+        };
+    }
+
+    /** Query for every ride with {@code status} departing from {@code nowMillis} to {@code untilMillis}. */
+    @VisibleForTesting
+    static StoreQuery openPoolQuery(RideStatus status, long nowMillis, long untilMillis) {
+        return StoreQuery.at(RIDES_PATH).orderByChild("statusDeparture")
+                .startAt(DepartureTime.indexKey(status, nowMillis))
+                .endAt(DepartureTime.indexKey(status, untilMillis));
+    }
+
+    /**
+     * Streams one status's pool and reports each batch as the difference from the last one
+     * delivered. The model already holds the current rides, so the difference is one pass over
+     * it on the parse lane; rows the filter rejects count as removed.
+     */
+    private RideStore.Registration subscribePool(final RideStatus status, long nowMillis, long untilMillis, @NonNull RideFilter filter,
+                                                 @NonNull final RidePoolListener listener) {
+        final String opTag = "subscribeOpenRidePool";
+        final Map<Integer, Ride> delivered = new HashMap<>(); // Confined to the lane, like the model
+        final boolean[] first = { true };
+        return streamRideQuery(openPoolQuery(status, nowMillis, untilMillis), filter, new BatchListener() {
+            @Override public Runnable onBatch(@NonNull RideListModel model, @NonNull RideStore.Snapshot batch) {
+                final List<Ride> changed = new ArrayList<>();
+                final Set<Integer> removed = new HashSet<>(delivered.keySet());
+                Map<Integer, Ride> current = new HashMap<>();
+                for (Ride ride : model.getRides()) {
+                    current.put(ride.getRideId(), ride);
+                    removed.remove(ride.getRideId());
+                    if (!ride.equals(delivered.get(ride.getRideId()))) changed.add(ride);
+                }
+                final boolean complete = first[0];
+                first[0] = false;
+                if (!complete && changed.isEmpty() && removed.isEmpty()) return null;
+                delivered.clear();
+                delivered.putAll(current);
+                Log.d(TAG, opTag + ": " + status + " pool " + changed.size() + " changed, " + removed.size() + " removed");
+                return () -> listener.onPoolChanged(status, complete, changed, removed);
+            }
+            @Override public void onError(DatabaseError databaseError) { listener.onError(databaseError); }
+        }, opTag);
+    }
+
+    /** Receives a streamed query's model after each batch of child events. */
+    private interface BatchListener {
+        /**
+         * Runs on the subscription's parse lane with the model and the query's full result as of
+         * this batch; returns the listener call to make on the result executor, or null for none.
+         */
+        Runnable onBatch(@NonNull RideListModel model, @NonNull RideStore.Snapshot batch);
+        void onError(DatabaseError databaseError);
+    }
+
+    private RideStore.Registration subscribeRideQuery(StoreQuery query, @NonNull final RideFilter filter,
+                                                      @NonNull final RideListListener listener, final String opTag) {
+        return streamRideQuery(query, filter, new BatchListener() {
+            @Override public Runnable onBatch(@NonNull RideListModel model, @NonNull RideStore.Snapshot batch) {
+                return publishRides(model, listener, opTag);
+            }
+            @Override public void onError(DatabaseError databaseError) { listener.onError(databaseError); }
+        }, opTag);
+    }
+
+    /**
+     * Streams a rides query into a RideListModel. A value listener on the same query marks the end
+     * of each batch (value events fire after the child events for the same change), so the
+     * initial load is published once rather than once per ride. Both listeners share one sync.
+     * Child events are decoded on a serial lane of the parse executor, which alone touches the
+     * model, so they apply in the order the store sent them.
+     */
+    private RideStore.Registration streamRideQuery(StoreQuery query, @NonNull final RideFilter filter,
+                                                   @NonNull final BatchListener listener, final String opTag) {
+        final RideListModel model = new RideListModel(); // Confined to the lane
+        final Executor lane = new SerialExecutor(parseExecutor);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final RideStore.Registration children = store.addChildListener(query, new RideStore.ChildListener() {
+            @Override public void onChildAdded(@NonNull final RideStore.Snapshot snapshot, @Nullable final String previousChildKey) {
+                parseOffCallbackThread(lane, opTag, cancelled, () -> {
+                    model.putAfter(snapshot.getKey(), cached(parseIncludedRide(snapshot, filter, opTag)), previousChildKey);
+                    return null;
+                });
+            }
+            @Override public void onChildChanged(@NonNull final RideStore.Snapshot snapshot, @Nullable String previousChildKey) {
+                parseOffCallbackThread(lane, opTag, cancelled, () -> {
+                    model.update(snapshot.getKey(), cached(parseIncludedRide(snapshot, filter, opTag)));
+                    return null;
+                });
+            }
+            @Override public void onChildMoved(@NonNull final RideStore.Snapshot snapshot, @Nullable final String previousChildKey) {
+                lane.execute(() -> model.moveAfter(snapshot.getKey(), previousChildKey));
+            }
+            @Override public void onChildRemoved(@NonNull final RideStore.Snapshot snapshot) {
+                lane.execute(() -> model.remove(snapshot.getKey()));
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": Store subscription cancelled or failed.", error);
+                if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+            }
+        });
+        final RideStore.Registration batches = store.addValueListener(query, new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
+                parseOffCallbackThread(lane, opTag, cancelled, () -> listener.onBatch(model, snapshot));
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) { } // Reported by the child listener
+        });
+        return () -> {
+            cancelled.set(true);
+            children.remove();
+            batches.remove();
+        };
+    }
+
+    /**
+     * Streams userRides/{user} entries for one status, keeping a value listener on each listed
+     * ride node. Index changes add or drop rides; edits to a ride only resend that ride.
+     * As in streamRideQuery, the model lives on a serial parse lane.
+     */
+    private RideStore.Registration subscribeUserIndexedRides(String userEmail, RideStatus status, @NonNull final RideFilter filter,
+                                                             @NonNull final RideListListener listener, final String opTag) {
+        final StoreQuery indexQuery = userRidesQuery(userEmail, status);
+        final RideListModel model = new RideListModel(); // Confined to the lane
+        final Executor lane = new SerialExecutor(parseExecutor);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final Map<String, RideStore.Registration> rideListeners = new HashMap<>(); // Store callback thread only
+
+        final RideStore.Registration index = store.addChildListener(indexQuery, new RideStore.ChildListener() {
+            @Override public void onChildAdded(@NonNull RideStore.Snapshot entry, @Nullable final String previousChildKey) {
+                final String rideKey = entry.getKey();
+                lane.execute(() -> model.putAfter(rideKey, null, previousChildKey)); // Holds the slot until the ride loads
+                rideListeners.put(rideKey, store.addValueListener(StoreQuery.at(ridePath(rideKey)), new RideStore.ValueListener() {
+                    @Override public void onDataChange(@NonNull final RideStore.Snapshot snapshot) {
+                        parseOffCallbackThread(lane, opTag, cancelled, () -> {
+                            if (!model.contains(rideKey)) return null; // Dropped from the index meanwhile
+                            model.update(rideKey, cached(parseIncludedRide(snapshot, filter, opTag)));
+                            return publishRides(model, listener, opTag);
                         });
+                    }
+                    @Override public void onCancelled(@NonNull RideStoreException error) {
+                        Log.e(TAG, opTag + ": Failed to watch indexed ride " + rideKey, error);
+                        if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
+                    }
+                }));
+            }
+            @Override public void onChildChanged(@NonNull RideStore.Snapshot entry, @Nullable String previousChildKey) { } // Value is the status, fixed by equalTo
+            @Override public void onChildMoved(@NonNull final RideStore.Snapshot entry, @Nullable final String previousChildKey) {
+                lane.execute(() -> model.moveAfter(entry.getKey(), previousChildKey));
+            }
+            @Override public void onChildRemoved(@NonNull final RideStore.Snapshot entry) {
+                RideStore.Registration rideListener = rideListeners.remove(entry.getKey());
+                if (rideListener != null) rideListener.remove();
+                parseOffCallbackThread(lane, opTag, cancelled, () -> {
+                    model.remove(entry.getKey());
+                    return publishRides(model, listener, opTag);
+                });
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": userRides index subscription cancelled or failed.", error);
+                if (!cancelled.get()) listener.onError(DatabaseError.fromException(error));
             }
-            @Override public void onError(DatabaseError databaseError) { if (listener != null) listener.onFailure(databaseError.toException()); }
+        });
+        // With no index entries no ride listener ever fires, so report the empty list from here
+        final RideStore.Registration emptyCheck = store.addValueListener(indexQuery, new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot snapshot) {
+                if (snapshot.exists()) return;
+                parseOffCallbackThread(lane, opTag, cancelled, () -> publishRides(model, listener, opTag));
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) { } // Reported by the child listener
+        });
+        return () -> {
+            cancelled.set(true);
+            index.remove();
+            emptyCheck.remove();
+            for (RideStore.Registration rideListener : rideListeners.values()) rideListener.remove();
+            rideListeners.clear();
+        };
+    }
+
+    /** Snapshot of a live list for its listener; also records rows held vs shown. Runs on the list's lane. */
+    private static Runnable publishRides(@NonNull RideListModel model, @NonNull final RideListListener listener, String opTag) {
+        final List<Ride> rides = model.getRides();
+        Log.d(TAG, opTag + ": " + rides.size() + " rides after update.");
+        metrics.recordOverfetch(opTag, model.size(), rides.size());
+        return () -> listener.onRidesFetched(rides);
+    }
+
+    // --- Update Operations ---
+
+    /** getRideByIdAsync as the "read" hop of {@code trace}. */
+    private CompletableFuture<Ride> readRide(int rideId, final RideTracer.Trace trace) {
+        final RideTracer.Span span = trace.startSpan("read");
+        return getRideByIdAsync(rideId).whenComplete((ride, error) -> endSpan(trace, span, error != null));
+    }
+
+    /**
+     * Runs {@code command} on the ride: a fresh copy from the entity cache if there is one (a
+     * "cachedRead" span), else one read from the store. Commands write the ride with its version
+     * bumped by one, so if the cached copy has gone stale the rules reject the write with
+     * PERMISSION_DENIED; that, or a SecurityException decided on the cached copy, re-runs the
+     * command once on a fresh read. The result carries whatever the command needs for later hops.
+     */
+    private <T> CompletableFuture<T> withRide(final int rideId, final RideTracer.Trace trace,
+                                              @NonNull final Function<Ride, CompletableFuture<T>> command) {
+        final Ride cached = rideCache.getFresh(rideId);
+        if (cached == null) return readRide(rideId, trace).thenCompose(command);
+
+        endSpan(trace, trace.startSpan("cachedRead"), false);
+        CompletableFuture<T> first;
+        try {
+            first = command.apply(cached);
+        } catch (RuntimeException e) {
+            first = failed(e);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        first.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Exception cause = unwrap(error);
+            boolean stale = cause instanceof SecurityException
+                    || (cause instanceof RideStoreException && ((RideStoreException) cause).isPermissionDenied());
+            if (!stale) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            Log.w(TAG, "Cached copy of ride " + rideId + " was stale, reading it again: " + cause.getMessage());
+            rideCache.evictStale(rideId);
+            readRide(rideId, trace).thenCompose(command).whenComplete((retried, retryError) -> {
+                if (retryError == null) result.complete(retried);
+                else result.completeExceptionally(unwrap(retryError));
+            });
+        });
+        return result;
+    }
+
+    private static boolean isParticipant(String email, @NonNull Ride ride) {
+        return Objects.equals(email, ride.getDriver()) || Objects.equals(email, ride.getRider());
+    }
+
+    /**
+     * Updates an entire existing ride. An update without a from or to location keeps the ride's
+     * current one (the edit form has no map), so the ride stays in its nearby-search cells.
+     */
+    public void updateRide(int rideId, @NonNull Ride updatedRideData, @Nullable CompletionListener listener) {
+        notifyWhenDone(updateRideAsync(rideId, updatedRideData), listener);
+    }
+
+    /** Future form of updateRide. */
+    @NonNull
+    public CompletableFuture<Void> updateRideAsync(final int rideId, @NonNull final Ride updatedRideData) {
+        final RideTracer.Trace trace = tracer.start("updateRide");
+        return traced(trace, () -> {
+            final String currentUserEmail = requireCurrentUserEmail();
+            return withRide(rideId, trace, existingRide -> {
+                if (existingRide == null) return failed(new Exception("Ride not found"));
+                if (!isParticipant(currentUserEmail, existingRide)) return failed(new SecurityException("Not authorized"));
+                updatedRideData.setRideId(rideId);
+                if (!updatedRideData.hasFromLocation()) {
+                    updatedRideData.setFromLat(existingRide.getFromLat());
+                    updatedRideData.setFromLng(existingRide.getFromLng());
+                }
+                if (!updatedRideData.hasToLocation()) {
+                    updatedRideData.setToLat(existingRide.getToLat());
+                    updatedRideData.setToLng(existingRide.getToLng());
+                }
+                updatedRideData.setStatus(updatedRideData.deriveStatus());
+                updatedRideData.setVersion(existingRide.getVersion() + 1);
+                fillDepartureAt(updatedRideData);
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(ridePath(rideId), rideNode(updatedRideData));
+                putUserRideIndexUpdates(updates, existingRide, rideId, null); // Drop entries for participants that were removed
+                putUserRideIndexUpdates(updates, updatedRideData, rideId, updatedRideData.getStatus());
+                return writeUpdates(updates, trace, "write", "updateRide", existingRide.deriveStatus(), updatedRideData.getStatus())
+                        .thenRun(() -> rideCache.put(updatedRideData));
+            });
+        });
+    }
+
+    /**
+     * Accepts a ride offer/request as a compare-and-set transaction on the ride node: the open
+     * driver/rider slot is only filled if it is still empty when the write lands. If another user
+     * won the race the listener gets a RideAlreadyTakenException. The userRides entries are written
+     * after the transaction commits, since a transaction can only touch the one node; that write is
+     * tried twice, and if it still fails, accepting again finds the ride already held by this user,
+     * leaves it as it is and only rewrites the entries.
+     */
+    public void acceptRide(final int rideId, @Nullable final CompletionListener listener) {
+        notifyWhenDone(acceptRideAsync(rideId), listener);
+    }
+
+    /** Future form of acceptRide; fails with RideAlreadyTakenException if another user won. */
+    @NonNull
+    public CompletableFuture<Void> acceptRideAsync(final int rideId) {
+        final RideTracer.Trace trace = tracer.start("acceptRide");
+        return traced(trace, () -> {
+            // Points are not changed on accept, only on create/delete/complete
+            final String currentUserEmail = requireCurrentUserEmail();
+            return claimRide(rideId, currentUserEmail, trace).thenCompose(ride -> {
+                Log.d(TAG, "User " + currentUserEmail + " accepted ride " + rideId + (Objects.equals(currentUserEmail, ride.getRider()) ? " as RIDER" : " as DRIVER"));
+                final Map<String, Object> updates = new HashMap<>();
+                putUserRideIndexUpdates(updates, ride, rideId, RideStatus.ACCEPTED);
+                // The ride is already claimed, so a failed index write is retried rather than failing the accept
+                return writeUpdates(updates, trace, "indexWrite", "acceptRide", RideStatus.ACCEPTED)
+                        .handle((ignored, error) -> error == null
+                                ? CompletableFuture.<Void>completedFuture(null)
+                                : writeUpdates(updates, trace, "indexRetry", "acceptRide index retry", RideStatus.ACCEPTED))
+                        .thenCompose(retry -> retry);
+            });
+        });
+    }
+
+    /** The accept transaction, as the "transaction" hop of {@code trace}; completes with the committed ride. */
+    private CompletableFuture<Ride> claimRide(final int rideId, final String currentUserEmail, final RideTracer.Trace trace) {
+        final CompletableFuture<Ride> future = new CompletableFuture<>();
+        // Why the last doTransaction run declined to write; doTransaction may run several times
+        final AtomicReference<Exception> rejection = new AtomicReference<>();
+        final AtomicBoolean alreadyHeld = new AtomicBoolean(); // This user already holds the ride, from an earlier accept
+        final RideTracer.Span span = trace.startSpan("transaction");
+
+        store.runTransaction(ridePath(rideId), new RideStore.TransactionHandler() {
+            @Override
+            public boolean doTransaction(@NonNull RideStore.MutableNode mutableData) {
+                span.attempt();
+                rejection.set(null);
+                alreadyHeld.set(false);
+                Ride ride = RideCodec.decodeRide(mutableData.getValue());
+                if (ride == null) {
+                    // Either the local cache is cold or the ride is gone; the server settles which
+                    return true;
+                }
+                boolean hasDriver = ride.getDriver() != null && !ride.getDriver().trim().isEmpty();
+                boolean hasRider = ride.getRider() != null && !ride.getRider().trim().isEmpty();
+                if (ride.isComplete()) {
+                    rejection.set(new IllegalStateException("Ride cannot be accepted"));
+                    return false;
+                } else if (hasDriver && hasRider) {
+                    if (isParticipant(currentUserEmail, ride)) alreadyHeld.set(true); // Nothing to change; only the index needs writing
+                    else rejection.set(new RideAlreadyTakenException(rideId));
+                    return false;
+                } else if (hasDriver) {
+                    if (Objects.equals(currentUserEmail, ride.getDriver())) { rejection.set(new IllegalStateException("Cannot accept own offer")); return false; }
+                    mutableData.child("rider").setValue(currentUserEmail);
+                } else if (hasRider) {
+                    if (Objects.equals(currentUserEmail, ride.getRider())) { rejection.set(new IllegalStateException("Cannot accept own request")); return false; }
+                    mutableData.child("driver").setValue(currentUserEmail);
+                } else {
+                    rejection.set(new IllegalStateException("Ride cannot be accepted"));
+                    return false;
+                }
+                mutableData.child("status").setValue(RideStatus.ACCEPTED.name());
+                for (Map.Entry<String, Object> index : ride.statusIndexValues(RideStatus.ACCEPTED).entrySet()) {
+                    mutableData.child(index.getKey()).setValue(index.getValue());
+                }
+                mutableData.child("version").setValue(ride.getVersion() + 1);
+                mutableData.child("updatedAt").setValue(store.serverTimestamp());
+                return true;
+            }
+
+            @Override
+            public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                endSpan(trace, span, error != null || !committed);
+                if (error != null) {
+                    Log.e(TAG, "acceptRide transaction failed for ID " + rideId, error);
+                    future.completeExceptionally(error);
+                    return;
+                }
+                if (!committed && !alreadyHeld.get()) {
+                    Exception e = rejection.get() != null ? rejection.get() : new Exception("Accept transaction not committed");
+                    Log.w(TAG, "acceptRide rejected for ID " + rideId + ": " + e.getMessage());
+                    future.completeExceptionally(e);
+                    return;
+                }
+                listCache.invalidate(RideStatus.OPEN_OFFER, RideStatus.OPEN_REQUEST, RideStatus.ACCEPTED); // The ride left its open list
+                Ride ride = currentData != null ? RideCodec.decodeRide(currentData.getValue()) : null;
+                if (ride == null) {
+                    future.completeExceptionally(new Exception("Ride not found"));
+                } else {
+                    ride.setRideId(rideId);
+                    rideCache.put(ride);
+                    future.complete(ride);
+                }
+            }
+        });
+        return future;
+    }
+
+    /** Marks a ride as complete and awards points to the driver if it was an offer. */
+    public void completeRide(int rideId, @Nullable CompletionListener listener) {
+        notifyWhenDone(completeRideAsync(rideId), listener);
+    }
+
+    /** Future form of completeRide: read (or the cached ride), then write, then the driver's points. */
+    @NonNull
+    public CompletableFuture<Void> completeRideAsync(final int rideId) {
+        final RideTracer.Trace trace = tracer.start("completeRide");
+        return traced(trace, () -> {
+            final String currentUserEmail = requireCurrentUserEmail();
+            // The ride stage completes with the driver to award points to, or null for none
+            return this.<String>withRide(rideId, trace, ride -> {
+                if (ride == null) return failed(new Exception("Ride not found"));
+
+                // Store driver email before checking authorization/completion
+                final String driverEmail = ride.getDriver();
+                final boolean wasOriginallyOffer = driverEmail != null && !driverEmail.isEmpty(); // Check if driver existed initially
+
+                // Authorization check
+                if (!isParticipant(currentUserEmail, ride)) return failed(new SecurityException("Not authorized"));
+                // Check if already complete
+                if (ride.isComplete()) {
+                    Log.w(TAG, "Ride " + rideId + " is already complete.");
+                    return CompletableFuture.completedFuture(null); // Already done
+                }
+
+                // Proceed with completion
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(ridePath(rideId) + "/complete", true);
+                updates.put(ridePath(rideId) + "/status", RideStatus.COMPLETE.name());
+                putStatusIndexUpdates(updates, ride, rideId, RideStatus.COMPLETE);
+                updates.put(ridePath(rideId) + "/version", ride.getVersion() + 1);
+                updates.put(ridePath(rideId) + "/updatedAt", store.serverTimestamp());
+                putUserRideIndexUpdates(updates, ride, rideId, RideStatus.COMPLETE);
+                return writeUpdates(updates, trace, "write", "completeRide for ID " + rideId, RideStatus.ACCEPTED).thenApply(ignored -> {
+                    rideCache.remove(rideId); // The cached object may be on screen, so it is dropped rather than edited
+                    // Award points to driver only if it was originally an offer
+                    if (wasOriginallyOffer) return driverEmail;
+                    Log.d(TAG, "Ride was a request or driver info missing, no points awarded.");
+                    return null;
+                });
+            }).thenCompose(driverToAward -> driverToAward != null
+                    ? handlePoints(driverToAward, POINTS_FOR_COMPLETED_OFFER, trace)
+                    : CompletableFuture.completedFuture(null));
         });
     }
 
     // --- Delete Operation ---
 
-    /** Deletes a ride and refunds points. */
+    /**
+     * Deletes a ride and refunds points. The ride node is replaced by a tombstone (deleted, a
+     * bumped version, updatedAt and deletedAt) rather than removed, so lists patched from a
+     * watermark see the deletion; every read treats a tombstone as a missing ride. Tombstones
+     * are removed after TOMBSTONE_TTL_MS by purgeTombstones.
+     */
     public void deleteRide(int rideId, @Nullable CompletionListener listener) {
-        String currentUserEmail = getCurrentUserEmail(listener);
-        if (currentUserEmail == null) return;
+        notifyWhenDone(deleteRideAsync(rideId), listener);
+    }
 
-        getRideById(rideId, new RideSingleListener() {
-            @Override public void onRideFetched(@Nullable Ride ride) {
-                if (ride == null) { if (listener != null) listener.onSuccess(); return; } // Not found is success for delete
+    /** Future form of deleteRide: read, then delete, then the refund. A missing ride counts as deleted. */
+    @NonNull
+    public CompletableFuture<Void> deleteRideAsync(final int rideId) {
+        final RideTracer.Trace trace = tracer.start("deleteRide");
+        return traced(trace, () -> {
+            final String currentUserEmail = requireCurrentUserEmail();
+            // Always a fresh read: the refund is decided on this copy, so it must not be a stale cached one
+            return readRide(rideId, trace).thenCompose(ride -> {
+                if (ride == null) return CompletableFuture.completedFuture(null); // Not found is success for delete
 
                 final String driverEmail = ride.getDriver();
                 final String riderEmail = ride.getRider();
@@ -611,33 +2002,272 @@ public class RideService {
                 final int pointsToRefund = wasOffer ? 0 : -POINTS_FOR_REQUEST; // Refund request cost
 
                 // Authorization check
-                if (!Objects.equals(currentUserEmail, driverEmail) && !Objects.equals(currentUserEmail, riderEmail)) {
-                    if (listener != null) listener.onFailure(new SecurityException("Not authorized")); return;
-                }
+                if (!isParticipant(currentUserEmail, ride)) return failed(new SecurityException("Not authorized"));
 
                 Log.d(TAG, "User " + currentUserEmail + " deleting ride " + rideId);
-                ridesRef.child(String.valueOf(rideId)).removeValue()
-                        .addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                Log.d(TAG, "deleteRide successful for ID " + rideId + ". Refunding points if applicable...");
-                                // Only refund points if it was a request (wasOffer is false)
-                                if (!wasOffer && userToRefund != null && !userToRefund.isEmpty()) {
-                                    handlePoints(userToRefund, pointsToRefund, listener); // Pass original listener
-                                } else {
-                                    // Offer deleted (no initial point change) or user info missing
-                                    Log.d(TAG, "Offer deleted or no user to refund points for deleted ride " + rideId);
-                                    if (listener != null) listener.onSuccess(); // Report success if delete worked
-                                }
-                            } else {
-                                Log.e(TAG, "deleteRide failed for ID " + rideId, task.getException());
-                                if (listener != null) listener.onFailure(task.getException() != null ? task.getException() : new Exception("Failed to delete ride")); // Call defined method
-                            }
-                        });
+                Map<String, Object> updates = new HashMap<>();
+                Map<String, Object> tombstone = new HashMap<>();
+                tombstone.put(RideCodec.DELETED, true);
+                tombstone.put("version", ride.getVersion() + 1); // Versioned writes from older copies can't bring the ride back
+                tombstone.put("updatedAt", store.serverTimestamp());
+                tombstone.put("deletedAt", store.serverTimestamp()); // Indexed, for purgeTombstones
+                updates.put(ridePath(rideId), tombstone);
+                putUserRideIndexUpdates(updates, ride, rideId, null);
+                return writeUpdates(updates, trace, "write", "deleteRide for ID " + rideId, ride.deriveStatus()).thenCompose(ignored -> {
+                    rideCache.remove(rideId);
+                    // Only refund points if it was a request (wasOffer is false)
+                    if (!wasOffer && userToRefund != null && !userToRefund.isEmpty()) {
+                        return handlePoints(userToRefund, pointsToRefund, trace);
+                    }
+                    // Offer deleted (no initial point change) or user info missing
+                    Log.d(TAG, "Offer deleted or no user to refund points for deleted ride " + rideId);
+                    return CompletableFuture.completedFuture(null);
+                });
+            });
+        });
+    }
+
+    // --- Maintenance ---
+
+    /**
+     * One-time migration for ride nodes written before the status field and userRides index existed.
+     * Stamps "status" where it is missing or has drifted from driver/rider/complete, and writes the
+     * userRides entries for every participant. Rides are read and rewritten a chunk at a time (see
+     * migrateDepartureTimes), and every write is idempotent, so a run cut short is simply redone.
+     * It runs once per database, not per device: see runMigrationOnce.
+     */
+    public void migrateRideIndexes(@Nullable final CompletionListener listener) {
+        runMigrationOnce(RIDE_INDEXES_MIGRATION, done -> migrateChunk("migrateRideIndexes", (snapshot, ride, updates) -> {
+            setRideIdFromKey(ride, snapshot.getKey());
+            RideStatus derived = ride.deriveStatus();
+            if (derived == null) return false;
+            String rideKey = snapshot.getKey();
+            if (derived != ride.getStatus()) {
+                updates.put(ridePath(rideKey) + "/status", derived.name());
+                putStatusIndexUpdates(updates, ride, rideKey, derived);
+                updates.put(ridePath(rideKey) + "/version", ride.getVersion() + 1);
+                updates.put(ridePath(rideKey) + "/updatedAt", store.serverTimestamp());
             }
-            @Override public void onError(DatabaseError databaseError) {
-                Log.e(TAG, "deleteRide: Error fetching ride " + rideId, databaseError.toException());
-                if (listener != null) listener.onFailure(databaseError.toException()); // Call defined method
+            putUserRideIndexUpdates(updates, ride, rideKey, derived);
+            return true;
+        }, null, 0, done), listener);
+    }
+
+    /**
+     * One-time migration for ride nodes written before departureAt existed: fills it in from the
+     * dateTime text and writes the statusDeparture index value, bumping each changed ride's
+     * version. Run it after migrateRideIndexes, which fixes the statuses this reads. Rides that
+     * already have both fields are skipped, so a run cut short only redoes what is left. Like
+     * migrateRideIndexes it runs once per database.
+     */
+    public void migrateDepartureTimes(@Nullable final CompletionListener listener) {
+        runMigrationOnce(DEPARTURE_TIMES_MIGRATION, done -> migrateChunk("migrateDepartureTimes", (snapshot, ride, updates) -> {
+            RideStatus status = ride.getStatus() != null ? ride.getStatus() : ride.deriveStatus();
+            if (status == null) return false;
+            long departureAt = ride.getDepartureAt() > DepartureTime.UNKNOWN ? ride.getDepartureAt() : DepartureTime.parse(ride.getDateTime());
+            String indexKey = DepartureTime.indexKey(status, departureAt);
+            if (departureAt == ride.getDepartureAt() && indexKey.equals(snapshot.child("statusDeparture").getValue())) return false;
+            String path = ridePath(snapshot.getKey());
+            updates.put(path + "/departureAt", departureAt);
+            updates.put(path + "/statusDeparture", indexKey);
+            updates.put(path + "/version", ride.getVersion() + 1);
+            updates.put(path + "/updatedAt", store.serverTimestamp());
+            return true;
+        }, null, 0, done), listener);
+    }
+
+    /**
+     * Removes the tombstones of rides deleted more than TOMBSTONE_TTL_MS ago, at most once per
+     * TOMBSTONE_PURGE_INTERVAL_MS per database: maintenance/tombstonePurge holds when a device
+     * last claimed the purge, through a transaction, so other devices skip it until the interval
+     * has passed. Tombstones are read through the deletedAt index a chunk at a time, so the read
+     * never touches live rides. Once purged, a deleted ride could only come back through a
+     * versioned write from a copy read before it was deleted, more than the TTL ago.
+     */
+    public void purgeTombstones(@Nullable final CompletionListener listener) {
+        final long now = System.currentTimeMillis();
+        store.runTransaction(TOMBSTONE_PURGE_PATH, new RideStore.TransactionHandler() {
+            @Override public boolean doTransaction(@NonNull RideStore.MutableNode current) {
+                Object lastRun = current.getValue();
+                if (lastRun instanceof Number && now - ((Number) lastRun).longValue() < TOMBSTONE_PURGE_INTERVAL_MS) return false;
+                current.setValue(now);
+                return true;
+            }
+
+            @Override public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                if (error != null) {
+                    Log.e(TAG, "purgeTombstones: Could not claim the purge.", error);
+                    if (listener != null) listener.onFailure(error);
+                    return;
+                }
+                if (!committed) {
+                    Log.d(TAG, "purgeTombstones: Purged recently.");
+                    if (listener != null) listener.onSuccess();
+                    return;
+                }
+                purgeTombstoneChunk(now - TOMBSTONE_TTL_MS, 0, new CompletionListener() {
+                    @Override public void onSuccess() { if (listener != null) listener.onSuccess(); }
+                    @Override public void onFailure(Exception e) {
+                        Map<String, Object> released = new HashMap<>();
+                        released.put(TOMBSTONE_PURGE_PATH, null); // Let the next launch retry at once
+                        store.updateChildren(released, releaseError -> { if (listener != null) listener.onFailure(e); });
+                    }
+                });
             }
         });
     }
+
+    /** Removes up to MIGRATION_CHUNK_SIZE tombstones deleted by {@code cutoff}, then the next chunk if this one was full. */
+    private void purgeTombstoneChunk(final long cutoff, final int purgedSoFar, @NonNull final CompletionListener listener) {
+        StoreQuery query = StoreQuery.at(RIDES_PATH).orderByChild("deletedAt").startAt(1).endAt(cutoff).limitToFirst(MIGRATION_CHUNK_SIZE);
+        store.get(query, new RideStore.ValueListener() {
+            @Override public void onDataChange(@NonNull RideStore.Snapshot chunk) {
+                Map<String, Object> updates = new HashMap<>();
+                for (RideStore.Snapshot snapshot : chunk.getChildren()) updates.put(ridePath(snapshot.getKey()), null);
+                if (updates.isEmpty()) {
+                    Log.d(TAG, "purgeTombstones: Done, " + purgedSoFar + " tombstones removed.");
+                    listener.onSuccess();
+                    return;
+                }
+                final int total = purgedSoFar + updates.size();
+                final boolean full = updates.size() == MIGRATION_CHUNK_SIZE;
+                store.updateChildren(updates, error -> {
+                    if (error != null) {
+                        Log.e(TAG, "purgeTombstones: Chunk delete failed after " + purgedSoFar + " tombstones.", error);
+                        listener.onFailure(error);
+                    } else if (full) {
+                        purgeTombstoneChunk(cutoff, total, listener); // Removed rows are gone, so the same query reads the next chunk
+                    } else {
+                        Log.d(TAG, "purgeTombstones: Done, " + total + " tombstones removed.");
+                        listener.onSuccess();
+                    }
+                });
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, "purgeTombstones: Store query cancelled or failed.", error);
+                listener.onFailure(error);
+            }
+        });
+    }
+
+    /** Adds one ride's rewrite to a migration chunk's update; returns false if the ride needs none. */
+    private interface RideMigrationStep {
+        boolean addUpdates(@NonNull RideStore.Snapshot snapshot, @NonNull Ride ride, @NonNull Map<String, Object> updates) throws Exception;
+    }
+
+    /** A migration body, handed the listener to report to once every chunk is written. */
+    private interface Migration {
+        void run(@NonNull CompletionListener done);
+    }
+
+    /**
+     * Runs {@code migration} unless this database has already had it. migrations/{name} holds
+     * true once it has finished anywhere, or the epoch millis at which a device claimed it; the
+     * claim is a transaction, so of several devices starting together only one migrates, and a
+     * claim older than MIGRATION_LEASE_MS (a device that died mid-run) can be taken over. A
+     * finished migration costs each new install one read of the marker. Losing the claim to a
+     * live one reports a failure, so the caller tries again later instead of assuming it is done.
+     */
+    private void runMigrationOnce(@NonNull final String name, @NonNull final Migration migration, @Nullable final CompletionListener listener) {
+        final String markerPath = MIGRATIONS_PATH + "/" + name;
+        final long now = System.currentTimeMillis();
+        store.runTransaction(markerPath, new RideStore.TransactionHandler() {
+            @Override public boolean doTransaction(@NonNull RideStore.MutableNode current) {
+                Object marker = current.getValue();
+                if (Boolean.TRUE.equals(marker)) return false; // Already done
+                if (marker instanceof Number && now - ((Number) marker).longValue() < MIGRATION_LEASE_MS) return false; // Running elsewhere
+                current.setValue(now);
+                return true;
+            }
+
+            @Override public void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable RideStore.Snapshot currentData) {
+                if (error != null) {
+                    Log.e(TAG, name + ": Could not claim the migration.", error);
+                    if (listener != null) listener.onFailure(error);
+                    return;
+                }
+                if (!committed) {
+                    if (currentData != null && Boolean.TRUE.equals(currentData.getValue())) {
+                        Log.d(TAG, name + ": Already done.");
+                        if (listener != null) listener.onSuccess();
+                    } else {
+                        Log.d(TAG, name + ": Running on another device.");
+                        if (listener != null) listener.onFailure(new IllegalStateException(name + " is running on another device"));
+                    }
+                    return;
+                }
+                migration.run(new CompletionListener() {
+                    @Override public void onSuccess() {
+                        Map<String, Object> finished = new HashMap<>();
+                        finished.put(markerPath, true);
+                        store.updateChildren(finished, createWriteCompleteListener(listener, name));
+                    }
+                    @Override public void onFailure(Exception e) {
+                        Map<String, Object> released = new HashMap<>();
+                        released.put(markerPath, null); // Let the next launch, here or elsewhere, retry at once
+                        store.updateChildren(released, releaseError -> { if (listener != null) listener.onFailure(e); });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reads the rides from {@code startKey} in key order, MIGRATION_CHUNK_SIZE at a time, and
+     * writes each chunk's updates before reading the next, so memory stays bounded however many
+     * rides there are. Tombstones and nodes that do not decode are skipped.
+     */
+    private void migrateChunk(@NonNull final String opTag, @NonNull final RideMigrationStep step, @Nullable final String startKey,
+                              final int migratedSoFar, @NonNull final CompletionListener listener) {
+        StoreQuery query = StoreQuery.at(RIDES_PATH).orderByKey();
+        if (startKey != null) query = query.startAt(startKey);
+        store.get(query.limitToFirst(MIGRATION_CHUNK_SIZE + 1), new RideStore.ValueListener() { // One extra row: the next chunk's first key
+            @Override public void onDataChange(@NonNull RideStore.Snapshot chunk) {
+                Map<String, Object> updates = new HashMap<>();
+                String nextKey = null;
+                int read = 0, migrated = 0;
+                for (RideStore.Snapshot snapshot : chunk.getChildren()) {
+                    if (read++ == MIGRATION_CHUNK_SIZE) {
+                        nextKey = snapshot.getKey();
+                        break;
+                    }
+                    try {
+                        Ride ride = RideCodec.decodeRide(snapshot.getValue());
+                        if (ride != null && step.addUpdates(snapshot, ride, updates)) migrated++;
+                    } catch (Exception e) { Log.e(TAG, opTag + ": Error processing snapshot: " + snapshot.getKey(), e); }
+                }
+                final String next = nextKey;
+                final int total = migratedSoFar + migrated;
+                if (updates.isEmpty()) {
+                    continueMigration(opTag, step, next, total, listener);
+                    return;
+                }
+                Log.d(TAG, opTag + ": Writing " + migrated + " rides from key " + startKey + ".");
+                store.updateChildren(updates, error -> {
+                    listCache.invalidateAll(); // Rides may have moved between or within lists
+                    rideCache.clear();
+                    if (error != null) {
+                        Log.e(TAG, opTag + ": Chunk write failed after " + migratedSoFar + " rides.", error);
+                        listener.onFailure(error);
+                        return;
+                    }
+                    continueMigration(opTag, step, next, total, listener);
+                });
+            }
+            @Override public void onCancelled(@NonNull RideStoreException error) {
+                Log.e(TAG, opTag + ": Store query cancelled or failed.", error);
+                listener.onFailure(error);
+            }
+        });
+    }
+
+    private void continueMigration(@NonNull String opTag, @NonNull RideMigrationStep step, @Nullable String nextKey,
+                                   int migrated, @NonNull CompletionListener listener) {
+        if (nextKey != null) {
+            migrateChunk(opTag, step, nextKey, migrated, listener);
+            return;
+        }
+        Log.d(TAG, opTag + ": Done, " + migrated + " rides migrated.");
+        listener.onSuccess();
+    }
 }
@@ -0,0 +1,217 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight tracing for RideService commands. Each command (createNewRide, acceptRide, ...)
+ * starts a Trace with its own ID and records a Span for every store round trip it chains
+ * through, with the number of times a transaction body ran. Finished traces go into a ring
+ * buffer holding the most recent ones; toJson() / writeJson() export it. Thread-safe.
+ */
+public final class RideTracer {
+
+    /** One hop of a command, e.g. the ride read or the points transaction. */
+    public static final class Span {
+        private final String name;
+        private final long startNanos;
+        private long endNanos = -1; // guarded by this
+        private int attempts;       // guarded by this
+        private boolean failed;     // guarded by this
+
+        Span(String name) {
+            this.name = name;
+            this.startNanos = System.nanoTime();
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /** Counts one run of a transaction body; more than one means the store retried it. */
+        synchronized void attempt() {
+            attempts++;
+        }
+
+        /** Ends the span and returns its duration. Only the first call counts. */
+        synchronized long end(boolean failed) {
+            if (endNanos < 0) {
+                endNanos = System.nanoTime();
+                this.failed = failed;
+            }
+            return endNanos - startNanos;
+        }
+
+        public synchronized int getAttempts() {
+            return attempts;
+        }
+
+        public synchronized boolean isFailed() {
+            return failed;
+        }
+
+        /** Duration in nanoseconds, or -1 while the span is still open. */
+        public synchronized long getDurationNanos() {
+            return endNanos < 0 ? -1 : endNanos - startNanos;
+        }
+    }
+
+    /** One command from its public call to its listener call. */
+    public static final class Trace {
+        private final RideTracer tracer;
+        private final long id;
+        private final String command;
+        private final long startNanos;
+        private final List<Span> spans = new ArrayList<>(); // guarded by this
+        private long endNanos = -1;                         // guarded by this
+        private boolean failed;                             // guarded by this
+
+        Trace(RideTracer tracer, long id, String command) {
+            this.tracer = tracer;
+            this.id = id;
+            this.command = command;
+            this.startNanos = System.nanoTime();
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        @NonNull
+        public String getCommand() {
+            return command;
+        }
+
+        /** Opens a span for the next hop; end it when that hop's callback arrives. */
+        @NonNull
+        synchronized Span startSpan(@NonNull String name) {
+            Span span = new Span(name);
+            spans.add(span);
+            return span;
+        }
+
+        /** Ends the trace, adds it to the ring buffer and returns its duration. Only the first call counts. */
+        long finish(boolean failed) {
+            synchronized (this) {
+                if (endNanos >= 0) return endNanos - startNanos;
+                endNanos = System.nanoTime();
+                this.failed = failed;
+            }
+            tracer.add(this);
+            return endNanos - startNanos;
+        }
+
+        @NonNull
+        public synchronized List<Span> getSpans() {
+            return new ArrayList<>(spans);
+        }
+
+        public synchronized boolean isFailed() {
+            return failed;
+        }
+
+        /** Duration in nanoseconds, or -1 while the command is still running. */
+        public synchronized long getDurationNanos() {
+            return endNanos < 0 ? -1 : endNanos - startNanos;
+        }
+
+        /** One line per trace, e.g. "trace 7 completeRide ok 84.2 ms: read 20.1 ms, write 31.0 ms, points 33.0 ms (2 attempts)". */
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            StringBuilder line = new StringBuilder(String.format(Locale.US, "trace %d %s %s %s:",
+                    id, command, failed ? "failed" : "ok", formatMs(getDurationNanos())));
+            String separator = " ";
+            for (Span span : spans) {
+                line.append(separator).append(span.getName()).append(' ').append(formatMs(span.getDurationNanos()));
+                if (span.isFailed()) line.append(" failed");
+                if (span.getAttempts() > 1) line.append(" (").append(span.getAttempts()).append(" attempts)");
+                separator = ", ";
+            }
+            return line.toString();
+        }
+
+        private static String formatMs(long nanos) {
+            return nanos < 0 ? "open" : String.format(Locale.US, "%.1f ms", nanos / 1e6);
+        }
+    }
+
+    private final int capacity;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ArrayDeque<Trace> finished; // Oldest first; guarded by this
+
+    public RideTracer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.finished = new ArrayDeque<>(capacity);
+    }
+
+    /** Starts tracing one call of {@code command}. */
+    @NonNull
+    Trace start(@NonNull String command) {
+        return new Trace(this, nextId.getAndIncrement(), command);
+    }
+
+    private synchronized void add(Trace trace) {
+        if (finished.size() == capacity) finished.removeFirst();
+        finished.addLast(trace);
+    }
+
+    /** The most recent finished traces, oldest first. */
+    @NonNull
+    public synchronized List<Trace> recentTraces() {
+        return new ArrayList<>(finished);
+    }
+
+    public synchronized void reset() {
+        finished.clear();
+    }
+
+    /** The ring buffer as a JSON array of traces, oldest first; span offsets are from the trace start. */
+    @NonNull
+    public String toJson() {
+        StringBuilder json = new StringBuilder("[");
+        String traceSeparator = "\n";
+        for (Trace trace : recentTraces()) {
+            synchronized (trace) {
+                json.append(traceSeparator).append(String.format(Locale.US,
+                        "  {\"id\": %d, \"command\": \"%s\", \"failed\": %b, \"durationMs\": %s, \"spans\": [",
+                        trace.id, trace.command, trace.failed, jsonMs(trace.getDurationNanos())));
+                String spanSeparator = "";
+                for (Span span : trace.spans) {
+                    json.append(spanSeparator).append(String.format(Locale.US,
+                            "{\"name\": \"%s\", \"offsetMs\": %.3f, \"durationMs\": %s, \"attempts\": %d, \"failed\": %b}",
+                            span.name, (span.startNanos - trace.startNanos) / 1e6, jsonMs(span.getDurationNanos()),
+                            span.getAttempts(), span.isFailed()));
+                    spanSeparator = ", ";
+                }
+                json.append("]}");
+            }
+            traceSeparator = ",\n";
+        }
+        return json.append(traceSeparator.equals("\n") ? "]\n" : "\n]\n").toString();
+    }
+
+    /** Writes toJson() to {@code file}, replacing it. */
+    public void writeJson(@NonNull File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    private static String jsonMs(long nanos) {
+        return nanos < 0 ? "null" : String.format(Locale.US, "%.3f", nanos / 1e6);
+    }
+}
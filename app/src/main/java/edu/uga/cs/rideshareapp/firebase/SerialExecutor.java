@@ -0,0 +1,53 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one at a time, in submission order, on a shared executor. A live subscription
+ * gets its own lane, so its child events are applied in order while different subscriptions
+ * still parse in parallel. A lane hands the executor one task at a time, so a burst of events
+ * waits here rather than in the executor's queue. The executor is always called outside the
+ * lane's lock.
+ */
+final class SerialExecutor implements Executor {
+
+    private final Executor executor;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>(); // Guarded by this
+    private boolean running; // A task of this lane is queued or running on the executor; guarded by this
+
+    SerialExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable task) {
+        boolean start;
+        synchronized (this) {
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            start = !running;
+            running = true;
+        }
+        if (start) scheduleNext();
+    }
+
+    private void scheduleNext() {
+        Runnable next;
+        synchronized (this) {
+            next = tasks.poll();
+            if (next == null) {
+                running = false;
+                return;
+            }
+        }
+        executor.execute(next);
+    }
+}
@@ -0,0 +1,69 @@
+package edu.uga.cs.rideshareapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Departure times as epoch milliseconds, and the "statusDeparture" index value built from them.
+ *
+ * A ride's dateTime is the text PostRideActivity shows (PATTERN, device time zone); departureAt
+ * is the same instant as a number, so it sorts and range-queries correctly. Firebase can only
+ * order a query by one child, so rides also store "STATUS|departureAt" (the millis zero-padded to
+ * a fixed width, so string order is time order): one startAt/endAt on it selects a status and a
+ * time window at once. Rides with no known departure sort after every dated ride of their status.
+ */
+public final class DepartureTime {
+
+    /** Format of Ride.dateTime. */
+    public static final String PATTERN = "MM/dd/yyyy hh:mm a";
+
+    public static final long UNKNOWN = 0;
+
+    private static final long LATEST = 9_999_999_999_999L; // Widest 13-digit value, in the year 2286
+    private static final String INDEX_FORMAT = "%s|%013d";
+
+    private DepartureTime() { }
+
+    /**
+     * Parses a dateTime written with PATTERN in the device's locale (or, failing that, in English,
+     * as older builds may have done). Returns UNKNOWN for null or unparseable text.
+     */
+    public static long parse(@Nullable String dateTime) {
+        if (dateTime == null || dateTime.trim().isEmpty()) return UNKNOWN;
+        for (Locale locale : new Locale[] { Locale.getDefault(), Locale.US }) {
+            SimpleDateFormat format = new SimpleDateFormat(PATTERN, locale); // Not thread-safe, so one per call
+            format.setLenient(false);
+            try {
+                Date date = format.parse(dateTime.trim());
+                if (date != null && date.getTime() > 0) return date.getTime();
+            } catch (ParseException e) {
+                // Try the next locale
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /** Formats {@code departureAt} as a dateTime, in the device's locale and time zone. */
+    @NonNull
+    public static String format(long departureAt) {
+        return new SimpleDateFormat(PATTERN, Locale.getDefault()).format(new Date(departureAt));
+    }
+
+    /** The statusDeparture value for a ride with {@code status} leaving at {@code departureAt}. */
+    @NonNull
+    public static String indexKey(@NonNull RideStatus status, long departureAt) {
+        long sortable = departureAt <= UNKNOWN ? LATEST : Math.min(departureAt, LATEST);
+        return String.format(Locale.US, INDEX_FORMAT, status.name(), sortable);
+    }
+
+    /** The highest statusDeparture value for {@code status}: the end of its range, undated rides included. */
+    @NonNull
+    public static String lastIndexKey(@NonNull RideStatus status) {
+        return String.format(Locale.US, INDEX_FORMAT, status.name(), LATEST);
+    }
+}
@@ -0,0 +1,187 @@
+package edu.uga.cs.rideshareapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Geohashes for ride origins and destinations, and the "statusFromCell" / "statusToCell" index
+ * values built from them.
+ *
+ * A geohash names a lat/lng cell; each extra character splits the cell into 32, and every point
+ * in a cell has a hash starting with the cell's hash. So rides store "STATUS|" plus a PRECISION
+ * hash of their point, and one startAt/endAt prefix range on that value selects a status and a
+ * cell at once, at whatever cell size the search needs (see DepartureTime for the same idea
+ * with times). A circle around a point is covered by the point's cell and the neighbours the
+ * circle reaches; the cells overshoot the circle, so results still need an exact distance check.
+ */
+public final class GeoHash {
+
+    /** Characters stored per point: cells of about 5 m. */
+    public static final int PRECISION = 9;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_M = 6_371_008.8; // Mean radius
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_M / 180;
+    private static final String INDEX_FORMAT = "%s|%s";
+    private static final char PREFIX_END = '\uf8ff'; // Sorts after every hash character
+
+    private GeoHash() { }
+
+    /** True for a latitude and longitude that exist, as degrees. */
+    public static boolean isValid(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+
+    /** The geohash of the cell {@code precision} characters long holding the point. */
+    @NonNull
+    public static String encode(double lat, double lng, int precision) {
+        if (!isValid(lat, lng)) throw new IllegalArgumentException("Invalid coordinates " + lat + ", " + lng);
+        if (precision < 1 || precision > 12) throw new IllegalArgumentException("precision must be 1 to 12");
+        double latMin = -90, latMax = 90, lngMin = -180, lngMax = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lngBit = true; // Bits alternate, longitude first
+        int bits = 0, value = 0;
+        while (hash.length() < precision) {
+            if (lngBit) {
+                double mid = (lngMin + lngMax) / 2;
+                if (lng >= mid) { value = value << 1 | 1; lngMin = mid; } else { value <<= 1; lngMax = mid; }
+            } else {
+                double mid = (latMin + latMax) / 2;
+                if (lat >= mid) { value = value << 1 | 1; latMin = mid; } else { value <<= 1; latMax = mid; }
+            }
+            lngBit = !lngBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(value));
+                bits = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /** The cell's bounds as {latMin, latMax, lngMin, lngMax}. */
+    @NonNull
+    public static double[] bounds(@NonNull String hash) {
+        double latMin = -90, latMax = 90, lngMin = -180, lngMax = 180;
+        boolean lngBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int value = BASE32.indexOf(hash.charAt(i));
+            if (value < 0) throw new IllegalArgumentException("Not a geohash: " + hash);
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = (value >> bit & 1) == 1;
+                if (lngBit) {
+                    double mid = (lngMin + lngMax) / 2;
+                    if (set) lngMin = mid; else lngMax = mid;
+                } else {
+                    double mid = (latMin + latMax) / 2;
+                    if (set) latMin = mid; else latMax = mid;
+                }
+                lngBit = !lngBit;
+            }
+        }
+        return new double[] { latMin, latMax, lngMin, lngMax };
+    }
+
+    /** Great-circle distance between two points, in meters. */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * The cells to read for everything within {@code radiusMeters} of the point: the point's
+     * cell at the finest precision whose cells are at least that wide and tall, plus those of
+     * its eight neighbours the circle reaches. At most nine, usually four or fewer.
+     */
+    @NonNull
+    public static List<String> cellsWithin(double lat, double lng, double radiusMeters) {
+        if (!(radiusMeters > 0)) throw new IllegalArgumentException("radius must be positive");
+        String center = encode(lat, lng, precisionFor(lat, radiusMeters));
+        double[] box = bounds(center);
+        double latSpan = box[1] - box[0];
+        double lngSpan = box[3] - box[2];
+        double centerLat = (box[0] + box[1]) / 2;
+        double centerLng = (box[2] + box[3]) / 2;
+
+        Set<String> cells = new LinkedHashSet<>();
+        cells.add(center);
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLng = -1; dLng <= 1; dLng++) {
+                double neighbourLat = centerLat + dLat * latSpan;
+                if (neighbourLat < -90 || neighbourLat > 90) continue; // Past a pole
+                double neighbourLng = centerLng + dLng * lngSpan;
+                if (neighbourLng > 180) neighbourLng -= 360; else if (neighbourLng < -180) neighbourLng += 360;
+                String neighbour = encode(neighbourLat, neighbourLng, center.length());
+                if (distanceToCellMeters(lat, lng, bounds(neighbour)) <= radiusMeters) cells.add(neighbour);
+            }
+        }
+        return new ArrayList<>(cells);
+    }
+
+    /** Area of the cell in square meters, approximating the earth as flat across it. */
+    public static double cellAreaSquareMeters(@NonNull String hash) {
+        double[] box = bounds(hash);
+        double midLat = Math.toRadians((box[0] + box[1]) / 2);
+        return (box[1] - box[0]) * METERS_PER_DEGREE * (box[3] - box[2]) * METERS_PER_DEGREE * Math.cos(midLat);
+    }
+
+    /** Finest precision at which a cell around {@code lat} is at least {@code radiusMeters} each way. */
+    private static int precisionFor(double lat, double radiusMeters) {
+        // Longitude degrees shrink towards the poles; size them at the circle's poleward edge
+        double edgeLat = Math.min(90, Math.abs(lat) + radiusMeters / METERS_PER_DEGREE);
+        double lngScale = Math.max(Math.cos(Math.toRadians(edgeLat)), 1e-9);
+        for (int precision = 12; precision > 1; precision--) {
+            int lngBits = (5 * precision + 1) / 2;
+            int latBits = 5 * precision / 2;
+            double latMeters = 180 / Math.pow(2, latBits) * METERS_PER_DEGREE;
+            double lngMeters = 360 / Math.pow(2, lngBits) * METERS_PER_DEGREE * lngScale;
+            if (latMeters >= radiusMeters && lngMeters >= radiusMeters) return precision;
+        }
+        return 1;
+    }
+
+    /** Distance from the point to the nearest point of a cell, 0 inside it. */
+    private static double distanceToCellMeters(double lat, double lng, double[] box) {
+        double nearestLat = Math.max(box[0], Math.min(box[1], lat));
+        double nearestLng = lng;
+        if (lng < box[2] || lng > box[3]) {
+            // The nearer edge, allowing for the antimeridian
+            double toWest = Math.abs(normalizeLng(box[2] - lng));
+            double toEast = Math.abs(normalizeLng(box[3] - lng));
+            nearestLng = toWest < toEast ? box[2] : box[3];
+        }
+        return distanceMeters(lat, lng, nearestLat, nearestLng);
+    }
+
+    private static double normalizeLng(double degrees) {
+        return ((degrees + 540) % 360) - 180;
+    }
+
+    /** The statusFromCell / statusToCell value for a ride with {@code status} at the point, or null without one. */
+    @Nullable
+    public static String indexKey(@NonNull RideStatus status, @Nullable Double lat, @Nullable Double lng) {
+        if (lat == null || lng == null) return null;
+        return String.format(Locale.US, INDEX_FORMAT, status.name(), encode(lat, lng, PRECISION));
+    }
+
+    /** The first index value for rides with {@code status} in {@code cell}. */
+    @NonNull
+    public static String cellStart(@NonNull RideStatus status, @NonNull String cell) {
+        return String.format(Locale.US, INDEX_FORMAT, status.name(), cell);
+    }
+
+    /** The last index value for rides with {@code status} in {@code cell}. */
+    @NonNull
+    public static String cellEnd(@NonNull RideStatus status, @NonNull String cell) {
+        return cellStart(status, cell) + PREFIX_END;
+    }
+}
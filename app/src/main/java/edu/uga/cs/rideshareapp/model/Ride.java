@@ -5,16 +5,25 @@ import com.google.firebase.database.IgnoreExtraProperties;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 @IgnoreExtraProperties
 public class Ride {
     private String dateTime;
+    private long departureAt; // dateTime as epoch millis (DepartureTime.UNKNOWN if it could not be parsed)
     private String driver; // Will be included in map even if null
     private String rider;  // Will be included in map even if null
     private String to;
     private String from;
     private boolean isComplete; // Firebase maps this to 'complete' by default
     private int rideId;
+    private RideStatus status; // Indexed lifecycle state, kept in step by RideService writes
+    private int version; // Bumped by one on every write; database rules reject any other change
+    // Optional coordinates of from and to, in degrees; null when the poster gave none
+    private Double fromLat;
+    private Double fromLng;
+    private Double toLat;
+    private Double toLng;
 
     // Default constructor required for Firebase
     public Ride() {
@@ -33,6 +42,7 @@ public class Ride {
 
     // --- Getters ---
     public String getDateTime() { return dateTime; }
+    public long getDepartureAt() { return departureAt; }
     public String getDriver() { return driver; }
     public String getRider() { return rider; }
     public String getTo() { return to; }
@@ -41,47 +51,154 @@ public class Ride {
     // Note: Firebase uses the key as the ID, so this getter might not reflect the key
     // unless explicitly set after fetching or before saving as a field.
     public int getRideId() { return rideId; }
+    public RideStatus getStatus() { return status; }
+    public int getVersion() { return version; }
+    public Double getFromLat() { return fromLat; }
+    public Double getFromLng() { return fromLng; }
+    public Double getToLat() { return toLat; }
+    public Double getToLng() { return toLng; }
 
     // --- Setters ---
     public void setDateTime(String dateTime) { this.dateTime = dateTime; }
+    public void setDepartureAt(long departureAt) { this.departureAt = departureAt; }
     public void setDriver(String driver) { this.driver = driver; }
     public void setRider(String rider) { this.rider = rider; }
     public void setTo(String to) { this.to = to; }
     public void setFrom(String from) { this.from = from; }
     public void setComplete(boolean complete) { isComplete = complete; }
     public void setRideId(int rideId) { this.rideId = rideId; }
+    public void setStatus(RideStatus status) { this.status = status; }
+    public void setVersion(int version) { this.version = version; }
+    public void setFromLat(Double fromLat) { this.fromLat = fromLat; }
+    public void setFromLng(Double fromLng) { this.fromLng = fromLng; }
+    public void setToLat(Double toLat) { this.toLat = toLat; }
+    public void setToLng(Double toLng) { this.toLng = toLng; }
+
+    /** Sets where the ride leaves from; both null to clear. */
+    @Exclude
+    public void setFromLocation(Double lat, Double lng) {
+        checkLocation(lat, lng);
+        fromLat = lat;
+        fromLng = lng;
+    }
+
+    /** Sets where the ride goes to; both null to clear. */
+    @Exclude
+    public void setToLocation(Double lat, Double lng) {
+        checkLocation(lat, lng);
+        toLat = lat;
+        toLng = lng;
+    }
+
+    private static void checkLocation(Double lat, Double lng) {
+        if ((lat == null) != (lng == null)) throw new IllegalArgumentException("Latitude and longitude go together");
+        if (lat != null && !GeoHash.isValid(lat, lng)) throw new IllegalArgumentException("Invalid coordinates " + lat + ", " + lng);
+    }
+
+    @Exclude
+    public boolean hasFromLocation() { return fromLat != null && fromLng != null; }
+
+    @Exclude
+    public boolean hasToLocation() { return toLat != null && toLng != null; }
+
+    /** Derives the lifecycle status from the current driver, rider and complete fields. */
+    @Exclude
+    public RideStatus deriveStatus() {
+        return RideStatus.derive(driver, rider, isComplete);
+    }
 
     /**
      * Converts the Ride object to a Map suitable for Firebase Realtime Database updates.
      * This ensures that keys for null fields (like driver or rider) are explicitly included.
      * The rideId field is excluded as it's typically the key of the node, not a value within it.
+     * RideCodec.decodeRide reads the same keys back.
      * @return A Map representing the Ride object's data.
      */
     @Exclude // Exclude this method from being treated as a Firebase property
     public Map<String, Object> toMap() {
         HashMap<String, Object> result = new HashMap<>();
         result.put("dateTime", dateTime);
+        result.put("departureAt", departureAt);
         result.put("driver", driver); // Include even if null
         result.put("rider", rider);   // Include even if null
         result.put("to", to);
         result.put("from", from);
         result.put("complete", isComplete); // Use 'complete' key matching Firebase default for boolean getter 'isComplete'
         result.put("rideId", rideId); // Include rideId as a field within the data
+        result.put("status", status != null ? status.name() : null); // Stored as the enum name for equalTo() queries
+        result.put("version", version);
+        result.put("fromLat", fromLat);
+        result.put("fromLng", fromLng);
+        result.put("toLat", toLat);
+        result.put("toLng", toLng);
+        if (status != null) {
+            result.putAll(statusIndexValues(status));
+        } else {
+            result.put("statusDeparture", null);
+            result.put("statusFromCell", null);
+            result.put("statusToCell", null);
+        }
 
         return result;
     }
 
+    /**
+     * The derived index values that combine the status with another field, for a write that
+     * moves the ride to {@code status}: statusDeparture (see DepartureTime) and the statusFromCell
+     * and statusToCell cells (see GeoHash), null where the ride has no location.
+     */
+    @Exclude
+    public Map<String, Object> statusIndexValues(RideStatus status) {
+        HashMap<String, Object> values = new HashMap<>();
+        values.put("statusDeparture", DepartureTime.indexKey(status, departureAt));
+        values.put("statusFromCell", GeoHash.indexKey(status, fromLat, fromLng));
+        values.put("statusToCell", GeoHash.indexKey(status, toLat, toLng));
+        return values;
+    }
+
+
+    // Content equality, so list diffing can tell an edited ride from an unchanged one
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Ride other = (Ride) o;
+        return rideId == other.rideId
+                && isComplete == other.isComplete
+                && departureAt == other.departureAt
+                && Objects.equals(dateTime, other.dateTime)
+                && Objects.equals(driver, other.driver)
+                && Objects.equals(rider, other.rider)
+                && Objects.equals(to, other.to)
+                && Objects.equals(from, other.from)
+                && status == other.status
+                && version == other.version
+                && Objects.equals(fromLat, other.fromLat)
+                && Objects.equals(fromLng, other.fromLng)
+                && Objects.equals(toLat, other.toLat)
+                && Objects.equals(toLng, other.toLng);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rideId, dateTime, departureAt, driver, rider, to, from, isComplete, status, version, fromLat, fromLng, toLat, toLng);
+    }
 
     @Override
     public String toString() {
         return "Ride{" +
                 "rideId=" + rideId +
                 ", dateTime='" + dateTime + '\'' +
+                ", departureAt=" + departureAt +
                 ", driver='" + driver + '\'' +
                 ", rider='" + rider + '\'' +
                 ", from='" + from + '\'' +
                 ", to='" + to + '\'' +
                 ", isComplete=" + isComplete +
+                ", status=" + status +
+                ", version=" + version +
+                (hasFromLocation() ? ", fromLocation=" + fromLat + "," + fromLng : "") +
+                (hasToLocation() ? ", toLocation=" + toLat + "," + toLng : "") +
                 '}';
     }
 }
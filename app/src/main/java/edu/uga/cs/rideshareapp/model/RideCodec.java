@@ -0,0 +1,118 @@
+package edu.uga.cs.rideshareapp.model;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Hand-written decoders for Ride and Points nodes, the read-side counterpart of Ride.toMap().
+ * They read the raw value a snapshot already holds (a Map of children) field by field, so
+ * parsing a list costs one object per ride instead of a reflective class-mapper pass.
+ *
+ * The results match getValue(Ride.class) / getValue(Points.class): missing fields keep the
+ * POJO defaults, unknown fields are ignored (@IgnoreExtraProperties), numbers outside the int
+ * range and values of the wrong type are rejected with an IllegalArgumentException.
+ * Keep the field names here in step with Ride.toMap().
+ */
+public final class RideCodec {
+
+    /** Set on the node a deleted ride leaves behind, so delta reads see the deletion. */
+    public static final String DELETED = "deleted";
+
+    private RideCodec() { }
+
+    /**
+     * Decodes a ride node's raw value. Returns null for a missing node or a deletion tombstone;
+     * rideId is left as stored (see setRideIdFromKey).
+     */
+    @Nullable
+    public static Ride decodeRide(@Nullable Object value) {
+        if (value == null) return null;
+        Map<?, ?> fields = asMap(value, Ride.class);
+        if (Boolean.TRUE.equals(fields.get(DELETED))) return null;
+        Ride ride = new Ride();
+        for (Map.Entry<?, ?> field : fields.entrySet()) {
+            Object fieldValue = field.getValue();
+            if (fieldValue == null) continue; // Leave the default, as the class mapper does
+            switch ((String) field.getKey()) {
+                case "dateTime": ride.setDateTime(asString(fieldValue, "dateTime")); break;
+                case "departureAt": ride.setDepartureAt(asLong(fieldValue, "departureAt")); break;
+                case "driver":   ride.setDriver(asString(fieldValue, "driver")); break;
+                case "rider":    ride.setRider(asString(fieldValue, "rider")); break;
+                case "to":       ride.setTo(asString(fieldValue, "to")); break;
+                case "from":     ride.setFrom(asString(fieldValue, "from")); break;
+                case "complete": ride.setComplete(asBoolean(fieldValue, "complete")); break;
+                case "rideId":   ride.setRideId(asInt(fieldValue, "rideId")); break;
+                case "status":   ride.setStatus(asStatus(fieldValue)); break;
+                case "version":  ride.setVersion(asInt(fieldValue, "version")); break;
+                case "fromLat":  ride.setFromLat(asDouble(fieldValue, "fromLat")); break;
+                case "fromLng":  ride.setFromLng(asDouble(fieldValue, "fromLng")); break;
+                case "toLat":    ride.setToLat(asDouble(fieldValue, "toLat")); break;
+                case "toLng":    ride.setToLng(asDouble(fieldValue, "toLng")); break;
+                default: break; // Extra property
+            }
+        }
+        return ride;
+    }
+
+    /** Decodes a userPoints node's raw value. Returns null for a missing node. */
+    @Nullable
+    public static Points decodePoints(@Nullable Object value) {
+        if (value == null) return null;
+        Map<?, ?> fields = asMap(value, Points.class);
+        Points points = new Points(); // Starts at the same default as the class mapper's instance
+        Object stored = fields.get("points");
+        if (stored != null) points.setPoints(asInt(stored, "points"));
+        return points;
+    }
+
+    // --- Field conversions ---
+
+    private static Map<?, ?> asMap(Object value, Class<?> type) {
+        if (value instanceof Map) return (Map<?, ?>) value;
+        throw new IllegalArgumentException("Can't convert object of type " + value.getClass().getName() + " to type " + type.getName());
+    }
+
+    private static String asString(Object value, String field) {
+        if (value instanceof String) return (String) value;
+        throw mismatch(value, "String", field);
+    }
+
+    private static boolean asBoolean(Object value, String field) {
+        if (value instanceof Boolean) return (Boolean) value;
+        throw mismatch(value, "boolean", field);
+    }
+
+    private static int asInt(Object value, String field) {
+        if (value instanceof Integer) return (Integer) value;
+        if (value instanceof Long || value instanceof Double) {
+            double number = ((Number) value).doubleValue();
+            if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) return ((Number) value).intValue();
+            throw new IllegalArgumentException("Numeric value out of 32-bit integer range for " + field + ": " + value);
+        }
+        throw mismatch(value, "int", field);
+    }
+
+    private static long asLong(Object value, String field) {
+        if (value instanceof Integer || value instanceof Long) return ((Number) value).longValue();
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number >= Long.MIN_VALUE && number <= Long.MAX_VALUE) return (long) number;
+            throw new IllegalArgumentException("Numeric value out of 64-bit integer range for " + field + ": " + value);
+        }
+        throw mismatch(value, "long", field);
+    }
+
+    private static double asDouble(Object value, String field) {
+        if (value instanceof Number) return ((Number) value).doubleValue(); // Whole numbers come back as Long
+        throw mismatch(value, "double", field);
+    }
+
+    private static RideStatus asStatus(Object value) {
+        return RideStatus.valueOf(asString(value, "status")); // Unknown names throw IllegalArgumentException
+    }
+
+    private static IllegalArgumentException mismatch(Object value, String type, String field) {
+        return new IllegalArgumentException("Failed to convert value of type " + value.getClass().getName() + " to " + type + " for " + field);
+    }
+}
@@ -0,0 +1,131 @@
+package edu.uga.cs.rideshareapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered, in-memory copy of a live ride query, built up from child events.
+ * Keys keep the query's order (placed after the previous sibling's key, as child events report
+ * it); a key may hold no ride while its data is loading or when it is filtered out, and such keys
+ * still anchor the position of later ones. Not thread-safe: confine each model to one thread at a
+ * time, as RideService does by only touching a subscription's model from its parse lane.
+ */
+public class RideListModel {
+
+    // Keys form a doubly linked list with a map from key to node, so the child events (insert
+    // after a sibling, move, remove) each cost O(1) however long the list grows
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Node head = new Node(null); // Sentinel: head.next is the first key
+    private final Node tail = new Node(null); // Sentinel: tail.prev is the last key
+
+    public RideListModel() {
+        head.next = tail;
+        tail.prev = head;
+    }
+
+    /** Inserts (or repositions) {@code key} right after {@code previousKey}, or first when that is null. */
+    public void putAfter(@NonNull String key, @Nullable Ride ride, @Nullable String previousKey) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+        linkAfter(node, anchor(previousKey));
+        node.ride = ride;
+    }
+
+    /** Replaces the ride for an existing key without moving it; a null ride hides the row. */
+    public void update(@NonNull String key, @Nullable Ride ride) {
+        Node node = nodes.get(key);
+        if (node != null) node.ride = ride;
+    }
+
+    public void moveAfter(@NonNull String key, @Nullable String previousKey) {
+        Node node = nodes.get(key);
+        if (node == null) return;
+        unlink(node);
+        linkAfter(node, anchor(previousKey));
+    }
+
+    public void remove(@NonNull String key) {
+        Node node = nodes.remove(key);
+        if (node != null) unlink(node);
+    }
+
+    public boolean contains(@NonNull String key) {
+        return nodes.containsKey(key);
+    }
+
+    /** Number of keys, including ones that currently hold no ride. */
+    public int size() {
+        return nodes.size();
+    }
+
+    /** The key at {@code index}; walks from the front, so meant for positions near it (page ends). */
+    @NonNull
+    public String getKey(int index) {
+        if (index < 0 || index >= nodes.size()) throw new IndexOutOfBoundsException("Index " + index + ", size " + nodes.size());
+        Node node = head.next;
+        for (int i = 0; i < index; i++) node = node.next;
+        return node.key;
+    }
+
+    /** Visible rides in query order. */
+    @NonNull
+    public List<Ride> getRides() {
+        return getRides(nodes.size());
+    }
+
+    /** Visible rides among the first {@code keyCount} keys, in query order. */
+    @NonNull
+    public List<Ride> getRides(int keyCount) {
+        int end = Math.min(keyCount, nodes.size());
+        List<Ride> visible = new ArrayList<>(end);
+        Node node = head.next;
+        for (int i = 0; i < end; i++, node = node.next) {
+            if (node.ride != null) visible.add(node.ride);
+        }
+        return Collections.unmodifiableList(visible);
+    }
+
+    /** The node to insert after: the sibling's, or the head for null. */
+    private Node anchor(@Nullable String previousKey) {
+        if (previousKey == null) return head;
+        Node previous = nodes.get(previousKey);
+        // Unknown sibling (or the key itself, unlinked while it moves): append rather than drop
+        return previous != null && previous.prev != null ? previous : tail.prev;
+    }
+
+    private static void linkAfter(Node node, Node previous) {
+        node.prev = previous;
+        node.next = previous.next;
+        previous.next.prev = node;
+        previous.next = node;
+    }
+
+    private static void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node {
+        final String key;
+        Ride ride;
+        Node prev;
+        Node next;
+
+        Node(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package edu.uga.cs.rideshareapp.model;
+
+/**
+ * Lifecycle state of a ride, stored on the ride node as "status" so that
+ * browse queries can use an indexed equalTo() instead of filtering on the client.
+ */
+public enum RideStatus {
+    OPEN_OFFER,   // Driver posted, no rider yet
+    OPEN_REQUEST, // Rider posted, no driver yet
+    ACCEPTED,     // Both driver and rider set, not yet complete
+    COMPLETE;     // Ride confirmed as complete
+
+    /**
+     * Derives the status from the raw ride fields. Empty strings are treated the
+     * same as missing values, matching how the rest of the app checks driver/rider.
+     * @return The derived status, or null if the ride has neither driver nor rider.
+     */
+    public static RideStatus derive(String driver, String rider, boolean complete) {
+        if (complete) return COMPLETE;
+        boolean hasDriver = driver != null && !driver.trim().isEmpty();
+        boolean hasRider = rider != null && !rider.trim().isEmpty();
+        if (hasDriver && hasRider) return ACCEPTED;
+        if (hasDriver) return OPEN_OFFER;
+        if (hasRider) return OPEN_REQUEST;
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package edu.uga.cs.rideshareapp.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Storage backend underneath RideService. Mirrors the slice of the Firebase Realtime Database
+ * API the service actually uses: one-shot and live queries, single-node transactions and
+ * root-level multi-path updates. FirebaseRideStore is the production implementation and
+ * MemoryRideStore (src/sharedTest) runs the same semantics in-process for JVM tests and benchmarks.
+ *
+ * Paths are slash-separated and relative to the database root (e.g. "rides/12").
+ */
+public interface RideStore {
+
+    /** Read-only view of a node; the store-neutral counterpart of DataSnapshot. */
+    interface Snapshot {
+        @Nullable String getKey();
+        boolean exists();
+        /** Raw value: null, String, Long, Double, Boolean or an ordered Map of children. */
+        @Nullable Object getValue();
+        /** Maps the value onto a POJO (or boxed primitive / enum), like DataSnapshot.getValue(Class). */
+        @Nullable <T> T getValue(@NonNull Class<T> type);
+        @NonNull Snapshot child(@NonNull String path);
+        /** Children in query order (key order for plain reads). */
+        @NonNull Iterable<Snapshot> getChildren();
+        long getChildrenCount();
+    }
+
+    /** Mutable view handed to a transaction handler; the counterpart of MutableData. */
+    interface MutableNode {
+        @Nullable Object getValue();
+        @Nullable <T> T getValue(@NonNull Class<T> type);
+        void setValue(@Nullable Object value);
+        @NonNull MutableNode child(@NonNull String path);
+    }
+
+    interface TransactionHandler {
+        /**
+         * Applies the change to {@code current}. Returns true to commit, false to abort.
+         * May run several times (against stale data first) until the write wins.
+         */
+        boolean doTransaction(@NonNull MutableNode current);
+        void onComplete(@Nullable RideStoreException error, boolean committed, @Nullable Snapshot currentData);
+    }
+
+    interface ValueListener {
+        void onDataChange(@NonNull Snapshot snapshot);
+        void onCancelled(@NonNull RideStoreException error);
+    }
+
+    /** Incremental changes to a query's children; the counterpart of ChildEventListener. */
+    interface ChildListener {
+        /** {@code previousChildKey} is the key of the child now ordered right before this one, or null if it is first. */
+        void onChildAdded(@NonNull Snapshot snapshot, @Nullable String previousChildKey);
+        void onChildChanged(@NonNull Snapshot snapshot, @Nullable String previousChildKey);
+        void onChildMoved(@NonNull Snapshot snapshot, @Nullable String previousChildKey);
+        void onChildRemoved(@NonNull Snapshot snapshot);
+        void onCancelled(@NonNull RideStoreException error);
+    }
+
+    interface WriteListener {
+        void onComplete(@Nullable RideStoreException error);
+    }
+
+    /** Handle for a live listener; remove() stops further callbacks. */
+    interface Registration {
+        void remove();
+    }
+
+    /** Reads the query result once. */
+    void get(@NonNull StoreQuery query, @NonNull ValueListener listener);
+
+    /** Delivers the current result and then every change to it until removed. */
+    @NonNull Registration addValueListener(@NonNull StoreQuery query, @NonNull ValueListener listener);
+
+    /**
+     * Reports every current child as added, then streams adds, changes, moves and removals.
+     * Child events for a change are delivered before any value listener on the same query sees it.
+     */
+    @NonNull Registration addChildListener(@NonNull StoreQuery query, @NonNull ChildListener listener);
+
+    /** Runs an optimistic compare-and-set transaction on a single node. */
+    void runTransaction(@NonNull String path, @NonNull TransactionHandler handler);
+
+    /**
+     * Writes every path-to-value pair atomically; a null value deletes the path.
+     * Either all writes are applied or, if any fails validation, none are.
+     */
+    void updateChildren(@NonNull Map<String, Object> updates, @NonNull WriteListener listener);
+
+    /** Server-side atomic increment sentinel for use as a value in updateChildren. */
+    @NonNull Object increment(long delta);
+
+    /**
+     * Sentinel for the server's clock in epoch millis, filled in when the write lands. Usable in
+     * updateChildren and in a transaction's setValue (where it is the client's estimate of server time).
+     */
+    @NonNull Object serverTimestamp();
+
+    /** The client's current estimate of the server's clock in epoch millis (what serverTimestamp() resolves to in a transaction). */
+    long serverTimeMillis();
+}
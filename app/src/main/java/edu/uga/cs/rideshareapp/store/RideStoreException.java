@@ -0,0 +1,36 @@
+package edu.uga.cs.rideshareapp.store;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Error reported by a RideStore. The code lets callers react to the cases the service
+ * cares about (a rules rejection, a transaction that kept losing) without depending
+ * on a particular backend's error type.
+ */
+public class RideStoreException extends Exception {
+
+    public static final int UNKNOWN = 0;
+    public static final int PERMISSION_DENIED = 1; // Rejected by security/validation rules
+    public static final int MAX_RETRIES = 2;       // Transaction lost the race too many times
+    public static final int CANCELLED = 3;         // Listener or query cancelled by the backend
+
+    private final int code;
+
+    public RideStoreException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public RideStoreException(int code, String message, @Nullable Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isPermissionDenied() {
+        return code == PERMISSION_DENIED;
+    }
+}
@@ -0,0 +1,125 @@
+package edu.uga.cs.rideshareapp.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Store-neutral description of a read: a path plus the same ordering, range and limit
+ * operators the Firebase Query API offers. Immutable; each operator returns a new query,
+ * so a base query can be shared and refined like a Firebase Query.
+ */
+public final class StoreQuery {
+
+    public enum OrderBy { KEY, VALUE, CHILD }
+
+    private final String path;
+    private final OrderBy orderBy;
+    @Nullable private final String orderByChild;
+    private final boolean hasStart;
+    @Nullable private final Object startValue;
+    @Nullable private final String startKey;
+    private final boolean hasEnd;
+    @Nullable private final Object endValue;
+    @Nullable private final String endKey;
+    private final int limitToFirst; // 0 = no limit
+    private final int limitToLast;  // 0 = no limit
+
+    private StoreQuery(String path, OrderBy orderBy, @Nullable String orderByChild,
+                       boolean hasStart, @Nullable Object startValue, @Nullable String startKey,
+                       boolean hasEnd, @Nullable Object endValue, @Nullable String endKey,
+                       int limitToFirst, int limitToLast) {
+        this.path = path;
+        this.orderBy = orderBy;
+        this.orderByChild = orderByChild;
+        this.hasStart = hasStart;
+        this.startValue = startValue;
+        this.startKey = startKey;
+        this.hasEnd = hasEnd;
+        this.endValue = endValue;
+        this.endKey = endKey;
+        this.limitToFirst = limitToFirst;
+        this.limitToLast = limitToLast;
+    }
+
+    /** A plain read of everything at {@code path}, children in key order. */
+    public static StoreQuery at(@NonNull String path) {
+        return new StoreQuery(path, OrderBy.KEY, null, false, null, null, false, null, null, 0, 0);
+    }
+
+    // --- Ordering ---
+
+    public StoreQuery orderByChild(@NonNull String child) {
+        return new StoreQuery(path, OrderBy.CHILD, child, hasStart, startValue, startKey, hasEnd, endValue, endKey, limitToFirst, limitToLast);
+    }
+
+    public StoreQuery orderByValue() {
+        return new StoreQuery(path, OrderBy.VALUE, null, hasStart, startValue, startKey, hasEnd, endValue, endKey, limitToFirst, limitToLast);
+    }
+
+    public StoreQuery orderByKey() {
+        return new StoreQuery(path, OrderBy.KEY, null, hasStart, startValue, startKey, hasEnd, endValue, endKey, limitToFirst, limitToLast);
+    }
+
+    // --- Ranges (values may be null, String, Number or Boolean, as in Firebase) ---
+
+    public StoreQuery startAt(@Nullable Object value) {
+        return startAt(value, null);
+    }
+
+    public StoreQuery startAt(@Nullable Object value, @Nullable String key) {
+        return new StoreQuery(path, orderBy, orderByChild, true, value, key, hasEnd, endValue, endKey, limitToFirst, limitToLast);
+    }
+
+    public StoreQuery endAt(@Nullable Object value) {
+        return endAt(value, null);
+    }
+
+    public StoreQuery endAt(@Nullable Object value, @Nullable String key) {
+        return new StoreQuery(path, orderBy, orderByChild, hasStart, startValue, startKey, true, value, key, limitToFirst, limitToLast);
+    }
+
+    public StoreQuery equalTo(@Nullable Object value) {
+        return startAt(value).endAt(value);
+    }
+
+    // --- Limits ---
+
+    public StoreQuery limitToFirst(int limit) {
+        return new StoreQuery(path, orderBy, orderByChild, hasStart, startValue, startKey, hasEnd, endValue, endKey, limit, 0);
+    }
+
+    public StoreQuery limitToLast(int limit) {
+        return new StoreQuery(path, orderBy, orderByChild, hasStart, startValue, startKey, hasEnd, endValue, endKey, 0, limit);
+    }
+
+    // --- Getters ---
+
+    public String getPath() { return path; }
+    public OrderBy getOrderBy() { return orderBy; }
+    @Nullable public String getOrderByChild() { return orderByChild; }
+    public boolean hasStart() { return hasStart; }
+    @Nullable public Object getStartValue() { return startValue; }
+    @Nullable public String getStartKey() { return startKey; }
+    public boolean hasEnd() { return hasEnd; }
+    @Nullable public Object getEndValue() { return endValue; }
+    @Nullable public String getEndKey() { return endKey; }
+    public int getLimitToFirst() { return limitToFirst; }
+    public int getLimitToLast() { return limitToLast; }
+
+    /** True when this is a plain read of a location with no ordering, range or limit. */
+    public boolean isPlainRead() {
+        return orderBy == OrderBy.KEY && !hasStart && !hasEnd && limitToFirst == 0 && limitToLast == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreQuery{" +
+                "path='" + path + '\'' +
+                ", orderBy=" + orderBy + (orderByChild != null ? "(" + orderByChild + ")" : "") +
+                (hasStart ? ", startAt=" + startValue + (startKey != null ? "/" + startKey : "") : "") +
+                (hasEnd ? ", endAt=" + endValue + (endKey != null ? "/" + endKey : "") : "") +
+                (limitToFirst > 0 ? ", limitToFirst=" + limitToFirst : "") +
+                (limitToLast > 0 ? ", limitToLast=" + limitToLast : "") +
+                '}';
+    }
+}
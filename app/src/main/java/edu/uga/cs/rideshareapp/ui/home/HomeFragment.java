@@ -18,6 +18,8 @@ import com.google.firebase.auth.FirebaseUser;
 
 import edu.uga.cs.rideshareapp.MainActivity;
 import edu.uga.cs.rideshareapp.R;
+import edu.uga.cs.rideshareapp.firebase.RideDiskCache;
+import edu.uga.cs.rideshareapp.firebase.RideMirror;
 
 public class HomeFragment extends Fragment {
 
@@ -47,6 +49,8 @@ public class HomeFragment extends Fragment {
 
         logoutButton.setOnClickListener(v -> {
             FirebaseAuth.getInstance().signOut();
+            RideDiskCache.getInstance(requireContext()).clear(); // The stored lists are this user's
+            RideMirror.getInstance(requireContext()).clear();    // So is the mirrored pool (it leaves out their rides)
             startActivity(new Intent(getActivity(), MainActivity.class));
             requireActivity().finish();
         });
@@ -10,29 +10,23 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.database.DatabaseError;
-
-import java.util.ArrayList;
-import java.util.List;
-
 import edu.uga.cs.rideshareapp.PostRideActivity;
 import edu.uga.cs.rideshareapp.R;
 import edu.uga.cs.rideshareapp.adapter.RideManageAdapter;
+import edu.uga.cs.rideshareapp.adapter.SectionHeaderAdapter;
 import edu.uga.cs.rideshareapp.firebase.RideService;
 import edu.uga.cs.rideshareapp.model.Ride;
 
 public class MyRidesFragment extends Fragment {
 
-    private RecyclerView pendingOffersRecycler, pendingRequestsRecycler, acceptedRidesRecycler;
-
-    private final List<Ride> pendingOffersList = new ArrayList<>();
-    private final List<Ride> pendingRequestsList = new ArrayList<>();
-    private final List<Ride> acceptedRidesList = new ArrayList<>();
+    private RecyclerView myRidesList;
 
-    private final RideService rideService = new RideService();
+    private final RideService rideService = RideService.getInstance();
 
     private RideManageAdapter offerAdapter;
     private RideManageAdapter requestAdapter;
@@ -46,17 +40,13 @@ public class MyRidesFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_notifications, container, false);
 
         // Find views
-        pendingOffersRecycler = view.findViewById(R.id.pendingOffersRecycler);
-        pendingRequestsRecycler = view.findViewById(R.id.pendingRequestsRecycler);
-        acceptedRidesRecycler = view.findViewById(R.id.acceptedRidesRecycler);
+        myRidesList = view.findViewById(R.id.myRidesList);
 
-        // Set layout managers
-        pendingOffersRecycler.setLayoutManager(new LinearLayoutManager(getContext()));
-        pendingRequestsRecycler.setLayoutManager(new LinearLayoutManager(getContext()));
-        acceptedRidesRecycler.setLayoutManager(new LinearLayoutManager(getContext()));
+        // Set layout manager
+        myRidesList.setLayoutManager(new LinearLayoutManager(getContext()));
 
         // Set up offer adapter with delete support
-        offerAdapter = new RideManageAdapter(pendingOffersList, new RideManageAdapter.OnRideActionListener() {
+        offerAdapter = new RideManageAdapter(new RideManageAdapter.OnRideActionListener() {
             @Override
             public void onEdit(Ride ride) {
                 Intent intent = new Intent(getContext(), PostRideActivity.class);
@@ -71,29 +61,7 @@ public class MyRidesFragment extends Fragment {
 
             @Override
             public void onDelete(Ride ride) {
-                rideService.deleteRide(ride.getRideId(), new RideService.CompletionListener() {
-                    @Override
-                    public void onSuccess() {
-                        rideService.deleteRide(ride.getRideId(), new RideService.CompletionListener() {
-                            @Override
-                            public void onSuccess() {
-                                Toast.makeText(requireContext(), "Ride deleted", Toast.LENGTH_SHORT).show();
-                                pendingOffersList.remove(ride);
-                                offerAdapter.notifyDataSetChanged();
-                            }
-
-                            @Override
-                            public void onFailure(Exception e) {
-                                Toast.makeText(requireContext(), "Ride deleted", Toast.LENGTH_SHORT).show();
-                            }
-                        });
-
-                    }
-                    @Override
-                    public void onFailure(Exception e) {
-                        Toast.makeText(requireContext(), "Failed to delete ride", Toast.LENGTH_SHORT).show();
-                    }
-                });
+                deleteRide(ride);
             }
 
             @Override
@@ -105,7 +73,7 @@ public class MyRidesFragment extends Fragment {
         }, false);
 
         // Set up request adapter with delete support
-        requestAdapter = new RideManageAdapter(pendingRequestsList, new RideManageAdapter.OnRideActionListener() {
+        requestAdapter = new RideManageAdapter(new RideManageAdapter.OnRideActionListener() {
             @Override
             public void onEdit(Ride ride) {
                 Intent intent = new Intent(getContext(), PostRideActivity.class);
@@ -121,27 +89,7 @@ public class MyRidesFragment extends Fragment {
 
             @Override
             public void onDelete(Ride ride) {
-                rideService.deleteRide(ride.getRideId(), new RideService.CompletionListener() {
-                    @Override
-                    public void onSuccess() {
-                        rideService.deleteRide(ride.getRideId(), new RideService.CompletionListener() {
-                            @Override
-                            public void onSuccess() {
-                                Toast.makeText(requireContext(), "Ride deleted", Toast.LENGTH_SHORT).show();
-                                pendingOffersList.remove(ride);
-                                offerAdapter.notifyDataSetChanged();
-                            }
-                            @Override
-                            public void onFailure(Exception e) {
-                                Toast.makeText(requireContext(), "Ride deleted", Toast.LENGTH_SHORT).show();
-                            }
-                        });
-                    }
-                    @Override
-                    public void onFailure(Exception e) {
-                        Toast.makeText(requireContext(), "Failed to delete ride", Toast.LENGTH_SHORT).show();
-                    }
-                });
+                deleteRide(ride);
             }
 
             @Override
@@ -151,7 +99,7 @@ public class MyRidesFragment extends Fragment {
         }, false);
 
         // Accepted rides adapter — read-only
-        acceptedAdapter = new RideManageAdapter(acceptedRidesList, new RideManageAdapter.OnRideActionListener() {
+        acceptedAdapter = new RideManageAdapter(new RideManageAdapter.OnRideActionListener() {
             @Override
             public void onEdit(Ride ride) {
 
@@ -167,8 +115,6 @@ public class MyRidesFragment extends Fragment {
                 rideService.completeRide(ride.getRideId(), new RideService.CompletionListener() {
                     @Override
                     public void onSuccess() {
-                        acceptedRidesList.remove(ride);
-                        acceptedAdapter.notifyDataSetChanged();
                         Toast.makeText(requireContext(), "Confirmed Ride", Toast.LENGTH_SHORT).show();
                     }
 
@@ -180,61 +126,35 @@ public class MyRidesFragment extends Fragment {
             }
         }, true);
 
-        // Attach adapters to views
-        pendingOffersRecycler.setAdapter(offerAdapter);
-        pendingRequestsRecycler.setAdapter(requestAdapter);
-        acceptedRidesRecycler.setAdapter(acceptedAdapter);
+        // Attach adapters as sections of one list, so only visible rows are inflated
+        myRidesList.setAdapter(new ConcatAdapter(
+                new SectionHeaderAdapter("Pending Offers"), offerAdapter,
+                new SectionHeaderAdapter("Pending Requests"), requestAdapter,
+                new SectionHeaderAdapter("Accepted Rides"), acceptedAdapter));
 
         // Load rides
-        fetchMyRides();
+        observeMyRides();
 
         return view;
     }
 
-    private void fetchMyRides() {
-        // Load pending offers
-        rideService.getAllRideOffers(false, new RideService.RideListListener() {
-            @Override
-            public void onRidesFetched(List<Ride> rides) {
-                pendingOffersList.clear();
-                pendingOffersList.addAll(rides);
-                offerAdapter.notifyDataSetChanged();
-            }
-
-            @Override
-            public void onError(DatabaseError e) {
-                Toast.makeText(requireContext(), "Error loading offers", Toast.LENGTH_SHORT).show();
-            }
+    /** Attaches to the activity's MyRidesViewModel, which keeps the lists live across rotations and tab switches. */
+    private void observeMyRides() {
+        MyRidesViewModel viewModel = new ViewModelProvider(requireActivity()).get(MyRidesViewModel.class);
+        viewModel.getRides().observe(getViewLifecycleOwner(), rides -> {
+            offerAdapter.submitList(rides.offers);       // Pending offers
+            requestAdapter.submitList(rides.requests);   // Pending requests
+            acceptedAdapter.submitList(rides.accepted);  // Accepted rides
         });
-
-        // Load pending requests
-        rideService.getAllRideRequests(false, new RideService.RideListListener() {
-            @Override
-            public void onRidesFetched(List<Ride> rides) {
-                pendingRequestsList.clear();
-                pendingRequestsList.addAll(rides);
-                requestAdapter.notifyDataSetChanged();
-            }
-
-            @Override
-            public void onError(DatabaseError e) {
-                Toast.makeText(requireContext(), "Error loading requests", Toast.LENGTH_SHORT).show();
-            }
+        viewModel.getError().observe(getViewLifecycleOwner(), message -> {
+            if (message == null) return;
+            Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+            viewModel.errorShown();
         });
+    }
 
-        // Load accepted rides
-        rideService.getAllAcceptedRides(new RideService.RideListListener() {
-            @Override
-            public void onRidesFetched(List<Ride> rides) {
-                acceptedRidesList.clear();
-                acceptedRidesList.addAll(rides);
-                acceptedAdapter.notifyDataSetChanged();
-            }
-
-            @Override
-            public void onError(DatabaseError e) {
-                Toast.makeText(requireContext(), "Error loading accepted rides", Toast.LENGTH_SHORT).show();
-            }
-        });
+    private void deleteRide(Ride ride) {
+        rideService.deleteRideAsync(ride.getRideId()).whenComplete((ignored, error) ->
+                Toast.makeText(requireContext(), error == null ? "Ride deleted" : "Failed to delete ride", Toast.LENGTH_SHORT).show());
     }
 }
@@ -0,0 +1,144 @@
+package edu.uga.cs.rideshareapp.ui.myrides;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uga.cs.rideshareapp.firebase.RideDiskCache;
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * The user's own offers, requests and accepted rides as live lists. Scoped to the activity like
+ * RidesViewModel, so rotating or switching tabs re-attaches to the same subscriptions. The three
+ * lists are published together, first once all of them have loaded, then on every change.
+ * Each list is also kept in the RideDiskCache; a new process shows the stored copies until the
+ * live lists are in.
+ */
+public class MyRidesViewModel extends AndroidViewModel {
+
+    private static final String TAG = "MyRidesViewModel";
+
+    /** One consistent view of the three sections. */
+    public static final class MyRides {
+        public final List<Ride> offers;
+        public final List<Ride> requests;
+        public final List<Ride> accepted;
+
+        MyRides(List<Ride> offers, List<Ride> requests, List<Ride> accepted) {
+            this.offers = offers;
+            this.requests = requests;
+            this.accepted = accepted;
+        }
+    }
+
+    private final MutableLiveData<MyRides> rides = new MutableLiveData<>();
+    private final MutableLiveData<String> error = new MutableLiveData<>();
+    private final List<RideStore.Registration> subscriptions = new ArrayList<>();
+    private final RideDiskCache diskCache;
+
+    private final Section offers;
+    private final Section requests;
+    private final Section accepted;
+
+    public MyRidesViewModel(@NonNull Application application) {
+        super(application);
+        RideService rideService = RideService.getInstance();
+        diskCache = RideDiskCache.getInstance(application);
+        String user = rideService.getCurrentUserEmail();
+        offers = new Section("Error loading offers", user != null ? RideDiskCache.key("myOffers", user) : null);
+        requests = new Section("Error loading requests", user != null ? RideDiskCache.key("myRequests", user) : null);
+        accepted = new Section("Error loading accepted rides", user != null ? RideDiskCache.key("myAccepted", user) : null);
+        paintFromDisk();
+
+        addSubscription(rideService.subscribeRideOffers(false, offers));     // Pending offers
+        addSubscription(rideService.subscribeRideRequests(false, requests)); // Pending requests
+        addSubscription(rideService.subscribeAcceptedRides(accepted));       // Accepted rides
+    }
+
+    public LiveData<MyRides> getRides() {
+        return rides;
+    }
+
+    /** The last load error not yet shown, or null. Call errorShown() once it is on screen. */
+    public LiveData<String> getError() {
+        return error;
+    }
+
+    public void errorShown() {
+        error.setValue(null);
+    }
+
+    @Override
+    protected void onCleared() {
+        for (RideStore.Registration subscription : subscriptions) subscription.remove();
+        subscriptions.clear();
+    }
+
+    /** One section's live list; callbacks arrive on the main thread. */
+    private final class Section implements RideService.RideListListener {
+        private final String errorMessage;
+        @Nullable final String diskKey; // Null when signed out
+        @Nullable List<Ride> latest; // Null until the first list or error
+        @Nullable List<Ride> stored; // Read from disk, or last written there
+
+        Section(String errorMessage, @Nullable String diskKey) {
+            this.errorMessage = errorMessage;
+            this.diskKey = diskKey;
+        }
+
+        @Override
+        public void onRidesFetched(List<Ride> list) {
+            latest = list;
+            publish();
+            if (diskKey == null || list.equals(stored)) return;
+            stored = new ArrayList<>(list);
+            diskCache.write(diskKey, stored);
+        }
+
+        @Override
+        public void onError(DatabaseError e) {
+            Log.e(TAG, errorMessage + ": " + e.getMessage());
+            error.setValue(errorMessage);
+            if (latest == null) latest = Collections.emptyList(); // Don't hold back the other sections
+            publish();
+        }
+    }
+
+    /**
+     * Reads the three stored lists (in order, on the cache's one thread) and shows them together,
+     * unless the live lists were published first or a list was never stored.
+     */
+    private void paintFromDisk() {
+        if (offers.diskKey == null) return;
+        diskCache.read(offers.diskKey, cached -> offers.stored = cached);
+        diskCache.read(requests.diskKey, cached -> requests.stored = cached);
+        diskCache.read(accepted.diskKey, cached -> {
+            accepted.stored = cached;
+            if (rides.getValue() != null || offers.stored == null || requests.stored == null || accepted.stored == null) return;
+            Log.d(TAG, "Painting stored lists");
+            rides.setValue(new MyRides(offers.stored, requests.stored, accepted.stored));
+        });
+    }
+
+    private void publish() {
+        if (offers.latest == null || requests.latest == null || accepted.latest == null) return; // Render all three at once
+        rides.setValue(new MyRides(offers.latest, requests.latest, accepted.latest));
+    }
+
+    private void addSubscription(@Nullable RideStore.Registration subscription) {
+        if (subscription != null) subscriptions.add(subscription);
+    }
+}
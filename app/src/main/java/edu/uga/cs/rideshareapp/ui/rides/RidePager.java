@@ -0,0 +1,163 @@
+package edu.uga.cs.rideshareapp.ui.rides;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * Joins live ride pages into one list for an infinite-scroll feed. Call loadNextPage when the
+ * user nears the end of the list; it does nothing while a page is still loading or once the last
+ * page is in. Every page stays subscribed until clear(), and the joined list is republished
+ * whenever any of them changes.
+ *
+ * Each page after the first starts at the cursor its predecessor reports. That cursor moves when
+ * rides are added to or leave an earlier page, so whenever a page reports a new one, the page
+ * after it is subscribed again from there (and so on down the chain); otherwise a ride pushed
+ * over a page boundary would fall between the two pages. Use it from the main thread.
+ */
+public class RidePager {
+
+    /** Opens one live page, e.g. RideService::subscribeRideOffersPage. */
+    public interface PageSource {
+        @Nullable
+        RideStore.Registration subscribe(@Nullable String cursor, int pageSize, @NonNull RideService.RidePageListener listener);
+    }
+
+    public interface Listener {
+        void onRidesChanged(List<Ride> rides);
+        void onError(DatabaseError databaseError);
+    }
+
+    private static final class Page {
+        @Nullable final String cursor; // Where this page starts; null for the first page
+        @Nullable RideStore.Registration registration;
+        List<Ride> rides = Collections.emptyList();
+        @Nullable String nextCursor;
+        boolean loaded;
+
+        Page(@Nullable String cursor) {
+            this.cursor = cursor;
+        }
+    }
+
+    private final PageSource source;
+    private final int pageSize;
+    private final Listener listener;
+    private final List<Page> pages = new ArrayList<>();
+
+    public RidePager(@NonNull PageSource source, int pageSize, @NonNull Listener listener) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    /** Subscribes to the page after the last loaded one, or the first page if none is loaded. */
+    public void loadNextPage() {
+        String cursor = null;
+        if (!pages.isEmpty()) {
+            Page last = pages.get(pages.size() - 1);
+            if (!last.loaded || last.nextCursor == null) return; // In flight, or no more rides
+            cursor = last.nextCursor;
+        }
+        subscribe(pages.size(), cursor);
+    }
+
+    /** Subscribes a page starting at {@code cursor} as page {@code index}, appending or replacing it. */
+    private void subscribe(int index, @Nullable String cursor) {
+        final Page page = new Page(cursor);
+        if (index < pages.size()) {
+            Page replaced = pages.get(index);
+            if (replaced.registration != null) replaced.registration.remove();
+            page.rides = replaced.rides; // Still shown until the page reloads
+            pages.set(index, page);
+        } else {
+            pages.add(page);
+        }
+        RideStore.Registration registration = source.subscribe(cursor, pageSize, new RideService.RidePageListener() {
+            @Override
+            public void onPageFetched(List<Ride> rides, @Nullable String nextCursor) {
+                if (!pages.contains(page)) return; // Cleared or replaced meanwhile
+                boolean firstLoad = !page.loaded;
+                boolean cursorMoved = page.loaded && !Objects.equals(nextCursor, page.nextCursor);
+                page.rides = rides;
+                page.nextCursor = nextCursor;
+                page.loaded = true;
+                if (firstLoad || cursorMoved) reanchorAfter(page);
+                publish();
+                // A page whose rides were all filtered out gives the user nothing to scroll to
+                if (firstLoad && rides.isEmpty()) loadNextPage();
+            }
+
+            @Override
+            public void onError(DatabaseError databaseError) {
+                listener.onError(databaseError);
+            }
+        });
+        if (registration == null) {
+            dropFrom(pages.indexOf(page)); // Not subscribed (e.g. signed out); a later call may retry
+            return;
+        }
+        page.registration = registration;
+    }
+
+    /**
+     * Makes the page after {@code page} start at its current next cursor: subscribed again from
+     * there if it started elsewhere, or dropped, with the rest, once there is no next cursor.
+     */
+    private void reanchorAfter(@NonNull Page page) {
+        int next = pages.indexOf(page) + 1;
+        if (next == 0 || next >= pages.size()) return;
+        if (page.nextCursor == null) {
+            dropFrom(next);
+        } else if (!page.nextCursor.equals(pages.get(next).cursor)) {
+            subscribe(next, page.nextCursor); // Its own first load re-anchors the page after it
+        }
+    }
+
+    /** Unsubscribes and removes the pages from {@code index} on. */
+    private void dropFrom(int index) {
+        if (index < 0) return;
+        while (pages.size() > index) {
+            Page dropped = pages.remove(pages.size() - 1);
+            if (dropped.registration != null) dropped.registration.remove();
+        }
+    }
+    /** True until the last page has loaded and reported no further cursor. */
+    public boolean hasMore() {
+        if (pages.isEmpty()) return true;
+        Page last = pages.get(pages.size() - 1);
+        return !last.loaded || last.nextCursor != null;
+    }
+
+    public boolean isLoading() {
+        return !pages.isEmpty() && !pages.get(pages.size() - 1).loaded;
+    }
+
+    /** Removes every page subscription. The pager can be reused from the first page afterwards. */
+    public void clear() {
+        dropFrom(0);
+    }
+
+    private void publish() {
+        List<Ride> joined = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (Page page : pages) {
+            for (Ride ride : page.rides) {
+                if (seen.add(ride.getRideId())) joined.add(ride); // Sliding windows can overlap
+            }
+        }
+        listener.onRidesChanged(Collections.unmodifiableList(joined));
+    }
+}
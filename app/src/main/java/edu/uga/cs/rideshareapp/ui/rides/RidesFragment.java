@@ -1,58 +1,62 @@
 package edu.uga.cs.rideshareapp.ui.rides;
 
-import static android.content.ContentValues.TAG;
-
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.firebase.database.DatabaseError;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import edu.uga.cs.rideshareapp.PostRideActivity;
 import edu.uga.cs.rideshareapp.R;
 import edu.uga.cs.rideshareapp.adapter.RideBrowseAdapter;
+import edu.uga.cs.rideshareapp.adapter.SectionHeaderAdapter;
+import edu.uga.cs.rideshareapp.firebase.RideAlreadyTakenException;
 import edu.uga.cs.rideshareapp.firebase.RideService;
 import edu.uga.cs.rideshareapp.model.Ride;
 
 public class RidesFragment extends Fragment {
 
+    private static final String TAG = "RidesFragment";
+
     FloatingActionButton postRideButton;
-    RecyclerView rideOffers;
-    RecyclerView rideRequests;
+    RecyclerView rideList;
+
+    RideService rideService = RideService.getInstance();
 
-    List<Ride> rideOffersList = new ArrayList<>();
-    List<Ride> rideRequestsList = new ArrayList<>();
+    // Rows from the end of a section at which its next page is requested
+    private static final int PREFETCH_DISTANCE = 5;
 
-    RideService rideService = new RideService();
+    private boolean firstRowsReported;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_dashboard, container, false);
 
-        rideOffers = view.findViewById(R.id.rideOffers);
-        rideRequests = view.findViewById(R.id.rideRequests);
+        rideList = view.findViewById(R.id.rideList);
         postRideButton = view.findViewById(R.id.postRideButton);
 
-        rideOffers.setLayoutManager(new LinearLayoutManager(getContext()));
-        rideRequests.setLayoutManager(new LinearLayoutManager(getContext()));
+        rideList.setLayoutManager(new LinearLayoutManager(getContext()));
 
         // Initialize adapters with click handlers
-        RideBrowseAdapter offerAdapter = new RideBrowseAdapter(rideOffersList, ride -> {
+        RideBrowseAdapter offerAdapter = new RideBrowseAdapter(ride -> {
             rideService.acceptRide(ride.getRideId(), new RideService.CompletionListener() {
                 @Override
                 public void onSuccess() {
@@ -63,12 +67,16 @@ public class RidesFragment extends Fragment {
 
                 @Override
                 public void onFailure(Exception e) {
+                    if (e instanceof RideAlreadyTakenException) {
+                        Toast.makeText(requireContext(), "Someone else already accepted this ride", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
                     Toast.makeText(requireContext(), "Error accepting ride", Toast.LENGTH_SHORT).show();
                 }
             });
         });
 
-        RideBrowseAdapter requestAdapter = new RideBrowseAdapter(rideRequestsList, ride -> {
+        RideBrowseAdapter requestAdapter = new RideBrowseAdapter(ride -> {
             rideService.acceptRide(ride.getRideId(), new RideService.CompletionListener() {
                 @Override
                 public void onSuccess() {
@@ -80,44 +88,29 @@ public class RidesFragment extends Fragment {
 
                 @Override
                 public void onFailure(Exception e) {
+                    if (e instanceof RideAlreadyTakenException) {
+                        Toast.makeText(requireContext(), "Someone else already accepted this ride", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
                     Toast.makeText(requireContext(), "Error accepting ride", Toast.LENGTH_SHORT).show();
                 }
             });
         });
 
-        rideOffers.setAdapter(offerAdapter);
-        rideRequests.setAdapter(requestAdapter);
-
-        // Fetch data and update lists
-        rideService.getAllRideOffers(true, new RideService.RideListListener() {
-            @Override
-            public void onRidesFetched(List<Ride> rides) {
-                Log.d(TAG, "Received " + rides.size() + " ride offers");
-                rideOffersList.clear();
-                rideOffersList.addAll(rides);
-                offerAdapter.notifyDataSetChanged();
-            }
-
-            @Override
-            public void onError(DatabaseError e) {
-                Log.e(TAG, "Failed to get ride offers: " + e.getMessage());
-            }
-        });
+        // One list, one section per adapter; only the rows on screen are inflated
+        rideList.setAdapter(new ConcatAdapter(
+                new SectionHeaderAdapter("Ride Offers"), offerAdapter,
+                new SectionHeaderAdapter("Ride Requests"), requestAdapter));
 
-        rideService.getAllRideRequests(true, new RideService.RideListListener() {
-            @Override
-            public void onRidesFetched(List<Ride> rides) {
-                Log.d(TAG, "Received " + rides.size() + " ride requests");
-                rideRequestsList.clear();
-                rideRequestsList.addAll(rides);
-                requestAdapter.notifyDataSetChanged();
-            }
+        // The paged lists live in the activity's RidesViewModel, so coming back to this tab
+        // re-attaches to them instead of querying again
+        RidesViewModel viewModel = new ViewModelProvider(requireActivity()).get(RidesViewModel.class);
+        viewModel.getOffers().observe(getViewLifecycleOwner(), rides -> offerAdapter.submitList(rides, () -> reportFirstRowsDrawn(rides)));
+        viewModel.getRequests().observe(getViewLifecycleOwner(), rides -> requestAdapter.submitList(rides, () -> reportFirstRowsDrawn(rides)));
 
-            @Override
-            public void onError(DatabaseError e) {
-                Log.e(TAG, "Failed to get ride requests: " + e.getMessage());
-            }
-        });
+        // Each section asks for its next page as its last rows are bound
+        offerAdapter.setOnNearEndListener(PREFETCH_DISTANCE, viewModel::loadMoreOffers);
+        requestAdapter.setOnNearEndListener(PREFETCH_DISTANCE, viewModel::loadMoreRequests);
 
         // Post button click
         postRideButton.setOnClickListener(v -> {
@@ -127,4 +120,26 @@ public class RidesFragment extends Fragment {
 
         return view;
     }
+
+    /**
+     * Tells the activity it is fully drawn once the first rides are on screen, whether they came
+     * from the disk cache or the network. Startup measurements end there: "Fully drawn" in
+     * logcat, and timeToFullDisplay in the macrobenchmark module's StartupBenchmark.
+     */
+    private void reportFirstRowsDrawn(List<Ride> rides) {
+        if (firstRowsReported || rides.isEmpty() || getView() == null) return;
+        firstRowsReported = true;
+        rideList.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                rideList.getViewTreeObserver().removeOnPreDrawListener(this);
+                rideList.post(() -> { // Runs after this frame has been drawn
+                    if (getActivity() == null) return;
+                    Log.i(TAG, "First rides drawn " + (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) + " ms after process start");
+                    getActivity().reportFullyDrawn();
+                });
+                return true;
+            }
+        });
+    }
 }
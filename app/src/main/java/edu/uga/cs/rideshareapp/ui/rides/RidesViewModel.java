@@ -0,0 +1,160 @@
+package edu.uga.cs.rideshareapp.ui.rides;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uga.cs.rideshareapp.firebase.RideDiskCache;
+import edu.uga.cs.rideshareapp.firebase.RideMirror;
+import edu.uga.cs.rideshareapp.firebase.RideSearch;
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.RideStore;
+
+/**
+ * The open offers and requests, paged and live. Scoped to the activity, so the pages stay
+ * subscribed across rotations and bottom-navigation round trips: a re-created RidesFragment just
+ * observes the lists again. The subscriptions end when the activity finishes.
+ *
+ * Each section's first page is also kept in the RideDiskCache. A new process paints that copy
+ * (minus rides that have left since) while the first query is out, and the live page replaces
+ * it as soon as it arrives.
+ *
+ * The first search() starts the RideMirror following the open rides leaving within
+ * SEARCH_HORIZON_MS, and it keeps following them while the model lives, so later searches filter
+ * and sort locally instead of querying again. Until a screen searches, nothing beyond the pages
+ * is downloaded.
+ */
+public class RidesViewModel extends AndroidViewModel {
+
+    private static final String TAG = "RidesViewModel";
+
+    // Rides per page; the first page is all that is fetched before the lists render
+    private static final int PAGE_SIZE = 20;
+    // How far ahead the mirror follows the open rides once something searches
+    private static final long SEARCH_HORIZON_MS = 7 * 24 * 3_600_000L;
+
+    private final RideDiskCache diskCache;
+    private final Feed offers;
+    private final Feed requests;
+
+    private final RidePager offersPager;
+    private final RidePager requestsPager;
+
+    private final RideService rideService;
+    private final RideMirror mirror;
+    @Nullable private RideStore.Registration mirrorSync; // Null until the first search, or when signed out
+
+    public RidesViewModel(@NonNull Application application) {
+        super(application);
+        rideService = RideService.getInstance();
+        diskCache = RideDiskCache.getInstance(application);
+        String user = rideService.getCurrentUserEmail();
+        offers = new Feed("ride offers", user != null ? RideDiskCache.key("browseOffers", user) : null);
+        requests = new Feed("ride requests", user != null ? RideDiskCache.key("browseRequests", user) : null);
+        offers.paintFromDisk();
+        requests.paintFromDisk();
+
+        offersPager = new RidePager(rideService::subscribeRideOffersPage, PAGE_SIZE, offers);
+        requestsPager = new RidePager(rideService::subscribeRideRequestsPage, PAGE_SIZE, requests);
+        offersPager.loadNextPage();
+        requestsPager.loadNextPage();
+
+        mirror = RideMirror.getInstance(application);
+    }
+
+    public LiveData<List<Ride>> getOffers() {
+        return offers.rides;
+    }
+
+    public LiveData<List<Ride>> getRequests() {
+        return requests.rides;
+    }
+
+    /** Asks for the next page of offers; ignored while one is loading or after the last. */
+    public void loadMoreOffers() {
+        offersPager.loadNextPage();
+    }
+
+    public void loadMoreRequests() {
+        requestsPager.loadNextPage();
+    }
+
+    /**
+     * Runs {@code search} over the local copy of the open rides leaving within the search horizon;
+     * results arrive on the main thread. The first call starts the sync, so it may only see the
+     * copy an earlier sync left behind. Call it from the main thread.
+     */
+    public void search(@NonNull RideSearch search, @NonNull RideMirror.SearchListener listener) {
+        if (mirrorSync == null) mirrorSync = mirror.sync(rideService, SEARCH_HORIZON_MS);
+        mirror.search(search, listener);
+    }
+
+    @Override
+    protected void onCleared() {
+        offersPager.clear();
+        requestsPager.clear();
+        if (mirrorSync != null) mirrorSync.remove();
+    }
+
+    /** One section's list: the stored first page until the live pages arrive, then those. */
+    private final class Feed implements RidePager.Listener {
+        final MutableLiveData<List<Ride>> rides = new MutableLiveData<>();
+        private final String label;
+        @Nullable private final String diskKey; // Null when signed out
+        @Nullable private List<Ride> stored;    // First page as last written to disk
+        private boolean live;
+
+        Feed(String label, @Nullable String diskKey) {
+            this.label = label;
+            this.diskKey = diskKey;
+        }
+
+        void paintFromDisk() {
+            if (diskKey == null) return;
+            diskCache.read(diskKey, cached -> {
+                if (live || cached == null) return; // The network answered first, or nothing stored yet
+                List<Ride> upcoming = withoutDeparted(cached);
+                Log.d(TAG, "Painting " + upcoming.size() + " stored " + label);
+                rides.setValue(upcoming);
+            });
+        }
+
+        @Override
+        public void onRidesChanged(List<Ride> list) {
+            Log.d(TAG, "Received " + list.size() + " " + label);
+            live = true;
+            rides.setValue(list);
+            if (diskKey == null) return;
+            List<Ride> firstPage = list.subList(0, Math.min(list.size(), PAGE_SIZE));
+            if (firstPage.equals(stored)) return; // Later pages changed, or nothing did
+            stored = new ArrayList<>(firstPage);
+            diskCache.write(diskKey, stored);
+        }
+
+        @Override
+        public void onError(DatabaseError e) {
+            Log.e(TAG, "Failed to get " + label + ": " + e.getMessage());
+        }
+    }
+
+    private static List<Ride> withoutDeparted(List<Ride> rides) {
+        long now = System.currentTimeMillis();
+        List<Ride> upcoming = new ArrayList<>(rides.size());
+        for (Ride ride : rides) {
+            if (ride.getDepartureAt() == DepartureTime.UNKNOWN || ride.getDepartureAt() >= now) upcoming.add(ride);
+        }
+        return upcoming;
+    }
+}
@@ -0,0 +1,136 @@
+package edu.uga.cs.rideshareapp.store;
+
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reflective POJO mapping for MemoryRideStore, following the same conventions as Firebase's
+ * class mapper: public setters/getters (getX / isX), unknown properties ignored, enums stored by
+ * name, and numbers normalised to Long/Double. Keeps the in-memory engine's getValue(Class) and
+ * setValue(pojo) behaving like the real thing for Ride and Points.
+ */
+final class BeanMapper {
+
+    private static final Map<Class<?>, Map<String, Method>> setterCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, Method>> getterCache = new ConcurrentHashMap<>();
+
+    private BeanMapper() { }
+
+    /** Converts a stored value (leaf or Map) to the requested type. */
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> T convert(@Nullable Object value, Class<T> type) {
+        if (value == null) return null;
+        if (type == Object.class || type.isInstance(value) && !(value instanceof Number)) return (T) value;
+        if (type == String.class) {
+            if (value instanceof String) return (T) value;
+            throw new IllegalArgumentException("Failed to convert value of type " + value.getClass().getName() + " to String");
+        }
+        if (type == Integer.class || type == int.class) return (T) Integer.valueOf(asNumber(value, type).intValue());
+        if (type == Long.class || type == long.class) return (T) Long.valueOf(asNumber(value, type).longValue());
+        if (type == Double.class || type == double.class) return (T) Double.valueOf(asNumber(value, type).doubleValue());
+        if (type == Boolean.class || type == boolean.class) {
+            if (value instanceof Boolean) return (T) value;
+            throw new IllegalArgumentException("Failed to convert value of type " + value.getClass().getName() + " to boolean");
+        }
+        if (type.isEnum()) {
+            return (T) Enum.valueOf((Class) type, (String) value);
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Can't convert object of type " + value.getClass().getName() + " to type " + type.getName());
+        }
+        try {
+            T instance = type.getDeclaredConstructor().newInstance();
+            Map<String, Method> setters = settersFor(type);
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                Method setter = setters.get(entry.getKey());
+                if (setter == null || entry.getValue() == null) continue; // Unknown property, or leave default
+                setter.invoke(instance, convert(entry.getValue(), setter.getParameterTypes()[0]));
+            }
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Class " + type.getName() + " can't be mapped: " + e.getMessage(), e);
+        }
+    }
+
+    /** Converts an arbitrary value (POJO, enum, boxed primitive, Map) to the plain stored form. */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Object toPlain(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean) return value;
+        if (value instanceof Number) return normalizeNumber((Number) value);
+        if (value instanceof Enum) return ((Enum<?>) value).name();
+        if (value instanceof Map) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                result.put(entry.getKey(), toPlain(entry.getValue()));
+            }
+            return result;
+        }
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Method> getter : gettersFor(value.getClass()).entrySet()) {
+                result.put(getter.getKey(), toPlain(getter.getValue().invoke(value)));
+            }
+            return result;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Class " + value.getClass().getName() + " can't be serialized: " + e.getMessage(), e);
+        }
+    }
+
+    /** Integers become Long and whole doubles become Long, matching what Firebase hands back. */
+    static Object normalizeNumber(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 1e15) return (long) d;
+            return d;
+        }
+        return number.longValue();
+    }
+
+    private static Number asNumber(Object value, Class<?> type) {
+        if (value instanceof Number) return (Number) value;
+        throw new IllegalArgumentException("Failed to convert value of type " + value.getClass().getName() + " to " + type.getSimpleName());
+    }
+
+    private static Map<String, Method> settersFor(Class<?> type) {
+        Map<String, Method> cached = setterCache.get(type);
+        if (cached != null) return cached;
+        Map<String, Method> setters = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length != 1) continue;
+            if (name.startsWith("set") && name.length() > 3) setters.put(decapitalize(name.substring(3)), method);
+        }
+        setterCache.put(type, setters);
+        return setters;
+    }
+
+    private static Map<String, Method> gettersFor(Class<?> type) {
+        Map<String, Method> cached = getterCache.get(type);
+        if (cached != null) return cached;
+        Map<String, Method> getters = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length != 0
+                    || method.getDeclaringClass() == Object.class) continue;
+            if (name.startsWith("get") && name.length() > 3) getters.put(decapitalize(name.substring(3)), method);
+            else if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                getters.put(decapitalize(name.substring(2)), method);
+            }
+        }
+        getterCache.put(type, getters);
+        return getters;
+    }
+
+    private static String decapitalize(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
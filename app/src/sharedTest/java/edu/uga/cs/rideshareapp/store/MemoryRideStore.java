@@ -0,0 +1,715 @@
+package edu.uga.cs.rideshareapp.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe, in-process RideStore with the same semantics RideService relies on from Firebase:
+ * Firebase key and value ordering for queries, atomic multi-path updates, optimistic transactions
+ * that re-run on conflict (up to 25 attempts, then MAX_RETRIES), server-side increments and timestamps,
+ * validation rules that reject a whole write, and live value and child listeners.
+ *
+ * The tree is held as nested TreeMaps guarded by a read/write lock. Readers always receive
+ * copies, so snapshots stay immutable after the lock is released. Callbacks are delivered on
+ * the supplied executor (directly on the calling thread by default) and never under the lock.
+ */
+public class MemoryRideStore implements RideStore {
+
+    private static final int MAX_TRANSACTION_ATTEMPTS = 25;
+
+    /** Firebase key order: keys that parse as 32-bit ints first, numerically, then the rest lexicographically. */
+    static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Integer ia = parseIntKey(a), ib = parseIntKey(b);
+        if (ia != null && ib != null) return Integer.compare(ia, ib);
+        if (ia != null) return -1;
+        if (ib != null) return 1;
+        return a.compareTo(b);
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Executor callbackExecutor;
+    private final List<Rule> rules = new CopyOnWriteArrayList<>();
+    private final List<QueryRegistration> listeners = new CopyOnWriteArrayList<>();
+    @Nullable private Object root; // Guarded by lock; null or a TreeMap
+    private volatile LongSupplier clock = System::currentTimeMillis; // The "server" clock for serverTimestamp()
+
+    public MemoryRideStore() {
+        this(Runnable::run);
+    }
+
+    public MemoryRideStore(@NonNull Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Adds a validation rule, the equivalent of a ".validate" entry in database.rules.json.
+     * Segments starting with '$' match any key, e.g. "userPoints/$user/points". Any write that
+     * leaves a matching non-null value failing the predicate is rolled back with PERMISSION_DENIED.
+     */
+    public MemoryRideStore addRule(@NonNull String pathPattern, @NonNull Predicate<Object> validate) {
+        rules.add(new Rule(split(pathPattern), (data, newData) -> validate.test(newData), false));
+        return this;
+    }
+
+    /**
+     * Adds a validation rule that also sees the value before the write, like a ".validate" entry
+     * that reads both {@code data} and {@code newData}. The predicate gets (data, newData); data is
+     * null where nothing was stored.
+     */
+    public MemoryRideStore addTransitionRule(@NonNull String pathPattern, @NonNull BiPredicate<Object, Object> validate) {
+        rules.add(new Rule(split(pathPattern), validate, true));
+        return this;
+    }
+
+    /** The rules this app deploys in database.rules.json. */
+    public MemoryRideStore withAppRules() {
+        return addRule("userPoints/$user/points", v -> v instanceof Number && ((Number) v).doubleValue() >= 0)
+                .addTransitionRule("rides/$rideId/version", (data, v) -> v instanceof Number
+                        && (data == null || ((Number) v).longValue() == ((Number) data).longValue() + 1));
+    }
+
+    /** Uses {@code clock} (epoch millis) for serverTimestamp() values, e.g. a clock a test advances by hand. */
+    public MemoryRideStore withClock(@NonNull LongSupplier clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    // --- Reads ---
+
+    @Override
+    public void get(@NonNull StoreQuery query, @NonNull ValueListener listener) {
+        Snapshot snapshot = evaluate(query);
+        callbackExecutor.execute(() -> listener.onDataChange(snapshot));
+    }
+
+    @NonNull
+    @Override
+    public Registration addValueListener(@NonNull StoreQuery query, @NonNull ValueListener listener) {
+        ValueRegistration registration = new ValueRegistration(query, listener);
+        listeners.add(registration);
+        registration.onResult(evaluate(query));
+        return registration;
+    }
+
+    @NonNull
+    @Override
+    public Registration addChildListener(@NonNull StoreQuery query, @NonNull ChildListener listener) {
+        ChildRegistration registration = new ChildRegistration(query, listener);
+        listeners.add(registration);
+        registration.onResult(evaluate(query));
+        return registration;
+    }
+
+    // --- Writes ---
+
+    @Override
+    public void runTransaction(@NonNull String path, @NonNull TransactionHandler handler) {
+        String[] segments = split(path);
+        for (int attempt = 0; attempt < MAX_TRANSACTION_ATTEMPTS; attempt++) {
+            Object before;
+            lock.readLock().lock();
+            try { before = deepCopy(getAt(root, segments, 0)); } finally { lock.readLock().unlock(); }
+
+            MutableRoot working = new MutableRoot(deepCopy(before), clock);
+            boolean commit;
+            try {
+                commit = handler.doTransaction(new MemoryMutableNode(working, new String[0]));
+            } catch (RuntimeException e) {
+                RideStoreException error = new RideStoreException(RideStoreException.UNKNOWN, "Transaction handler threw: " + e.getMessage(), e);
+                callbackExecutor.execute(() -> handler.onComplete(error, false, null));
+                return;
+            }
+            if (!commit) {
+                Snapshot current = new MemorySnapshot(lastSegment(segments), before);
+                callbackExecutor.execute(() -> handler.onComplete(null, false, current));
+                return;
+            }
+
+            RideStoreException rejected = null;
+            boolean applied = false;
+            lock.writeLock().lock();
+            try {
+                if (Objects.equals(getAt(root, segments, 0), before)) {
+                    Map<String, Object> write = new LinkedHashMap<>();
+                    write.put(path, working.value);
+                    rejected = applyAtomically(write);
+                    applied = true;
+                }
+            } finally { lock.writeLock().unlock(); }
+
+            if (!applied) continue; // Lost the race; re-run the handler against fresh data
+            if (rejected != null) {
+                RideStoreException error = rejected;
+                callbackExecutor.execute(() -> handler.onComplete(error, false, null));
+                return;
+            }
+            Snapshot committed = new MemorySnapshot(lastSegment(segments), deepCopy(normalize(working.value)));
+            notifyListeners(Collections.singleton(path));
+            callbackExecutor.execute(() -> handler.onComplete(null, true, committed));
+            return;
+        }
+        RideStoreException error = new RideStoreException(RideStoreException.MAX_RETRIES, "Transaction had too many retries");
+        callbackExecutor.execute(() -> handler.onComplete(error, false, null));
+    }
+
+    @Override
+    public void updateChildren(@NonNull Map<String, Object> updates, @NonNull WriteListener listener) {
+        checkNoOverlappingPaths(updates.keySet());
+        RideStoreException rejected;
+        lock.writeLock().lock();
+        try { rejected = applyAtomically(updates); } finally { lock.writeLock().unlock(); }
+        if (rejected == null) notifyListeners(updates.keySet());
+        callbackExecutor.execute(() -> listener.onComplete(rejected));
+    }
+
+    @NonNull
+    @Override
+    public Object increment(long delta) {
+        return new Increment(delta);
+    }
+
+    @NonNull
+    @Override
+    public Object serverTimestamp() {
+        return ServerTimestamp.INSTANCE;
+    }
+
+    @Override
+    public long serverTimeMillis() {
+        return clock.getAsLong();
+    }
+
+    // --- Write internals (call with the write lock held) ---
+
+    /** Applies every write, then validates; on a rule failure restores the previous values. */
+    @Nullable
+    private RideStoreException applyAtomically(Map<String, Object> updates) {
+        List<String[]> written = new ArrayList<>();
+        List<Object> previous = new ArrayList<>();
+        for (Map.Entry<String, Object> update : updates.entrySet()) {
+            String[] segments = split(update.getKey());
+            Object old = getAt(root, segments, 0);
+            Object resolved = resolveServerValues(update.getValue(), old, clock);
+            written.add(segments);
+            previous.add(deepCopy(old));
+            root = setAt(root, segments, 0, normalize(resolved));
+        }
+        for (int w = 0; w < written.size(); w++) {
+            String failure = validate(w, written, previous);
+            if (failure != null) {
+                for (int i = written.size() - 1; i >= 0; i--) root = setAt(root, written.get(i), 0, previous.get(i));
+                return new RideStoreException(RideStoreException.PERMISSION_DENIED, "Permission denied: validation failed at " + failure);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces Increment sentinels with the sum against the current value at the same location,
+     * and ServerTimestamp sentinels with the clock's time.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object resolveServerValues(@Nullable Object value, @Nullable Object current, LongSupplier clock) {
+        if (value instanceof ServerTimestamp) return clock.getAsLong();
+        if (value instanceof Increment) {
+            long delta = ((Increment) value).delta;
+            if (current instanceof Long) return (Long) current + delta;
+            if (current instanceof Double) return (Double) current + delta;
+            return delta; // Missing or non-numeric: Firebase treats it as zero
+        }
+        if (value instanceof Map) {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                Object currentChild = current instanceof Map ? ((Map<String, Object>) current).get(entry.getKey()) : null;
+                resolved.put(entry.getKey(), resolveServerValues(entry.getValue(), currentChild, clock));
+            }
+            return resolved;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the first concrete path that fails a rule after the write at {@code written[index]},
+     * or null. {@code previous} holds what each write replaced, for rules that compare with it.
+     */
+    @Nullable
+    private String validate(int index, List<String[]> allWritten, List<Object> previous) {
+        String[] written = allWritten.get(index);
+        for (Rule rule : rules) {
+            int shared = Math.min(written.length, rule.pattern.length);
+            boolean prefixMatches = true;
+            for (int i = 0; i < shared && prefixMatches; i++) {
+                prefixMatches = rule.pattern[i].startsWith("$") || rule.pattern[i].equals(written[i]);
+            }
+            if (!prefixMatches) continue;
+            if (written.length >= rule.pattern.length) {
+                // The write landed at or inside a validated node
+                String[] target = new String[rule.pattern.length];
+                System.arraycopy(written, 0, target, 0, target.length);
+                Object value = getAt(root, target, 0);
+                if (value != null) {
+                    Object data = rule.transition ? valueBefore(target, allWritten, previous) : null;
+                    if (!rule.validate.test(data, value)) return String.join("/", target);
+                }
+            } else {
+                // The write replaced a subtree that may contain validated nodes
+                String failure = validateBelow(getAt(root, written, 0), previous.get(index), rule, written.length, String.join("/", written));
+                if (failure != null) return failure;
+            }
+        }
+        return null;
+    }
+
+    /** The value at {@code target} before the current write, rebuilt from what each written path replaced. */
+    @Nullable
+    private Object valueBefore(String[] target, List<String[]> written, List<Object> previous) {
+        Object value = deepCopy(getAt(root, target, 0));
+        for (int i = 0; i < written.size(); i++) {
+            String[] path = written.get(i);
+            int shared = Math.min(path.length, target.length);
+            boolean related = true;
+            for (int j = 0; j < shared && related; j++) related = path[j].equals(target[j]);
+            if (!related) continue;
+            if (path.length <= target.length) return getAt(previous.get(i), target, path.length); // Replaced the whole target
+            value = setAt(value, path, target.length, deepCopy(previous.get(i)));                 // Replaced part of it
+        }
+        return value;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static String validateBelow(@Nullable Object node, @Nullable Object before, Rule rule, int depth, String path) {
+        if (node == null) return null;
+        if (depth == rule.pattern.length) return rule.validate.test(before, node) ? null : path;
+        if (!(node instanceof Map)) return null;
+        String segment = rule.pattern[depth];
+        Map<String, Object> map = (Map<String, Object>) node;
+        Map<String, Object> beforeMap = before instanceof Map ? (Map<String, Object>) before : Collections.emptyMap();
+        if (!segment.startsWith("$")) {
+            return validateBelow(map.get(segment), beforeMap.get(segment), rule, depth + 1, path + "/" + segment);
+        }
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            String failure = validateBelow(entry.getValue(), beforeMap.get(entry.getKey()), rule, depth + 1, path + "/" + entry.getKey());
+            if (failure != null) return failure;
+        }
+        return null;
+    }
+
+    private static void checkNoOverlappingPaths(Iterable<String> paths) {
+        List<String> normalized = new ArrayList<>();
+        for (String path : paths) normalized.add(String.join("/", split(path)) + "/");
+        for (String a : normalized) {
+            for (String b : normalized) {
+                if (a != b && b.startsWith(a)) {
+                    throw new IllegalArgumentException("Path " + a + " is an ancestor of " + b + " in the same update");
+                }
+            }
+        }
+    }
+
+    // --- Query evaluation ---
+
+    private Snapshot evaluate(StoreQuery query) {
+        String[] segments = split(query.getPath());
+        lock.readLock().lock();
+        try {
+            Object node = getAt(root, segments, 0);
+            Object value = query.isPlainRead() ? deepCopy(node) : runQuery(node, query);
+            return new MemorySnapshot(lastSegment(segments), value);
+        } finally { lock.readLock().unlock(); }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object runQuery(@Nullable Object node, StoreQuery query) {
+        if (!(node instanceof Map)) return null;
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(((Map<String, Object>) node).entrySet());
+        final Comparator<Map.Entry<String, Object>> order = entryOrder(query);
+        if (query.getOrderBy() != StoreQuery.OrderBy.KEY) Collections.sort(entries, order); // TreeMap is already in key order
+
+        List<Map.Entry<String, Object>> matching = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : entries) {
+            if (query.hasStart() && compareToBound(entry, query, query.getStartValue(), query.getStartKey()) < 0) continue;
+            if (query.hasEnd() && compareToBound(entry, query, query.getEndValue(), query.getEndKey()) > 0) continue;
+            matching.add(entry);
+        }
+        if (query.getLimitToFirst() > 0 && matching.size() > query.getLimitToFirst()) {
+            matching = matching.subList(0, query.getLimitToFirst());
+        } else if (query.getLimitToLast() > 0 && matching.size() > query.getLimitToLast()) {
+            matching = matching.subList(matching.size() - query.getLimitToLast(), matching.size());
+        }
+        if (matching.isEmpty()) return null;
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : matching) result.put(entry.getKey(), deepCopy(entry.getValue()));
+        return result;
+    }
+
+    private static Comparator<Map.Entry<String, Object>> entryOrder(StoreQuery query) {
+        return (a, b) -> {
+            if (query.getOrderBy() != StoreQuery.OrderBy.KEY) {
+                int byValue = compareValues(sortValue(a.getValue(), query), sortValue(b.getValue(), query));
+                if (byValue != 0) return byValue;
+            }
+            return KEY_ORDER.compare(a.getKey(), b.getKey());
+        };
+    }
+
+    /** Compares an entry against a startAt/endAt bound: by sort value first, then by key if the bound has one. */
+    private static int compareToBound(Map.Entry<String, Object> entry, StoreQuery query, @Nullable Object boundValue, @Nullable String boundKey) {
+        if (query.getOrderBy() == StoreQuery.OrderBy.KEY) {
+            return boundValue == null ? 0 : KEY_ORDER.compare(entry.getKey(), String.valueOf(boundValue));
+        }
+        int byValue = compareValues(sortValue(entry.getValue(), query), BeanMapper.toPlain(boundValue));
+        if (byValue != 0 || boundKey == null) return byValue;
+        return KEY_ORDER.compare(entry.getKey(), boundKey);
+    }
+
+    @Nullable
+    private static Object sortValue(@Nullable Object child, StoreQuery query) {
+        if (query.getOrderBy() == StoreQuery.OrderBy.VALUE) return child;
+        return getAt(child, split(query.getOrderByChild()), 0);
+    }
+
+    /** Firebase value order: null, false, true, numbers, strings, then objects. */
+    static int compareValues(@Nullable Object a, @Nullable Object b) {
+        int rankA = rank(a), rankB = rank(b);
+        if (rankA != rankB) return Integer.compare(rankA, rankB);
+        if (a instanceof Number) return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        if (a instanceof String) return ((String) a).compareTo((String) b);
+        return 0;
+    }
+
+    private static int rank(@Nullable Object value) {
+        if (value == null) return 0;
+        if (value instanceof Boolean) return (Boolean) value ? 2 : 1;
+        if (value instanceof Number) return 3;
+        if (value instanceof String) return 4;
+        return 5;
+    }
+
+    // --- Listeners ---
+
+    private void notifyListeners(Iterable<String> writtenPaths) {
+        for (QueryRegistration registration : listeners) {
+            if (registration.overlapsAny(writtenPaths)) registration.onResult(evaluate(registration.query));
+        }
+    }
+
+    /** A live query; re-evaluated after every write that touches its path. */
+    private abstract class QueryRegistration implements Registration {
+        final StoreQuery query;
+        private final String[] segments;
+        volatile boolean active = true;
+
+        QueryRegistration(StoreQuery query) {
+            this.query = query;
+            this.segments = split(query.getPath());
+        }
+
+        boolean overlapsAny(Iterable<String> paths) {
+            for (String path : paths) {
+                String[] written = split(path);
+                int shared = Math.min(written.length, segments.length);
+                boolean overlaps = true;
+                for (int i = 0; i < shared && overlaps; i++) overlaps = written[i].equals(segments[i]);
+                if (overlaps) return true;
+            }
+            return false;
+        }
+
+        abstract void onResult(Snapshot snapshot);
+
+        @Override
+        public void remove() {
+            active = false;
+            listeners.remove(this);
+        }
+    }
+
+    private final class ValueRegistration extends QueryRegistration {
+        private final ValueListener listener;
+        private Object lastValue;
+        private boolean delivered;
+
+        ValueRegistration(StoreQuery query, ValueListener listener) {
+            super(query);
+            this.listener = listener;
+        }
+
+        @Override
+        void onResult(Snapshot snapshot) {
+            synchronized (this) {
+                if (delivered && Objects.equals(lastValue, snapshot.getValue())) return;
+                delivered = true;
+                lastValue = snapshot.getValue();
+            }
+            callbackExecutor.execute(() -> { if (active) listener.onDataChange(snapshot); });
+        }
+    }
+
+    /**
+     * Diffs each new query result against the last one and reports it as child events, in the
+     * same order Firebase uses: removals first, then additions, changes and moves in result order,
+     * each with the key of the child now before it.
+     */
+    private final class ChildRegistration extends QueryRegistration {
+        private final ChildListener listener;
+        private Map<String, Object> lastChildren = Collections.emptyMap();
+
+        ChildRegistration(StoreQuery query, ChildListener listener) {
+            super(query);
+            this.listener = listener;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void onResult(Snapshot snapshot) {
+            Map<String, Object> children = snapshot.getValue() instanceof Map
+                    ? new LinkedHashMap<>((Map<String, Object>) snapshot.getValue()) : Collections.emptyMap();
+            List<Runnable> events = new ArrayList<>();
+            synchronized (this) {
+                Map<String, Object> previous = lastChildren;
+                for (Map.Entry<String, Object> old : previous.entrySet()) {
+                    if (!children.containsKey(old.getKey())) {
+                        Snapshot removed = new MemorySnapshot(old.getKey(), old.getValue());
+                        events.add(() -> listener.onChildRemoved(removed));
+                    }
+                }
+                Map<String, String> oldPredecessors = predecessorsAmongShared(previous, children);
+                Map<String, String> newPredecessors = predecessorsAmongShared(children, previous);
+                String previousKey = null;
+                for (Map.Entry<String, Object> entry : children.entrySet()) {
+                    final String key = entry.getKey();
+                    final String before = previousKey;
+                    final Snapshot child = new MemorySnapshot(key, entry.getValue());
+                    if (!previous.containsKey(key)) {
+                        events.add(() -> listener.onChildAdded(child, before));
+                    } else {
+                        if (!Objects.equals(previous.get(key), entry.getValue())) {
+                            events.add(() -> listener.onChildChanged(child, before));
+                        }
+                        if (!Objects.equals(oldPredecessors.get(key), newPredecessors.get(key))) {
+                            events.add(() -> listener.onChildMoved(child, before));
+                        }
+                    }
+                    previousKey = key;
+                }
+                lastChildren = children;
+            }
+            if (events.isEmpty()) return;
+            callbackExecutor.execute(() -> {
+                for (Runnable event : events) {
+                    if (!active) return;
+                    event.run();
+                }
+            });
+        }
+
+        /** For each key of {@code order} that is also in {@code other}, the shared key right before it. */
+        private Map<String, String> predecessorsAmongShared(Map<String, Object> order, Map<String, Object> other) {
+            Map<String, String> predecessors = new HashMap<>();
+            String last = null;
+            for (String key : order.keySet()) {
+                if (!other.containsKey(key)) continue;
+                predecessors.put(key, last);
+                last = key;
+            }
+            return predecessors;
+        }
+    }
+
+    // --- Tree helpers ---
+
+    static String[] split(@Nullable String path) {
+        if (path == null) return new String[0];
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) if (!segment.isEmpty()) segments.add(segment);
+        return segments.toArray(new String[0]);
+    }
+
+    @Nullable
+    private static String lastSegment(String[] segments) {
+        return segments.length == 0 ? null : segments[segments.length - 1];
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Object getAt(@Nullable Object node, String[] segments, int index) {
+        for (int i = index; i < segments.length; i++) {
+            if (!(node instanceof Map)) return null;
+            node = ((Map<String, Object>) node).get(segments[i]);
+        }
+        return node;
+    }
+
+    /** Sets a value in place (creating parents), pruning maps that become empty. Returns the new node. */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Object setAt(@Nullable Object node, String[] segments, int index, @Nullable Object value) {
+        if (index == segments.length) return value;
+        TreeMap<String, Object> map = node instanceof TreeMap ? (TreeMap<String, Object>) node : new TreeMap<>(KEY_ORDER);
+        Object child = setAt(map.get(segments[index]), segments, index + 1, value);
+        if (child == null) map.remove(segments[index]);
+        else map.put(segments[index], child);
+        return map.isEmpty() ? null : map;
+    }
+
+    /** Converts a written value to stored form: POJOs to maps, numbers normalised, nulls and empty maps dropped. */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Object normalize(@Nullable Object value) {
+        Object plain = BeanMapper.toPlain(value);
+        if (!(plain instanceof Map)) return plain;
+        TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) plain).entrySet()) {
+            Object child = normalize(entry.getValue());
+            if (child != null) map.put(entry.getKey(), child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Object deepCopy(@Nullable Object value) {
+        if (!(value instanceof Map)) return value; // Leaves are immutable
+        TreeMap<String, Object> copy = new TreeMap<>(KEY_ORDER);
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+            copy.put(entry.getKey(), deepCopy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @Nullable
+    private static Integer parseIntKey(String key) {
+        int length = key.length();
+        if (length == 0 || length > 11) return null;
+        int start = key.charAt(0) == '-' ? 1 : 0;
+        if (start == length || (key.charAt(start) == '0' && length > start + 1)) return null;
+        for (int i = start; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') return null;
+        }
+        long parsed = Long.parseLong(key);
+        return parsed >= Integer.MIN_VALUE && parsed <= Integer.MAX_VALUE ? (int) parsed : null;
+    }
+
+    // --- Value types ---
+
+    private static final class Increment {
+        final long delta;
+        Increment(long delta) { this.delta = delta; }
+    }
+
+    private static final class ServerTimestamp {
+        static final ServerTimestamp INSTANCE = new ServerTimestamp();
+    }
+
+    private static final class Rule {
+        final String[] pattern;
+        final BiPredicate<Object, Object> validate; // (data, newData)
+        final boolean transition;                   // Whether validate reads data
+        Rule(String[] pattern, BiPredicate<Object, Object> validate, boolean transition) {
+            this.pattern = pattern;
+            this.validate = validate;
+            this.transition = transition;
+        }
+    }
+
+    private static final class MutableRoot {
+        Object value;
+        final LongSupplier clock;
+        MutableRoot(Object value, LongSupplier clock) {
+            this.value = value;
+            this.clock = clock;
+        }
+    }
+
+    private static final class MemoryMutableNode implements MutableNode {
+        private final MutableRoot root;
+        private final String[] segments;
+
+        MemoryMutableNode(MutableRoot root, String[] segments) {
+            this.root = root;
+            this.segments = segments;
+        }
+
+        @Nullable @Override public Object getValue() { return deepCopy(getAt(root.value, segments, 0)); }
+        @Nullable @Override public <T> T getValue(@NonNull Class<T> type) { return BeanMapper.convert(getAt(root.value, segments, 0), type); }
+        @Override public void setValue(@Nullable Object value) {
+            // Server values resolve against the transaction's own data, as Firebase does locally
+            Object resolved = resolveServerValues(value, getAt(root.value, segments, 0), root.clock);
+            root.value = setAt(root.value, segments, 0, normalize(resolved));
+        }
+
+        @NonNull
+        @Override
+        public MutableNode child(@NonNull String path) {
+            String[] childSegments = split(path);
+            String[] combined = new String[segments.length + childSegments.length];
+            System.arraycopy(segments, 0, combined, 0, segments.length);
+            System.arraycopy(childSegments, 0, combined, segments.length, childSegments.length);
+            return new MemoryMutableNode(root, combined);
+        }
+    }
+
+    private static final class MemorySnapshot implements Snapshot {
+        @Nullable private final String key;
+        @Nullable private final Object value;
+
+        MemorySnapshot(@Nullable String key, @Nullable Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Nullable @Override public String getKey() { return key; }
+        @Override public boolean exists() { return value != null; }
+        @Nullable @Override public Object getValue() { return value; }
+        @Nullable @Override public <T> T getValue(@NonNull Class<T> type) { return BeanMapper.convert(value, type); }
+
+        @NonNull
+        @Override
+        public Snapshot child(@NonNull String path) {
+            String[] segments = split(path);
+            return new MemorySnapshot(lastSegment(segments), getAt(value, segments, 0));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public long getChildrenCount() {
+            return value instanceof Map ? ((Map<String, Object>) value).size() : 0;
+        }
+
+        @NonNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterable<Snapshot> getChildren() {
+            if (!(value instanceof Map)) return Collections.emptyList();
+            final Map<String, Object> children = (Map<String, Object>) value;
+            return () -> new Iterator<Snapshot>() {
+                private final Iterator<Map.Entry<String, Object>> it = children.entrySet().iterator();
+                @Override public boolean hasNext() { return it.hasNext(); }
+                @Override public Snapshot next() {
+                    Map.Entry<String, Object> entry = it.next();
+                    return new MemorySnapshot(entry.getKey(), entry.getValue());
+                }
+            };
+        }
+    }
+}
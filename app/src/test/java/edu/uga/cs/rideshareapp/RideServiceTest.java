@@ -0,0 +1,1170 @@
+package edu.uga.cs.rideshareapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.firebase.RideAlreadyTakenException;
+import edu.uga.cs.rideshareapp.firebase.RideIdAllocator;
+import edu.uga.cs.rideshareapp.firebase.RideListCache;
+import edu.uga.cs.rideshareapp.firebase.RideMetrics;
+import edu.uga.cs.rideshareapp.firebase.RideQuery;
+import edu.uga.cs.rideshareapp.firebase.RideService;
+import edu.uga.cs.rideshareapp.firebase.RideTracer;
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.GeoHash;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+import edu.uga.cs.rideshareapp.ui.rides.RidePager;
+
+/**
+ * RideService against MemoryRideStore, so the create/accept/complete/delete flows (points,
+ * userRides index, accept contention) run on the JVM without a Firebase connection.
+ * MemoryRideStore delivers callbacks on the calling thread, so results are available as
+ * soon as each call returns.
+ */
+public class RideServiceTest {
+
+    private static final String DRIVER = "driver@example.com";
+    private static final String RIDER = "rider@example.com";
+
+    private MemoryRideStore store;
+    private RideIdAllocator allocator;
+
+    @Before
+    public void setUp() {
+        store = new MemoryRideStore().withAppRules();
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+    }
+
+    private RideService serviceFor(String email) {
+        return new RideService(store, () -> email, allocator);
+    }
+
+    // --- Helpers ---
+
+    private static class Result implements RideService.CompletionListener {
+        boolean succeeded;
+        Exception failure;
+        @Override public void onSuccess() { succeeded = true; }
+        @Override public void onFailure(Exception e) { failure = e; }
+    }
+
+    private Result create(String email, boolean isDriver) {
+        Result result = new Result();
+        serviceFor(email).createNewRideWithStrings("2025-05-01 10:00", isDriver, "Athens", "Atlanta", result);
+        return result;
+    }
+
+    private Object valueAt(String path) {
+        AtomicReference<Object> value = new AtomicReference<>();
+        store.get(StoreQuery.at(path), new RideStore.ValueListener() {
+            @Override public void onDataChange(RideStore.Snapshot snapshot) { value.set(snapshot.getValue()); }
+            @Override public void onCancelled(RideStoreException error) { fail(error.getMessage()); }
+        });
+        return value.get();
+    }
+
+    private Ride rideAt(int rideId) {
+        AtomicReference<Ride> ride = new AtomicReference<>();
+        serviceFor(DRIVER).getRideById(rideId, new RideService.RideSingleListener() {
+            @Override public void onRideFetched(Ride fetched) { ride.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        return ride.get();
+    }
+
+    private int points(String email) {
+        AtomicInteger points = new AtomicInteger(-1);
+        serviceFor(email).getUserPoints(new RideService.PointsFetchListener() {
+            @Override public void onPointsFetched(int fetched) { points.set(fetched); }
+            @Override public void onError(Exception e) { fail(e.getMessage()); }
+        });
+        return points.get();
+    }
+
+    private List<Ride> acceptedRides(String email) {
+        AtomicReference<List<Ride>> rides = new AtomicReference<>();
+        serviceFor(email).getAllAcceptedRides(new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { rides.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        return rides.get();
+    }
+
+    private static String key(String email) {
+        return email.replace('.', ',');
+    }
+
+    // --- Create ---
+
+    @Test
+    public void createOffer_writesRideAndIndexWithoutCharging() {
+        Result result = create(DRIVER, true);
+        assertTrue(result.succeeded);
+
+        Ride ride = rideAt(1);
+        assertNotNull(ride);
+        assertEquals(DRIVER, ride.getDriver());
+        assertEquals(RideStatus.OPEN_OFFER, ride.getStatus());
+        assertEquals("OPEN_OFFER", valueAt("userRides/" + key(DRIVER) + "/1"));
+        assertEquals(100, points(DRIVER));
+    }
+
+    @Test
+    public void createRequest_debitsPoints() {
+        assertTrue(create(RIDER, false).succeeded);
+        assertEquals(50, points(RIDER));
+        assertEquals("OPEN_REQUEST", valueAt("userRides/" + key(RIDER) + "/1"));
+    }
+
+    @Test
+    public void createRequest_insufficientPoints_writesNothing() {
+        assertTrue(create(RIDER, false).succeeded);
+        assertTrue(create(RIDER, false).succeeded);
+
+        Result third = create(RIDER, false);
+        assertNotNull(third.failure);
+        assertEquals("Insufficient points to create request", third.failure.getMessage());
+        assertEquals(0, points(RIDER));
+        assertNull("Rejected ride must not be written", rideAt(3));
+        assertNull(valueAt("userRides/" + key(RIDER) + "/3"));
+    }
+
+    @Test
+    public void createRequest_deniedByAnotherRule_keepsTheStoreError() {
+        RideStoreException denied = new RideStoreException(RideStoreException.PERMISSION_DENIED, "Auth token expired");
+        store = new MemoryRideStore() {
+            @Override public void updateChildren(Map<String, Object> updates, WriteListener listener) {
+                listener.onComplete(denied);
+            }
+        }.withAppRules();
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+
+        Result result = create(RIDER, false);
+        assertSame("Not reported as insufficient points with 100 points left", denied, result.failure);
+        assertEquals(100, points(RIDER));
+    }
+
+    @Test
+    public void createRide_notLoggedIn_fails() {
+        Result result = new Result();
+        new RideService(store, () -> null, allocator)
+                .createNewRideWithStrings("2025-05-01 10:00", true, "Athens", "Atlanta", result);
+        assertTrue(result.failure instanceof SecurityException);
+    }
+
+    // --- Accept ---
+
+    @Test
+    public void acceptOffer_fillsRiderAndIndexesBothUsers() {
+        create(DRIVER, true);
+        Result result = new Result();
+        serviceFor(RIDER).acceptRide(1, result);
+        assertTrue(result.succeeded);
+
+        Ride ride = rideAt(1);
+        assertEquals(RIDER, ride.getRider());
+        assertEquals(RideStatus.ACCEPTED, ride.getStatus());
+        assertEquals(1, acceptedRides(DRIVER).size());
+        assertEquals(1, acceptedRides(RIDER).size());
+    }
+
+    @Test
+    public void acceptOwnOffer_fails() {
+        create(DRIVER, true);
+        Result result = new Result();
+        serviceFor(DRIVER).acceptRide(1, result);
+        assertEquals("Cannot accept own offer", result.failure.getMessage());
+    }
+
+    /** Rejects the next {@code rejections} writes that touch userRides, as a rules or network failure would. */
+    private static class FlakyIndexStore extends MemoryRideStore {
+        final AtomicInteger rejections = new AtomicInteger();
+        @Override public void updateChildren(Map<String, Object> updates, WriteListener listener) {
+            boolean touchesIndex = false;
+            for (String path : updates.keySet()) touchesIndex |= path.startsWith("userRides/");
+            if (touchesIndex && rejections.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                listener.onComplete(new RideStoreException(RideStoreException.UNKNOWN, "Index write failed"));
+                return;
+            }
+            super.updateChildren(updates, listener);
+        }
+    }
+
+    @Test
+    public void acceptRide_retriesAFailedIndexWrite() {
+        FlakyIndexStore flaky = new FlakyIndexStore();
+        store = flaky.withAppRules();
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        create(DRIVER, true);
+
+        flaky.rejections.set(1);
+        Result result = new Result();
+        serviceFor(RIDER).acceptRide(1, result);
+        assertTrue(result.succeeded);
+        assertEquals(1, acceptedRides(DRIVER).size());
+        assertEquals(1, acceptedRides(RIDER).size());
+    }
+
+    @Test
+    public void acceptRideAgain_repairsTheIndexForTheUserWhoWon() {
+        FlakyIndexStore flaky = new FlakyIndexStore();
+        store = flaky.withAppRules();
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        create(DRIVER, true);
+
+        flaky.rejections.set(2);
+        Result first = new Result();
+        serviceFor(RIDER).acceptRide(1, first);
+        assertNotNull(first.failure);
+        assertEquals("Claimed despite the failure", RIDER, rideAt(1).getRider());
+        assertEquals(0, acceptedRides(RIDER).size());
+
+        Object version = valueAt("rides/1/version");
+        Result retry = new Result();
+        serviceFor(RIDER).acceptRide(1, retry);
+        assertTrue(retry.succeeded);
+        assertEquals("Ride left as it was", version, valueAt("rides/1/version"));
+        assertEquals(1, acceptedRides(DRIVER).size());
+        assertEquals(1, acceptedRides(RIDER).size());
+
+        Result other = new Result();
+        serviceFor("other@example.com").acceptRide(1, other);
+        assertTrue(other.failure instanceof RideAlreadyTakenException);
+    }
+
+    @Test
+    public void acceptRide_concurrentAcceptorsSingleWinner() throws InterruptedException {
+        create(DRIVER, true);
+        final int acceptors = 8;
+        final AtomicInteger winners = new AtomicInteger();
+        final AtomicInteger alreadyTaken = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(acceptors);
+
+        for (int i = 0; i < acceptors; i++) {
+            final RideService service = serviceFor("acceptor" + i + "@example.com");
+            new Thread(() -> {
+                try { start.await(); } catch (InterruptedException e) { return; }
+                service.acceptRide(1, new RideService.CompletionListener() {
+                    @Override public void onSuccess() { winners.incrementAndGet(); done.countDown(); }
+                    @Override public void onFailure(Exception e) {
+                        if (e instanceof RideAlreadyTakenException) alreadyTaken.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }).start();
+        }
+        start.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, winners.get());
+        assertEquals(acceptors - 1, alreadyTaken.get());
+    }
+
+    // --- Complete / Delete ---
+
+    @Test
+    public void completeOffer_awardsDriverAndUpdatesIndex() {
+        create(DRIVER, true);
+        serviceFor(RIDER).acceptRide(1, new Result());
+
+        Result result = new Result();
+        serviceFor(RIDER).completeRide(1, result);
+        assertTrue(result.succeeded);
+        assertTrue(rideAt(1).isComplete());
+        assertEquals("COMPLETE", valueAt("userRides/" + key(DRIVER) + "/1"));
+        assertEquals(150, points(DRIVER));
+        assertTrue(acceptedRides(RIDER).isEmpty());
+    }
+
+    @Test
+    public void deleteRequest_refundsAndClearsIndex() {
+        create(RIDER, false);
+        assertEquals(50, points(RIDER));
+
+        Result result = new Result();
+        serviceFor(RIDER).deleteRide(1, result);
+        assertTrue(result.succeeded);
+        assertNull(rideAt(1));
+        assertNull(valueAt("userRides/" + key(RIDER)));
+        assertEquals(100, points(RIDER));
+    }
+
+    // --- Live subscriptions ---
+
+    private static class LiveList implements RideService.RideListListener {
+        List<Ride> latest;
+        int updates;
+        @Override public void onRidesFetched(List<Ride> rides) { latest = rides; updates++; }
+        @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+    }
+
+    @Test
+    public void subscribeRideOffers_tracksCreateAndAccept() {
+        create(DRIVER, true);
+        LiveList browse = new LiveList();
+        RideStore.Registration subscription = serviceFor(RIDER).subscribeRideOffers(true, browse);
+        assertEquals(1, browse.latest.size());
+
+        create(DRIVER, true);
+        assertEquals(2, browse.latest.size());
+        assertEquals(1, browse.latest.get(0).getRideId());
+        assertEquals(2, browse.latest.get(1).getRideId());
+
+        serviceFor(RIDER).acceptRide(1, new Result());
+        assertEquals(1, browse.latest.size());
+        assertEquals(2, browse.latest.get(0).getRideId());
+
+        int updatesBeforeRemove = browse.updates;
+        subscription.remove();
+        create(DRIVER, true);
+        assertEquals(updatesBeforeRemove, browse.updates);
+    }
+
+    @Test
+    public void subscribeAcceptedRides_followsUserIndex() {
+        LiveList accepted = new LiveList();
+        serviceFor(DRIVER).subscribeAcceptedRides(accepted);
+        assertTrue("Empty index still reports an initial list", accepted.latest.isEmpty());
+
+        create(DRIVER, true);
+        serviceFor(RIDER).acceptRide(1, new Result());
+        assertEquals(1, accepted.latest.size());
+        assertEquals(RIDER, accepted.latest.get(0).getRider());
+
+        serviceFor(DRIVER).completeRide(1, new Result());
+        assertTrue(accepted.latest.isEmpty());
+    }
+
+    private static class LivePage implements RideService.RidePageListener {
+        List<Ride> rides;
+        String nextCursor;
+        @Override public void onPageFetched(List<Ride> fetched, String cursor) { rides = fetched; nextCursor = cursor; }
+        @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+    }
+
+    @Test
+    public void subscribeRideOffersPage_walksCursorsWithoutOverlap() {
+        for (int i = 0; i < 7; i++) create(DRIVER, true);
+        create(RIDER, true); // The rider's own offer (ID 8) is never part of their feed
+        RideService rider = serviceFor(RIDER);
+
+        LivePage first = new LivePage();
+        rider.subscribeRideOffersPage(null, 3, first);
+        assertEquals(3, first.rides.size());
+        assertEquals(1, first.rides.get(0).getRideId());
+        assertTrue(first.nextCursor.endsWith("|4")); // Undated rides share one index value, so key order decides
+
+        LivePage second = new LivePage();
+        rider.subscribeRideOffersPage(first.nextCursor, 3, second);
+        assertEquals(4, second.rides.get(0).getRideId());
+        assertEquals(6, second.rides.get(2).getRideId());
+
+        LivePage last = new LivePage();
+        rider.subscribeRideOffersPage(second.nextCursor, 3, last);
+        assertEquals(1, last.rides.size());
+        assertEquals(7, last.rides.get(0).getRideId());
+        assertNull(last.nextCursor);
+
+        // Accepting a ride on the first page slides that page's window onto the next row
+        rider.acceptRide(2, new Result());
+        assertEquals(3, first.rides.size());
+        assertEquals(4, first.rides.get(2).getRideId());
+        assertTrue(first.nextCursor.endsWith("|5"));
+    }
+
+    @Test
+    public void pagerJoin_keepsRidesPushedOntoTheNextPage() {
+        long now = nowToTheMinute();
+        for (int hours = 1; hours <= 4; hours++) createDeparting(DRIVER, true, now + hours * HOUR);
+        AtomicReference<List<Ride>> joined = new AtomicReference<>();
+        RidePager pager = new RidePager(serviceFor(RIDER)::subscribeRideOffersPage, 2, new RidePager.Listener() {
+            @Override public void onRidesChanged(List<Ride> rides) { joined.set(rides); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        pager.loadNextPage();
+        pager.loadNextPage();
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(joined.get()));
+        assertFalse(pager.hasMore());
+
+        // A ride leaving sooner lands on page 1 and pushes ride 2 over the boundary onto page 2
+        createDeparting(DRIVER, true, now + HOUR / 2);
+        assertEquals(Arrays.asList(5, 1, 2, 3), ids(joined.get()));
+        assertTrue(pager.hasMore());
+        pager.loadNextPage();
+        assertEquals(Arrays.asList(5, 1, 2, 3, 4), ids(joined.get()));
+
+        // And back: removing rides pulls later ones forward and drops the emptied last page
+        serviceFor(RIDER).acceptRide(5, new Result());
+        serviceFor(RIDER).acceptRide(1, new Result());
+        assertEquals(Arrays.asList(2, 3, 4), ids(joined.get()));
+        assertFalse(pager.hasMore());
+        pager.clear();
+    }
+
+    // --- Parsing off the callback thread ---
+
+    @Test
+    public void getAllRideOffers_parsesOnWorkerAndDeliversOnResultExecutor() throws Exception {
+        create(DRIVER, true);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        ExecutorService results = Executors.newSingleThreadExecutor();
+        try {
+            RideService service = new RideService(store, () -> RIDER, allocator, worker, results);
+            AtomicReference<Thread> deliveredOn = new AtomicReference<>();
+            AtomicReference<List<Ride>> offers = new AtomicReference<>();
+            CountDownLatch delivered = new CountDownLatch(1);
+            service.getAllRideOffers(true, new RideService.RideListListener() {
+                @Override public void onRidesFetched(List<Ride> rides) {
+                    deliveredOn.set(Thread.currentThread());
+                    offers.set(rides);
+                    delivered.countDown();
+                }
+                @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+            });
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, offers.get().size());
+            assertSame(results.submit(Thread::currentThread).get(), deliveredOn.get());
+
+            // An empty userRides index has nothing to parse but is still delivered on the result executor
+            AtomicReference<Thread> emptyOn = new AtomicReference<>();
+            CountDownLatch emptyDelivered = new CountDownLatch(1);
+            service.getAllAcceptedRides(new RideService.RideListListener() {
+                @Override public void onRidesFetched(List<Ride> rides) {
+                    assertTrue(rides.isEmpty());
+                    emptyOn.set(Thread.currentThread());
+                    emptyDelivered.countDown();
+                }
+                @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+            });
+            assertTrue(emptyDelivered.await(5, TimeUnit.SECONDS));
+            assertSame(deliveredOn.get(), emptyOn.get());
+        } finally {
+            worker.shutdownNow();
+            results.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removedBeforeParsing_dropsResults() {
+        create(DRIVER, true);
+        List<Runnable> queued = new ArrayList<>();
+        RideService service = new RideService(store, () -> RIDER, allocator, queued::add, Runnable::run);
+
+        LiveList oneShot = new LiveList();
+        service.getAllRideOffers(true, oneShot).remove();
+        LiveList live = new LiveList();
+        service.subscribeRideOffers(true, live).remove();
+
+        assertFalse("Parsing was handed off", queued.isEmpty());
+        for (Runnable task : new ArrayList<>(queued)) task.run();
+        assertNull(oneShot.latest);
+        assertNull(live.latest);
+    }
+
+    // --- Metrics ---
+
+    @Test
+    public void createNewRide_recordsTotalAndEachStage() {
+        RideService.getMetrics().reset();
+        create(RIDER, false);
+        create(RIDER, false);
+
+        Map<String, RideMetrics.Latency> latencies = RideService.getMetrics().latencies();
+        assertEquals(2, latencies.get("createNewRide").count);
+        assertEquals(0, latencies.get("createNewRide").errors);
+        assertEquals(2, latencies.get("createNewRide.ensurePoints").count);
+        assertEquals(2, latencies.get("createNewRide.allocateId").count);
+        assertEquals(2, latencies.get("createNewRide.write").count);
+    }
+
+    @Test
+    public void getAllRideOffers_recordsOverfetchAgainstFilter() {
+        create(DRIVER, true);
+        create(DRIVER, true);
+        create(RIDER, true);
+        RideService.getMetrics().reset();
+
+        LiveList offers = new LiveList();
+        serviceFor(RIDER).getAllRideOffers(true, offers);
+
+        assertEquals(2, offers.latest.size());
+        RideMetrics.Overfetch overfetch = RideService.getMetrics().overfetch().get("getAllRideOffers");
+        assertEquals(1, overfetch.reads);
+        assertEquals(3, overfetch.downloaded); // The status query also returns the viewer's own offer
+        assertEquals(2, overfetch.shown);
+        assertEquals(1, RideService.getMetrics().latencies().get("getAllRideOffers").count);
+        assertTrue(RideService.getMetrics().toJson().contains("\"getAllRideOffers\": {\"reads\": 1, \"downloaded\": 3, \"shown\": 2"));
+    }
+
+    @Test
+    public void completeRide_tracesEachHop() {
+        create(DRIVER, true);
+        serviceFor(RIDER).acceptRide(1, new Result());
+        RideService.getTracer().reset();
+
+        Result result = new Result();
+        serviceFor(DRIVER).completeRide(1, result);
+        assertTrue(result.succeeded);
+
+        List<RideTracer.Trace> traces = RideService.getTracer().recentTraces();
+        assertEquals(1, traces.size());
+        RideTracer.Trace trace = traces.get(0);
+        assertEquals("completeRide", trace.getCommand());
+        assertFalse(trace.isFailed());
+        List<String> hops = new ArrayList<>();
+        for (RideTracer.Span span : trace.getSpans()) {
+            hops.add(span.getName());
+            assertTrue(span.getDurationNanos() >= 0);
+        }
+        assertEquals(Arrays.asList("read", "write", "points"), hops);
+        assertEquals(1, trace.getSpans().get(2).getAttempts());
+        assertTrue(RideService.getTracer().toJson().contains("\"command\": \"completeRide\""));
+    }
+
+    @Test
+    public void tracer_keepsOnlyTheMostRecentTraces() {
+        RideService.getTracer().reset();
+        for (int i = 0; i < 150; i++) serviceFor(DRIVER).deleteRide(1000 + i, new Result());
+
+        List<RideTracer.Trace> traces = RideService.getTracer().recentTraces();
+        assertEquals(100, traces.size());
+        assertTrue(traces.get(0).getId() < traces.get(99).getId());
+    }
+
+    // --- Futures ---
+
+    @Test
+    public void futures_joinIndependentReadsAndChainCommands() throws Exception {
+        create(DRIVER, true);
+        create(RIDER, false);
+        RideService rider = serviceFor(RIDER);
+
+        CompletableFuture<List<Ride>> offers = rider.getAllRideOffersAsync(true);
+        CompletableFuture<List<Ride>> ownRequests = rider.getAllRideRequestsAsync(false);
+        CompletableFuture<Integer> points = rider.getUserPointsAsync();
+        CompletableFuture.allOf(offers, ownRequests, points).get(5, TimeUnit.SECONDS);
+        assertEquals(1, offers.get().size());
+        assertEquals(1, ownRequests.get().size());
+        assertEquals(50, (int) points.get());
+
+        rider.acceptRideAsync(1)
+                .thenCompose(ignored -> serviceFor(DRIVER).completeRideAsync(1))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(rideAt(1).isComplete());
+        assertEquals(150, points(DRIVER));
+    }
+
+    @Test
+    public void futures_failWithTheOriginalException() throws Exception {
+        create(DRIVER, true);
+        try {
+            serviceFor("stranger@example.com").completeRideAsync(1).get(5, TimeUnit.SECONDS);
+            fail("A non-participant completed the ride");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SecurityException);
+        }
+        Result result = new Result();
+        serviceFor("stranger@example.com").completeRide(1, result);
+        assertTrue(result.failure instanceof SecurityException);
+    }
+
+    @Test
+    public void cancelledListFuture_dropsResult() {
+        create(DRIVER, true);
+        List<Runnable> queued = new ArrayList<>();
+        RideService service = new RideService(store, () -> RIDER, allocator, queued::add, Runnable::run);
+
+        RideService.getMetrics().reset();
+        CompletableFuture<List<Ride>> offers = service.getAllRideOffersAsync(true);
+        assertTrue(offers.cancel(true));
+        assertFalse("Parsing was handed off", queued.isEmpty());
+        for (Runnable task : new ArrayList<>(queued)) task.run();
+        assertNull("The cancelled read was still parsed", RideService.getMetrics().overfetch().get("getAllRideOffers"));
+    }
+
+    // --- List cache ---
+
+    @Test
+    public void identicalReadsInFlight_shareOneFetch() {
+        create(DRIVER, true);
+        List<Runnable> queued = new ArrayList<>();
+        RideService service = new RideService(store, () -> RIDER, allocator, queued::add, Runnable::run);
+
+        LiveList first = new LiveList();
+        LiveList second = new LiveList();
+        service.getAllRideOffers(true, first);
+        service.getAllRideOffers(true, second);
+        assertEquals("The second read started its own fetch", 1, queued.size());
+        queued.remove(0).run();
+        assertEquals(1, first.latest.size());
+        assertEquals(1, second.latest.size());
+        assertNotSame(first.latest, second.latest);
+
+        LiveList third = new LiveList();
+        service.getAllRideOffers(true, third);
+        assertTrue("A cached list was fetched again", queued.isEmpty());
+        assertEquals(1, third.latest.size());
+
+        RideListCache.Stats stats = service.getListCacheStats();
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.coalesced);
+        assertEquals(1, stats.hits);
+    }
+
+    @Test
+    public void removingOneWaiter_keepsTheSharedFetch() {
+        create(DRIVER, true);
+        List<Runnable> queued = new ArrayList<>();
+        RideService service = new RideService(store, () -> RIDER, allocator, queued::add, Runnable::run);
+
+        LiveList gone = new LiveList();
+        LiveList staying = new LiveList();
+        service.getAllRideOffers(true, gone).remove();
+        service.getAllRideOffers(true, staying);
+        for (Runnable task : new ArrayList<>(queued)) task.run();
+        assertNull(gone.latest);
+        assertEquals(1, staying.latest.size());
+    }
+
+    @Test
+    public void writes_dropTheListsTheyChange() {
+        create(DRIVER, true);
+        RideService rider = serviceFor(RIDER);
+        LiveList offers = new LiveList();
+        rider.getAllRideOffers(true, offers);
+        LiveList ownRequests = new LiveList();
+        rider.getAllRideRequests(false, ownRequests);
+        assertEquals(1, offers.latest.size());
+        assertEquals(0, ownRequests.latest.size());
+
+        Result created = new Result();
+        rider.createNewRideWithStrings("2025-05-01 10:00", false, "Athens", "Atlanta", created);
+        assertTrue(created.succeeded);
+        rider.getAllRideRequests(false, ownRequests);
+        assertEquals(1, ownRequests.latest.size());
+        rider.getAllRideOffers(true, offers);
+        assertEquals("An unrelated list was dropped", 1, rider.getListCacheStats().hits);
+
+        Result accepted = new Result();
+        rider.acceptRide(1, accepted);
+        assertTrue(accepted.succeeded);
+        rider.getAllRideOffers(true, offers);
+        assertEquals(0, offers.latest.size());
+        LiveList acceptedRides = new LiveList();
+        rider.getAllAcceptedRides(acceptedRides);
+        assertEquals(1, acceptedRides.latest.size());
+    }
+
+    // --- Ride entity cache ---
+
+    private static List<String> hops(RideTracer.Trace trace) {
+        List<String> hops = new ArrayList<>();
+        for (RideTracer.Span span : trace.getSpans()) hops.add(span.getName() + (span.isFailed() ? " failed" : ""));
+        return hops;
+    }
+
+    @Test
+    public void completeRide_usesTheRideTheListDelivered() {
+        create(DRIVER, true);
+        serviceFor(RIDER).acceptRide(1, new Result());
+        RideService driver = serviceFor(DRIVER);
+        assertEquals(1, acceptedRidesVia(driver).size());
+        RideService.getTracer().reset();
+
+        Result result = new Result();
+        driver.completeRide(1, result);
+        assertTrue(result.succeeded);
+        assertTrue(rideAt(1).isComplete());
+        assertEquals(150, points(DRIVER));
+        assertEquals(Arrays.asList("cachedRead", "write", "points"), hops(RideService.getTracer().recentTraces().get(0)));
+        assertEquals(1, driver.getRideCacheStats().hits);
+    }
+
+    @Test
+    public void staleCachedRide_isReadAgainInsteadOfOverwritten() {
+        create(DRIVER, true);
+        serviceFor(RIDER).acceptRide(1, new Result());
+        RideService driver = serviceFor(DRIVER);
+        acceptedRidesVia(driver); // Caches version 2
+
+        Ride edited = rideAt(1);
+        edited.setTo("Savannah");
+        Result edit = new Result();
+        serviceFor(RIDER).updateRide(1, edited, edit);
+        assertTrue(edit.succeeded);
+        assertEquals(3, rideAt(1).getVersion());
+        RideService.getTracer().reset();
+
+        Result result = new Result();
+        driver.completeRide(1, result);
+        assertTrue(result.succeeded);
+        Ride completed = rideAt(1);
+        assertTrue(completed.isComplete());
+        assertEquals("Savannah", completed.getTo());
+        assertEquals(4, completed.getVersion());
+        assertEquals(150, points(DRIVER));
+        assertEquals(Arrays.asList("cachedRead", "write failed", "read", "write", "points"),
+                hops(RideService.getTracer().recentTraces().get(0)));
+        assertEquals(1, driver.getRideCacheStats().conflicts);
+    }
+
+    @Test
+    public void versionRule_rejectsWritesFromAnOldCopy() {
+        create(DRIVER, true);
+        Map<String, Object> stale = rideAt(1).toMap(); // Rewrites version 1 instead of moving to 2
+        AtomicReference<RideStoreException> rejected = new AtomicReference<>();
+        store.updateChildren(Collections.singletonMap("rides/1", stale), rejected::set);
+        assertNotNull(rejected.get());
+        assertTrue(rejected.get().isPermissionDenied());
+    }
+
+    private static List<Ride> acceptedRidesVia(RideService service) {
+        AtomicReference<List<Ride>> rides = new AtomicReference<>();
+        service.getAllAcceptedRides(new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { rides.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        return rides.get();
+    }
+
+    // --- Departure times ---
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /** The current time, cut to the minute that dateTime text can hold. */
+    private static long nowToTheMinute() {
+        return System.currentTimeMillis() / 60_000 * 60_000;
+    }
+
+    private void createDeparting(String email, boolean isDriver, long departureAt) {
+        Result result = new Result();
+        serviceFor(email).createNewRideWithStrings(DepartureTime.format(departureAt), isDriver, "Athens", "Atlanta", result);
+        assertTrue(result.succeeded);
+    }
+
+    private static List<Integer> ids(List<Ride> rides) {
+        List<Integer> ids = new ArrayList<>();
+        for (Ride ride : rides) ids.add(ride.getRideId());
+        return ids;
+    }
+
+    @Test
+    public void createRide_storesDepartureAndItsIndexValue() {
+        long departure = nowToTheMinute() + 5 * HOUR;
+        createDeparting(DRIVER, true, departure);
+        assertEquals(departure, valueAt("rides/1/departureAt"));
+        assertEquals(DepartureTime.indexKey(RideStatus.OPEN_OFFER, departure), valueAt("rides/1/statusDeparture"));
+
+        serviceFor(RIDER).acceptRide(1, new Result());
+        assertEquals(DepartureTime.indexKey(RideStatus.ACCEPTED, departure), valueAt("rides/1/statusDeparture"));
+        serviceFor(DRIVER).completeRide(1, new Result());
+        assertEquals(DepartureTime.indexKey(RideStatus.COMPLETE, departure), valueAt("rides/1/statusDeparture"));
+    }
+
+    @Test
+    public void departingBetween_readsOnlyTheWindowSoonestFirst() {
+        long now = nowToTheMinute();
+        createDeparting(DRIVER, true, now + 30 * HOUR);
+        createDeparting(DRIVER, true, now + 2 * HOUR);
+        createDeparting(DRIVER, true, now + 72 * HOUR);  // After the window
+        createDeparting(DRIVER, true, now - HOUR);       // Already left
+        createDeparting(DRIVER, false, now + HOUR);      // A request
+        create(DRIVER, true);                            // Undated
+
+        AtomicReference<List<Ride>> rides = new AtomicReference<>();
+        serviceFor(RIDER).getRideOffersDepartingBetween(now, now + 48 * HOUR, new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { rides.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        assertEquals(Arrays.asList(2, 1), ids(rides.get()));
+        assertEquals(now + 2 * HOUR, rides.get().get(0).getDepartureAt());
+    }
+
+    @Test
+    public void getRides_sortsAndLimitsOwnRidesReadThroughTheUserIndex() {
+        long now = nowToTheMinute();
+        createDeparting(DRIVER, true, now + 30 * HOUR);
+        createDeparting(DRIVER, true, now + 2 * HOUR);
+        createDeparting(DRIVER, true, now + 72 * HOUR); // After the window
+        createDeparting(DRIVER, true, now + 5 * HOUR);
+        createDeparting("other@example.com", true, now + HOUR); // Someone else's
+
+        RideQuery query = RideQuery.offers().ownedBy(RideQuery.Owner.CURRENT_USER).departingBetween(now, now + 48 * HOUR).limit(2);
+        assertEquals(RideQuery.Index.USER_RIDES, serviceFor(DRIVER).explain(query).index);
+        AtomicReference<List<Ride>> rides = new AtomicReference<>();
+        serviceFor(DRIVER).getRides(query, new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { rides.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        assertEquals(Arrays.asList(2, 4), ids(rides.get()));
+        assertNull(serviceFor(null).explain(query));
+    }
+
+    @Test
+    public void offersNear_readOnlyNearbyCellsAndCheckTheDistance() {
+        double[][] origins = {
+                { 33.9519, -83.3576 }, // Downtown Athens
+                { 33.9480, -83.3773 }, // About 2 km west
+                { 33.9570, -83.3450 }, // About 1.3 km east
+                { 33.7490, -84.3880 }, // Atlanta
+        };
+        for (double[] origin : origins) {
+            Ride ride = new Ride("05/01/2025 10:00 AM", DRIVER, null, "Atlanta", "Athens", false, 0);
+            ride.setFromLocation(origin[0], origin[1]);
+            Result result = new Result();
+            serviceFor(DRIVER).createNewRide(ride, result);
+            assertTrue(result.succeeded);
+        }
+        create(DRIVER, true); // No location
+
+        AtomicReference<List<Ride>> near = new AtomicReference<>();
+        RideService.RideListListener listener = new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { near.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        };
+        serviceFor(RIDER).getRideOffersNear(33.9519, -83.3576, 2000, listener);
+        assertEquals(Arrays.asList(1, 2, 3), ids(near.get()));
+        RideMetrics.Overfetch overfetch = RideService.getMetrics().overfetch().get("getRideOffersNear");
+        assertTrue("Read rides outside the cells", overfetch.downloaded <= 3);
+
+        serviceFor(RIDER).acceptRide(2, new Result()); // Moves its cell index to ACCEPTED
+        assertEquals(GeoHash.indexKey(RideStatus.ACCEPTED, 33.9480, -83.3773), valueAt("rides/2/statusFromCell"));
+        serviceFor(RIDER).getRideOffersNear(33.9519, -83.3576, 2000, listener);
+        assertEquals(Arrays.asList(1, 3), ids(near.get()));
+    }
+
+    @Test
+    public void updateWithoutCoordinates_keepsTheRideInNearbySearch() {
+        Ride ride = new Ride("05/01/2025 10:00 AM", DRIVER, null, "Atlanta", "Athens", false, 0);
+        ride.setFromLocation(33.9519, -83.3576);
+        ride.setToLocation(33.7490, -84.3880);
+        Result created = new Result();
+        serviceFor(DRIVER).createNewRide(ride, created);
+        assertTrue(created.succeeded);
+
+        Ride edited = new Ride("05/01/2025 11:00 AM", DRIVER, null, "Atlanta", "Athens", false, 0); // As the edit form builds it
+        Result updated = new Result();
+        serviceFor(DRIVER).updateRide(1, edited, updated);
+        assertTrue(updated.succeeded);
+        assertEquals(33.9519, (Double) valueAt("rides/1/fromLat"), 0);
+        assertEquals(-84.3880, (Double) valueAt("rides/1/toLng"), 0);
+        assertEquals(GeoHash.indexKey(RideStatus.OPEN_OFFER, 33.9519, -83.3576), valueAt("rides/1/statusFromCell"));
+        assertEquals(GeoHash.indexKey(RideStatus.OPEN_OFFER, 33.7490, -84.3880), valueAt("rides/1/statusToCell"));
+
+        AtomicReference<List<Ride>> near = new AtomicReference<>();
+        serviceFor(RIDER).getRideOffersNear(33.9519, -83.3576, 2000, new RideService.RideListListener() {
+            @Override public void onRidesFetched(List<Ride> fetched) { near.set(fetched); }
+            @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+        });
+        assertEquals(Collections.singletonList(1), ids(near.get()));
+        assertEquals("11:00 AM", near.get().get(0).getDateTime().substring(11));
+    }
+
+    @Test
+    public void browsePages_skipDepartedRidesAndRunSoonestFirst() {
+        long now = nowToTheMinute();
+        createDeparting(DRIVER, true, now + 3 * HOUR);
+        createDeparting(DRIVER, true, now - HOUR);
+        createDeparting(DRIVER, true, now + HOUR);
+        create(DRIVER, true); // Undated, so last
+        createDeparting(DRIVER, true, now + 2 * HOUR);
+        RideService rider = serviceFor(RIDER);
+
+        LivePage first = new LivePage();
+        rider.subscribeRideOffersPage(null, 2, first);
+        assertEquals(Arrays.asList(3, 5), ids(first.rides));
+
+        LivePage second = new LivePage();
+        rider.subscribeRideOffersPage(first.nextCursor, 2, second);
+        assertEquals(Arrays.asList(1, 4), ids(second.rides));
+        assertNull(second.nextCursor);
+    }
+
+    @Test
+    public void migrateDepartureTimes_fillsLegacyRidesChunkByChunk() {
+        long departure = nowToTheMinute() + HOUR;
+        Map<String, Object> legacy = new HashMap<>();
+        for (int id = 1; id <= 450; id++) { // More than two migration chunks
+            Ride ride = new Ride(id % 3 == 0 ? "next Tuesday" : DepartureTime.format(departure + id * 60_000L),
+                    DRIVER, null, "Atlanta", "Athens", false, id);
+            ride.setStatus(RideStatus.OPEN_OFFER);
+            Map<String, Object> node = ride.toMap();
+            node.remove("departureAt");
+            node.remove("statusDeparture");
+            node.remove("version");
+            legacy.put("rides/" + id, node);
+        }
+        store.updateChildren(legacy, error -> assertNull(error));
+
+        Result result = new Result();
+        serviceFor(DRIVER).migrateDepartureTimes(result);
+        assertTrue(result.succeeded);
+        assertEquals(departure + 400 * 60_000L, valueAt("rides/400/departureAt"));
+        assertEquals(DepartureTime.indexKey(RideStatus.OPEN_OFFER, departure + 400 * 60_000L), valueAt("rides/400/statusDeparture"));
+        assertEquals(0L, valueAt("rides/450/departureAt")); // Unparseable text
+        assertEquals(DepartureTime.lastIndexKey(RideStatus.OPEN_OFFER), valueAt("rides/450/statusDeparture"));
+        assertEquals(1L, valueAt("rides/1/version"));
+
+        // A second run finds nothing left to do, so no version moves again
+        Result again = new Result();
+        serviceFor(DRIVER).migrateDepartureTimes(again);
+        assertTrue(again.succeeded);
+        assertEquals(1L, valueAt("rides/1/version"));
+        assertEquals(1L, valueAt("rides/450/version"));
+        assertEquals(true, valueAt("migrations/departureTimes"));
+    }
+
+    @Test
+    public void migrateRideIndexes_runsOncePerDatabaseInChunks() {
+        Map<String, Object> legacy = new HashMap<>();
+        for (int id = 1; id <= 250; id++) { // More than one migration chunk
+            Ride ride = new Ride("05/01/2025 10:00 AM", DRIVER, id % 2 == 0 ? RIDER : null, "Atlanta", "Athens", false, 0);
+            Map<String, Object> node = ride.toMap();
+            node.remove("status");
+            node.remove("version");
+            legacy.put("rides/" + id, node); // rideId 0 in the node: the key is what counts
+        }
+        store.updateChildren(legacy, error -> assertNull(error));
+
+        // Another device claimed it a moment ago: nothing is written and the caller retries later
+        Map<String, Object> claim = new HashMap<>();
+        claim.put("migrations/rideIndexes", System.currentTimeMillis());
+        store.updateChildren(claim, error -> assertNull(error));
+        Result blocked = new Result();
+        serviceFor(DRIVER).migrateRideIndexes(blocked);
+        assertNotNull(blocked.failure);
+        assertNull(valueAt("rides/250/status"));
+
+        claim.put("migrations/rideIndexes", System.currentTimeMillis() - 3_600_000L); // Abandoned an hour ago
+        store.updateChildren(claim, error -> assertNull(error));
+        Result result = new Result();
+        serviceFor(DRIVER).migrateRideIndexes(result);
+        assertTrue(result.succeeded);
+        assertEquals("OPEN_OFFER", valueAt("rides/249/status"));
+        assertEquals("ACCEPTED", valueAt("rides/250/status"));
+        assertEquals("ACCEPTED", valueAt("userRides/rider@example,com/250"));
+        assertEquals("OPEN_OFFER", valueAt("userRides/driver@example,com/249"));
+        assertNull(valueAt("userRides/driver@example,com/0"));
+        assertEquals(true, valueAt("migrations/rideIndexes"));
+
+        // A fresh install only reads the marker
+        store.updateChildren(Collections.singletonMap("rides/1/status", (Object) null), error -> assertNull(error));
+        Result again = new Result();
+        serviceFor(RIDER).migrateRideIndexes(again);
+        assertTrue(again.succeeded);
+        assertNull(valueAt("rides/1/status"));
+    }
+
+    // --- Open ride pool ---
+
+    private static class PoolChanges implements RideService.RidePoolListener {
+        final List<String> batches = new ArrayList<>();
+        @Override public void onPoolChanged(RideStatus status, boolean complete, List<Ride> changed, Set<Integer> removed) {
+            batches.add(status + (complete ? " complete " : " ") + ids(changed) + " removed " + new TreeSet<>(removed));
+        }
+        @Override public void onError(DatabaseError databaseError) { fail(databaseError.getMessage()); }
+    }
+
+    @Test
+    public void subscribeOpenRidePool_sendsTheHorizonThenOnlyChanges() {
+        long now = nowToTheMinute();
+        createDeparting(DRIVER, true, now + 2 * HOUR);
+        createDeparting(DRIVER, false, now + HOUR);
+        createDeparting(DRIVER, true, now - HOUR); // Already left
+        createDeparting(RIDER, true, now + HOUR);  // The rider's own offer
+        createDeparting(DRIVER, true, now + 30 * HOUR); // Past the horizon
+        create(DRIVER, true);                           // Undated
+
+        PoolChanges pool = new PoolChanges();
+        RideStore.Registration subscription = serviceFor(RIDER).subscribeOpenRidePool(24 * HOUR, pool);
+        assertEquals(Arrays.asList("OPEN_OFFER complete [1] removed []", "OPEN_REQUEST complete [2] removed []"), pool.batches);
+
+        pool.batches.clear();
+        createDeparting(DRIVER, true, now + 3 * HOUR);
+        serviceFor(RIDER).acceptRide(1, new Result());
+        createDeparting(DRIVER, true, now + 25 * HOUR);
+        assertEquals(Arrays.asList("OPEN_OFFER [7] removed []", "OPEN_OFFER [] removed [1]"), pool.batches);
+
+        pool.batches.clear();
+        subscription.remove();
+        createDeparting(DRIVER, true, now + 4 * HOUR);
+        assertTrue(pool.batches.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> serviceFor(RIDER).subscribeOpenRidePool(0, pool));
+    }
+
+    // --- Delta reads ---
+
+    /** Records how many children each one-shot read returned. */
+    private static class CountingStore extends MemoryRideStore {
+        final List<Long> childrenRead = new ArrayList<>();
+        @Override public void get(StoreQuery query, ValueListener listener) {
+            super.get(query, new ValueListener() {
+                @Override public void onDataChange(RideStore.Snapshot snapshot) {
+                    childrenRead.add(snapshot.getChildrenCount());
+                    listener.onDataChange(snapshot);
+                }
+                @Override public void onCancelled(RideStoreException error) { listener.onCancelled(error); }
+            });
+        }
+    }
+
+    @Test
+    public void listReadAgain_fetchesOnlyRidesWrittenSinceItsWatermark() {
+        AtomicLong serverNow = new AtomicLong(1_746_108_000_000L);
+        CountingStore counting = new CountingStore();
+        store = counting.withAppRules().withClock(serverNow::get);
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        for (int i = 0; i < 20; i++) {
+            create(DRIVER, true);
+            serverNow.addAndGet(TimeUnit.MINUTES.toMillis(10));
+        }
+        assertEquals(serverNow.get() - TimeUnit.MINUTES.toMillis(10), valueAt("rides/20/updatedAt"));
+
+        RideService rider = serviceFor(RIDER);
+        LiveList offers = new LiveList();
+        int readsBeforeList = counting.childrenRead.size();
+        rider.getAllRideOffers(true, offers);
+        assertEquals(20, offers.latest.size());
+        assertEquals("The watermark is the read's server time, not a query of its own", readsBeforeList + 1, counting.childrenRead.size());
+
+        serverNow.addAndGet(TimeUnit.HOURS.toMillis(1));
+        create(DRIVER, true);                           // 21 joins
+        serviceFor(DRIVER).deleteRide(2, new Result()); // 2 leaves as a tombstone
+        rider.acceptRide(3, new Result());              // 3 leaves; also drops the rider's cached offers
+        assertEquals(true, valueAt("rides/2/deleted"));
+        assertNull(rideAt(2));
+
+        int readsBefore = counting.childrenRead.size();
+        rider.getAllRideOffers(true, offers);
+        assertEquals("One delta read", readsBefore + 1, counting.childrenRead.size());
+        assertEquals("Rides 21, 2 and 3; ride 20 predates the read", 3L, (long) counting.childrenRead.get(readsBefore));
+        assertEquals(1, rider.getListCacheStats().deltas);
+
+        LiveList fresh = new LiveList();
+        serviceFor(RIDER).getAllRideOffers(true, fresh);
+        assertEquals(ids(fresh.latest), ids(offers.latest));
+        assertFalse(ids(offers.latest).contains(2));
+        assertFalse(ids(offers.latest).contains(3));
+        assertTrue(ids(offers.latest).contains(21));
+    }
+
+    @Test
+    public void listDelta_coversOnlyWritesSinceTheRead() {
+        AtomicLong serverNow = new AtomicLong(1_746_108_000_000L);
+        CountingStore counting = new CountingStore();
+        store = counting.withAppRules().withClock(serverNow::get);
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        for (int i = 0; i < 4; i++) create(DRIVER, true);
+        serverNow.addAndGet(TimeUnit.HOURS.toMillis(5));
+        for (int i = 0; i < 10; i++) create("requester" + i + "@example.com", false); // Requests, written after the newest offer but before the read
+        serverNow.addAndGet(TimeUnit.MINUTES.toMillis(10));
+
+        RideService rider = serviceFor(RIDER);
+        LiveList offers = new LiveList();
+        rider.getAllRideOffers(true, offers);
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(offers.latest));
+
+        serverNow.addAndGet(TimeUnit.HOURS.toMillis(1));
+        create("requester@example.com", false); // Another request
+        create(DRIVER, true);
+        rider.acceptRide(5, new Result());      // An accept of a request, which also drops the cached offers
+        int readsBefore = counting.childrenRead.size();
+        rider.getAllRideOffers(true, offers);
+        assertEquals(1, rider.getListCacheStats().deltas);
+        assertEquals("Only the three writes since the read", 3L, (long) counting.childrenRead.get(readsBefore));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 16), ids(offers.latest));
+
+        serverNow.addAndGet(TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 5; i++) create("requester" + i + "@example.com", false);
+        create(DRIVER, true);
+        rider.acceptRide(17, new Result());
+        rider.getAllRideOffers(true, offers);
+        assertEquals(2, rider.getListCacheStats().deltas); // Six writes for a list of five
+        assertEquals(Arrays.asList(1, 2, 3, 4, 16, 22), ids(offers.latest));
+
+        serverNow.addAndGet(TimeUnit.HOURS.toMillis(1));
+        create(DRIVER, true);
+        rider.acceptRide(18, new Result());
+        rider.getAllRideOffers(true, offers);
+        assertEquals("More writes than rides in the list: read whole instead", 2, rider.getListCacheStats().deltas);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 16, 22, 23), ids(offers.latest));
+    }
+
+    @Test
+    public void ownListsReadAgain_goThroughTheirIndexNotADelta() {
+        AtomicLong serverNow = new AtomicLong(1_746_108_000_000L);
+        store = new MemoryRideStore().withAppRules().withClock(serverNow::get);
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        RideService driver = serviceFor(DRIVER);
+        create(DRIVER, true);
+        create(DRIVER, true);
+        LiveList mine = new LiveList();
+        driver.getAllRideOffers(false, mine);
+        assertEquals(Arrays.asList(1, 2), ids(mine.latest));
+
+        serverNow.addAndGet(TimeUnit.MINUTES.toMillis(10));
+        create(RIDER, true);                     // Someone else's write: no business of the driver's list
+        driver.deleteRide(1, new Result());
+        driver.getAllRideOffers(false, mine);
+        assertEquals(Collections.singletonList(2), ids(mine.latest));
+        assertEquals("Read again through userRides, not every ride written since", 0, driver.getListCacheStats().deltas);
+    }
+
+    @Test
+    public void purgeTombstones_removesOnlyOldTombstonesOncePerDay() {
+        long now = System.currentTimeMillis();
+        AtomicLong serverNow = new AtomicLong(now - TimeUnit.DAYS.toMillis(8));
+        store = new MemoryRideStore().withAppRules().withClock(serverNow::get);
+        allocator = new RideIdAllocator(store, "counters/lastRideId", RideIdAllocator.DEFAULT_BLOCK_SIZE);
+        RideService driver = serviceFor(DRIVER);
+        for (int i = 0; i < 3; i++) create(DRIVER, true);
+        driver.deleteRide(1, new Result());             // Deleted eight days ago
+        serverNow.set(now);
+        driver.deleteRide(2, new Result());             // Deleted just now
+
+        Result purged = new Result();
+        driver.purgeTombstones(purged);
+        assertTrue(purged.succeeded);
+        assertNull(valueAt("rides/1"));
+        assertEquals(true, valueAt("rides/2/deleted"));
+        assertNotNull(rideAt(3));
+        assertNotNull(valueAt("maintenance/tombstonePurge"));
+
+        serverNow.set(now - TimeUnit.DAYS.toMillis(9));
+        create(DRIVER, true);
+        driver.deleteRide(4, new Result());
+        Result again = new Result();
+        serviceFor(RIDER).purgeTombstones(again);
+        assertTrue("Already purged today", again.succeeded);
+        assertEquals(true, valueAt("rides/4/deleted"));
+    }
+}
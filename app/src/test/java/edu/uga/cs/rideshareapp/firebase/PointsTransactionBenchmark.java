@@ -0,0 +1,65 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import edu.uga.cs.rideshareapp.model.Points;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+
+/**
+ * The handlePoints transaction body (RideService.applyPointsChange), run through
+ * MemoryRideStore's transaction loop so it sees the same mutable-node mapping it does in
+ * production. Alternates a request debit and a refund so the balance stays put.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class PointsTransactionBenchmark {
+
+    private static final String USER = "user0@example.com";
+    private static final String POINTS_PATH = "userPoints/user0@example,com";
+
+    private MemoryRideStore store;
+    private int pointChange = -50;
+    private boolean lastCommitted;
+
+    private final RideStore.TransactionHandler handler = new RideStore.TransactionHandler() {
+        @Override
+        public boolean doTransaction(RideStore.MutableNode current) {
+            return RideService.applyPointsChange(current, pointChange, USER);
+        }
+
+        @Override
+        public void onComplete(RideStoreException error, boolean committed, RideStore.Snapshot currentData) {
+            lastCommitted = committed;
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void seedBalance() {
+        store = new MemoryRideStore();
+        store.updateChildren(Collections.singletonMap(POINTS_PATH, new Points(100)), error -> { });
+    }
+
+    @Benchmark
+    public boolean handlePointsTransaction() {
+        pointChange = -pointChange;
+        store.runTransaction(POINTS_PATH, handler);
+        return lastCommitted;
+    }
+}
@@ -0,0 +1,93 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+
+/** RideDiskCache files, written and read inline on a temporary directory. */
+public class RideDiskCacheTest {
+
+    private static final String KEY = RideDiskCache.key("browseOffers", "rider@example.com");
+
+    private File dir;
+    private RideDiskCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ride_lists").toFile();
+        cache = new RideDiskCache(dir, Runnable::run, Runnable::run);
+    }
+
+    private List<Ride> read(String key) {
+        AtomicReference<List<Ride>> rides = new AtomicReference<>();
+        cache.read(key, rides::set);
+        return rides.get();
+    }
+
+    private static Ride ride(int id, String driver, String rider) {
+        Ride ride = new Ride("05/01/2025 10:00 AM", driver, rider, "Atlanta", "Athens", false, id);
+        ride.setStatus(ride.deriveStatus());
+        ride.setDepartureAt(1_746_108_000_000L + id);
+        ride.setVersion(id % 4);
+        return ride;
+    }
+
+    @Test
+    public void writtenList_readsBackEqual() {
+        List<Ride> rides = Arrays.asList(ride(1, "driver@example.com", null), ride(2, null, "other@example.com"),
+                ride(3, "driver@example.com", "other@example.com"));
+        rides.get(0).setFromLocation(33.9519, -83.3576);
+        rides.get(1).setToLocation(-33.8688, 151.2093);
+        cache.write(KEY, rides);
+        assertEquals(rides, read(KEY));
+        assertEquals(RideStatus.ACCEPTED, read(KEY).get(2).getStatus());
+        assertNull(read(RideDiskCache.key("browseRequests", "rider@example.com")));
+    }
+
+    @Test
+    public void write_keepsOnlyTheFirstRides() {
+        List<Ride> rides = new ArrayList<>();
+        for (int id = 1; id <= RideDiskCache.MAX_RIDES + 10; id++) rides.add(ride(id, "driver@example.com", null));
+        cache.write(KEY, rides);
+        assertEquals(rides.subList(0, RideDiskCache.MAX_RIDES), read(KEY));
+    }
+
+    @Test
+    public void damagedOrOtherVersionFiles_readAsNothing() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RideDiskCache.encode(Arrays.asList(ride(1, "driver@example.com", null)), new DataOutputStream(bytes));
+        byte[] encoded = bytes.toByteArray();
+
+        try (FileOutputStream out = new FileOutputStream(new File(dir, KEY))) {
+            out.write(encoded, 0, encoded.length / 2); // Cut off mid-ride
+        }
+        assertNull(read(KEY));
+
+        encoded[3]++; // Format version
+        assertNull(RideDiskCache.decode(new DataInputStream(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    public void clear_removesEveryList() {
+        cache.write(KEY, Arrays.asList(ride(1, "driver@example.com", null)));
+        cache.clear();
+        assertNull(read(KEY));
+    }
+}
@@ -0,0 +1,142 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.model.DepartureTime;
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideCodec;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/**
+ * The per-refresh list paths in RideService over a synthetic rides node: snapshot parsing
+ * (parseRides, i.e. the body of createListValueEventListener), the RideFilter on its own,
+ * Ride.toMap and setRideIdFromKey. Each operation covers the whole dataset, so ops/s is
+ * "full list refreshes per second" at that size.
+ *
+ * decodeRidesCodec and decodeRidesReflective compare RideCodec with getValue(Ride.class) on the
+ * same snapshot. Off-device the reflective side is MemoryRideStore's BeanMapper, which follows
+ * Firebase's class mapper closely but is not the mapper itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class RideListBenchmark {
+
+    private static final String CURRENT_USER = "user0@example.com";
+    private static final long YEAR_START = 1_735_689_600_000L; // 2025-01-01T00:00Z
+    private static final long HOUR_MS = 3_600_000L;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rides;
+
+    private RideStore.Snapshot ridesSnapshot;
+    private List<Ride> parsedRides;
+    private List<String> rideKeys;
+    private RideService.RideFilter offerFilter;
+    private final Ride scratchRide = new Ride();
+
+    @Setup(Level.Trial)
+    public void loadDataset() {
+        MemoryRideStore store = new MemoryRideStore();
+        Map<String, Object> updates = new LinkedHashMap<>();
+        updates.put("rides", syntheticRides(rides, 42));
+        store.updateChildren(updates, error -> { if (error != null) throw new IllegalStateException(error); });
+
+        AtomicReference<RideStore.Snapshot> snapshot = new AtomicReference<>();
+        store.get(StoreQuery.at("rides"), new RideStore.ValueListener() {
+            @Override public void onDataChange(RideStore.Snapshot result) { snapshot.set(result); }
+            @Override public void onCancelled(RideStoreException error) { throw new IllegalStateException(error); }
+        });
+        ridesSnapshot = snapshot.get();
+
+        offerFilter = RideService.offerFilter(CURRENT_USER, true);
+        parsedRides = RideService.parseRides(ridesSnapshot, ride -> true, "benchmark");
+        rideKeys = new ArrayList<>();
+        for (RideStore.Snapshot child : ridesSnapshot.getChildren()) rideKeys.add(child.getKey());
+    }
+
+    @Benchmark
+    public List<Ride> parseOpenOffers() {
+        return RideService.parseRides(ridesSnapshot, offerFilter, "benchmark");
+    }
+
+    @Benchmark
+    public void decodeRidesCodec(Blackhole blackhole) {
+        for (RideStore.Snapshot child : ridesSnapshot.getChildren()) blackhole.consume(RideCodec.decodeRide(child.getValue()));
+    }
+
+    @Benchmark
+    public void decodeRidesReflective(Blackhole blackhole) {
+        for (RideStore.Snapshot child : ridesSnapshot.getChildren()) blackhole.consume(child.getValue(Ride.class));
+    }
+
+    @Benchmark
+    public void filterOpenOffers(Blackhole blackhole) {
+        for (Ride ride : parsedRides) blackhole.consume(offerFilter.shouldInclude(ride));
+    }
+
+    @Benchmark
+    public void rideToMap(Blackhole blackhole) {
+        for (Ride ride : parsedRides) blackhole.consume(ride.toMap());
+    }
+
+    @Benchmark
+    public int setRideIdFromKey() {
+        int sum = 0;
+        for (String key : rideKeys) {
+            RideService.setRideIdFromKey(scratchRide, key);
+            sum += scratchRide.getRideId();
+        }
+        return sum;
+    }
+
+    /**
+     * Ride nodes shaped like production data: 1000 users, a handful of cities and a status mix of
+     * roughly 40% open offers, 40% open requests, 15% accepted and 5% complete, departing on the
+     * hour through 2025 with dateTime text in the app's own format.
+     */
+    static Map<String, Object> syntheticRides(int count, long seed) {
+        String[] cities = { "Athens", "Atlanta", "Savannah", "Augusta", "Macon", "Columbus", "Gainesville", "Rome" };
+        String[] users = new String[1000];
+        for (int i = 0; i < users.length; i++) users[i] = "user" + i + "@example.com";
+
+        Random random = new Random(seed);
+        Map<String, Object> ridesNode = new LinkedHashMap<>();
+        for (int id = 1; id <= count; id++) {
+            int kind = random.nextInt(100);
+            String driver = kind < 40 || kind >= 80 ? users[random.nextInt(users.length)] : null;
+            String rider = kind >= 40 ? users[random.nextInt(users.length)] : null;
+            long departureAt = YEAR_START + random.nextInt(365 * 24) * HOUR_MS;
+            Ride ride = new Ride(DepartureTime.format(departureAt),
+                    driver, rider, cities[random.nextInt(cities.length)], cities[random.nextInt(cities.length)], kind >= 95, id);
+            ride.setStatus(ride.deriveStatus());
+            ride.setDepartureAt(departureAt);
+            ridesNode.put(String.valueOf(id), ride.toMap());
+        }
+        return ridesNode;
+    }
+}
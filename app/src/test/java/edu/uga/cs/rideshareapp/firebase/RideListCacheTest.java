@@ -0,0 +1,112 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.database.DatabaseError;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+
+/** Expiry, eviction, invalidation and delta bases in RideListCache, on a hand-driven clock. */
+public class RideListCacheTest {
+
+    private static final String USER = "rider@example.com";
+    private static final List<Ride> RIDES = Collections.singletonList(new Ride());
+
+    private final AtomicLong nowNanos = new AtomicLong();
+
+    private static final RideService.RideListListener IGNORED = new RideService.RideListListener() {
+        @Override public void onRidesFetched(List<Ride> rides) { }
+        @Override public void onError(DatabaseError databaseError) { }
+    };
+
+    /** Runs one read through the cache, fetching (i.e. completing it straight away) on a miss. */
+    private static boolean hit(RideListCache cache, String key) {
+        RideListCache.Lookup lookup = cache.lookup(key, IGNORED);
+        if (lookup.cached != null) return true;
+        cache.complete(key, RIDES, RideListCache.NO_WATERMARK);
+        return false;
+    }
+
+    @Test
+    public void entries_expireAfterTtl() {
+        RideListCache cache = new RideListCache(4, 1000, nowNanos::get);
+        String key = RideListCache.key(RideStatus.OPEN_OFFER, USER, true);
+        assertFalse(hit(cache, key));
+        nowNanos.set(1000 * 1_000_000L);
+        assertTrue(hit(cache, key));
+        nowNanos.incrementAndGet();
+        assertFalse(hit(cache, key));
+        assertEquals(1, cache.stats().expirations);
+    }
+
+    @Test
+    public void fullCache_evictsLeastRecentlyUsed() {
+        RideListCache cache = new RideListCache(2, 1000, nowNanos::get);
+        String offers = RideListCache.key(RideStatus.OPEN_OFFER, USER, true);
+        String requests = RideListCache.key(RideStatus.OPEN_REQUEST, USER, true);
+        String accepted = RideListCache.key(RideStatus.ACCEPTED, USER, false);
+        hit(cache, offers);
+        hit(cache, requests);
+        assertTrue(hit(cache, offers)); // Requests is now the eldest
+        hit(cache, accepted);
+
+        assertTrue(hit(cache, offers));
+        assertFalse(hit(cache, requests));
+        assertEquals(2, cache.stats().evictions); // Requests, then accepted when requests came back
+        assertEquals(2, cache.stats().size);
+    }
+
+    @Test
+    public void invalidationDuringFetch_keepsResultOutOfCache() {
+        RideListCache cache = new RideListCache(4, 1000, nowNanos::get);
+        String key = RideListCache.key(RideStatus.OPEN_OFFER, USER, true);
+        assertNotNull(cache.lookup(key, IGNORED).startFetch);
+        cache.invalidate(RideStatus.ACCEPTED);
+        assertEquals(1, cache.complete(key, RIDES, RideListCache.NO_WATERMARK).size()); // Waiters still get the result
+        assertFalse(hit(cache, key));
+    }
+
+    @Test
+    public void listsWithWatermarks_becomeBasesWhenTheyGoStale() {
+        RideListCache cache = new RideListCache(4, 1000, nowNanos::get);
+        String offers = RideListCache.key(RideStatus.OPEN_OFFER, USER, true);
+        String requests = RideListCache.key(RideStatus.OPEN_REQUEST, USER, true);
+        cache.lookup(offers, IGNORED);
+        cache.complete(offers, RIDES, 500);
+        cache.lookup(requests, IGNORED);
+        cache.complete(requests, RIDES, RideListCache.NO_WATERMARK);
+
+        cache.invalidate(RideStatus.OPEN_OFFER, RideStatus.OPEN_REQUEST);
+        RideListCache.Lookup lookup = cache.lookup(offers, IGNORED);
+        assertEquals(RIDES, lookup.base);
+        assertEquals(500, lookup.baseWatermark);
+        assertNull("No watermark, nothing to patch", cache.lookup(requests, IGNORED).base);
+
+        cache.complete(offers, RIDES, 800);
+        nowNanos.set(1001 * 1_000_000L);
+        assertEquals(800, cache.lookup(offers, IGNORED).baseWatermark); // Expired this time
+        assertEquals(2, cache.stats().deltas);
+
+        cache.invalidateAll();
+        assertNull(cache.lookup(offers, IGNORED).base);
+    }
+
+    @Test
+    public void oldBases_areDroppedInsteadOfPatched() {
+        RideListCache cache = new RideListCache(4, 1000, nowNanos::get);
+        String offers = RideListCache.key(RideStatus.OPEN_OFFER, USER, true);
+        cache.lookup(offers, IGNORED);
+        cache.complete(offers, RIDES, 500);
+
+        nowNanos.set((RideListCache.MAX_BASE_AGE_MS + 1) * 1_000_000L);
+        assertNull("Older than the tombstones a delta would need", cache.lookup(offers, IGNORED).base);
+        assertEquals(0, cache.stats().deltas);
+    }
+}
@@ -0,0 +1,125 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.model.RideStatus;
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/**
+ * "Offers within 2 km of here" on the client: the full scan the browse list does today (every
+ * open offer downloaded, parsed and distance-checked) against the geohash plan (only the rides in
+ * the cells around the point). The database's share, the index lookups, happens in setup, since
+ * MemoryRideStore scans instead of indexing; what is measured is what the device pays for the
+ * rows it is sent. The setup prints how many rows each side downloads.
+ *
+ * Offers are spread over Georgia, a fifth of them clustered around its cities, so the point
+ * (downtown Athens) has a realistic handful of neighbours.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class RideNearbyBenchmark {
+
+    private static final String CURRENT_USER = "user0@example.com";
+    private static final double HERE_LAT = 33.9519;
+    private static final double HERE_LNG = -83.3576;
+    private static final double RADIUS_M = 2000;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rides;
+
+    private RideStore.Snapshot allOffers;
+    private final List<RideStore.Snapshot> cellRanges = new ArrayList<>();
+    private RideService.RideFilter nearFilter;
+
+    @Setup(Level.Trial)
+    public void loadDataset() {
+        MemoryRideStore store = new MemoryRideStore();
+        Map<String, Object> updates = new LinkedHashMap<>();
+        updates.put("rides", syntheticOffers(rides, 42));
+        store.updateChildren(updates, error -> { if (error != null) throw new IllegalStateException(error); });
+
+        RideQuery query = RideQuery.offers().ownedBy(RideQuery.Owner.OTHERS).leavingWithin(HERE_LAT, HERE_LNG, RADIUS_M);
+        RideQuery.Plan plan = query.plan(CURRENT_USER);
+        nearFilter = plan.filter;
+        allOffers = read(store, RideService.statusQuery(RideStatus.OPEN_OFFER));
+        long cellRows = 0;
+        for (StoreQuery cell : plan.storeQueries) {
+            RideStore.Snapshot range = read(store, cell);
+            cellRanges.add(range);
+            cellRows += range.getChildrenCount();
+        }
+        System.out.println(rides + " rides: full scan downloads " + allOffers.getChildrenCount() + " offers, "
+                + plan.storeQueries.size() + " cells download " + cellRows + "; " + plan);
+    }
+
+    private static RideStore.Snapshot read(MemoryRideStore store, StoreQuery query) {
+        AtomicReference<RideStore.Snapshot> snapshot = new AtomicReference<>();
+        store.get(query, new RideStore.ValueListener() {
+            @Override public void onDataChange(RideStore.Snapshot result) { snapshot.set(result); }
+            @Override public void onCancelled(RideStoreException error) { throw new IllegalStateException(error); }
+        });
+        return snapshot.get();
+    }
+
+    @Benchmark
+    public List<Ride> offersNearFullScan() {
+        return RideService.parseRides(allOffers, nearFilter, "benchmark");
+    }
+
+    @Benchmark
+    public List<Ride> offersNearByCells() {
+        List<Ride> near = new ArrayList<>();
+        for (RideStore.Snapshot range : cellRanges) near.addAll(RideService.parseRides(range, nearFilter, "benchmark"));
+        return near;
+    }
+
+    @Benchmark
+    public RideQuery.Plan planNearQuery() {
+        return RideQuery.offers().ownedBy(RideQuery.Owner.OTHERS).leavingWithin(HERE_LAT, HERE_LNG, RADIUS_M).plan(CURRENT_USER);
+    }
+
+    /** Open offers from 1000 users with from and to locations, as RideService would write them. */
+    static Map<String, Object> syntheticOffers(int count, long seed) {
+        double[][] cities = { { 33.9519, -83.3576 }, { 33.7490, -84.3880 }, { 32.0809, -81.0912 }, { 33.4735, -82.0105 }, { 32.8407, -83.6324 } };
+        Random random = new Random(seed);
+        Map<String, Object> ridesNode = new LinkedHashMap<>();
+        for (int id = 1; id <= count; id++) {
+            Ride ride = new Ride("05/01/2025 10:00 AM", "user" + random.nextInt(1000) + "@example.com", null, "Atlanta", "Athens", false, id);
+            if (random.nextInt(5) == 0) {
+                double[] city = cities[random.nextInt(cities.length)];
+                ride.setFromLocation(city[0] + random.nextGaussian() * 0.05, city[1] + random.nextGaussian() * 0.05); // About 5 km spread
+            } else {
+                ride.setFromLocation(30.6 + random.nextDouble() * 4.4, -85.5 + random.nextDouble() * 4.5);
+            }
+            ride.setToLocation(30.6 + random.nextDouble() * 4.4, -85.5 + random.nextDouble() * 4.5);
+            ride.setStatus(ride.deriveStatus());
+            ridesNode.put(String.valueOf(id), ride.toMap());
+        }
+        return ridesNode;
+    }
+}
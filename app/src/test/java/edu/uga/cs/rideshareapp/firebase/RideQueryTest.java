@@ -0,0 +1,102 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uga.cs.rideshareapp.model.Ride;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/** Index choice, client filters and explain output of RideQuery plans. */
+public class RideQueryTest {
+
+    private static final String USER = "rider@example.com";
+    private static final long NOW = 1_746_108_000_000L;
+    private static final long HOUR = 3_600_000L;
+
+    private static Ride ride(int id, String driver, String rider, String from, String to, long departureAt) {
+        Ride ride = new Ride("05/01/2025 10:00 AM", driver, rider, to, from, false, id);
+        ride.setStatus(ride.deriveStatus());
+        ride.setDepartureAt(departureAt);
+        return ride;
+    }
+
+    @Test
+    public void ownRides_useTheUserIndexEvenWithAWindow() {
+        RideQuery.Plan plan = RideQuery.accepted().ownedBy(RideQuery.Owner.CURRENT_USER)
+                .withRole(RideQuery.Role.DRIVER).departingBetween(NOW, NOW + HOUR).plan(USER);
+        assertEquals(RideQuery.Index.USER_RIDES, plan.index);
+        assertEquals("userRides/rider@example,com", plan.storeQueries.get(0).getPath());
+        assertEquals(Arrays.asList("driver is the current user", "departure in [" + NOW + ", " + (NOW + HOUR) + "]"), plan.clientConditions);
+        assertEquals(6.0, plan.expectedOverfetch, 0.01); // Half the seats, a third of the times
+        assertTrue(plan.sortByDeparture);
+    }
+
+    @Test
+    public void othersRides_useTheWindowWhenThereIsOne() {
+        RideQuery.Plan windowed = RideQuery.offers().ownedBy(RideQuery.Owner.OTHERS).departingBetween(NOW, NOW + HOUR).plan(USER);
+        assertEquals(RideQuery.Index.STATUS_DEPARTURE, windowed.index);
+        assertFalse(windowed.sortByDeparture);
+        assertEquals("statusDeparture", windowed.storeQueries.get(0).getOrderByChild());
+
+        RideQuery.Plan plain = RideQuery.offers().ownedBy(RideQuery.Owner.OTHERS).to("Atlanta").plan(USER);
+        assertEquals(RideQuery.Index.STATUS, plain.index);
+        assertEquals(Arrays.asList("driver or rider is not the current user", "destination = Atlanta"), plain.clientConditions);
+        assertEquals(10.0, plain.expectedOverfetch, 0.01);
+        assertEquals("status index StoreQuery{path='rides', orderBy=CHILD(status), startAt=OPEN_OFFER, endAt=OPEN_OFFER}"
+                + " where status = OPEN_OFFER; client filter: driver or rider is not the current user and destination = Atlanta;"
+                + " expected overfetch 10.0x", plain.toString());
+    }
+
+    @Test
+    public void limit_goesToTheDatabaseOnlyWithoutClientConditions() {
+        RideQuery.Plan served = RideQuery.requests().departingBetween(NOW, NOW + HOUR).limit(5).plan(USER);
+        assertEquals(5, served.storeQueries.get(0).getLimitToFirst());
+        assertEquals(0, served.clientLimit);
+
+        RideQuery.Plan filtered = RideQuery.requests().from("Athens").limit(2).plan(USER);
+        assertEquals(0, filtered.storeQueries.get(0).getLimitToFirst());
+        List<Ride> rides = new ArrayList<>(Arrays.asList(ride(1, null, "a@example.com", "Athens", "Macon", NOW),
+                ride(2, null, "b@example.com", "Athens", "Macon", NOW), ride(3, null, "c@example.com", "Athens", "Macon", NOW)));
+        assertEquals(2, filtered.finish(rides).size());
+        assertTrue(filtered.toString().contains("limit 2 on the client"));
+    }
+
+    @Test
+    public void nearbyRides_readOneRangePerCellAndCheckTheDistance() {
+        RideQuery.Plan plan = RideQuery.offers().leavingWithin(33.9519, -83.3576, 2000).limit(3).plan(USER);
+        assertEquals(RideQuery.Index.FROM_CELL, plan.index);
+        assertTrue(plan.storeQueries.size() >= 1 && plan.storeQueries.size() <= 9);
+        for (StoreQuery cell : plan.storeQueries) {
+            assertEquals("statusFromCell", cell.getOrderByChild());
+            assertEquals(0, cell.getLimitToFirst()); // Each cell holds only part of the answer
+        }
+        assertEquals(3, plan.clientLimit);
+
+        Ride near = ride(1, "driver@example.com", null, "Athens", "Atlanta", NOW);
+        near.setFromLocation(33.9480, -83.3773); // About 1.9 km
+        Ride far = ride(2, "driver@example.com", null, "Athens", "Atlanta", NOW);
+        far.setFromLocation(33.9519, -83.3300); // About 2.5 km
+        Ride unplaced = ride(3, "driver@example.com", null, "Athens", "Atlanta", NOW);
+        assertTrue(plan.filter.shouldInclude(near));
+        assertFalse(plan.filter.shouldInclude(far));
+        assertFalse(plan.filter.shouldInclude(unplaced));
+        assertTrue(plan.toString().contains("origin within 2000 m of 33.95190,-83.35760"));
+    }
+
+    @Test
+    public void filter_checksEveryCondition() {
+        RideService.RideFilter filter = RideQuery.offers().ownedBy(RideQuery.Owner.OTHERS)
+                .departingBetween(NOW, NOW + HOUR).from(" athens ").plan(USER).filter;
+        assertTrue(filter.shouldInclude(ride(1, "driver@example.com", null, "Athens", "Atlanta", NOW + HOUR)));
+        assertFalse("Own offer", filter.shouldInclude(ride(2, USER, null, "Athens", "Atlanta", NOW)));
+        assertFalse("Taken", filter.shouldInclude(ride(3, "driver@example.com", "other@example.com", "Athens", "Atlanta", NOW)));
+        assertFalse("Too late", filter.shouldInclude(ride(4, "driver@example.com", null, "Athens", "Atlanta", NOW + HOUR + 1)));
+        assertFalse("Elsewhere", filter.shouldInclude(ride(5, "driver@example.com", null, "Macon", "Atlanta", NOW)));
+        assertThrows(IllegalArgumentException.class, () -> RideQuery.offers().departingBetween(NOW, NOW - 1));
+    }
+}
@@ -0,0 +1,52 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+/** The SQL and full-text queries RideSearch builds; RideMirror runs them on a device. */
+public class RideSearchTest {
+
+    private static final long NOW = 1_746_108_000_000L;
+
+    @Test
+    public void defaultSearch_leavesOutDepartedRidesAndSortsUndatedLast() {
+        RideSearch.Statement statement = RideSearch.openRides().toStatement(NOW);
+        assertEquals("SELECT * FROM rides WHERE status IN (?, ?) AND (departure_at >= ? OR departure_at = 0)"
+                + " ORDER BY departure_at = 0, departure_at, ride_id", statement.sql);
+        assertEquals(Arrays.asList("OPEN_OFFER", "OPEN_REQUEST", Long.toString(NOW)), Arrays.asList(statement.args));
+    }
+
+    @Test
+    public void combinedFilters_bindEveryValue() {
+        RideSearch.Statement statement = RideSearch.offers()
+                .from(" Athens ").to("Atlanta").matching("Airport")
+                .departingBetween(NOW, NOW + 3_600_000L)
+                .sortedBy(RideSearch.Sort.DESTINATION).limit(20)
+                .toStatement(NOW);
+        assertEquals("SELECT * FROM rides WHERE status IN (?) AND departure_at BETWEEN ? AND ?"
+                + " AND origin = ? COLLATE NOCASE AND destination = ? COLLATE NOCASE"
+                + " AND ride_id IN (SELECT docid FROM rides_fts WHERE rides_fts MATCH ?)"
+                + " ORDER BY destination COLLATE NOCASE, departure_at = 0, departure_at, ride_id LIMIT 20", statement.sql);
+        assertEquals(Arrays.asList("OPEN_OFFER", Long.toString(NOW), Long.toString(NOW + 3_600_000L), "Athens", "Atlanta", "airport*"),
+                Arrays.asList(statement.args));
+    }
+
+    @Test
+    public void matchExpression_keepsOnlyWordsAsPrefixTerms() {
+        assertEquals("ath* atl*", RideSearch.matchExpression("Ath, ATL"));
+        assertEquals("or* near* são*", RideSearch.matchExpression("\"OR\" NEAR -São"));
+        assertNull(RideSearch.matchExpression("  *:- "));
+        assertNull(RideSearch.matchExpression(null));
+        assertFalse(RideSearch.offers().matching("!!").toStatement(NOW).sql.contains("MATCH"));
+    }
+
+    @Test
+    public void invalidWindowsAndLimits_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RideSearch.requests().departingBetween(NOW, NOW - 1));
+        assertThrows(IllegalArgumentException.class, () -> RideSearch.requests().departingBetween(0, NOW));
+        assertThrows(IllegalArgumentException.class, () -> RideSearch.requests().limit(-1));
+    }
+}
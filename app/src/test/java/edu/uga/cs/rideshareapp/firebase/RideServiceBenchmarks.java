@@ -0,0 +1,44 @@
+package edu.uga.cs.rideshareapp.firebase;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Entry point for the JMH suite. Skipped in normal test runs; run it with
+ *
+ *     ./gradlew :app:testDebugUnitTest -Pjmh --tests '*RideServiceBenchmarks'
+ *
+ * and optionally -PjmhRides=1000,100000 to limit the dataset sizes. Reports throughput plus
+ * allocation rate (gc.alloc.rate / gc.alloc.rate.norm) to the console and to
+ * app/build/reports/jmh/ride-service.json.
+ */
+public class RideServiceBenchmarks {
+
+    @Test
+    public void runBenchmarks() throws RunnerException {
+        Assume.assumeTrue("JMH suite only runs with -Pjmh", Boolean.getBoolean("rideshare.jmh"));
+
+        File results = new File("build/reports/jmh/ride-service.json");
+        results.getParentFile().mkdirs();
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(RideListBenchmark.class.getName())
+                .include(RideNearbyBenchmark.class.getName())
+                .include(PointsTransactionBenchmark.class.getName())
+                .forks(0) // The Gradle test worker's classpath can't be relaunched in a forked JVM
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.getPath());
+        String rides = System.getProperty("rideshare.jmh.rides");
+        if (rides != null && !rides.isEmpty()) options.param("rides", rides.split(","));
+
+        new Runner(options.build()).run();
+    }
+}
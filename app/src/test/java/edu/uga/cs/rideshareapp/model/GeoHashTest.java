@@ -0,0 +1,63 @@
+package edu.uga.cs.rideshareapp.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+/** Geohash encoding, cell coverage of a circle, and the status/cell index values. */
+public class GeoHashTest {
+
+    @Test
+    public void encode_matchesKnownHashes() {
+        assertEquals("ezs42", GeoHash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        double[] box = GeoHash.bounds("ezs42");
+        assertTrue(box[0] <= 42.6 && 42.6 <= box[1] && box[2] <= -5.6 && -5.6 <= box[3]);
+        assertThrows(IllegalArgumentException.class, () -> GeoHash.encode(91, 0, 5));
+    }
+
+    @Test
+    public void distance_matchesAKnownRoute() {
+        // Athens to Atlanta city halls, about 97 km apart
+        assertEquals(97_000, GeoHash.distanceMeters(33.9597, -83.3764, 33.7490, -84.3880), 1_500);
+        assertEquals(0, GeoHash.distanceMeters(33.9597, -83.3764, 33.9597, -83.3764), 0);
+    }
+
+    @Test
+    public void cellsWithin_coverEveryPointInTheCircle() {
+        Random random = new Random(7);
+        double[][] centers = { { 33.9519, -83.3576 }, { 64.1466, -21.9426 }, { -33.8688, 151.2093 }, { 0.0001, 179.9999 } };
+        for (double[] center : centers) {
+            for (double radius : new double[] { 150, 2000, 25_000 }) {
+                List<String> cells = GeoHash.cellsWithin(center[0], center[1], radius);
+                assertTrue(cells.size() <= 9);
+                for (int i = 0; i < 500; i++) {
+                    // A random point inside the circle, in a local flat approximation
+                    double bearing = random.nextDouble() * 2 * Math.PI;
+                    double distance = radius * Math.sqrt(random.nextDouble()) * 0.999;
+                    double lat = center[0] + distance * Math.cos(bearing) / 111_195;
+                    double lng = center[1] + distance * Math.sin(bearing) / (111_195 * Math.cos(Math.toRadians(center[0])));
+                    if (lng > 180) lng -= 360;
+                    String hash = GeoHash.encode(lat, lng, GeoHash.PRECISION);
+                    boolean covered = false;
+                    for (String cell : cells) covered |= hash.startsWith(cell);
+                    assertTrue(lat + "," + lng + " within " + radius + " m of " + center[0] + "," + center[1] + " is outside " + cells, covered);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexKeys_rangeOverTheRidesInACell() {
+        String key = GeoHash.indexKey(RideStatus.OPEN_OFFER, 33.9519, -83.3576);
+        String cell = GeoHash.encode(33.9519, -83.3576, 5);
+        assertEquals("OPEN_OFFER|" + GeoHash.encode(33.9519, -83.3576, GeoHash.PRECISION), key);
+        assertTrue(key.compareTo(GeoHash.cellStart(RideStatus.OPEN_OFFER, cell)) >= 0);
+        assertTrue(key.compareTo(GeoHash.cellEnd(RideStatus.OPEN_OFFER, cell)) <= 0);
+        assertTrue(GeoHash.indexKey(RideStatus.OPEN_REQUEST, 33.9519, -83.3576).compareTo(GeoHash.cellEnd(RideStatus.OPEN_OFFER, cell)) > 0);
+        assertNull(GeoHash.indexKey(RideStatus.OPEN_OFFER, null, null));
+    }
+}
@@ -0,0 +1,116 @@
+package edu.uga.cs.rideshareapp.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uga.cs.rideshareapp.store.MemoryRideStore;
+import edu.uga.cs.rideshareapp.store.RideStore;
+import edu.uga.cs.rideshareapp.store.RideStoreException;
+import edu.uga.cs.rideshareapp.store.StoreQuery;
+
+/**
+ * RideCodec against the reflective getValue(Class) path. Nodes are written to a MemoryRideStore
+ * and read back once, then decoded both ways from the same snapshot.
+ */
+public class RideCodecTest {
+
+    private final MemoryRideStore store = new MemoryRideStore();
+
+    private RideStore.Snapshot roundTrip(Object node) {
+        store.updateChildren(Collections.singletonMap("node", node), error -> { if (error != null) fail(error.getMessage()); });
+        AtomicReference<RideStore.Snapshot> snapshot = new AtomicReference<>();
+        store.get(StoreQuery.at("node"), new RideStore.ValueListener() {
+            @Override public void onDataChange(RideStore.Snapshot result) { snapshot.set(result); }
+            @Override public void onCancelled(RideStoreException error) { fail(error.getMessage()); }
+        });
+        return snapshot.get();
+    }
+
+    private void assertSameRide(Object node) {
+        RideStore.Snapshot snapshot = roundTrip(node);
+        assertEquals(snapshot.getValue(Ride.class), RideCodec.decodeRide(snapshot.getValue()));
+    }
+
+    @Test
+    public void decodeRide_matchesReflectiveMapping() {
+        String[] users = { "a@example.com", "b@example.com", "c@example.com" };
+        Random random = new Random(1);
+        for (int id = 1; id <= 500; id++) {
+            int kind = random.nextInt(4);
+            Ride ride = new Ride("2025-05-" + (1 + random.nextInt(28)) + " 10:00",
+                    kind != 1 ? users[random.nextInt(users.length)] : null,
+                    kind != 0 ? users[random.nextInt(users.length)] : null,
+                    "Atlanta", "Athens", kind == 3, id);
+            ride.setStatus(ride.deriveStatus());
+            ride.setVersion(random.nextInt(5));
+            ride.setDepartureAt(1_746_000_000_000L + random.nextInt(1_000_000) * 60_000L);
+            if (random.nextBoolean()) ride.setFromLocation(30.6 + random.nextDouble() * 4.4, -85.5 + random.nextDouble() * 4.5);
+            if (random.nextInt(4) == 0) ride.setToLocation(34.0, -84.0); // Whole degrees come back as Longs
+            assertSameRide(ride.toMap());
+        }
+    }
+
+    @Test
+    public void decodeRide_defaultsMissingFieldsAndIgnoresExtras() {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("driver", "a@example.com");
+        node.put("seats", 3L); // Not a Ride property
+        assertSameRide(node);
+
+        Ride ride = RideCodec.decodeRide(roundTrip(node).getValue());
+        assertNull(ride.getRider());
+        assertNull(ride.getStatus());
+        assertFalse(ride.isComplete());
+        assertEquals(0, ride.getRideId());
+    }
+
+    @Test
+    public void decodeRide_missingNodeIsNull() {
+        assertNull(RideCodec.decodeRide(null));
+        assertNull(RideCodec.decodePoints(null));
+    }
+
+    @Test
+    public void decodeRide_tombstoneIsNull() {
+        Map<String, Object> node = new HashMap<>();
+        node.put(RideCodec.DELETED, true);
+        node.put("version", 3L);
+        node.put("updatedAt", 1_746_108_000_000L);
+        assertNull(RideCodec.decodeRide(node));
+        node.put(RideCodec.DELETED, false);
+        assertEquals(3, RideCodec.decodeRide(node).getVersion());
+    }
+
+    @Test
+    public void decodeRide_rejectsMistypedFields() {
+        Map<String, Object> node = new HashMap<>();
+        node.put("complete", "yes");
+        assertThrows(IllegalArgumentException.class, () -> RideCodec.decodeRide(node));
+        node.put("complete", true);
+        node.put("status", "PARKED");
+        assertThrows(IllegalArgumentException.class, () -> RideCodec.decodeRide(node));
+        node.remove("status");
+        node.put("rideId", 1L << 40);
+        assertThrows(IllegalArgumentException.class, () -> RideCodec.decodeRide(node));
+        assertThrows(IllegalArgumentException.class, () -> RideCodec.decodeRide("not a ride"));
+    }
+
+    @Test
+    public void decodePoints_matchesReflectiveMapping() {
+        RideStore.Snapshot stored = roundTrip(new Points(35));
+        assertEquals(35, RideCodec.decodePoints(stored.getValue()).getPoints());
+        assertEquals(stored.getValue(Points.class).getPoints(), RideCodec.decodePoints(stored.getValue()).getPoints());
+
+        // A node without the field keeps the constructor default, as the class mapper does
+        RideStore.Snapshot empty = roundTrip(Collections.singletonMap("other", 1L));
+        assertEquals(empty.getValue(Points.class).getPoints(), RideCodec.decodePoints(empty.getValue()).getPoints());
+    }
+}
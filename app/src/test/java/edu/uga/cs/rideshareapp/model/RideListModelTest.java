@@ -0,0 +1,51 @@
+package edu.uga.cs.rideshareapp.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Ordering of RideListModel under the child events a live query delivers. */
+public class RideListModelTest {
+
+    private static Ride ride(int id) {
+        return new Ride("05/01/2025 10:00 AM", "driver@example.com", null, "Atlanta", "Athens", false, id);
+    }
+
+    private static List<Integer> ids(List<Ride> rides) {
+        List<Integer> ids = new ArrayList<>();
+        for (Ride ride : rides) ids.add(ride.getRideId());
+        return ids;
+    }
+
+    @Test
+    public void childEvents_keepTheQueryOrder() {
+        RideListModel model = new RideListModel();
+        model.putAfter("1", ride(1), null);
+        model.putAfter("3", ride(3), "1");
+        model.putAfter("2", ride(2), "1");
+        model.putAfter("0", ride(0), null);
+        assertEquals(Arrays.asList(0, 1, 2, 3), ids(model.getRides()));
+
+        model.moveAfter("0", "3");
+        model.putAfter("2", ride(2), "0"); // Re-added: repositions instead of duplicating
+        assertEquals(Arrays.asList(1, 3, 0, 2), ids(model.getRides()));
+        assertEquals("0", model.getKey(2));
+
+        model.putAfter("4", null, "9"); // Unknown sibling appends; no ride yet hides the row but keeps the slot
+        model.moveAfter("4", "4");
+        assertEquals(5, model.size());
+        assertEquals("4", model.getKey(4));
+        assertEquals(Arrays.asList(1, 3), ids(model.getRides(2)));
+
+        model.remove("3");
+        model.update("4", ride(4));
+        model.update("7", ride(7)); // Not a key: ignored
+        assertFalse(model.contains("3"));
+        assertEquals(Arrays.asList(1, 0, 2, 4), ids(model.getRides()));
+        assertThrows(IndexOutOfBoundsException.class, () -> model.getKey(4));
+    }
+}
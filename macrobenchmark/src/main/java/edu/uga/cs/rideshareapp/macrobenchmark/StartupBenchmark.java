@@ -0,0 +1,78 @@
+package edu.uga.cs.rideshareapp.macrobenchmark;
+
+import android.content.Intent;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Time from process start (cold) or activity launch (warm) to the first ride row on the Rides
+ * tab. timeToInitialDisplay is the first frame; timeToFullDisplay ends at RidesFragment's
+ * reportFullyDrawn, i.e. the first drawn rides, whether the stored lists or the network got
+ * there first. A cold start keeps the app's disk cache, so it measures the cache-then-network
+ * path a returning user sees.
+ *
+ * Needs a device signed in to the app (the launcher activity goes straight to HomeActivity) and
+ * at least one open ride from another user. Results are printed by the benchmark runner and
+ * written under build/outputs/connected_android_test_additional_output.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String PACKAGE = "edu.uga.cs.rideshareapp";
+    private static final String EXTRA_OPEN_RIDES = "openRides"; // HomeActivity.EXTRA_OPEN_RIDES
+    private static final int ITERATIONS = 10;
+    private static final long FIRST_ROW_TIMEOUT_MS = 15_000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupCold() {
+        measureStartup(StartupMode.COLD);
+    }
+
+    @Test
+    public void startupWarm() {
+        measureStartup(StartupMode.WARM);
+    }
+
+    private void measureStartup(StartupMode mode) {
+        benchmarkRule.measureRepeated(PACKAGE, Collections.singletonList(new StartupTimingMetric()),
+                CompilationMode.DEFAULT, mode, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    launchOnRidesTab(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static void launchOnRidesTab(MacrobenchmarkScope scope) {
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .addCategory(Intent.CATEGORY_LAUNCHER)
+                .setPackage(PACKAGE)
+                .putExtra(EXTRA_OPEN_RIDES, true);
+        scope.startActivityAndWait(intent);
+        // The iteration has to last until reportFullyDrawn for timeToFullDisplay to be recorded
+        if (!scope.getDevice().wait(Until.hasObject(By.res(PACKAGE, "dateText")), FIRST_ROW_TIMEOUT_MS)) {
+            throw new IllegalStateException("No ride row drawn; is the device signed in, with open rides from other users?");
+        }
+    }
+}